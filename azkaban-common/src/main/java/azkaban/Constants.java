@@ -110,6 +110,52 @@ public class Constants {
     public static final String AZKABAN_KERBEROS_PRINCIPAL = "azkaban.kerberos.principal";
     public static final String AZKABAN_KEYTAB_PATH = "azkaban.keytab.path";
     public static final String PROJECT_TEMP_DIR = "project.temp.dir";
+
+    // Project files stored in the db are read by a pool of this many threads, each download
+    // prefetching up to this many chunks ahead of the reader.
+    public static final String AZKABAN_PROJECT_DOWNLOAD_THREADS = "azkaban.project.download.threads";
+    public static final String AZKABAN_PROJECT_DOWNLOAD_PREFETCH_CHUNKS = "azkaban.project.download.prefetch.chunks";
+
+    // Project files are cached on local disk in this directory, up to this many bytes in total.
+    // The cache is off if the max is not set or <= 0.
+    public static final String AZKABAN_STORAGE_CACHE_DIR = "azkaban.storage.cache.dir";
+    public static final String AZKABAN_STORAGE_CACHE_MAX_BYTES = "azkaban.storage.cache.max.bytes";
+
+    // Flows of at most this many projects are kept in memory, loaded when they are first used.
+    // If <= 0, the flows of all projects are loaded at startup.
+    public static final String AZKABAN_PROJECT_FLOW_CACHE_SIZE = "azkaban.project.flow.cache.size";
+
+    // The flows of this many most recently modified projects are loaded in the background at
+    // startup, by this many threads.
+    public static final String AZKABAN_PROJECT_FLOW_WARMUP_COUNT = "azkaban.project.flow.warmup.count";
+    public static final String AZKABAN_PROJECT_FLOW_WARMUP_THREADS = "azkaban.project.flow.warmup.threads";
+
+    // Max number of pre-built executable flow templates kept by the web server. 0 disables it.
+    public static final String AZKABAN_FLOW_TEMPLATE_CACHE_SIZE = "azkaban.flow.template.cache.size";
+
+    // Max total size of the flow graph JSON cached by the web server. 0 disables it.
+    public static final String AZKABAN_FLOW_GRAPH_CACHE_MAX_BYTES = "azkaban.flow.graph.cache.max.bytes";
+
+    // How often the web server rereads executions and log chunks polled by execution pages,
+    // except for running executions.
+    public static final String EXECUTION_PAGE_STATE_REFRESH_MS = "execution.page.state.refresh.ms";
+
+    // Retention of finished executions and executor events. If not set or <= 0, they are kept.
+    public static final String EXECUTION_HISTORY_RETENTION_MS = "execution.history.retention.ms";
+    public static final String EXECUTOR_EVENTS_RETENTION_MS = "executor.events.retention.ms";
+
+    // Old execution data is deleted this many executions (or events) at a time, with a pause in
+    // between, for at most the max run time per cleanup.
+    public static final String AZKABAN_RETENTION_BATCH_SIZE = "azkaban.server.retention.batch.size";
+    public static final String AZKABAN_RETENTION_BATCH_PAUSE_MS = "azkaban.server.retention.batch.pause.ms";
+    public static final String AZKABAN_RETENTION_MAX_RUN_MS = "azkaban.server.retention.max.run.ms";
+
+    // Output of job processes is read by this many threads, which poll quiet processes every min
+    // up to every max ms. Up to this many chunks of each process's output wait to be logged.
+    public static final String AZKABAN_PROCESS_OUTPUT_THREADS = "azkaban.process.output.threads";
+    public static final String AZKABAN_PROCESS_OUTPUT_MIN_IDLE_WAIT_MS = "azkaban.process.output.min.idle.wait.ms";
+    public static final String AZKABAN_PROCESS_OUTPUT_MAX_IDLE_WAIT_MS = "azkaban.process.output.max.idle.wait.ms";
+    public static final String AZKABAN_PROCESS_OUTPUT_QUEUE_CHUNKS = "azkaban.process.output.queue.chunks";
   }
 
   public static class FlowProperties {
@@ -135,5 +181,12 @@ public class Constants {
     public static final String JOBCALLBACK_SOCKET_TIMEOUT = "jobcallback.socket.timeout";
     public static final String JOBCALLBACK_RESPONSE_WAIT_TIMEOUT = "jobcallback.response.wait.timeout";
     public static final String JOBCALLBACK_THREAD_POOL_SIZE = "jobcallback.thread.pool.size";
+    public static final String JOBCALLBACK_MAX_REQUESTS_PER_HOST = "jobcallback.max.requests.per.host";
+    public static final String JOBCALLBACK_QUEUE_CAPACITY = "jobcallback.queue.capacity";
+    public static final String JOBCALLBACK_MAX_RETRIES = "jobcallback.max.retries";
+    public static final String JOBCALLBACK_RETRY_BACKOFF_MS = "jobcallback.retry.backoff.ms";
+    // Number of threads that handle job events for callbacks. 0 handles them on the job thread.
+    public static final String JOBCALLBACK_EVENT_THREADS = "jobcallback.event.threads";
+    public static final String JOBCALLBACK_EVENT_BUFFER_SIZE = "jobcallback.event.buffer.size";
   }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.event;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * Hands events to a listener on threads of its own, so that a slow listener doesn't hold up the
+ * runner that fired the event.
+ *
+ * Events are put into one of several bounded ring buffers, each drained by one thread. All events
+ * of a runner go to the same buffer, so the listener sees them in the order they were fired, but
+ * events of different runners may be handled concurrently. If a buffer is full, firing blocks
+ * until there is room again; events are never dropped.
+ *
+ * The lag is the time from creating an event until the listener got it.
+ *
+ * The threads stop when they are interrupted, e.g. by {@link #shutdown()}. Events that are still
+ * buffered then are dropped, and later events are handled on the caller's thread.
+ */
+public class AsyncEventListener implements EventListener {
+
+  private static final Logger logger = Logger.getLogger(AsyncEventListener.class);
+
+  private final String name;
+  private final EventListener delegate;
+  private final BlockingQueue<Event>[] buffers;
+  private final Thread[] threads;
+  private final AtomicLong numHandled = new AtomicLong();
+  private final AtomicLong totalLagMs = new AtomicLong();
+  private volatile long lastLagMs = 0;
+  private volatile long maxLagMs = 0;
+  private volatile boolean shutdown = false;
+
+  /**
+   * @param name name of the listener in thread names and logs
+   * @param numThreads number of buffers and threads
+   * @param bufferSize capacity of each buffer
+   */
+  @SuppressWarnings("unchecked")
+  public AsyncEventListener(final String name, final EventListener delegate,
+      final int numThreads, final int bufferSize) {
+    if (numThreads < 1 || bufferSize < 1) {
+      throw new IllegalArgumentException(
+          "Need at least one thread and buffer slot for " + name);
+    }
+    this.name = name;
+    this.delegate = delegate;
+    this.buffers = new BlockingQueue[numThreads];
+    this.threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      final BlockingQueue<Event> buffer = new ArrayBlockingQueue<>(bufferSize);
+      this.buffers[i] = buffer;
+      this.threads[i] = new Thread(() -> dispatch(buffer), name + "-events-" + i);
+      this.threads[i].setDaemon(true);
+      this.threads[i].start();
+    }
+  }
+
+  @Override
+  public void handleEvent(final Event event) {
+    if (this.shutdown) {
+      this.delegate.handleEvent(event);
+      return;
+    }
+    final int index =
+        (System.identityHashCode(event.getRunner()) & Integer.MAX_VALUE) % this.buffers.length;
+    try {
+      this.buffers[index].put(event);
+    } catch (final InterruptedException e) {
+      // Don't lose the event, handle it on the caller's thread instead.
+      logger.warn("Interrupted while queueing " + event.getType() + " for " + this.name
+          + ", handling it synchronously.");
+      Thread.currentThread().interrupt();
+      this.delegate.handleEvent(event);
+    }
+  }
+
+  private void dispatch(final BlockingQueue<Event> buffer) {
+    while (true) {
+      final Event event;
+      try {
+        event = buffer.take();
+      } catch (final InterruptedException e) {
+        logger.info("Event thread of " + this.name + " stopped, dropping " + buffer.size()
+            + " events.");
+        return;
+      }
+
+      final long lagMs = Math.max(0, System.currentTimeMillis() - event.getTime());
+      this.lastLagMs = lagMs;
+      if (lagMs > this.maxLagMs) {
+        this.maxLagMs = lagMs;
+      }
+      this.totalLagMs.addAndGet(lagMs);
+
+      try {
+        this.delegate.handleEvent(event);
+      } catch (final RuntimeException e) {
+        logger.error(this.name + " failed to handle " + event.getType(), e);
+      } finally {
+        this.numHandled.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Stops the threads without waiting for them.
+   */
+  public void shutdown() {
+    this.shutdown = true;
+    for (final Thread thread : this.threads) {
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * Waits up to waitMs for the threads to stop.
+   *
+   * @return true if all threads have stopped
+   */
+  public boolean awaitTermination(final long waitMs) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + waitMs;
+    for (final Thread thread : this.threads) {
+      thread.join(Math.max(deadline - System.currentTimeMillis(), 1));
+      if (thread.isAlive()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public EventListener getDelegate() {
+    return this.delegate;
+  }
+
+  /**
+   * @return number of events that wait to be handled
+   */
+  public int getNumQueued() {
+    int count = 0;
+    for (final BlockingQueue<Event> buffer : this.buffers) {
+      count += buffer.size();
+    }
+    return count;
+  }
+
+  public long getNumHandled() {
+    return this.numHandled.get();
+  }
+
+  public long getLastLagMs() {
+    return this.lastLagMs;
+  }
+
+  public long getMaxLagMs() {
+    return this.maxLagMs;
+  }
+
+  public long getAverageLagMs() {
+    final long handled = this.numHandled.get();
+    return handled == 0 ? 0 : this.totalLagMs.get() / handled;
+  }
+}
@@ -16,12 +16,20 @@
 
 package azkaban.event;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
+/**
+ * Calls the listeners on the thread that fires the event. Listeners that are slow should be
+ * wrapped in an {@link AsyncEventListener}.
+ *
+ * Listeners are added once per runner and events are fired much more often, so the registry is
+ * copy-on-write: firing neither copies nor locks, and listeners can be added or removed
+ * concurrently.
+ */
 public class EventHandler {
 
-  private final HashSet<EventListener> listeners = new HashSet<>();
+  private final Set<EventListener> listeners = new CopyOnWriteArraySet<>();
 
   public EventHandler() {
   }
@@ -31,9 +39,7 @@ public class EventHandler {
   }
 
   public void fireEventListeners(final Event event) {
-    final ArrayList<EventListener> listeners =
-        new ArrayList<>(this.listeners);
-    for (final EventListener listener : listeners) {
+    for (final EventListener listener : this.listeners) {
       listener.handleEvent(event);
     }
   }
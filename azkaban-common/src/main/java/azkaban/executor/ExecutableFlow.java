@@ -57,6 +57,7 @@ public class ExecutableFlow extends ExecutableFlowBase {
   private String executionPath;
   private ExecutionOptions executionOptions;
   private List<SlaOption> slaOptions = new ArrayList<>();
+  private ExecutableFlowTemplate template;
 
   public ExecutableFlow(final Project project, final Flow flow) {
     this.projectId = project.getId();
@@ -209,6 +210,18 @@ public class ExecutableFlow extends ExecutableFlowBase {
     this.submitTime = submitTime;
   }
 
+  /**
+   * Returns the template this flow was cloned from, or null if it was built
+   * directly from a {@link Flow}.
+   */
+  public ExecutableFlowTemplate getTemplate() {
+    return this.template;
+  }
+
+  void setTemplate(final ExecutableFlowTemplate template) {
+    this.template = template;
+  }
+
   @Override
   public Map<String, Object> toObject() {
     final HashMap<String, Object> flowObj = new HashMap<>();
@@ -21,6 +21,7 @@ import azkaban.flow.FlowProps;
 import azkaban.flow.Node;
 import azkaban.flow.SpecialJobTypes;
 import azkaban.project.Project;
+import azkaban.utils.Props;
 import azkaban.utils.TypedMapWrapper;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -43,6 +44,8 @@ public class ExecutableFlowBase extends ExecutableNode {
   private ArrayList<String> startNodes;
   private ArrayList<String> endNodes;
   private String flowId;
+  // Flattened copy of the input props, dropped when they are replaced.
+  private Props inputPropsSnapshot;
 
   public ExecutableFlowBase(final Project project, final Node node, final Flow flow,
       final ExecutableFlowBase parent) {
@@ -102,6 +105,24 @@ public class ExecutableFlowBase extends ExecutableNode {
     return -1;
   }
 
+  @Override
+  public void setInputProps(final Props input) {
+    super.setInputProps(input);
+    this.inputPropsSnapshot = null;
+  }
+
+  /**
+   * Returns a flattened snapshot of the input props, taken on the first call after they were set.
+   * Must not be called concurrently.
+   */
+  public Props getInputPropsSnapshot() {
+    final Props inputProps = getInputProps();
+    if (this.inputPropsSnapshot == null && inputProps != null) {
+      this.inputPropsSnapshot = inputProps.snapshot();
+    }
+    return this.inputPropsSnapshot;
+  }
+
   public Collection<FlowProps> getFlowProps() {
     return this.flowProps.values();
   }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.flow.Flow;
+import azkaban.project.Project;
+import azkaban.utils.FlowUtils;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-built, immutable executable graph of a flow at a given project version.
+ *
+ * The template keeps the object map of a freshly built {@link ExecutableFlow} (with disabled
+ * jobs already applied). {@link #newExecutableFlow()} clones the graph from the map without
+ * walking the {@link Flow}. Clones get everything the map holds, including the project metadata
+ * copied into it, so templates must be keyed on all of it.
+ */
+public class ExecutableFlowTemplate {
+
+  private final int projectId;
+  private final int version;
+  private final String flowId;
+  private final Map<String, Object> flowObject;
+
+  private ExecutableFlowTemplate(final ExecutableFlow exflow) {
+    this.projectId = exflow.getProjectId();
+    this.version = exflow.getVersion();
+    this.flowId = exflow.getFlowId();
+    // Never handed out, so clones can share it read-only.
+    this.flowObject = exflow.toObject();
+  }
+
+  /**
+   * Builds a template for the flow with the given jobs disabled.
+   *
+   * @param disabledJobs disabled jobs in the format of {@link ExecutionOptions#getDisabledJobs()},
+   * may be null
+   */
+  public static ExecutableFlowTemplate create(final Project project, final Flow flow,
+      final List<Object> disabledJobs) {
+    final ExecutableFlow exflow = new ExecutableFlow(project, flow);
+    if (disabledJobs != null) {
+      FlowUtils.applyDisabledJobs(disabledJobs, exflow);
+    }
+    return new ExecutableFlowTemplate(exflow);
+  }
+
+  /**
+   * Clones a new executable flow from this template.
+   */
+  public ExecutableFlow newExecutableFlow() {
+    final ExecutableFlow exflow =
+        ExecutableFlow.createExecutableFlowFromObject(this.flowObject);
+    exflow.setTemplate(this);
+    return exflow;
+  }
+
+  public int getProjectId() {
+    return this.projectId;
+  }
+
+  public int getVersion() {
+    return this.version;
+  }
+
+  public String getFlowId() {
+    return this.flowId;
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_FLOW_TEMPLATE_CACHE_SIZE;
+
+import azkaban.flow.Flow;
+import azkaban.project.Project;
+import azkaban.utils.Props;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.log4j.Logger;
+
+/**
+ * Cache of {@link ExecutableFlowTemplate}s keyed by (projectId, version, flowId, disabled jobs)
+ * and the project metadata that executable flows copy, i.e. the project name and the last
+ * modification time and user.
+ *
+ * Scheduled executions of the same flow share a template, so every trigger only pays for a cheap
+ * clone instead of rebuilding the executable graph and re-encoding it. Templates of a project are
+ * dropped when a new version is uploaded or the project is removed.
+ *
+ * The following global azkaban property can be used: azkaban.flow.template.cache.size - maximum
+ * number of templates kept. Default is 1000. Setting it to 0 disables the cache.
+ */
+@Singleton
+public class ExecutableFlowTemplateCache {
+
+  private static final Logger logger = Logger.getLogger(ExecutableFlowTemplateCache.class);
+  private static final int DEFAULT_CACHE_SIZE = 1000;
+
+  private final Cache<TemplateKey, ExecutableFlowTemplate> cache;
+  private final boolean enabled;
+
+  @Inject
+  public ExecutableFlowTemplateCache(final Props props) {
+    final int maxSize = props.getInt(AZKABAN_FLOW_TEMPLATE_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+    this.enabled = maxSize > 0;
+    this.cache = CacheBuilder.newBuilder().maximumSize(Math.max(maxSize, 0)).build();
+  }
+
+  /**
+   * Returns a new executable flow for the given project flow with the given jobs disabled, cloned
+   * from a cached template when possible.
+   */
+  public ExecutableFlow newExecutableFlow(final Project project, final Flow flow,
+      final List<Object> disabledJobs) {
+    if (!this.enabled) {
+      return new ExecutableFlow(project, flow);
+    }
+
+    final TemplateKey key = new TemplateKey(project, flow.getId(), disabledJobs);
+    try {
+      return this.cache
+          .get(key, () -> ExecutableFlowTemplate.create(project, flow, disabledJobs))
+          .newExecutableFlow();
+    } catch (final ExecutionException | UncheckedExecutionException e) {
+      logger.error("Failed to build template for flow " + flow.getId() + " of project "
+          + project.getName(), e);
+      return new ExecutableFlow(project, flow);
+    }
+  }
+
+  /**
+   * Drops every template of the given project.
+   */
+  public void invalidateProject(final int projectId) {
+    this.cache.asMap().keySet().removeIf(key -> key.projectId == projectId);
+  }
+
+  public long size() {
+    return this.cache.size();
+  }
+
+  private static class TemplateKey {
+
+    private final int projectId;
+    private final int version;
+    private final String projectName;
+    private final long lastModifiedTimestamp;
+    private final String lastModifiedUser;
+    private final String flowId;
+    private final List<Object> disabledJobs;
+
+    TemplateKey(final Project project, final String flowId, final List<Object> disabledJobs) {
+      this.projectId = project.getId();
+      this.version = project.getVersion();
+      this.projectName = project.getName();
+      this.lastModifiedTimestamp = project.getLastModifiedTimestamp();
+      this.lastModifiedUser = project.getLastModifiedUser();
+      this.flowId = flowId;
+      this.disabledJobs = disabledJobs == null ? Collections.emptyList()
+          : new ArrayList<>(disabledJobs);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final TemplateKey that = (TemplateKey) o;
+      return this.projectId == that.projectId
+          && this.version == that.version
+          && this.lastModifiedTimestamp == that.lastModifiedTimestamp
+          && Objects.equals(this.projectName, that.projectName)
+          && Objects.equals(this.lastModifiedUser, that.lastModifiedUser)
+          && Objects.equals(this.flowId, that.flowId)
+          && Objects.equals(this.disabledJobs, that.disabledJobs);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.projectId, this.version, this.projectName,
+          this.lastModifiedTimestamp, this.lastModifiedUser, this.flowId, this.disabledJobs);
+    }
+  }
+}
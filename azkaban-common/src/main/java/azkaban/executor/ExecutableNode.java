@@ -47,6 +47,7 @@ public class ExecutableNode {
   public static final String OUTPUT_PROPS_PARAM = "outputProps";
   public static final String ATTEMPT_PARAM = "attempt";
   public static final String PASTATTEMPTS_PARAM = "pastAttempts";
+  public static final String RESOURCE_USAGE_PARAM = "resourceUsage";
   private String id;
   private String type = null;
   private volatile Status status = Status.READY;
@@ -66,6 +67,8 @@ public class ExecutableNode {
   private int attempt = 0;
   private long delayExecution = 0;
   private ArrayList<ExecutionAttempt> pastAttempts = null;
+  // Summary of the resources used by the job processes of the current attempt.
+  private Map<String, Object> resourceUsage = null;
 
   // Transient. These values aren't saved, but rediscovered.
   private ExecutableFlowBase parentFlow;
@@ -213,6 +216,14 @@ public class ExecutableNode {
     this.outputProps = output;
   }
 
+  public Map<String, Object> getResourceUsage() {
+    return this.resourceUsage;
+  }
+
+  public void setResourceUsage(final Map<String, Object> resourceUsage) {
+    this.resourceUsage = resourceUsage;
+  }
+
   public long getDelayedExecution() {
     return this.delayExecution;
   }
@@ -250,6 +261,7 @@ public class ExecutableNode {
     this.setUpdateTime(System.currentTimeMillis());
     this.setStatus(Status.READY);
     this.setKilledBySLA(false);
+    this.setResourceUsage(null);
   }
 
   public List<Object> getAttemptObjects() {
@@ -308,6 +320,10 @@ public class ExecutableNode {
       objMap.put(OUTPUT_PROPS_PARAM, PropsUtils.toStringMap(this.outputProps, true));
     }
 
+    if (this.resourceUsage != null) {
+      objMap.put(RESOURCE_USAGE_PARAM, this.resourceUsage);
+    }
+
     if (this.pastAttempts != null) {
       final ArrayList<Object> attemptsList =
           new ArrayList<>(this.pastAttempts.size());
@@ -345,6 +361,8 @@ public class ExecutableNode {
       this.outputProps = new Props(null, outputProps);
     }
 
+    this.resourceUsage = wrappedMap.<String, Object>getMap(RESOURCE_USAGE_PARAM);
+
     final Collection<Object> pastAttempts =
         wrappedMap.<Object>getCollection(PASTATTEMPTS_PARAM);
     if (pastAttempts != null) {
@@ -373,6 +391,9 @@ public class ExecutableNode {
     updatedNodeMap.put(UPDATETIME_PARAM, getUpdateTime());
 
     updatedNodeMap.put(ATTEMPT_PARAM, getAttempt());
+    if (this.resourceUsage != null) {
+      updatedNodeMap.put(RESOURCE_USAGE_PARAM, this.resourceUsage);
+    }
 
     if (getAttempt() > 0) {
       final ArrayList<Map<String, Object>> pastAttempts =
@@ -393,6 +414,9 @@ public class ExecutableNode {
     this.startTime = updateData.getLong(STARTTIME_PARAM);
     this.updateTime = updateData.getLong(UPDATETIME_PARAM);
     this.endTime = updateData.getLong(ENDTIME_PARAM);
+    if (updateData.containsKey(RESOURCE_USAGE_PARAM)) {
+      this.resourceUsage = updateData.<String, Object>getMap(RESOURCE_USAGE_PARAM);
+    }
 
     if (updateData.containsKey(ATTEMPT_PARAM)) {
       this.attempt = updateData.getInt(ATTEMPT_PARAM);
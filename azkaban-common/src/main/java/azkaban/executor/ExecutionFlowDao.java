@@ -113,83 +113,94 @@ public class ExecutionFlowDao {
                                         final long startTime, final long endTime,
                                         final int skip, final int num)
       throws ExecutorManagerException {
-    String query = FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY;
     final List<Object> params = new ArrayList<>();
+    final String query = FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY
+        + createHistoryFilter(projContain, flowContains, userNameContains, status, startTime,
+        endTime, skip, num, params);
+    try {
+      return this.dbOperator.query(query, new FetchExecutableFlows(), params.toArray());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching active flows", e);
+    }
+  }
+
+  List<ExecutionSummary> fetchExecutionSummaries(final int skip, final int num)
+      throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(FetchExecutionSummaries.FETCH_ALL_EXECUTION_SUMMARIES,
+          new FetchExecutionSummaries(), skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching execution summaries", e);
+    }
+  }
+
+  List<ExecutionSummary> fetchExecutionSummaries(final int projectId, final String flowId,
+      final int skip, final int num) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(FetchExecutionSummaries.FETCH_FLOW_EXECUTION_SUMMARIES,
+          new FetchExecutionSummaries(), projectId, flowId, skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching execution summaries", e);
+    }
+  }
 
-    boolean first = true;
+  List<ExecutionSummary> fetchExecutionSummaries(final int projectId, final String flowId,
+      final int skip, final int num, final Status status) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(
+          FetchExecutionSummaries.FETCH_FLOW_EXECUTION_SUMMARIES_BY_STATUS,
+          new FetchExecutionSummaries(), projectId, flowId, status.getNumVal(), skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching execution summaries", e);
+    }
+  }
+
+  /**
+   * Creates the WHERE and LIMIT clauses of a history search on execution_flows aliased as ef.
+   *
+   * @param params receives the parameters of the clauses
+   */
+  private static String createHistoryFilter(final String projContain,
+      final String flowContains, final String userNameContains, final int status,
+      final long startTime, final long endTime, final int skip, final int num,
+      final List<Object> params) {
+    final List<String> conditions = new ArrayList<>();
+    String query = "";
     if (projContain != null && !projContain.isEmpty()) {
-      query += " ef JOIN projects p ON ef.project_id = p.id WHERE name LIKE ?";
+      query += " JOIN projects p ON ef.project_id = p.id";
+      conditions.add("p.name LIKE ?");
       params.add('%' + projContain + '%');
-      first = false;
     }
-
-    // todo kunkun-tang: we don't need the below complicated logics. We should just use a simple way.
     if (flowContains != null && !flowContains.isEmpty()) {
-      if (first) {
-        query += " WHERE ";
-        first = false;
-      } else {
-        query += " AND ";
-      }
-
-      query += " flow_id LIKE ?";
+      conditions.add("ef.flow_id LIKE ?");
       params.add('%' + flowContains + '%');
     }
-
     if (userNameContains != null && !userNameContains.isEmpty()) {
-      if (first) {
-        query += " WHERE ";
-        first = false;
-      } else {
-        query += " AND ";
-      }
-      query += " submit_user LIKE ?";
+      conditions.add("ef.submit_user LIKE ?");
       params.add('%' + userNameContains + '%');
     }
-
     if (status != 0) {
-      if (first) {
-        query += " WHERE ";
-        first = false;
-      } else {
-        query += " AND ";
-      }
-      query += " status = ?";
+      conditions.add("ef.status = ?");
       params.add(status);
     }
-
     if (startTime > 0) {
-      if (first) {
-        query += " WHERE ";
-        first = false;
-      } else {
-        query += " AND ";
-      }
-      query += " start_time > ?";
+      conditions.add("ef.start_time > ?");
       params.add(startTime);
     }
-
     if (endTime > 0) {
-      if (first) {
-        query += " WHERE ";
-      } else {
-        query += " AND ";
-      }
-      query += " end_time < ?";
+      conditions.add("ef.end_time < ?");
       params.add(endTime);
     }
 
+    if (!conditions.isEmpty()) {
+      query += " WHERE " + String.join(" AND ", conditions);
+    }
     if (skip > -1 && num > 0) {
-      query += "  ORDER BY exec_id DESC LIMIT ?, ?";
+      query += " ORDER BY ef.exec_id DESC LIMIT ?, ?";
       params.add(skip);
       params.add(num);
     }
-
-    try {
-      return this.dbOperator.query(query, new FetchExecutableFlows(), params.toArray());
-    } catch (final SQLException e) {
-      throw new ExecutorManagerException("Error fetching active flows", e);
-    }
+    return query;
   }
 
   void updateExecutableFlow(final ExecutableFlow flow) throws ExecutorManagerException {
@@ -244,7 +255,7 @@ public class ExecutionFlowDao {
       ResultSetHandler<List<ExecutableFlow>> {
 
     static String FETCH_BASE_EXECUTABLE_FLOW_QUERY =
-        "SELECT exec_id, enc_type, flow_data FROM execution_flows ";
+        "SELECT ef.exec_id, ef.enc_type, ef.flow_data FROM execution_flows ef";
     static String FETCH_EXECUTABLE_FLOW =
         "SELECT exec_id, enc_type, flow_data FROM execution_flows "
             + "WHERE exec_id=?";
@@ -304,4 +315,36 @@ public class ExecutionFlowDao {
       return execFlows;
     }
   }
+
+  /**
+   * Reads {@link ExecutionSummary}s from the scalar columns, leaving the flow data alone.
+   */
+  public static class FetchExecutionSummaries implements
+      ResultSetHandler<List<ExecutionSummary>> {
+
+    private static final String SUMMARY_COLUMNS =
+        "SELECT ef.exec_id, ef.project_id, ef.version, ef.flow_id, ef.status, ef.submit_user, "
+            + "ef.submit_time, ef.update_time, ef.start_time, ef.end_time "
+            + "FROM execution_flows ef";
+    static String FETCH_BASE_EXECUTION_SUMMARY_QUERY = SUMMARY_COLUMNS;
+    static String FETCH_ALL_EXECUTION_SUMMARIES =
+        SUMMARY_COLUMNS + " ORDER BY ef.exec_id DESC LIMIT ?, ?";
+    static String FETCH_FLOW_EXECUTION_SUMMARIES =
+        SUMMARY_COLUMNS + " WHERE ef.project_id=? AND ef.flow_id=? "
+            + "ORDER BY ef.exec_id DESC LIMIT ?, ?";
+    static String FETCH_FLOW_EXECUTION_SUMMARIES_BY_STATUS =
+        SUMMARY_COLUMNS + " WHERE ef.project_id=? AND ef.flow_id=? AND ef.status=? "
+            + "ORDER BY ef.exec_id DESC LIMIT ?, ?";
+
+    @Override
+    public List<ExecutionSummary> handle(final ResultSet rs) throws SQLException {
+      final List<ExecutionSummary> summaries = new ArrayList<>();
+      while (rs.next()) {
+        summaries.add(new ExecutionSummary(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+            rs.getString(4), Status.fromInteger(rs.getInt(5)), rs.getString(6), rs.getLong(7),
+            rs.getLong(8), rs.getLong(9), rs.getLong(10)));
+      }
+      return summaries;
+    }
+  }
 }
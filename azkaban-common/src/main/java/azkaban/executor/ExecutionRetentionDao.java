@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_RETENTION_BATCH_PAUSE_MS;
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_RETENTION_BATCH_SIZE;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.metrics.CommonMetrics;
+import azkaban.utils.Props;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.log4j.Logger;
+
+/**
+ * Deletes expired execution data a small batch at a time.
+ *
+ * A single DELETE of everything before the cutoff runs as one huge transaction that locks the
+ * table for minutes. Instead, rows are deleted by ranges of execution ids, oldest first, and each
+ * DELETE is limited to the batch size in rows, since one execution can have any number of jobs
+ * and log pieces. There is a pause after each full batch so that the writes of executors get
+ * through. A run stops at a deadline and the next one continues where it left off, since the
+ * oldest remaining rows are found again from the primary key.
+ *
+ * The ids and times of executions grow together, so the walk stops at the first range whose
+ * oldest row is newer than the cutoff.
+ */
+@Singleton
+public class ExecutionRetentionDao {
+
+  private static final Logger logger = Logger.getLogger(ExecutionRetentionDao.class);
+
+  private static final int DEFAULT_BATCH_SIZE = 200;
+  private static final long DEFAULT_BATCH_PAUSE_MS = 200;
+
+  private static final ResultSetHandler<Long> LONG_HANDLER = rs -> {
+    if (!rs.next()) {
+      return null;
+    }
+    final long value = rs.getLong(1);
+    return rs.wasNull() ? null : value;
+  };
+
+  private final DatabaseOperator dbOperator;
+  private final CommonMetrics commonMetrics;
+  private final int batchSize;
+  private final long batchPauseMs;
+
+  @Inject
+  public ExecutionRetentionDao(final DatabaseOperator dbOperator, final Props props,
+      final CommonMetrics commonMetrics) {
+    this.dbOperator = dbOperator;
+    this.commonMetrics = commonMetrics;
+    this.batchSize = props.getInt(AZKABAN_RETENTION_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    this.batchPauseMs = props.getLong(AZKABAN_RETENTION_BATCH_PAUSE_MS, DEFAULT_BATCH_PAUSE_MS);
+  }
+
+  /**
+   * Deletes the table's rows from before the cutoff until there are none left or the deadline
+   * has passed.
+   *
+   * @return number of rows deleted
+   */
+  public int removeByTime(final Table table, final long cutoff, final long deadline)
+      throws ExecutorManagerException {
+    final long start = System.currentTimeMillis();
+    int deleted = 0;
+    try {
+      if (table == Table.EXECUTOR_EVENTS) {
+        deleted = removeExecutorEvents(cutoff, deadline);
+      } else {
+        deleted = removeExecutionRanges(table, cutoff, deadline);
+      }
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error deleting " + table + " before " + cutoff, e);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.info("Interrupted while deleting " + table + ", will continue next time.");
+    } finally {
+      final boolean done = System.currentTimeMillis() < deadline;
+      this.commonMetrics.setRetentionBacklog(table.name(), !done);
+      logger.info("Deleted " + deleted + " rows of " + table + " before " + new Date(cutoff)
+          + " in " + (System.currentTimeMillis() - start) + " ms"
+          + (done ? "." : ", stopped at the deadline."));
+    }
+    return deleted;
+  }
+
+  private int removeExecutionRanges(final Table table, final long cutoff, final long deadline)
+      throws SQLException, InterruptedException {
+    int deleted = 0;
+    Long from = this.dbOperator.query(table.minExecIdQuery, LONG_HANDLER, 0);
+    while (from != null && System.currentTimeMillis() < deadline) {
+      final long to = from + this.batchSize;
+      final Long oldest = this.dbOperator.query(table.oldestInRangeQuery, LONG_HANDLER, from, to);
+      if (oldest == null) {
+        // A gap left by earlier deletes. Jump to the next rows.
+        from = this.dbOperator.query(table.minExecIdQuery, LONG_HANDLER, to);
+        continue;
+      }
+      if (oldest >= cutoff) {
+        break;
+      }
+
+      if (table == Table.EXECUTIONS) {
+        // The jobs of an execution go first. If the deadline comes in between, the execution is
+        // still there and its remaining jobs are found again next time.
+        deleted += deleteInBatches(table, DELETE_JOBS_OF_FINISHED_EXECUTIONS, deadline, from, to,
+            cutoff);
+      }
+      deleted += deleteInBatches(table, table.deleteRangeQuery, deadline, from, to, cutoff);
+      from = to;
+      Thread.sleep(this.batchPauseMs);
+    }
+    return deleted;
+  }
+
+  /**
+   * Runs the DELETE, which has to end with a LIMIT parameter, with the batch size until it
+   * deletes fewer rows than that or the deadline has passed.
+   */
+  private int deleteInBatches(final Table table, final String query, final long deadline,
+      final Object... params) throws SQLException, InterruptedException {
+    final Object[] limitedParams = Arrays.copyOf(params, params.length + 1);
+    limitedParams[params.length] = this.batchSize;
+    int deleted = 0;
+    int rows;
+    do {
+      if (System.currentTimeMillis() >= deadline) {
+        break;
+      }
+      rows = this.dbOperator.update(query, limitedParams);
+      deleted += rows;
+      this.commonMetrics.markRetentionDeletes(table.name(), rows);
+      if (rows == this.batchSize) {
+        Thread.sleep(this.batchPauseMs);
+      }
+    } while (rows == this.batchSize);
+    return deleted;
+  }
+
+  private int removeExecutorEvents(final long cutoff, final long deadline)
+      throws SQLException, InterruptedException {
+    final List<Integer> executorIds =
+        this.dbOperator.query("SELECT DISTINCT executor_id FROM executor_events", rs -> {
+          final List<Integer> ids = new ArrayList<>();
+          while (rs.next()) {
+            ids.add(rs.getInt(1));
+          }
+          return ids;
+        });
+
+    int deleted = 0;
+    final Date cutoffDate = new Date(cutoff);
+    for (final Integer executorId : executorIds) {
+      deleted += deleteInBatches(Table.EXECUTOR_EVENTS, DELETE_EXECUTOR_EVENTS, deadline,
+          executorId, cutoffDate);
+    }
+    return deleted;
+  }
+
+  private static final String DELETE_JOBS_OF_FINISHED_EXECUTIONS =
+      "DELETE FROM execution_jobs WHERE exec_id IN (SELECT exec_id FROM execution_flows "
+          + "WHERE exec_id >= ? AND exec_id < ? AND end_time > 0 AND end_time < ?) LIMIT ?";
+  private static final String DELETE_EXECUTOR_EVENTS =
+      "DELETE FROM executor_events WHERE executor_id = ? AND event_time < ? LIMIT ?";
+
+  /**
+   * Data with a retention period.
+   */
+  public enum Table {
+    // Logs by upload time.
+    EXECUTION_LOGS(
+        "SELECT MIN(exec_id) FROM execution_logs WHERE exec_id >= ?",
+        "SELECT MIN(upload_time) FROM execution_logs WHERE exec_id >= ? AND exec_id < ?",
+        "DELETE FROM execution_logs WHERE exec_id >= ? AND exec_id < ? AND upload_time < ? "
+            + "LIMIT ?"),
+    // Finished executions and their jobs by end time. Running executions are never deleted.
+    EXECUTIONS(
+        "SELECT MIN(exec_id) FROM execution_flows WHERE exec_id >= ?",
+        "SELECT MIN(submit_time) FROM execution_flows WHERE exec_id >= ? AND exec_id < ?",
+        "DELETE FROM execution_flows WHERE exec_id >= ? AND exec_id < ? "
+            + "AND end_time > 0 AND end_time < ? LIMIT ?"),
+    // Executor events by event time, in batches per executor.
+    EXECUTOR_EVENTS(null, null, null);
+
+    private final String minExecIdQuery;
+    private final String oldestInRangeQuery;
+    private final String deleteRangeQuery;
+
+    Table(final String minExecIdQuery, final String oldestInRangeQuery,
+        final String deleteRangeQuery) {
+      this.minExecIdQuery = minExecIdQuery;
+      this.oldestInRangeQuery = oldestInRangeQuery;
+      this.deleteRangeQuery = deleteRangeQuery;
+    }
+  }
+}
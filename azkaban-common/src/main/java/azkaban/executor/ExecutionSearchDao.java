@@ -0,0 +1,419 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.executor.ExecutionFlowDao.FetchExecutionSummaries;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.log4j.Logger;
+
+/**
+ * Searches executions by project name, flow and submitting user without LIKE scans of
+ * execution_flows.
+ *
+ * The execution_search_keys table holds every distinct (project id, flow id, submit user) that
+ * has been executed. It is a few thousand rows where execution_flows has millions, so substring
+ * filters are matched against it first. The executions of each matching key are then read
+ * newest first through the (project_id, flow_id) index, and the pages merged. A term that matches
+ * too many keys isn't selective, so the executions are scanned newest first instead, which usually
+ * finds a page of matches after a few rows. The scan reads a window of execution ids at a time and
+ * stops after {@link #DEFAULT_MAX_SCANNED_EXECUTIONS} ids, so a term that matches keys but few
+ * recent executions doesn't scan the whole table. Such a search only returns the matches among
+ * the executions it scanned, and logs that it hit the limit.
+ *
+ * Pages are addressed by the last execution id of the previous page rather than an offset, so
+ * that deep pages cost the same as the first one.
+ *
+ * Keys are added when executions are uploaded. Executions uploaded before the table existed are
+ * added by {@link #rebuild()}, see {@link ExecutionSearchIndexRebuilder}, which also says how
+ * existing installs create the table.
+ */
+@Singleton
+public class ExecutionSearchDao {
+
+  private static final Logger logger = Logger.getLogger(ExecutionSearchDao.class);
+
+  // More matching keys than this are searched by scanning the executions.
+  static final int MAX_KEYS_PER_SEARCH = 32;
+  // Execution ids read by each query of a scan.
+  static final int DEFAULT_SCAN_WINDOW = 10000;
+  static final int DEFAULT_MAX_SCANNED_EXECUTIONS = 100000;
+  private static final int REBUILD_CHUNK_SIZE = 100000;
+  private static final int MAX_CACHED_KEYS = 100000;
+
+  private static final String INSERT_KEY =
+      "INSERT INTO execution_search_keys (project_id, flow_id, submit_user) VALUES (?,?,?)";
+  private static final String FETCH_KEY =
+      "SELECT project_id FROM execution_search_keys "
+          + "WHERE project_id=? AND flow_id=? AND submit_user=?";
+  private static final String FETCH_KEYS_IN_RANGE =
+      "SELECT DISTINCT project_id, flow_id, submit_user FROM execution_flows "
+          + "WHERE exec_id > ? AND exec_id <= ?";
+  private static final String FETCH_MAX_EXEC_ID = "SELECT MAX(exec_id) FROM execution_flows";
+
+  private final DatabaseOperator dbOperator;
+  private final int scanWindow;
+  private final int maxScannedExecutions;
+  // Keys known to be in the table, so that most uploads don't query it.
+  private final Set<SearchKey> knownKeys = ConcurrentHashMap.newKeySet();
+
+  @Inject
+  public ExecutionSearchDao(final DatabaseOperator dbOperator) {
+    this(dbOperator, DEFAULT_SCAN_WINDOW, DEFAULT_MAX_SCANNED_EXECUTIONS);
+  }
+
+  ExecutionSearchDao(final DatabaseOperator dbOperator, final int scanWindow,
+      final int maxScannedExecutions) {
+    this.dbOperator = dbOperator;
+    this.scanWindow = scanWindow;
+    this.maxScannedExecutions = maxScannedExecutions;
+  }
+
+  /**
+   * Makes the execution searchable. Failures are logged, the execution runs either way.
+   */
+  void addExecution(final ExecutableFlow flow) {
+    try {
+      addKey(new SearchKey(flow.getProjectId(), flow.getFlowId(), flow.getSubmitUser()));
+    } catch (final SQLException e) {
+      logger.warn("Failed to index execution " + flow.getExecutionId() + " for search.", e);
+    }
+  }
+
+  /**
+   * @return true if the key was inserted
+   */
+  private boolean addKey(final SearchKey key) throws SQLException {
+    if (this.knownKeys.contains(key)) {
+      return false;
+    }
+    boolean inserted = false;
+    final Integer existing = this.dbOperator.query(FETCH_KEY,
+        rs -> rs.next() ? rs.getInt(1) : null, key.projectId, key.flowId, key.submitUser);
+    if (existing == null) {
+      try {
+        this.dbOperator.update(INSERT_KEY, key.projectId, key.flowId, key.submitUser);
+        inserted = true;
+      } catch (final SQLException e) {
+        // Added concurrently by another upload if it's there now.
+        if (this.dbOperator.query(FETCH_KEY, rs -> rs.next(), key.projectId, key.flowId,
+            key.submitUser)) {
+          logger.debug("Search key " + key + " was added concurrently.");
+        } else {
+          throw e;
+        }
+      }
+    }
+    if (this.knownKeys.size() >= MAX_CACHED_KEYS) {
+      this.knownKeys.clear();
+    }
+    this.knownKeys.add(key);
+    return inserted;
+  }
+
+  /**
+   * Adds the keys of all executions to the table, a range of execution ids at a time. Can be run
+   * while the server is up, and again after it was interrupted.
+   *
+   * @return number of keys added
+   */
+  public int rebuild() throws ExecutorManagerException {
+    try {
+      final Integer maxExecId =
+          this.dbOperator.query(FETCH_MAX_EXEC_ID, rs -> rs.next() ? rs.getInt(1) : null);
+      if (maxExecId == null) {
+        return 0;
+      }
+
+      int added = 0;
+      for (int start = 0; start < maxExecId; start += REBUILD_CHUNK_SIZE) {
+        final List<SearchKey> keys = this.dbOperator.query(FETCH_KEYS_IN_RANGE, rs -> {
+          final List<SearchKey> result = new ArrayList<>();
+          while (rs.next()) {
+            result.add(new SearchKey(rs.getInt(1), rs.getString(2), rs.getString(3)));
+          }
+          return result;
+        }, start, start + REBUILD_CHUNK_SIZE);
+        for (final SearchKey key : keys) {
+          if (addKey(key)) {
+            added++;
+          }
+        }
+        logger.info("Indexed executions up to " + Math.min(start + REBUILD_CHUNK_SIZE, maxExecId)
+            + " of " + maxExecId);
+      }
+      return added;
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error rebuilding the execution search keys", e);
+    }
+  }
+
+  /**
+   * Finds executions, newest first. Empty or null terms and non-positive numbers don't filter.
+   *
+   * @param beforeExecId only return executions with a lower id, i.e. the last execution id of the
+   * previous page, or -1 for the first page
+   * @param skip number of matching executions to skip after beforeExecId
+   */
+  List<ExecutionSummary> search(final String projContain, final String flowContains,
+      final String userNameContains, final int status, final long startTime, final long endTime,
+      final int beforeExecId, final int skip, final int num) throws ExecutorManagerException {
+    try {
+      if (isEmpty(projContain) && isEmpty(flowContains) && isEmpty(userNameContains)) {
+        return scan(null, null, null, status, startTime, endTime, beforeExecId, 0, skip, num);
+      }
+
+      final List<SearchKey> keys = findKeys(projContain, flowContains, userNameContains);
+      if (keys.isEmpty()) {
+        return Collections.emptyList();
+      }
+      if (keys.size() > MAX_KEYS_PER_SEARCH) {
+        return scanRecent(projContain, flowContains, userNameContains, status, startTime,
+            endTime, beforeExecId, skip, num);
+      }
+
+      // One query per flow, each returning its newest matches, merged by execution id.
+      final Map<SearchKey, List<String>> usersByFlow = new LinkedHashMap<>();
+      for (final SearchKey key : keys) {
+        usersByFlow.computeIfAbsent(new SearchKey(key.projectId, key.flowId, null),
+            k -> new ArrayList<>()).add(key.submitUser);
+      }
+      final List<ExecutionSummary> merged = new ArrayList<>();
+      for (final Map.Entry<SearchKey, List<String>> entry : usersByFlow.entrySet()) {
+        merged.addAll(fetchFlowPage(entry.getKey(),
+            isEmpty(userNameContains) ? null : entry.getValue(), status, startTime, endTime,
+            beforeExecId, skip + num));
+      }
+      merged.sort(Comparator.comparingInt(ExecutionSummary::getExecutionId).reversed());
+      if (skip >= merged.size()) {
+        return Collections.emptyList();
+      }
+      return new ArrayList<>(merged.subList(skip, Math.min(skip + num, merged.size())));
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error searching executions", e);
+    }
+  }
+
+  /**
+   * @return the matching keys, or one more than {@link #MAX_KEYS_PER_SEARCH} if there are more
+   */
+  private List<SearchKey> findKeys(final String projContain, final String flowContains,
+      final String userNameContains) throws SQLException {
+    String query = "SELECT k.project_id, k.flow_id, k.submit_user FROM execution_search_keys k";
+    final List<String> conditions = new ArrayList<>();
+    final List<Object> params = new ArrayList<>();
+    if (!isEmpty(projContain)) {
+      query += " JOIN projects p ON k.project_id = p.id";
+      conditions.add("p.name LIKE ?");
+      params.add('%' + projContain + '%');
+    }
+    if (!isEmpty(flowContains)) {
+      conditions.add("k.flow_id LIKE ?");
+      params.add('%' + flowContains + '%');
+    }
+    if (!isEmpty(userNameContains)) {
+      conditions.add("k.submit_user LIKE ?");
+      params.add('%' + userNameContains + '%');
+    }
+    query += " WHERE " + String.join(" AND ", conditions) + " LIMIT ?";
+    params.add(MAX_KEYS_PER_SEARCH + 1);
+
+    return this.dbOperator.query(query, rs -> {
+      final List<SearchKey> keys = new ArrayList<>();
+      while (rs.next()) {
+        keys.add(new SearchKey(rs.getInt(1), rs.getString(2), rs.getString(3)));
+      }
+      return keys;
+    }, params.toArray());
+  }
+
+  /**
+   * @param users the users whose executions to return, or null for all
+   */
+  private List<ExecutionSummary> fetchFlowPage(final SearchKey flow, final List<String> users,
+      final int status, final long startTime, final long endTime, final int beforeExecId,
+      final int limit) throws SQLException {
+    final List<String> conditions = new ArrayList<>();
+    final List<Object> params = new ArrayList<>();
+    conditions.add("ef.project_id = ?");
+    params.add(flow.projectId);
+    conditions.add("ef.flow_id = ?");
+    params.add(flow.flowId);
+    if (users != null) {
+      String userCondition =
+          "ef.submit_user IN (" + String.join(",", Collections.nCopies(users.size(), "?")) + ")";
+      if (users.contains("")) {
+        userCondition = "(" + userCondition + " OR ef.submit_user IS NULL)";
+      }
+      conditions.add(userCondition);
+      params.addAll(users);
+    }
+    addRangeConditions(status, startTime, endTime, beforeExecId, conditions, params);
+
+    final String query = FetchExecutionSummaries.FETCH_BASE_EXECUTION_SUMMARY_QUERY
+        + " WHERE " + String.join(" AND ", conditions)
+        + " ORDER BY ef.exec_id DESC LIMIT ?";
+    params.add(limit);
+    return this.dbOperator.query(query, new FetchExecutionSummaries(), params.toArray());
+  }
+
+  /**
+   * Scans the executions before beforeExecId newest first, a window of execution ids at a time,
+   * until a page of matches is found or the scan limit is reached.
+   */
+  private List<ExecutionSummary> scanRecent(final String projContain, final String flowContains,
+      final String userNameContains, final int status, final long startTime, final long endTime,
+      final int beforeExecId, final int skip, final int num) throws SQLException {
+    int upper = beforeExecId;
+    if (upper <= 0) {
+      final Integer maxExecId =
+          this.dbOperator.query(FETCH_MAX_EXEC_ID, rs -> rs.next() ? rs.getInt(1) : null);
+      if (maxExecId == null) {
+        return Collections.emptyList();
+      }
+      upper = maxExecId + 1;
+    }
+    final int lowest = Math.max(upper - this.maxScannedExecutions, 0);
+    final List<ExecutionSummary> matches = new ArrayList<>();
+    for (int high = upper; high > lowest && matches.size() < skip + num;
+        high -= this.scanWindow) {
+      matches.addAll(scan(projContain, flowContains, userNameContains, status, startTime,
+          endTime, high, Math.max(high - this.scanWindow, lowest), 0,
+          skip + num - matches.size()));
+    }
+    if (matches.size() < skip + num && lowest > 0) {
+      logger.info(String.format("Search for project %s, flow %s, user %s only scanned the %d "
+              + "executions before %d.", projContain, flowContains, userNameContains,
+          this.maxScannedExecutions, upper));
+    }
+    if (skip >= matches.size()) {
+      return Collections.emptyList();
+    }
+    return new ArrayList<>(matches.subList(skip, Math.min(skip + num, matches.size())));
+  }
+
+  /**
+   * @param minExecId only return executions with this id or higher, or 0
+   */
+  private List<ExecutionSummary> scan(final String projContain, final String flowContains,
+      final String userNameContains, final int status, final long startTime, final long endTime,
+      final int beforeExecId, final int minExecId, final int skip, final int num)
+      throws SQLException {
+    String query = FetchExecutionSummaries.FETCH_BASE_EXECUTION_SUMMARY_QUERY;
+    final List<String> conditions = new ArrayList<>();
+    final List<Object> params = new ArrayList<>();
+    if (!isEmpty(projContain)) {
+      query += " JOIN projects p ON ef.project_id = p.id";
+      conditions.add("p.name LIKE ?");
+      params.add('%' + projContain + '%');
+    }
+    if (!isEmpty(flowContains)) {
+      conditions.add("ef.flow_id LIKE ?");
+      params.add('%' + flowContains + '%');
+    }
+    if (!isEmpty(userNameContains)) {
+      conditions.add("ef.submit_user LIKE ?");
+      params.add('%' + userNameContains + '%');
+    }
+    addRangeConditions(status, startTime, endTime, beforeExecId, conditions, params);
+    if (minExecId > 0) {
+      conditions.add("ef.exec_id >= ?");
+      params.add(minExecId);
+    }
+
+    if (!conditions.isEmpty()) {
+      query += " WHERE " + String.join(" AND ", conditions);
+    }
+    query += " ORDER BY ef.exec_id DESC LIMIT ?, ?";
+    params.add(skip);
+    params.add(num);
+    return this.dbOperator.query(query, new FetchExecutionSummaries(), params.toArray());
+  }
+
+  private static void addRangeConditions(final int status, final long startTime,
+      final long endTime, final int beforeExecId, final List<String> conditions,
+      final List<Object> params) {
+    if (status != 0) {
+      conditions.add("ef.status = ?");
+      params.add(status);
+    }
+    if (startTime > 0) {
+      conditions.add("ef.start_time > ?");
+      params.add(startTime);
+    }
+    if (endTime > 0) {
+      conditions.add("ef.end_time < ?");
+      params.add(endTime);
+    }
+    if (beforeExecId > 0) {
+      conditions.add("ef.exec_id < ?");
+      params.add(beforeExecId);
+    }
+  }
+
+  private static boolean isEmpty(final String term) {
+    return term == null || term.isEmpty();
+  }
+
+  private static class SearchKey {
+
+    private final int projectId;
+    private final String flowId;
+    private final String submitUser;
+
+    SearchKey(final int projectId, final String flowId, final String submitUser) {
+      this.projectId = projectId;
+      this.flowId = flowId;
+      // Part of the primary key, so executions without a user are stored with an empty one.
+      this.submitUser = submitUser == null ? "" : submitUser;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final SearchKey other = (SearchKey) o;
+      return this.projectId == other.projectId && this.flowId.equals(other.flowId)
+          && Objects.equals(this.submitUser, other.submitUser);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.projectId, this.flowId, this.submitUser);
+    }
+
+    @Override
+    public String toString() {
+      return this.projectId + "/" + this.flowId + "/" + this.submitUser;
+    }
+  }
+}
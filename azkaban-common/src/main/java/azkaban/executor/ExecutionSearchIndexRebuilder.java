@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.AzkabanCommonModule;
+import azkaban.server.AzkabanServer;
+import azkaban.utils.Props;
+import com.google.inject.Guice;
+import joptsimple.OptionParser;
+import org.apache.log4j.Logger;
+
+/**
+ * Adds the executions that ran before the execution_search_keys table was created to the
+ * execution search. Takes the same arguments as the servers to find azkaban.properties.
+ *
+ * The table itself must exist first. New installs, and AzkabanDatabaseUpdater if
+ * database.check.version is set, create it with create.execution_search_keys.sql. Existing
+ * installs that are upgraded by hand run upgrade.3.22.0.to.3.23.0.sql.
+ */
+public class ExecutionSearchIndexRebuilder {
+
+  private static final Logger logger = Logger.getLogger(ExecutionSearchIndexRebuilder.class);
+
+  public static void main(final String[] args) throws Exception {
+    final Props props = AzkabanServer.loadProps(args, new OptionParser());
+    if (props == null) {
+      logger.error("Properties not found. Need it to connect to the db.");
+      logger.error("Exiting...");
+      return;
+    }
+
+    final ExecutionSearchDao searchDao = Guice.createInjector(new AzkabanCommonModule(props))
+        .getInstance(ExecutionSearchDao.class);
+    final long start = System.currentTimeMillis();
+    final int added = searchDao.rebuild();
+    logger.info("Added " + added + " execution search keys in "
+        + (System.currentTimeMillis() - start) + " ms.");
+  }
+}
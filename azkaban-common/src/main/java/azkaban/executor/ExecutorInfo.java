@@ -28,6 +28,8 @@ import org.codehaus.jackson.map.ObjectMapper;
  * numberOfAssignedFlows;
  * lastDispatchedTime;
  * cpuUsage;
+ * numberOfJobProcesses;
+ * jobProcessMemoryInMB;
  */
 public class ExecutorInfo implements java.io.Serializable {
 
@@ -38,6 +40,8 @@ public class ExecutorInfo implements java.io.Serializable {
   private int numberOfAssignedFlows;
   private long lastDispatchedTime;
   private double cpuUsage;
+  private int numberOfJobProcesses;
+  private long jobProcessMemoryInMB;
 
   public ExecutorInfo() {
   }
@@ -118,6 +122,22 @@ public class ExecutorInfo implements java.io.Serializable {
     this.numberOfAssignedFlows = value;
   }
 
+  public int getNumberOfJobProcesses() {
+    return this.numberOfJobProcesses;
+  }
+
+  public void setNumberOfJobProcesses(final int value) {
+    this.numberOfJobProcesses = value;
+  }
+
+  public long getJobProcessMemoryInMB() {
+    return this.jobProcessMemoryInMB;
+  }
+
+  public void setJobProcessMemoryInMB(final long value) {
+    this.jobProcessMemoryInMB = value;
+  }
+
   @Override
   public int hashCode() {
     int result;
@@ -130,6 +150,8 @@ public class ExecutorInfo implements java.io.Serializable {
     result = 31 * result + (int) (this.lastDispatchedTime ^ (this.lastDispatchedTime >>> 32));
     temp = Double.doubleToLongBits(this.cpuUsage);
     result = 31 * result + (int) (temp ^ (temp >>> 32));
+    result = 31 * result + this.numberOfJobProcesses;
+    result = 31 * result + (int) (this.jobProcessMemoryInMB ^ (this.jobProcessMemoryInMB >>> 32));
     return result;
   }
 
@@ -145,6 +167,8 @@ public class ExecutorInfo implements java.io.Serializable {
       result &= this.remainingMemoryPercent == stat.remainingMemoryPercent;
       result &= this.numberOfAssignedFlows == stat.numberOfAssignedFlows;
       result &= this.lastDispatchedTime == stat.lastDispatchedTime;
+      result &= this.numberOfJobProcesses == stat.numberOfJobProcesses;
+      result &= this.jobProcessMemoryInMB == stat.jobProcessMemoryInMB;
       return result;
     }
     return false;
@@ -54,6 +54,30 @@ public interface ExecutorLoader {
       String flowContains, String userNameContains, int status, long startData,
       long endData, int skip, int num) throws ExecutorManagerException;
 
+  /**
+   * The fetchExecutionSummaries methods are the counterparts of fetchFlowHistory that only read
+   * the scalar columns of the executions.
+   */
+  List<ExecutionSummary> fetchExecutionSummaries(int skip, int num)
+      throws ExecutorManagerException;
+
+  List<ExecutionSummary> fetchExecutionSummaries(int projectId, String flowId,
+      int skip, int num) throws ExecutorManagerException;
+
+  List<ExecutionSummary> fetchExecutionSummaries(int projectId, String flowId,
+      int skip, int num, Status status) throws ExecutorManagerException;
+
+  /**
+   * Searches executions through the execution search keys, newest first. Empty terms and
+   * non-positive numbers don't filter.
+   *
+   * @param beforeExecId only return executions with a lower id, i.e. the last execution of the
+   * previous page, or -1
+   */
+  List<ExecutionSummary> searchExecutions(String projContain,
+      String flowContains, String userNameContains, int status, long startTime,
+      long endTime, int beforeExecId, int skip, int num) throws ExecutorManagerException;
+
   /**
    * <pre>
    * Fetch all executors from executors table
@@ -300,4 +324,13 @@ public interface ExecutorLoader {
 
   int removeExecutionLogsByTime(long millis)
       throws ExecutorManagerException;
+
+  /**
+   * Deletes the data of the table from before the given time in small batches, until there is
+   * none left or the deadline has passed.
+   *
+   * @return number of rows deleted
+   */
+  int removeExecutionDataByTime(ExecutionRetentionDao.Table table, long millis, long deadline)
+      throws ExecutorManagerException;
 }
@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -110,6 +111,8 @@ public class ExecutorManager extends EventHandler implements
   // 12 weeks
   private static final long DEFAULT_EXECUTION_LOGS_RETENTION_MS = 3 * 4 * 7
       * 24 * 60 * 60 * 1000L;
+  // Stop a cleanup after 10 minutes, the next one continues.
+  private static final long DEFAULT_RETENTION_MAX_RUN_MS = 10 * 60 * 1000L;
   private static final Duration RECENTLY_FINISHED_LIFETIME = Duration.ofMinutes(10);
   private long lastCleanerThreadCheckTime = -1;
 
@@ -153,7 +156,16 @@ public class ExecutorManager extends EventHandler implements
         azkProps.getLong("execution.logs.retention.ms",
         DEFAULT_EXECUTION_LOGS_RETENTION_MS);
 
-    cleanerThread = new CleanerThread(executionLogsRetentionMs);
+    long executionHistoryRetentionMs =
+        azkProps.getLong(Constants.ConfigurationKeys.EXECUTION_HISTORY_RETENTION_MS, -1);
+    long executorEventsRetentionMs =
+        azkProps.getLong(Constants.ConfigurationKeys.EXECUTOR_EVENTS_RETENTION_MS, -1);
+    long retentionMaxRunMs =
+        azkProps.getLong(Constants.ConfigurationKeys.AZKABAN_RETENTION_MAX_RUN_MS,
+        DEFAULT_RETENTION_MAX_RUN_MS);
+
+    cleanerThread = new CleanerThread(executionLogsRetentionMs,
+        executionHistoryRetentionMs, executorEventsRetentionMs, retentionMaxRunMs);
     cleanerThread.start();
 
   }
@@ -561,6 +573,17 @@ public class ExecutorManager extends EventHandler implements
       return executorLoader.fetchExecutableFlow(execId);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see azkaban.executor.ExecutorManagerAdapter#getRunningExecutableFlow(int)
+   */
+  @Override
+  public ExecutableFlow getRunningExecutableFlow(int execId) {
+    Pair<ExecutionReference, ExecutableFlow> ref = runningFlows.get(execId);
+    return ref == null ? null : ref.getSecond();
+  }
+
   /**
    * Get all active (running, non-dispatched) flows
    *
@@ -1056,15 +1079,17 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
-  private void cleanOldExecutionLogs(long millis) {
-    long beforeDeleteLogsTimestamp = System.currentTimeMillis();
+  private void cleanOldExecutionData(ExecutionRetentionDao.Table table,
+      long millis, long deadline) {
+    long beforeDeleteTimestamp = System.currentTimeMillis();
     try {
-      int count = executorLoader.removeExecutionLogsByTime(millis);
-      logger.info("Cleaned up " + count + " log entries.");
+      int count = executorLoader.removeExecutionDataByTime(table, millis, deadline);
+      logger.info("Cleaned up " + count + " " + table + " entries.");
     } catch (ExecutorManagerException e) {
-      logger.error("log clean up failed. ", e);
+      logger.error(table + " clean up failed. ", e);
     }
-    logger.info("log clean up time: "  + (System.currentTimeMillis() - beforeDeleteLogsTimestamp)/1000 + " seconds.");
+    logger.info(table + " clean up time: "
+        + (System.currentTimeMillis() - beforeDeleteTimestamp)/1000 + " seconds.");
   }
 
   private Map<String, Object> callExecutorServer(ExecutableFlow exflow,
@@ -1638,22 +1663,65 @@ public class ExecutorManager extends EventHandler implements
         status);
   }
 
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(int skip, int size)
+      throws ExecutorManagerException {
+    return executorLoader.fetchExecutionSummaries(skip, size);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(String flowIdContains,
+      int beforeExecId, int skip, int size) throws ExecutorManagerException {
+    return executorLoader.searchExecutions(null, flowIdContains, null,
+        0, -1, -1, beforeExecId, skip, size);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(String projContain,
+      String flowContain, String userContain, int status, long begin, long end,
+      int beforeExecId, int skip, int size) throws ExecutorManagerException {
+    return executorLoader.searchExecutions(projContain, flowContain,
+        userContain, status, begin, end, beforeExecId, skip, size);
+  }
+
+  @Override
+  public int getExecutionSummaries(int projectId, String flowId, int from,
+      int length, List<ExecutionSummary> outputList)
+      throws ExecutorManagerException {
+    outputList.addAll(
+        executorLoader.fetchExecutionSummaries(projectId, flowId, from, length));
+    return executorLoader.fetchNumExecutableFlows(projectId, flowId);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(int projectId, String flowId,
+      int from, int length, Status status) throws ExecutorManagerException {
+    return executorLoader.fetchExecutionSummaries(projectId, flowId, from, length,
+        status);
+  }
+
   /*
    * cleaner thread to clean up execution_logs, etc in DB. Runs every hour.
    */
   private class CleanerThread extends Thread {
-    // log file retention is 1 month.
-
     // check every hour
     private static final long CLEANER_THREAD_WAIT_INTERVAL_MS = 60 * 60 * 1000;
 
-    private final long executionLogsRetentionMs;
+    private final Map<ExecutionRetentionDao.Table, Long> retentionMs =
+        new EnumMap<>(ExecutionRetentionDao.Table.class);
+    private final long maxRunMs;
 
     private boolean shutdown = false;
     private long lastLogCleanTime = -1;
-
-    public CleanerThread(long executionLogsRetentionMs) {
-      this.executionLogsRetentionMs = executionLogsRetentionMs;
+    private int firstTable = 0;
+
+    public CleanerThread(long executionLogsRetentionMs,
+        long executionHistoryRetentionMs, long executorEventsRetentionMs,
+        long maxRunMs) {
+      retentionMs.put(ExecutionRetentionDao.Table.EXECUTION_LOGS, executionLogsRetentionMs);
+      retentionMs.put(ExecutionRetentionDao.Table.EXECUTIONS, executionHistoryRetentionMs);
+      retentionMs.put(ExecutionRetentionDao.Table.EXECUTOR_EVENTS, executorEventsRetentionMs);
+      this.maxRunMs = maxRunMs;
       this.setName("AzkabanWebServer-Cleaner-Thread");
     }
 
@@ -1673,7 +1741,7 @@ public class ExecutorManager extends EventHandler implements
             // Cleanup old stuff.
             long currentTime = System.currentTimeMillis();
             if (currentTime - CLEANER_THREAD_WAIT_INTERVAL_MS > lastLogCleanTime) {
-              cleanExecutionLogs();
+              cleanExecutionData(currentTime);
               lastLogCleanTime = currentTime;
             }
 
@@ -1685,13 +1753,33 @@ public class ExecutorManager extends EventHandler implements
       }
     }
 
-    private void cleanExecutionLogs() {
-      logger.info("Cleaning old logs from execution_logs");
-      long cutoff = System.currentTimeMillis() - executionLogsRetentionMs;
-      logger.info("Cleaning old log files before "
+    /**
+     * Deletes the oldest data first, a batch at a time, so a backlog is worked off over several
+     * runs instead of in one long delete. Each table gets an equal share of the time of a run,
+     * plus whatever the tables before it didn't use, and each run starts with the next table, so
+     * a large backlog in one table doesn't hold up the cleanup of the others.
+     */
+    private void cleanExecutionData(long currentTime) {
+      ExecutionRetentionDao.Table[] tables = ExecutionRetentionDao.Table.values();
+      long end = currentTime + maxRunMs;
+      for (int i = 0; i < tables.length; i++) {
+        ExecutionRetentionDao.Table table = tables[(firstTable + i) % tables.length];
+        long now = System.currentTimeMillis();
+        long deadline = now + Math.max(0, end - now) / (tables.length - i);
+        cleanExecutionData(table, currentTime, retentionMs.get(table), deadline);
+      }
+      firstTable = (firstTable + 1) % tables.length;
+    }
+
+    private void cleanExecutionData(ExecutionRetentionDao.Table table,
+        long currentTime, long retentionMs, long deadline) {
+      if (retentionMs <= 0 || shutdown) {
+        return;
+      }
+      long cutoff = currentTime - retentionMs;
+      logger.info("Cleaning old " + table + " before "
           + new DateTime(cutoff).toString());
-      cleanOldExecutionLogs(System.currentTimeMillis()
-          - executionLogsRetentionMs);
+      cleanOldExecutionData(table, cutoff, deadline);
     }
   }
 
@@ -84,6 +84,18 @@ public interface ExecutorManagerAdapter {
   public ExecutableFlow getExecutableFlow(int execId)
       throws ExecutorManagerException;
 
+  /**
+   * Returns the copy of a running flow that is kept in memory and updated from its executor,
+   * without reading the db. Callers must not modify it.
+   *
+   * This isn't a snapshot. Reading it is racy: the updater thread applies the executor's updates
+   * to it in place, so a reader may see some jobs before and others after an update. Its set of
+   * jobs doesn't change, so it is safe to traverse.
+   *
+   * @return null if the flow isn't running
+   */
+  public ExecutableFlow getRunningExecutableFlow(int execId);
+
   public List<Integer> getRunningFlows(int projectId, String flowId);
 
   public List<ExecutableFlow> getRunningFlows() throws IOException;
@@ -119,6 +131,31 @@ public interface ExecutorManagerAdapter {
   public List<ExecutableFlow> getExecutableFlows(int projectId, String flowId,
       int from, int length, Status status) throws ExecutorManagerException;
 
+  /**
+   * The getExecutionSummaries methods list the same executions as getExecutableFlows, without
+   * loading their flow data. Execution lists should use them.
+   */
+  public List<ExecutionSummary> getExecutionSummaries(int skip, int size)
+      throws ExecutorManagerException;
+
+  /**
+   * @param beforeExecId only list executions with a lower id, i.e. the last execution of the
+   * previous page, or -1
+   */
+  public List<ExecutionSummary> getExecutionSummaries(String flowIdContains,
+      int beforeExecId, int skip, int size) throws ExecutorManagerException;
+
+  public List<ExecutionSummary> getExecutionSummaries(String projContain,
+      String flowContain, String userContain, int status, long begin, long end,
+      int beforeExecId, int skip, int size) throws ExecutorManagerException;
+
+  public int getExecutionSummaries(int projectId, String flowId, int from,
+      int length, List<ExecutionSummary> outputList)
+      throws ExecutorManagerException;
+
+  public List<ExecutionSummary> getExecutionSummaries(int projectId, String flowId,
+      int from, int length, Status status) throws ExecutorManagerException;
+
   public List<ExecutableJobInfo> getExecutableJobs(Project project,
       String jobId, int skip, int size) throws ExecutorManagerException;
 
@@ -60,15 +60,21 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
       .getLogger(JdbcExecutorLoader.class);
   private final ExecutionFlowDao executionFlowDao;
   private final ExecutorDao executorDao;
+  private final ExecutionSearchDao executionSearchDao;
+  private final ExecutionRetentionDao executionRetentionDao;
   private EncodingType defaultEncodingType = EncodingType.GZIP;
 
   @Inject
   public JdbcExecutorLoader(final Props props, final CommonMetrics commonMetrics,
                             final ExecutionFlowDao executionFlowDao,
-                            final ExecutorDao executorDao) {
+                            final ExecutorDao executorDao,
+                            final ExecutionSearchDao executionSearchDao,
+                            final ExecutionRetentionDao executionRetentionDao) {
     super(props, commonMetrics);
     this.executionFlowDao = executionFlowDao;
     this.executorDao = executorDao;
+    this.executionSearchDao = executionSearchDao;
+    this.executionRetentionDao = executionRetentionDao;
   }
 
   public EncodingType getDefaultEncodingType() {
@@ -83,6 +89,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
   public synchronized void uploadExecutableFlow(final ExecutableFlow flow)
       throws ExecutorManagerException {
     this.executionFlowDao.uploadExecutableFlow(flow);
+    this.executionSearchDao.addExecution(flow);
   }
 
   @Override
@@ -247,6 +254,33 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
         userNameContains, status, startTime, endTime, skip, num);
   }
 
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int skip, final int num)
+      throws ExecutorManagerException {
+    return this.executionFlowDao.fetchExecutionSummaries(skip, num);
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int projectId, final String flowId,
+      final int skip, final int num) throws ExecutorManagerException {
+    return this.executionFlowDao.fetchExecutionSummaries(projectId, flowId, skip, num);
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int projectId, final String flowId,
+      final int skip, final int num, final Status status) throws ExecutorManagerException {
+    return this.executionFlowDao.fetchExecutionSummaries(projectId, flowId, skip, num, status);
+  }
+
+  @Override
+  public List<ExecutionSummary> searchExecutions(final String projContain,
+      final String flowContains, final String userNameContains, final int status,
+      final long startTime, final long endTime, final int beforeExecId, final int skip,
+      final int num) throws ExecutorManagerException {
+    return this.executionSearchDao.search(projContain, flowContains, userNameContains, status,
+        startTime, endTime, beforeExecId, skip, num);
+  }
+
   @Override
   public void addActiveExecutableReference(final ExecutionReference reference)
       throws ExecutorManagerException {
@@ -829,20 +863,14 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
   @Override
   public int removeExecutionLogsByTime(final long millis)
       throws ExecutorManagerException {
-    final String DELETE_BY_TIME =
-        "DELETE FROM execution_logs WHERE upload_time < ?";
-
-    final QueryRunner runner = createQueryRunner();
-    int updateNum = 0;
-    try {
-      updateNum = runner.update(DELETE_BY_TIME, millis);
-    } catch (final SQLException e) {
-      e.printStackTrace();
-      throw new ExecutorManagerException(
-          "Error deleting old execution_logs before " + millis, e);
-    }
+    return removeExecutionDataByTime(ExecutionRetentionDao.Table.EXECUTION_LOGS, millis,
+        Long.MAX_VALUE);
+  }
 
-    return updateNum;
+  @Override
+  public int removeExecutionDataByTime(final ExecutionRetentionDao.Table table, final long millis,
+      final long deadline) throws ExecutorManagerException {
+    return this.executionRetentionDao.removeByTime(table, millis, deadline);
   }
 
   /**
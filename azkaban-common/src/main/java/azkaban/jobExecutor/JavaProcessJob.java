@@ -16,6 +16,12 @@
 
 package azkaban.jobExecutor;
 
+import azkaban.flow.CommonJobProperties;
+import azkaban.jobExecutor.utils.process.AzkabanProcess;
+import azkaban.jobExecutor.utils.process.AzkabanProcessBuilder;
+import azkaban.jobExecutor.utils.process.JvmWorkerMain;
+import azkaban.jobExecutor.utils.process.JvmWorkerPool;
+import azkaban.jobExecutor.utils.process.PooledJavaProcess;
 import azkaban.project.DirectoryFlowLoader;
 import azkaban.server.AzkabanServer;
 import azkaban.utils.Pair;
@@ -36,6 +42,10 @@ public class JavaProcessJob extends ProcessJob {
   public static final String MAIN_ARGS = "main.args";
   public static final String JVM_PARAMS = "jvm.args";
   public static final String GLOBAL_JVM_PARAMS = "global.jvm.args";
+  // Executor setting that allows java jobs to run in pooled worker JVMs.
+  public static final String JVM_WORKER_POOL_ENABLED = "azkaban.jvm.worker.pool.enabled";
+  // Job setting that opts a job in. The job must not rely on a JVM of its own, see JvmWorkerMain.
+  public static final String JVM_WORKER_POOL = "jvm.worker.pool";
 
   public static final String DEFAULT_INITIAL_MEMORY_SIZE = "64M";
   public static final String DEFAULT_MAX_MEMORY_SIZE = "256M";
@@ -66,6 +76,46 @@ public class JavaProcessJob extends ProcessJob {
     return command;
   }
 
+  /**
+   * Runs the job in a pooled worker JVM if both the executor and the job allow it. Jobs that run
+   * as another user always get a JVM of their own.
+   */
+  @Override
+  protected AzkabanProcess createProcess(final AzkabanProcessBuilder builder) {
+    if (!this.sysProps.getBoolean(JVM_WORKER_POOL_ENABLED, false)
+        || !getJobProps().getBoolean(JVM_WORKER_POOL, false)
+        || this.sysProps.getBoolean(EXECUTE_AS_USER, true)) {
+      return super.createProcess(builder);
+    }
+
+    // java [jvm args] -cp <classpath> <class> [main args]
+    final List<String> command = builder.getCommand();
+    final int classpathIndex = command.indexOf("-cp");
+    if (!JAVA_COMMAND.equals(command.get(0)) || classpathIndex < 0
+        || classpathIndex + 2 >= command.size()) {
+      warn("Can't run " + builder.getCommandString() + " in a JVM worker.");
+      return super.createProcess(builder);
+    }
+
+    final List<String> classpath = new ArrayList<>();
+    for (final String entry : command.get(classpathIndex + 1).split(File.pathSeparator)) {
+      final File file = new File(entry);
+      classpath.add(file.isAbsolute() ? entry : new File(getCwd(), entry).getPath());
+    }
+    final List<String> launchCommand = new ArrayList<>(command.subList(0, classpathIndex));
+    launchCommand.add("-cp");
+    launchCommand.add(JvmWorkerPool.getWorkerClasspath());
+    launchCommand.add(JvmWorkerMain.class.getName());
+    final String key = JvmWorkerPool.createKey(
+        getJobProps().getString(CommonJobProperties.JOB_TYPE, "java"), launchCommand, getCwd(),
+        classpath);
+
+    return new PooledJavaProcess(JvmWorkerPool.getInstance(), key, launchCommand,
+        command.get(classpathIndex + 2), classpath,
+        new ArrayList<>(command.subList(classpathIndex + 3, command.size())), builder.getEnv(),
+        builder.getWorkingDir(), getLog());
+  }
+
   protected String getJavaClass() {
     return getJobProps().getString(JAVA_CLASS);
   }
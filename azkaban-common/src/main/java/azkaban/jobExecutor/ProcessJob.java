@@ -24,6 +24,7 @@ import azkaban.Constants;
 import azkaban.flow.CommonJobProperties;
 import azkaban.jobExecutor.utils.process.AzkabanProcess;
 import azkaban.jobExecutor.utils.process.AzkabanProcessBuilder;
+import azkaban.jobExecutor.utils.process.ProcessResourceSampler;
 import azkaban.metrics.CommonMetrics;
 import azkaban.utils.ExecuteAsUser;
 import azkaban.utils.Pair;
@@ -64,7 +65,9 @@ public class ProcessJob extends AbstractProcessJob {
   private static final String TEMP_FILE_NAME = "user_can_write";
   private final CommonMetrics commonMetrics;
   private volatile AzkabanProcess process;
+  private volatile SystemMemoryInfo.MemoryReservation memoryReservation;
   private volatile boolean killed = false;
+  private volatile long killTimeMs = -1;
 
   // For testing only. True if the job process exits successfully.
   private volatile boolean success;
@@ -143,57 +146,81 @@ public class ProcessJob extends AbstractProcessJob {
 
     if (this.sysProps.getBoolean(MEMCHECK_ENABLED, true)
         && this.jobProps.getBoolean(AZKABAN_MEMORY_CHECK, true)) {
-      final Pair<Long, Long> memPair = getProcMemoryRequirement();
-      final long xms = memPair.getFirst();
-      final long xmx = memPair.getSecond();
-      // retry backoff in ms
-      final String oomMsg = String
-          .format("Cannot request memory (Xms %d kb, Xmx %d kb) from system for job %s",
-              xms, xmx, getId());
-      int attempt;
-      boolean isMemGranted = true;
-
-      //todo HappyRay: move to proper Guice after this class is refactored.
-      final SystemMemoryInfo memInfo = SERVICE_PROVIDER.getInstance(SystemMemoryInfo.class);
-      for (attempt = 1; attempt <= Constants.MEMORY_CHECK_RETRY_LIMIT; attempt++) {
-        isMemGranted = memInfo.canSystemGrantMemory(xmx);
-        if (isMemGranted) {
-          info(String.format("Memory granted for job %s", getId()));
-          if (attempt > 1) {
-            this.commonMetrics.decrementOOMJobWaitCount();
-          }
-          break;
-        }
-        if (attempt < Constants.MEMORY_CHECK_RETRY_LIMIT) {
-          info(String.format(oomMsg + ", sleep for %s secs and retry, attempt %s of %s",
-              TimeUnit.MILLISECONDS.toSeconds(
-                  Constants.MEMORY_CHECK_INTERVAL_MS), attempt,
+      if (!reserveMemory()) {
+        return;
+      }
+    }
+
+    try {
+      runCommands();
+    } finally {
+      final SystemMemoryInfo.MemoryReservation reservation = this.memoryReservation;
+      if (reservation != null) {
+        reservation.release();
+      }
+    }
+  }
+
+  /**
+   * Waits in the executor's memory queue until the memory the process asks for is granted.
+   *
+   * @return false if the job was killed while waiting
+   */
+  private boolean reserveMemory() throws Exception {
+    final Pair<Long, Long> memPair = getProcMemoryRequirement();
+    final long xms = memPair.getFirst();
+    final long xmx = memPair.getSecond();
+    final String oomMsg = String
+        .format("Cannot request memory (Xms %d kb, Xmx %d kb) from system for job %s",
+            xms, xmx, getId());
+
+    //todo HappyRay: move to proper Guice after this class is refactored.
+    final SystemMemoryInfo memInfo = SERVICE_PROVIDER.getInstance(SystemMemoryInfo.class);
+    final SystemMemoryInfo.MemoryReservation reservation;
+    synchronized (this) {
+      if (this.killed) {
+        info(String.format("Job %s was killed before requesting memory", getId()));
+        return false;
+      }
+      reservation = memInfo.reserve(xmx);
+      this.memoryReservation = reservation;
+    }
+
+    if (!reservation.isGranted()) {
+      this.commonMetrics.incrementOOMJobWaitCount();
+      try {
+        for (int attempt = 1; attempt <= Constants.MEMORY_CHECK_RETRY_LIMIT; attempt++) {
+          info(String.format(oomMsg + ", %d jobs waiting for memory, wait up to %s secs, "
+                  + "attempt %s of %s", memInfo.getNumWaiting(),
+              TimeUnit.MILLISECONDS.toSeconds(Constants.MEMORY_CHECK_INTERVAL_MS), attempt,
               Constants.MEMORY_CHECK_RETRY_LIMIT));
-          if (attempt == 1) {
-            this.commonMetrics.incrementOOMJobWaitCount();
-          }
-          synchronized (this) {
-            try {
-              this.wait(Constants.MEMORY_CHECK_INTERVAL_MS);
-            } catch (final InterruptedException e) {
-              info(String
-                  .format("Job %s interrupted while waiting for memory check retry", getId()));
+          try {
+            if (reservation.await(Constants.MEMORY_CHECK_INTERVAL_MS)) {
+              break;
             }
+          } catch (final InterruptedException e) {
+            info(String.format("Job %s interrupted while waiting for memory", getId()));
           }
           if (this.killed) {
-            this.commonMetrics.decrementOOMJobWaitCount();
-            info(String.format("Job %s was killed while waiting for memory check retry", getId()));
-            return;
+            info(String.format("Job %s was killed while waiting for memory", getId()));
+            reservation.release();
+            return false;
           }
         }
+      } finally {
+        this.commonMetrics.decrementOOMJobWaitCount();
       }
 
-      if (!isMemGranted) {
-        this.commonMetrics.decrementOOMJobWaitCount();
+      if (!reservation.isGranted()) {
+        reservation.release();
         handleError(oomMsg, null);
       }
     }
+    info(String.format("Memory granted for job %s", getId()));
+    return true;
+  }
 
+  private void runCommands() throws Exception {
     List<String> commands = null;
     try {
       commands = getCommandList();
@@ -283,7 +310,7 @@ public class ProcessJob extends AbstractProcessJob {
           info("The job is killed. Abort. No job process created.");
           return;
         }
-        this.process = builder.build();
+        this.process = createProcess(builder);
       }
       try {
         this.process.run();
@@ -296,9 +323,14 @@ public class ProcessJob extends AbstractProcessJob {
         }
         throw new RuntimeException(e);
       } finally {
+        final long endMs = System.currentTimeMillis();
         info("Process completed "
             + (this.success ? "successfully" : "unsuccessfully") + " in "
-            + ((System.currentTimeMillis() - startMs) / 1000) + " seconds.");
+            + ((endMs - startMs) / 1000) + " seconds.");
+        if (this.killed) {
+          info("Process exited " + (endMs - this.killTimeMs) + " ms after the job was killed.");
+          this.commonMetrics.updateJobKillLatency(endMs - this.killTimeMs);
+        }
       }
     }
 
@@ -430,12 +462,26 @@ public class ProcessJob extends AbstractProcessJob {
     return commands;
   }
 
+  /**
+   * Creates the process that runs a command of the job. Not called if the job is killed.
+   */
+  protected AzkabanProcess createProcess(final AzkabanProcessBuilder builder) {
+    return builder.build();
+  }
+
   @Override
   public void cancel() throws InterruptedException {
     // in case the job is waiting
     synchronized (this) {
+      if (!this.killed) {
+        this.killTimeMs = System.currentTimeMillis();
+      }
       this.killed = true;
       this.notify();
+      if (this.memoryReservation != null && !this.memoryReservation.isGranted()) {
+        // Leave the memory queue.
+        this.memoryReservation.release();
+      }
       if (this.process == null) {
         // The job thread has not checked if the job is killed yet.
         // setting the killed flag should be enough to abort the job.
@@ -444,12 +490,9 @@ public class ProcessJob extends AbstractProcessJob {
       }
     }
     this.process.awaitStartup();
-    final boolean processkilled = this.process
-        .softKill(KILL_TIME.toMillis(), TimeUnit.MILLISECONDS);
-    if (!processkilled) {
-      warn("Kill with signal TERM failed. Killing with KILL signal.");
-      this.process.hardKill();
-    }
+    // Doesn't wait for the process to exit, so that all jobs of a cancelled flow are signalled
+    // right away.
+    this.process.kill(KILL_TIME);
   }
 
   @Override
@@ -461,6 +504,13 @@ public class ProcessJob extends AbstractProcessJob {
     return this.process.getProcessId();
   }
 
+  /**
+   * @return the resource usage of the last process started by the job, or null if there is none
+   */
+  public ProcessResourceSampler.ResourceUsage getResourceUsage() {
+    return this.process == null ? null : this.process.getResourceUsage();
+  }
+
   @VisibleForTesting
   boolean isSuccess() {
     return this.success;
@@ -16,15 +16,18 @@
 
 package azkaban.jobExecutor.utils.process;
 
-import azkaban.utils.LogGobbler;
+import static azkaban.ServiceProvider.SERVICE_PROVIDER;
+
 import com.google.common.base.Joiner;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.reflect.Field;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.IOUtils;
@@ -34,7 +37,7 @@ import org.apache.log4j.Logger;
 /**
  * An improved version of java.lang.Process.
  *
- * Output is read by separate threads to avoid deadlock and logged to log4j
+ * Output is read by the shared {@link ProcessOutputPump} to avoid deadlock and logged to log4j
  * loggers.
  */
 public class AzkabanProcess {
@@ -50,6 +53,7 @@ public class AzkabanProcess {
 
   private volatile int processId;
   private volatile Process process;
+  private volatile ProcessResourceSampler.ResourceUsage resourceUsage = null;
 
   private boolean isExecuteAsUser = false;
   private String executeAsUserBinary = null;
@@ -98,37 +102,35 @@ public class AzkabanProcess {
 
       this.startupLatch.countDown();
 
-      final LogGobbler outputGobbler =
-          new LogGobbler(
-              new InputStreamReader(this.process.getInputStream(), StandardCharsets.UTF_8),
-              this.logger, Level.INFO, 30);
-      final LogGobbler errorGobbler =
-          new LogGobbler(
-              new InputStreamReader(this.process.getErrorStream(), StandardCharsets.UTF_8),
-              this.logger, Level.ERROR, 30);
-
-      outputGobbler.start();
-      errorGobbler.start();
+      final ProcessResourceSampler sampler = ProcessResourceSampler.getInstance();
+      if (this.processId != 0) {
+        this.resourceUsage = sampler.register(this.processId);
+      }
+
+      // stderr is redirected to stdout, so there is only one stream to pump.
+      final ProcessOutputPump.Source output = SERVICE_PROVIDER.getInstance(ProcessOutputPump.class)
+          .register(this.process.getInputStream(), this.logger, Level.INFO, 30);
+
       int exitCode = -1;
       try {
         exitCode = this.process.waitFor();
       } catch (final InterruptedException e) {
         this.logger.info("Process interrupted. Exit code is " + exitCode, e);
       }
+      if (this.processId != 0) {
+        sampler.unregister(this.processId);
+      }
 
       this.completeLatch.countDown();
 
       // try to wait for everything to get logged out before exiting
-      outputGobbler.awaitCompletion(5000);
-      errorGobbler.awaitCompletion(5000);
+      output.processExited();
+      output.awaitCompletion(5000);
 
       if (exitCode != 0) {
-        final String output =
-            new StringBuilder().append("Stdout:\n")
-                .append(outputGobbler.getRecentLog()).append("\n\n")
-                .append("Stderr:\n").append(errorGobbler.getRecentLog())
-                .append("\n").toString();
-        throw new ProcessFailureException(exitCode, output);
+        // stderr is merged into it.
+        final String logSnippet = "Output:\n" + output.getRecentLog() + "\n";
+        throw new ProcessFailureException(exitCode, logSnippet);
       }
 
     } finally {
@@ -169,6 +171,14 @@ public class AzkabanProcess {
     return this.processId;
   }
 
+  /**
+   * @return the sampled resource usage of the process and its children, or null if its process id
+   * is unknown
+   */
+  public ProcessResourceSampler.ResourceUsage getResourceUsage() {
+    return this.resourceUsage;
+  }
+
   /**
    * Attempt to kill the process, waiting up to the given time for it to die
    *
@@ -179,22 +189,9 @@ public class AzkabanProcess {
   public boolean softKill(final long time, final TimeUnit unit)
       throws InterruptedException {
     checkStarted();
-    if (this.processId != 0 && isStarted()) {
-      try {
-        if (this.isExecuteAsUser) {
-          final String cmd =
-              String.format("%s %s %s %d", this.executeAsUserBinary,
-                  this.effectiveUser, KILL_COMMAND, this.processId);
-          Runtime.getRuntime().exec(cmd);
-        } else {
-          final String cmd = String.format("%s %d", KILL_COMMAND, this.processId);
-          Runtime.getRuntime().exec(cmd);
-        }
-        return this.completeLatch.await(time, unit);
-      } catch (final IOException e) {
-        this.logger.error("Kill attempt failed.", e);
-      }
-      return false;
+    if (this.processId != 0 || !this.isExecuteAsUser) {
+      signal(false);
+      return this.completeLatch.await(time, unit);
     }
     return false;
   }
@@ -205,32 +202,93 @@ public class AzkabanProcess {
   public void hardKill() {
     checkStarted();
     if (isRunning()) {
-      if (this.processId != 0) {
-        try {
-          if (this.isExecuteAsUser) {
-            final String cmd =
-                String.format("%s %s %s -9 %d", this.executeAsUserBinary,
-                    this.effectiveUser, KILL_COMMAND, this.processId);
-            Runtime.getRuntime().exec(cmd);
-          } else {
-            final String cmd = String.format("%s -9 %d", KILL_COMMAND, this.processId);
-            Runtime.getRuntime().exec(cmd);
-          }
-        } catch (final IOException e) {
-          this.logger.error("Kill attempt failed.", e);
+      signal(true);
+    }
+  }
+
+  /**
+   * Sends SIGTERM to the process and returns. If it's still running after the grace period, it's
+   * killed with SIGKILL. So are the children it had when it was signalled that are still alive,
+   * even if the process itself has exited and they were reparented.
+   */
+  public void kill(final Duration gracePeriod) throws InterruptedException {
+    checkStarted();
+    final List<Integer> descendants = listDescendants();
+    // Identifies the children by pid and start time, so a reused pid isn't killed.
+    final Map<Integer, Long> startTimes =
+        ProcessResourceSampler.getInstance().readStartTimes(descendants);
+    if (this.processId != 0 || !this.isExecuteAsUser) {
+      signal(descendants, false);
+    }
+    ProcessKiller.getInstance().schedule(() -> {
+      final Set<Integer> survivors = new LinkedHashSet<>();
+      final Map<Integer, Long> alive =
+          ProcessResourceSampler.getInstance().readStartTimes(startTimes.keySet());
+      for (final Map.Entry<Integer, Long> entry : alive.entrySet()) {
+        if (entry.getValue().equals(startTimes.get(entry.getKey()))) {
+          survivors.add(entry.getKey());
         }
       }
-      this.process.destroy();
+      if (!isComplete()) {
+        this.logger.warn("Kill with signal TERM failed. Killing with KILL signal.");
+        survivors.addAll(listDescendants());
+        signal(new ArrayList<>(survivors), true);
+      } else if (!survivors.isEmpty()) {
+        this.logger.warn("Child processes " + survivors
+            + " survived signal TERM. Killing with KILL signal.");
+        killPids(new ArrayList<>(survivors), true);
+      }
+    }, gracePeriod);
+  }
+
+  /**
+   * Signals the process and all of its children. The process tree is read before the process is
+   * signalled, since its children are reparented once it exits.
+   */
+  private void signal(final boolean force) {
+    signal(listDescendants(), force);
+  }
+
+  private void signal(final List<Integer> descendants, final boolean force) {
+    if (this.isExecuteAsUser) {
+      final List<Integer> pids = new ArrayList<>();
+      if (this.processId != 0) {
+        pids.add(this.processId);
+      }
+      pids.addAll(descendants);
+      killPids(pids, force);
+    } else {
+      // Signals the process without forking, and never one that reused its pid.
+      if (force) {
+        this.process.destroyForcibly();
+      } else {
+        this.process.destroy();
+      }
+      killPids(descendants, force);
     }
   }
 
+  private void killPids(final List<Integer> pids, final boolean force) {
+    if (this.isExecuteAsUser) {
+      ProcessKiller.getInstance().kill(pids, force, this.executeAsUserBinary,
+          this.effectiveUser);
+    } else {
+      ProcessKiller.getInstance().kill(pids, force, null, null);
+    }
+  }
+
+  private List<Integer> listDescendants() {
+    return this.processId == 0 ? new ArrayList<>()
+        : ProcessResourceSampler.getInstance().listDescendants(this.processId);
+  }
+
   /**
    * Attempt to get the process id for this process
    *
    * @param process The process to get the id from
    * @return The id of the process
    */
-  private int processId(final java.lang.Process process) {
+  static int processId(final java.lang.Process process) {
     int processId = 0;
     try {
       final Field f = process.getClass().getDeclaredField("pid");
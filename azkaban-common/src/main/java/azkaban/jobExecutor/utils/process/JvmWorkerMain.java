@@ -0,0 +1,250 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Main class of a pooled worker JVM started by {@link JvmWorkerPool}.
+ *
+ * The worker reads job requests from stdin and runs the main method of each job class, one at a
+ * time, in a class loader of its own. Job output goes to the worker's stdout and stderr. When a
+ * job is done, the worker prints a line with the request token, the exit code and whether it is
+ * still fit for more jobs. It exits when stdin is closed.
+ *
+ * The job's environment variables are put into the map returned by System.getenv() for the
+ * duration of the job, so jobs can find their property files as usual. This needs access to
+ * java.util internals, which the pool opens up on Java 9 and later. If that fails, the variables
+ * are set as system properties instead. Processes started by the job don't see them either way.
+ *
+ * This class only depends on the JDK, since it is the only class on the worker's classpath that
+ * isn't the job's.
+ */
+public class JvmWorkerMain {
+
+  static final String HEALTHY = "ok";
+  static final String RECYCLE = "recycle";
+
+  // Recycle the worker if more of the heap than this is still in use after a job.
+  private static final double MAX_HEAP_USED_RATIO = 0.8;
+
+  public static void main(final String[] args) throws Exception {
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+    final Properties baseline = (Properties) System.getProperties().clone();
+    final Map<String, String> env = getWritableEnv();
+    final Map<String, String> baselineEnv = new HashMap<>(System.getenv());
+    final Set<Thread> baselineThreads = Thread.getAllStackTraces().keySet();
+
+    while (true) {
+      final Request request;
+      try {
+        request = Request.read(in);
+      } catch (final EOFException e) {
+        // The executor is done with this worker.
+        return;
+      }
+
+      if (env != null) {
+        env.putAll(request.env);
+      } else {
+        for (final Map.Entry<String, String> entry : request.env.entrySet()) {
+          System.setProperty(entry.getKey(), entry.getValue());
+        }
+      }
+
+      final int exitCode = run(request);
+      final boolean healthy = isHealthy(baselineThreads);
+      System.setProperties((Properties) baseline.clone());
+      if (env != null) {
+        env.clear();
+        env.putAll(baselineEnv);
+      }
+
+      System.err.flush();
+      // The job's output may not have ended with a line break. The pool finds the token anywhere
+      // in the line.
+      System.out.println(request.token + " " + exitCode + " " + (healthy ? HEALTHY : RECYCLE));
+      System.out.flush();
+    }
+  }
+
+  private static int run(final Request request) {
+    final Thread thread = Thread.currentThread();
+    final ClassLoader workerLoader = thread.getContextClassLoader();
+    // Isolated from the worker's own classpath.
+    try (URLClassLoader loader = new URLClassLoader(toUrls(request.classpath),
+        JvmWorkerMain.class.getClassLoader().getParent())) {
+      thread.setContextClassLoader(loader);
+      final Method main = loader.loadClass(request.className).getMethod("main", String[].class);
+      if (!Modifier.isStatic(main.getModifiers())) {
+        throw new NoSuchMethodException(request.className + ".main is not static");
+      }
+      main.invoke(null, (Object) request.args.toArray(new String[request.args.size()]));
+      return 0;
+    } catch (final InvocationTargetException e) {
+      e.getCause().printStackTrace();
+      return 1;
+    } catch (final Exception | LinkageError e) {
+      e.printStackTrace();
+      return 1;
+    } finally {
+      thread.setContextClassLoader(workerLoader);
+    }
+  }
+
+  /**
+   * @return the map backing System.getenv(), or null if it can't be accessed
+   */
+  @SuppressWarnings("unchecked")
+  private static Map<String, String> getWritableEnv() {
+    final Map<String, String> env = System.getenv();
+    try {
+      final Field field = env.getClass().getDeclaredField("m");
+      field.setAccessible(true);
+      return (Map<String, String>) field.get(env);
+    } catch (final Exception e) {
+      System.err.println("Can't set environment variables of jobs, setting them as system "
+          + "properties instead: " + e);
+      return null;
+    }
+  }
+
+  /**
+   * Expands the dir/* wildcards the java command supports.
+   */
+  private static URL[] toUrls(final List<String> classpath) throws IOException {
+    final List<URL> urls = new ArrayList<>();
+    for (final String entry : classpath) {
+      if (entry.endsWith("*")) {
+        final File[] jars = new File(entry.substring(0, entry.length() - 1)).listFiles();
+        if (jars != null) {
+          for (final File jar : jars) {
+            if (jar.getName().endsWith(".jar")) {
+              urls.add(jar.toURI().toURL());
+            }
+          }
+        }
+      } else {
+        urls.add(new File(entry).toURI().toURL());
+      }
+    }
+    return urls.toArray(new URL[urls.size()]);
+  }
+
+  /**
+   * A worker is unfit for the next job if the last one left threads behind, or if its heap is
+   * still mostly in use.
+   */
+  private static boolean isHealthy(final Set<Thread> baselineThreads) {
+    for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.isAlive() && !thread.isDaemon() && !baselineThreads.contains(thread)) {
+        return false;
+      }
+    }
+    final Runtime runtime = Runtime.getRuntime();
+    if (runtime.totalMemory() - runtime.freeMemory() <= runtime.maxMemory() * MAX_HEAP_USED_RATIO) {
+      return true;
+    }
+    // Only pay for a collection if the heap looks full.
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory()
+        <= runtime.maxMemory() * MAX_HEAP_USED_RATIO;
+  }
+
+  /**
+   * A job to run, written to the worker's stdin by the pool.
+   */
+  static class Request {
+
+    final String token;
+    final String className;
+    final List<String> classpath;
+    final List<String> args;
+    final Map<String, String> env;
+
+    Request(final String token, final String className, final List<String> classpath,
+        final List<String> args, final Map<String, String> env) {
+      this.token = token;
+      this.className = className;
+      this.classpath = classpath;
+      this.args = args;
+      this.env = env;
+    }
+
+    static Request read(final DataInputStream in) throws IOException {
+      final String token = in.readUTF();
+      final String className = in.readUTF();
+      final List<String> classpath = readList(in);
+      final List<String> args = readList(in);
+      final List<String> envList = readList(in);
+      final Map<String, String> env = new LinkedHashMap<>();
+      for (int i = 0; i + 1 < envList.size(); i += 2) {
+        env.put(envList.get(i), envList.get(i + 1));
+      }
+      return new Request(token, className, classpath, args, env);
+    }
+
+    private static List<String> readList(final DataInputStream in) throws IOException {
+      final int size = in.readInt();
+      final List<String> list = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        list.add(in.readUTF());
+      }
+      return list;
+    }
+
+    private static void writeList(final DataOutputStream out, final List<String> list)
+        throws IOException {
+      out.writeInt(list.size());
+      for (final String value : list) {
+        out.writeUTF(value);
+      }
+    }
+
+    void write(final DataOutputStream out) throws IOException {
+      out.writeUTF(this.token);
+      out.writeUTF(this.className);
+      writeList(out, this.classpath);
+      writeList(out, this.args);
+      final List<String> envList = new ArrayList<>();
+      for (final Map.Entry<String, String> entry : this.env.entrySet()) {
+        envList.add(entry.getKey());
+        envList.add(entry.getValue());
+      }
+      writeList(out, envList);
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import azkaban.utils.CircularBuffer;
+import azkaban.utils.Md5Hasher;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps started JVMs around to run more java jobs, so that jobs don't pay for JVM startup,
+ * class loading and JIT warmup of the JDK every time.
+ *
+ * Workers are only shared by jobs with the same key, i.e. the same job type, JVM launch command
+ * and classpath contents. A worker is leased by one job at a time and returned to the pool when
+ * the job is done, unless it crashed, was killed, has run too many jobs or reported itself as
+ * unhealthy (see {@link JvmWorkerMain}). Idle workers are stopped after a timeout, by a reaper
+ * thread that runs while there are idle workers.
+ */
+public class JvmWorkerPool {
+
+  private static final Logger logger = Logger.getLogger(JvmWorkerPool.class);
+
+  private static final int DEFAULT_MAX_IDLE_PER_KEY = 2;
+  private static final int DEFAULT_MAX_JOBS_PER_WORKER = 100;
+  private static final long DEFAULT_IDLE_TIMEOUT_MS = 10 * 60 * 1000;
+  // Lets JvmWorkerMain set the environment of jobs. Only read by Java 9 and later.
+  private static final String JDK_JAVA_OPTIONS = "JDK_JAVA_OPTIONS";
+  private static final String OPEN_JAVA_UTIL = "--add-opens=java.base/java.util=ALL-UNNAMED";
+
+  private static final JvmWorkerPool INSTANCE = new JvmWorkerPool(DEFAULT_MAX_IDLE_PER_KEY,
+      DEFAULT_MAX_JOBS_PER_WORKER, DEFAULT_IDLE_TIMEOUT_MS);
+
+  private final int maxIdlePerKey;
+  private final int maxJobsPerWorker;
+  private final long idleTimeoutMs;
+  // Guarded by this.
+  private final Map<String, Deque<Worker>> idleWorkers = new HashMap<>();
+  // Guarded by this.
+  private ScheduledExecutorService reaper = null;
+
+  JvmWorkerPool(final int maxIdlePerKey, final int maxJobsPerWorker, final long idleTimeoutMs) {
+    this.maxIdlePerKey = maxIdlePerKey;
+    this.maxJobsPerWorker = maxJobsPerWorker;
+    this.idleTimeoutMs = idleTimeoutMs;
+  }
+
+  public static JvmWorkerPool getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the classpath of worker JVMs, which only needs {@link JvmWorkerMain}
+   */
+  public static String getWorkerClasspath() {
+    try {
+      return new File(JvmWorkerMain.class.getProtectionDomain().getCodeSource().getLocation()
+          .toURI()).getPath();
+    } catch (final URISyntaxException e) {
+      throw new IllegalStateException("Can't find the location of " + JvmWorkerMain.class, e);
+    }
+  }
+
+  /**
+   * Creates the key of the workers that can run a job. Jars are identified by name, size and
+   * modification time, so a redeployed jar doesn't run in workers warmed up by the old one.
+   *
+   * Entries in the job's working directory are identified by their path relative to it, since
+   * the directory differs for each execution of the same job.
+   *
+   * @param cwd the directory relative classpath entries are resolved against
+   */
+  public static String createKey(final String jobType, final List<String> launchCommand,
+      final String cwd, final List<String> classpath) {
+    final MessageDigest digest = Md5Hasher.getMd5Digest();
+    for (final String arg : launchCommand) {
+      update(digest, arg);
+    }
+    final String cwdPrefix = new File(cwd).getAbsolutePath() + File.separator;
+    for (final String entry : classpath) {
+      final String path = new File(entry).isAbsolute() ? entry : new File(cwd, entry).getPath();
+      final File[] files;
+      if (path.endsWith("*")) {
+        files = new File(path.substring(0, path.length() - 1)).listFiles();
+      } else {
+        files = new File[]{new File(path)};
+      }
+      final String absolutePath = new File(path).getAbsolutePath();
+      update(digest, absolutePath.startsWith(cwdPrefix)
+          ? absolutePath.substring(cwdPrefix.length()) : entry);
+      if (files != null) {
+        Arrays.sort(files);
+        for (final File f : files) {
+          // The time of a directory changes whenever a file is added, e.g. the job's cwd.
+          if (f.isFile()) {
+            update(digest, f.getName() + ":" + f.length() + ":" + f.lastModified());
+          }
+        }
+      }
+    }
+    return jobType + "-" + Hex.encodeHexString(digest.digest());
+  }
+
+  private static void update(final MessageDigest digest, final String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /**
+   * Takes an idle worker with the given key, or starts a new one.
+   *
+   * @param launchCommand the command that starts a worker, ending with {@link JvmWorkerMain}
+   */
+  public Worker lease(final String key, final List<String> launchCommand) throws IOException {
+    synchronized (this) {
+      removeExpired(System.currentTimeMillis());
+      final Deque<Worker> workers = this.idleWorkers.get(key);
+      while (workers != null && !workers.isEmpty()) {
+        final Worker worker = workers.poll();
+        if (worker.isAlive()) {
+          return worker;
+        }
+      }
+    }
+    return Worker.start(key, launchCommand);
+  }
+
+  /**
+   * Returns a worker leased with {@link #lease(String, List)}.
+   *
+   * @param reusable false if the worker must not run any more jobs, e.g. since it was killed
+   */
+  public void release(final Worker worker, final boolean reusable) {
+    if (reusable && worker.isReusable() && worker.getNumJobs() < this.maxJobsPerWorker) {
+      synchronized (this) {
+        final Deque<Worker> workers =
+            this.idleWorkers.computeIfAbsent(worker.key, k -> new ArrayDeque<>());
+        if (workers.size() < this.maxIdlePerKey) {
+          worker.idleSince = System.currentTimeMillis();
+          // The most recently used worker is the warmest.
+          workers.addFirst(worker);
+          removeExpired(worker.idleSince);
+          startReaper();
+          return;
+        }
+      }
+    }
+    worker.destroy();
+  }
+
+  public synchronized int getNumIdleWorkers() {
+    int count = 0;
+    for (final Deque<Worker> workers : this.idleWorkers.values()) {
+      count += workers.size();
+    }
+    return count;
+  }
+
+  @VisibleForTesting
+  synchronized boolean isReaperRunning() {
+    return this.reaper != null;
+  }
+
+  /**
+   * Stops all idle workers and the reaper. Workers released later are pooled again.
+   */
+  public void shutdown() {
+    final List<Worker> workers = new ArrayList<>();
+    synchronized (this) {
+      for (final Deque<Worker> idle : this.idleWorkers.values()) {
+        workers.addAll(idle);
+      }
+      this.idleWorkers.clear();
+      if (this.reaper != null) {
+        this.reaper.shutdownNow();
+        this.reaper = null;
+      }
+    }
+    for (final Worker worker : workers) {
+      worker.destroy();
+    }
+  }
+
+  /**
+   * Sweeps the idle workers every half idle timeout, so that they don't outlive it by much when
+   * no more jobs lease from the pool.
+   */
+  private void startReaper() {
+    if (this.reaper != null) {
+      return;
+    }
+    this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "JvmWorkerPool-reaper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long periodMs = Math.max(1, this.idleTimeoutMs / 2);
+    final ScheduledExecutorService reaper = this.reaper;
+    reaper.scheduleAtFixedRate(() -> {
+      synchronized (this) {
+        try {
+          removeExpired(System.currentTimeMillis());
+        } catch (final RuntimeException e) {
+          logger.error("Failed to stop expired JVM workers.", e);
+        }
+        if (this.idleWorkers.isEmpty() && this.reaper == reaper) {
+          reaper.shutdown();
+          this.reaper = null;
+        }
+      }
+    }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void removeExpired(final long now) {
+    for (final Iterator<Deque<Worker>> it = this.idleWorkers.values().iterator(); it.hasNext(); ) {
+      final Deque<Worker> workers = it.next();
+      // The least recently used workers are at the end.
+      while (!workers.isEmpty() && now - workers.peekLast().idleSince >= this.idleTimeoutMs) {
+        workers.pollLast().destroy();
+      }
+      if (workers.isEmpty()) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * A worker JVM. Output is read by the job thread while a job runs, so both streams are merged.
+   */
+  public static class Worker {
+
+    private final String key;
+    private final Process process;
+    private final int processId;
+    private final DataOutputStream input;
+    private final BufferedReader output;
+    private volatile boolean reusable = true;
+    private int numJobs = 0;
+    // Guarded by the pool.
+    private long idleSince;
+
+    private Worker(final String key, final Process process) {
+      this.key = key;
+      this.process = process;
+      this.processId = AzkabanProcess.processId(process);
+      this.input = new DataOutputStream(process.getOutputStream());
+      this.output = new BufferedReader(
+          new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static Worker start(final String key, final List<String> launchCommand)
+        throws IOException {
+      final ProcessBuilder builder = new ProcessBuilder(launchCommand);
+      builder.redirectErrorStream(true);
+      final String javaOptions = builder.environment().get(JDK_JAVA_OPTIONS);
+      builder.environment().put(JDK_JAVA_OPTIONS,
+          javaOptions == null ? OPEN_JAVA_UTIL : javaOptions + " " + OPEN_JAVA_UTIL);
+      final Worker worker = new Worker(key, builder.start());
+      logger.info("Started JVM worker " + worker.processId + " for " + key);
+      return worker;
+    }
+
+    /**
+     * Runs a job and forwards its output to the logger, blocking until it's done.
+     *
+     * @param recentLines receives the output of the job
+     * @return the exit code of the job, or of the worker if it died
+     */
+    int run(final String className, final List<String> classpath, final List<String> args,
+        final Map<String, String> env, final Logger jobLogger,
+        final CircularBuffer<String> recentLines) {
+      final String token = UUID.randomUUID().toString();
+      this.numJobs++;
+      try {
+        new JvmWorkerMain.Request(token, className, classpath, args, env).write(this.input);
+        String line;
+        while ((line = this.output.readLine()) != null) {
+          final int tokenIndex = line.indexOf(token);
+          if (tokenIndex < 0) {
+            jobLogger.info(line);
+            recentLines.append(line);
+            continue;
+          }
+          if (tokenIndex > 0) {
+            final String lastLine = line.substring(0, tokenIndex);
+            jobLogger.info(lastLine);
+            recentLines.append(lastLine);
+          }
+          final String[] result = line.substring(tokenIndex + token.length()).trim().split(" ");
+          if (!JvmWorkerMain.HEALTHY.equals(result[1])) {
+            jobLogger.info("JVM worker " + this.processId + " will be recycled.");
+            this.reusable = false;
+          }
+          return Integer.parseInt(result[0]);
+        }
+      } catch (final IOException e) {
+        jobLogger.error("Lost connection to JVM worker " + this.processId, e);
+      }
+
+      // The worker died, e.g. the job called System.exit() or it was killed.
+      this.reusable = false;
+      destroy();
+      try {
+        return this.process.waitFor();
+      } catch (final InterruptedException e) {
+        jobLogger.info("Interrupted while waiting for JVM worker " + this.processId, e);
+        return -1;
+      }
+    }
+
+    public int getProcessId() {
+      return this.processId;
+    }
+
+    public int getNumJobs() {
+      return this.numJobs;
+    }
+
+    public boolean isAlive() {
+      try {
+        this.process.exitValue();
+        return false;
+      } catch (final IllegalThreadStateException e) {
+        return true;
+      }
+    }
+
+    public boolean isReusable() {
+      return this.reusable && isAlive();
+    }
+
+    /**
+     * Asks the worker to stop. A worker that is running a job is killed.
+     */
+    public void destroy() {
+      this.reusable = false;
+      IOUtils.closeQuietly(this.input);
+      this.process.destroy();
+    }
+
+    public void destroyForcibly() {
+      this.reusable = false;
+      IOUtils.closeQuietly(this.input);
+      this.process.destroyForcibly();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import azkaban.utils.CircularBuffer;
+import com.google.common.base.Joiner;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs the main class of a java job in a worker JVM of the {@link JvmWorkerPool} instead of
+ * forking a new JVM.
+ *
+ * Killing the job kills the worker, which is then never reused. The resource usage of pooled
+ * jobs isn't sampled, since the counters of a worker include the jobs it ran before.
+ */
+public class PooledJavaProcess extends AzkabanProcess {
+
+  private final JvmWorkerPool pool;
+  private final String key;
+  private final List<String> launchCommand;
+  private final String className;
+  private final List<String> classpath;
+  private final List<String> args;
+  private final Map<String, String> env;
+  private final Logger logger;
+  private final CountDownLatch startupLatch = new CountDownLatch(1);
+  private final CountDownLatch completeLatch = new CountDownLatch(1);
+
+  private volatile JvmWorkerPool.Worker worker;
+  private volatile boolean killed = false;
+
+  /**
+   * @param key the workers that can run the job, see {@link JvmWorkerPool#createKey}
+   * @param launchCommand the command that starts a worker if there is no idle one
+   * @param classpath absolute classpath of the job
+   */
+  public PooledJavaProcess(final JvmWorkerPool pool, final String key,
+      final List<String> launchCommand, final String className, final List<String> classpath,
+      final List<String> args, final Map<String, String> env, final String workingDir,
+      final Logger logger) {
+    super(launchCommand, env, workingDir, logger);
+    this.pool = pool;
+    this.key = key;
+    this.launchCommand = launchCommand;
+    this.className = className;
+    this.classpath = classpath;
+    this.args = args;
+    this.env = env;
+    this.logger = logger;
+  }
+
+  /**
+   * Run the job in a worker, blocking until it has completed.
+   */
+  @Override
+  public void run() throws IOException {
+    if (this.isStarted() || this.isComplete()) {
+      throw new IllegalStateException("The process can only be used once.");
+    }
+
+    this.worker = this.pool.lease(this.key, this.launchCommand);
+    this.logger.info("Running " + this.className + " in JVM worker "
+        + this.worker.getProcessId() + ", which has run " + this.worker.getNumJobs()
+        + " jobs before.");
+    this.startupLatch.countDown();
+
+    final CircularBuffer<String> recentLines = new CircularBuffer<>(30);
+    final int exitCode;
+    try {
+      exitCode = this.worker.run(this.className, this.classpath, this.args, this.env,
+          this.logger, recentLines);
+    } finally {
+      this.completeLatch.countDown();
+      this.pool.release(this.worker, !this.killed);
+    }
+
+    if (exitCode != 0) {
+      // The worker's stderr is merged into it.
+      final String logSnippet = "Output:\n"
+          + Joiner.on(System.getProperty("line.separator")).join(recentLines) + "\n";
+      throw new ProcessFailureException(exitCode, logSnippet);
+    }
+  }
+
+  @Override
+  public void awaitCompletion() throws InterruptedException {
+    this.completeLatch.await();
+  }
+
+  @Override
+  public void awaitStartup() throws InterruptedException {
+    this.startupLatch.await();
+  }
+
+  @Override
+  public int getProcessId() {
+    checkStarted();
+    return this.worker.getProcessId();
+  }
+
+  @Override
+  public boolean softKill(final long time, final TimeUnit unit) throws InterruptedException {
+    checkStarted();
+    this.killed = true;
+    this.worker.destroy();
+    return this.completeLatch.await(time, unit);
+  }
+
+  @Override
+  public void hardKill() {
+    checkStarted();
+    this.killed = true;
+    if (isRunning()) {
+      this.worker.destroyForcibly();
+    }
+  }
+
+  /**
+   * Destroys the worker, and forcibly if the job hasn't completed after the grace period. The
+   * worker isn't reused.
+   */
+  @Override
+  public void kill(final Duration gracePeriod) {
+    checkStarted();
+    this.killed = true;
+    this.worker.destroy();
+    ProcessKiller.getInstance().schedule(() -> {
+      if (!isComplete()) {
+        this.logger.warn("Kill with signal TERM failed. Killing with KILL signal.");
+        this.worker.destroyForcibly();
+      }
+    }, gracePeriod);
+  }
+
+  @Override
+  public boolean isStarted() {
+    return this.startupLatch.getCount() == 0L;
+  }
+
+  @Override
+  public boolean isComplete() {
+    return this.completeLatch.getCount() == 0L;
+  }
+
+  @Override
+  public String toString() {
+    return "PooledJavaProcess(class = " + this.className + ", classpath = " + this.classpath
+        + ", args = " + this.args + ", worker = " + this.key + ")";
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Signals processes that the executor can't signal through {@link Process}, i.e. the children of
+ * job processes and processes run as another user.
+ *
+ * Signals are sent by a single thread. Every request that comes in while it's busy goes into the
+ * next batch, and a batch needs one kill command per signal and user rather than one per process.
+ * Cancelling a whole flow only forks a handful of processes that way.
+ *
+ * Also runs the timers that escalate a kill to SIGKILL.
+ */
+public class ProcessKiller {
+
+  private static final Logger logger = Logger.getLogger(ProcessKiller.class);
+
+  private static final int MAX_PIDS_PER_COMMAND = 256;
+  private static final String TERM = "-15";
+  private static final String KILL = "-9";
+
+  private static final ProcessKiller INSTANCE = new ProcessKiller();
+
+  private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+  private Thread killer = null;
+  private ScheduledExecutorService timer = null;
+
+  ProcessKiller() {
+  }
+
+  public static ProcessKiller getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Queues the signal. Returns without waiting for it to be sent.
+   *
+   * @param force SIGKILL if true, SIGTERM otherwise
+   * @param executeAsUserBinary the execute-as-user binary that sends the signal as the effective
+   * user, or null to send it as the executor's user
+   */
+  public void kill(final List<Integer> pids, final boolean force,
+      final String executeAsUserBinary, final String effectiveUser) {
+    if (pids.isEmpty()) {
+      return;
+    }
+    this.requests.add(new Request(pids, force, executeAsUserBinary, effectiveUser));
+    startKiller();
+  }
+
+  /**
+   * Runs the task after the delay on the shared timer thread. The task must be quick.
+   */
+  public synchronized void schedule(final Runnable task, final Duration delay) {
+    if (this.timer == null) {
+      this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "ProcessKiller-timer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    this.timer.schedule(task, delay.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void startKiller() {
+    if (this.killer != null) {
+      return;
+    }
+    this.killer = new Thread(() -> {
+      while (true) {
+        try {
+          final List<Request> batch = new ArrayList<>();
+          batch.add(this.requests.take());
+          this.requests.drainTo(batch);
+          for (final List<String> command : createCommands(batch)) {
+            runCommand(command);
+          }
+        } catch (final InterruptedException e) {
+          logger.warn("Process killer interrupted.", e);
+        } catch (final RuntimeException e) {
+          logger.error("Failed to kill processes.", e);
+        }
+      }
+    }, "ProcessKiller");
+    this.killer.setDaemon(true);
+    this.killer.start();
+  }
+
+  /**
+   * Groups the requests into as few kill commands as possible.
+   */
+  static List<List<String>> createCommands(final List<Request> batch) {
+    final Map<List<String>, List<Integer>> pidsByPrefix = new LinkedHashMap<>();
+    for (final Request request : batch) {
+      final List<String> prefix = new ArrayList<>();
+      if (request.executeAsUserBinary != null) {
+        prefix.add(request.executeAsUserBinary);
+        prefix.add(request.effectiveUser);
+      }
+      prefix.add(AzkabanProcess.KILL_COMMAND);
+      prefix.add(request.force ? KILL : TERM);
+      final List<Integer> pids = pidsByPrefix.computeIfAbsent(prefix, k -> new ArrayList<>());
+      for (final Integer pid : request.pids) {
+        if (!pids.contains(pid)) {
+          pids.add(pid);
+        }
+      }
+    }
+
+    final List<List<String>> commands = new ArrayList<>();
+    for (final Map.Entry<List<String>, List<Integer>> entry : pidsByPrefix.entrySet()) {
+      final List<Integer> pids = entry.getValue();
+      for (int start = 0; start < pids.size(); start += MAX_PIDS_PER_COMMAND) {
+        final List<String> command = new ArrayList<>(entry.getKey());
+        for (final Integer pid : pids.subList(start,
+            Math.min(start + MAX_PIDS_PER_COMMAND, pids.size()))) {
+          command.add(pid.toString());
+        }
+        commands.add(command);
+      }
+    }
+    return commands;
+  }
+
+  private static void runCommand(final List<String> command) throws InterruptedException {
+    try {
+      final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+      process.getOutputStream().close();
+      // Fails if any of the processes already exited, which is expected.
+      final int exitCode = process.waitFor();
+      if (exitCode != 0) {
+        logger.debug("Kill command " + command + " exited with " + exitCode);
+      }
+      process.getInputStream().close();
+    } catch (final IOException e) {
+      logger.error("Kill attempt failed: " + command, e);
+    }
+  }
+
+  static class Request {
+
+    private final List<Integer> pids;
+    private final boolean force;
+    private final String executeAsUserBinary;
+    private final String effectiveUser;
+
+    Request(final List<Integer> pids, final boolean force, final String executeAsUserBinary,
+        final String effectiveUser) {
+      this.pids = pids;
+      this.force = force;
+      this.executeAsUserBinary = executeAsUserBinary;
+      this.effectiveUser = effectiveUser;
+    }
+  }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_PROCESS_OUTPUT_MAX_IDLE_WAIT_MS;
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_PROCESS_OUTPUT_MIN_IDLE_WAIT_MS;
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_PROCESS_OUTPUT_QUEUE_CHUNKS;
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_PROCESS_OUTPUT_THREADS;
+
+import azkaban.utils.CircularBuffer;
+import azkaban.utils.Props;
+import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Drains the output of every spawned job process with a small, fixed number of threads.
+ *
+ * Process pipes can't be selected on, so each pump thread polls the streams assigned to it and
+ * only reads the bytes that are already available, which never blocks. Every pass reads at most
+ * one chunk per stream, so a noisy process can't starve the others. It is slowed down instead,
+ * since its pipe fills up while it waits for its next turn. The complete lines of a chunk are
+ * handed to the stream's logger together, and the last lines of each stream are kept for failure
+ * messages.
+ *
+ * The lines are logged by sink threads, not the pump threads, so a slow appender only holds up
+ * its own stream. Each stream has a bounded queue of chunks waiting to be logged. Once it is
+ * full, the stream isn't read until its sink catches up, which slows the process down like a
+ * full pipe does.
+ *
+ * A stream that had nothing to read is polled less and less often, from every minIdleWaitMs up to
+ * every maxIdleWaitMs, and again every pass once it has output. Quiet processes, the common case,
+ * therefore cost a few polls per second instead of a hundred.
+ *
+ * A stream is done when it reaches end of file, or when it has nothing left to read after its
+ * owner called {@link Source#processExited()}. The JVM drains the pipe of a process when it exits,
+ * so no output is lost.
+ *
+ * The following executor properties can be used: azkaban.process.output.threads (default 2),
+ * azkaban.process.output.min.idle.wait.ms (default 10), azkaban.process.output.max.idle.wait.ms
+ * (default 500) and azkaban.process.output.queue.chunks (default 16).
+ */
+@Singleton
+public class ProcessOutputPump {
+
+  private static final Logger logger = Logger.getLogger(ProcessOutputPump.class);
+
+  private static final int DEFAULT_NUM_THREADS = 2;
+  private static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+  private static final long DEFAULT_MIN_IDLE_WAIT_MS = 10;
+  private static final long DEFAULT_MAX_IDLE_WAIT_MS = 500;
+  private static final int DEFAULT_QUEUE_CHUNKS = 16;
+  private static final int MAX_LINE_BYTES = 64 * 1024;
+
+  private final PumpThread[] threads;
+  private final AtomicInteger nextThread = new AtomicInteger(0);
+  private final int queueChunks;
+  // Threads are only created while sinks are busy, and go away after a minute of idling.
+  private final ExecutorService sinkExecutor = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("ProcessOutputSink-%d").setDaemon(true).build());
+
+  @Inject
+  public ProcessOutputPump(final Props props) {
+    this(Math.max(props.getInt(AZKABAN_PROCESS_OUTPUT_THREADS, DEFAULT_NUM_THREADS), 1),
+        DEFAULT_CHUNK_SIZE,
+        Math.max(props.getLong(AZKABAN_PROCESS_OUTPUT_MIN_IDLE_WAIT_MS, DEFAULT_MIN_IDLE_WAIT_MS),
+            1),
+        props.getLong(AZKABAN_PROCESS_OUTPUT_MAX_IDLE_WAIT_MS, DEFAULT_MAX_IDLE_WAIT_MS),
+        Math.max(props.getInt(AZKABAN_PROCESS_OUTPUT_QUEUE_CHUNKS, DEFAULT_QUEUE_CHUNKS), 1));
+  }
+
+  ProcessOutputPump(final int numThreads, final int chunkSize, final long minIdleWaitMs,
+      final long maxIdleWaitMs, final int queueChunks) {
+    this.queueChunks = queueChunks;
+    this.threads = new PumpThread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      this.threads[i] = new PumpThread("ProcessOutputPump-" + i, chunkSize, minIdleWaitMs,
+          Math.max(maxIdleWaitMs, minIdleWaitMs));
+      this.threads[i].start();
+    }
+  }
+
+  public int getNumThreads() {
+    return this.threads.length;
+  }
+
+  /**
+   * Starts pumping the stream into the logger.
+   *
+   * @param tailLines number of most recent lines kept for {@link Source#getRecentLog()}
+   */
+  public Source register(final InputStream input, final Logger logger, final Level level,
+      final int tailLines) {
+    final int index = Math.floorMod(this.nextThread.getAndIncrement(), this.threads.length);
+    final Source source = new Source(input, logger, level, tailLines, this.threads[index],
+        this.sinkExecutor, this.queueChunks);
+    this.threads[index].add(source);
+    return source;
+  }
+
+  /**
+   * Output stream of a single process.
+   */
+  public static class Source {
+
+    private final InputStream input;
+    private final Logger logger;
+    private final Level level;
+    private final CircularBuffer<String> recentLines;
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+    private final CountDownLatch completeLatch = new CountDownLatch(1);
+    private final PumpThread thread;
+    private final ExecutorService sinkExecutor;
+    // Lines read but not logged yet, a chunk at a time.
+    private final BlockingQueue<List<String>> pendingLines;
+    // Set while a sink task owns the logger.
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile boolean exited = false;
+    // Set by the pump thread once it has handed off the last lines.
+    private volatile boolean endOfStream = false;
+    // Only used by the pump thread.
+    private long idleWaitMs = 0;
+    private long nextPollMs = 0;
+
+    private Source(final InputStream input, final Logger logger, final Level level,
+        final int tailLines, final PumpThread thread, final ExecutorService sinkExecutor,
+        final int queueChunks) {
+      this.input = input;
+      this.logger = logger;
+      this.level = level;
+      this.recentLines = new CircularBuffer<>(tailLines);
+      this.thread = thread;
+      this.sinkExecutor = sinkExecutor;
+      this.pendingLines = new ArrayBlockingQueue<>(queueChunks);
+    }
+
+    /**
+     * Tells the pump that the process is gone, so an empty stream means there is nothing more to
+     * read.
+     */
+    public void processExited() {
+      this.exited = true;
+      // Don't let the owner wait for the backed off poll.
+      this.thread.wakeUp();
+    }
+
+    /**
+     * Waits up to waitMs for the remaining output to be logged.
+     *
+     * @return true if all output has been logged
+     */
+    public boolean awaitCompletion(final long waitMs) {
+      try {
+        return this.completeLatch.await(waitMs, TimeUnit.MILLISECONDS);
+      } catch (final InterruptedException e) {
+        log(Level.INFO, "I/O thread interrupted.", e);
+        return false;
+      }
+    }
+
+    public boolean isComplete() {
+      return this.completeLatch.getCount() == 0;
+    }
+
+    public String getRecentLog() {
+      synchronized (this.recentLines) {
+        return Joiner.on(System.getProperty("line.separator")).join(this.recentLines);
+      }
+    }
+
+    /**
+     * Reads at most one chunk without blocking. Must only be called if {@link #canPump()}, since
+     * it hands off at most one chunk of lines.
+     *
+     * @return true if any bytes were read
+     */
+    private boolean pump(final byte[] chunk) {
+      try {
+        final int available = this.input.available();
+        if (available > 0) {
+          final int read = this.input.read(chunk, 0, Math.min(available, chunk.length));
+          if (read < 0) {
+            finish();
+            return false;
+          }
+          consume(chunk, read);
+          return true;
+        }
+        if (this.exited) {
+          finish();
+        }
+      } catch (final IOException e) {
+        // The owner closes the stream once it stops waiting for the output.
+        if (!this.exited) {
+          log(Level.ERROR, "Error reading from logging stream:", e);
+        }
+        finish();
+      }
+      return false;
+    }
+
+    private void consume(final byte[] bytes, final int length) {
+      final List<String> lines = new ArrayList<>();
+      int start = 0;
+      for (int i = 0; i < length; i++) {
+        if (bytes[i] == '\n') {
+          this.partialLine.write(bytes, start, i - start);
+          lines.add(takeLine());
+          start = i + 1;
+        }
+      }
+      this.partialLine.write(bytes, start, length - start);
+      if (this.partialLine.size() >= MAX_LINE_BYTES) {
+        // Don't buffer output without line breaks forever.
+        lines.add(takeLine());
+      }
+      append(lines);
+    }
+
+    private String takeLine() {
+      String line = new String(this.partialLine.toByteArray(), StandardCharsets.UTF_8);
+      this.partialLine.reset();
+      if (line.endsWith("\r")) {
+        line = line.substring(0, line.length() - 1);
+      }
+      return line;
+    }
+
+    private void append(final List<String> lines) {
+      if (lines.isEmpty()) {
+        return;
+      }
+      synchronized (this.recentLines) {
+        for (final String line : lines) {
+          this.recentLines.append(line);
+        }
+      }
+      if (this.logger != null) {
+        this.pendingLines.add(lines);
+        scheduleDrain();
+      }
+    }
+
+    private void finish() {
+      if (this.partialLine.size() > 0) {
+        final List<String> lines = new ArrayList<>();
+        lines.add(takeLine());
+        append(lines);
+      }
+      this.endOfStream = true;
+      scheduleDrain();
+    }
+
+    /**
+     * @return false while the queue of lines to log is full
+     */
+    private boolean canPump() {
+      return this.pendingLines.remainingCapacity() > 0;
+    }
+
+    private void scheduleDrain() {
+      if (this.draining.compareAndSet(false, true)) {
+        this.sinkExecutor.execute(this::drain);
+      }
+    }
+
+    /**
+     * Logs the queued lines. Only one sink task per source runs at a time, so lines are logged in
+     * order.
+     */
+    private void drain() {
+      do {
+        List<String> lines;
+        while ((lines = this.pendingLines.poll()) != null) {
+          try {
+            for (final String line : lines) {
+              this.logger.log(this.level, line);
+            }
+          } catch (final RuntimeException e) {
+            ProcessOutputPump.logger.error("Failed to log process output.", e);
+          }
+          // The pump thread may skip this source until there is room in the queue.
+          this.thread.wakeUp();
+        }
+        if (this.endOfStream && this.pendingLines.isEmpty()) {
+          this.completeLatch.countDown();
+        }
+        this.draining.set(false);
+        // Lines or the end of the stream may have come in before the flag was cleared.
+      } while ((!this.pendingLines.isEmpty() || (this.endOfStream && !isComplete()))
+          && this.draining.compareAndSet(false, true));
+    }
+
+    private void log(final Level level, final String message, final Exception e) {
+      if (this.logger != null) {
+        this.logger.log(level, message, e);
+      }
+    }
+  }
+
+  private static class PumpThread extends Thread {
+
+    private final Queue<Source> added = new ConcurrentLinkedQueue<>();
+    private final List<Source> sources = new ArrayList<>();
+    private final byte[] chunk;
+    private final long minIdleWaitMs;
+    private final long maxIdleWaitMs;
+    // Guarded by this.
+    private boolean woken = false;
+
+    PumpThread(final String name, final int chunkSize, final long minIdleWaitMs,
+        final long maxIdleWaitMs) {
+      super(name);
+      this.chunk = new byte[chunkSize];
+      this.minIdleWaitMs = minIdleWaitMs;
+      this.maxIdleWaitMs = maxIdleWaitMs;
+      setDaemon(true);
+    }
+
+    void add(final Source source) {
+      this.added.add(source);
+      wakeUp();
+    }
+
+    synchronized void wakeUp() {
+      this.woken = true;
+      notifyAll();
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        try {
+          Source source;
+          while ((source = this.added.poll()) != null) {
+            this.sources.add(source);
+          }
+
+          if (this.sources.isEmpty()) {
+            synchronized (this) {
+              if (this.added.isEmpty()) {
+                wait();
+              }
+              this.woken = false;
+            }
+            continue;
+          }
+
+          boolean progress = false;
+          final long now = System.currentTimeMillis();
+          long nextPollMs = Long.MAX_VALUE;
+          for (final Iterator<Source> it = this.sources.iterator(); it.hasNext(); ) {
+            final Source next = it.next();
+            if (now < next.nextPollMs && !next.exited) {
+              nextPollMs = Math.min(nextPollMs, next.nextPollMs);
+              continue;
+            }
+            if (!next.canPump()) {
+              // Its sink wakes the thread up once there is room.
+              continue;
+            }
+            boolean read = false;
+            try {
+              read = next.pump(this.chunk);
+            } catch (final RuntimeException e) {
+              // Keep pumping the other streams.
+              logger.error(getName() + " failed to pump process output.", e);
+              next.completeLatch.countDown();
+            }
+            if (next.endOfStream || next.isComplete()) {
+              it.remove();
+              continue;
+            }
+            if (read) {
+              progress = true;
+              next.idleWaitMs = 0;
+            } else {
+              next.idleWaitMs = Math.min(Math.max(next.idleWaitMs * 2, this.minIdleWaitMs),
+                  this.maxIdleWaitMs);
+            }
+            next.nextPollMs = now + next.idleWaitMs;
+            nextPollMs = Math.min(nextPollMs, next.nextPollMs);
+          }
+
+          if (!progress && !this.sources.isEmpty()) {
+            synchronized (this) {
+              final long waitMs = nextPollMs - System.currentTimeMillis();
+              if (this.added.isEmpty() && !this.woken && waitMs > 0) {
+                wait(waitMs);
+              }
+              this.woken = false;
+            }
+          }
+        } catch (final InterruptedException e) {
+          logger.warn(getName() + " interrupted.", e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,479 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Samples the CPU time, resident memory and disk I/O of job processes and all of their children
+ * from /proc, with a single thread for all processes of the executor.
+ *
+ * Each pass reads /proc/[pid]/stat of every process once to find the process trees, and
+ * /proc/[pid]/io of the processes in a job's tree. CPU time and I/O of children that already
+ * exited are included, since the kernel adds them to the parent that waited for them. I/O counters
+ * can't be read for processes owned by another user, e.g. jobs run with execute-as-user.
+ *
+ * A job process is also sampled when it is registered, so jobs shorter than the interval get a
+ * sample too, and once more when it is unregistered. By then the process itself has usually been
+ * reaped, so the last sample only sees the processes of its last known tree that outlived it.
+ *
+ * Kills reuse the process tree of the last pass or kill if it is at most a second old, so
+ * cancelling many jobs at once doesn't read all of /proc for every job.
+ *
+ * Only Linux is supported. Elsewhere, usages are never sampled.
+ */
+public class ProcessResourceSampler {
+
+  private static final Logger logger = Logger.getLogger(ProcessResourceSampler.class);
+
+  private static final long DEFAULT_INTERVAL_MS = 10 * 1000;
+  private static final long DEFAULT_TREE_MAX_AGE_MS = 1000;
+  // The units of /proc/[pid]/stat. USER_HZ is 100 and pages are 4 KB on practically every Linux.
+  private static final long MS_PER_CLOCK_TICK = 10;
+  private static final long PAGE_SIZE_BYTES = 4096;
+
+  private static final ProcessResourceSampler INSTANCE =
+      new ProcessResourceSampler(new File("/proc"), DEFAULT_INTERVAL_MS, DEFAULT_TREE_MAX_AGE_MS);
+
+  private final File procDir;
+  private final long intervalMs;
+  private final long treeMaxAgeMs;
+  private final Map<Integer, ResourceUsage> usages = new ConcurrentHashMap<>();
+  private ScheduledExecutorService sampler = null;
+  // Guarded by this.
+  private ProcessTree lastTree = null;
+  private volatile int numSampledProcesses = 0;
+  private volatile long sampledRssBytes = 0;
+
+  ProcessResourceSampler(final File procDir, final long intervalMs, final long treeMaxAgeMs) {
+    this.procDir = procDir;
+    this.intervalMs = intervalMs;
+    this.treeMaxAgeMs = treeMaxAgeMs;
+  }
+
+  public static ProcessResourceSampler getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Samples the process, and keeps sampling it and its children until {@link #unregister(int)} is
+   * called.
+   */
+  public ResourceUsage register(final int pid) {
+    final ResourceUsage usage = new ResourceUsage();
+    // A new process has no children yet.
+    final ProcStat stat = readStat(new File(this.procDir, Integer.toString(pid)));
+    if (stat != null) {
+      record(usage, Collections.singletonList(stat));
+    }
+    this.usages.put(pid, usage);
+    startSampler();
+    return usage;
+  }
+
+  /**
+   * Stops sampling the process after a last sample of what is left of its tree.
+   */
+  public void unregister(final int pid) {
+    final ResourceUsage usage = this.usages.remove(pid);
+    if (usage == null) {
+      return;
+    }
+    final List<ProcStat> alive = new ArrayList<>();
+    for (final Map.Entry<Integer, Long> known : usage.lastStartTimes.entrySet()) {
+      final ProcStat stat = readStat(new File(this.procDir, Integer.toString(known.getKey())));
+      if (stat != null && !stat.zombie && stat.startTime == known.getValue()) {
+        alive.add(stat);
+      }
+    }
+    if (!alive.isEmpty()) {
+      record(usage, alive);
+    }
+  }
+
+  /**
+   * @return the number of job processes, children included, seen by the last pass
+   */
+  public int getNumSampledProcesses() {
+    return this.numSampledProcesses;
+  }
+
+  /**
+   * @return the resident memory of all job processes seen by the last pass
+   */
+  public long getSampledRssBytes() {
+    return this.sampledRssBytes;
+  }
+
+  private synchronized void startSampler() {
+    if (this.sampler != null || !this.procDir.isDirectory()) {
+      return;
+    }
+    this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "ProcessResourceSampler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.sampler.scheduleWithFixedDelay(() -> {
+      try {
+        sample();
+      } catch (final RuntimeException e) {
+        logger.error("Failed to sample job processes.", e);
+      }
+    }, this.intervalMs, this.intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Takes one sample of every registered process tree.
+   */
+  void sample() {
+    if (this.usages.isEmpty()) {
+      this.numSampledProcesses = 0;
+      this.sampledRssBytes = 0;
+      return;
+    }
+
+    final ProcessTree tree = readTree();
+    if (tree == null) {
+      return;
+    }
+
+    int numProcesses = 0;
+    long rssBytes = 0;
+    for (final Map.Entry<Integer, ResourceUsage> entry : this.usages.entrySet()) {
+      final ProcStat root = tree.stats.get(entry.getKey());
+      if (root == null) {
+        continue;
+      }
+      final List<ProcStat> stats = new ArrayList<>();
+      stats.add(root);
+      for (final int pid : tree.descendants(root.pid)) {
+        stats.add(tree.stats.get(pid));
+      }
+      rssBytes += record(entry.getValue(), stats);
+      numProcesses += stats.size();
+    }
+    this.numSampledProcesses = numProcesses;
+    this.sampledRssBytes = rssBytes;
+  }
+
+  /**
+   * Records one sample of the processes of a tree.
+   *
+   * @return the resident memory of the processes
+   */
+  private long record(final ResourceUsage usage, final List<ProcStat> stats) {
+    long rssBytes = 0;
+    long cpuMs = 0;
+    long readBytes = 0;
+    long writeBytes = 0;
+    final Map<Integer, Long> startTimes = new HashMap<>();
+    for (final ProcStat stat : stats) {
+      rssBytes += stat.rssBytes;
+      cpuMs += stat.cpuMs;
+      final long[] io = readIo(new File(this.procDir, Integer.toString(stat.pid)));
+      if (io != null) {
+        readBytes += io[0];
+        writeBytes += io[1];
+      }
+      startTimes.put(stat.pid, stat.startTime);
+    }
+    usage.record(stats.size(), rssBytes, cpuMs, readBytes, writeBytes);
+    usage.lastStartTimes = startTimes;
+    return rssBytes;
+  }
+
+  /**
+   * @return the pids of all children of the process and their children that are still alive, or
+   * an empty list if they can't be read from /proc
+   */
+  public List<Integer> listDescendants(final int pid) {
+    final ProcessTree tree = getTree();
+    final List<Integer> descendants = new ArrayList<>();
+    if (tree == null) {
+      return descendants;
+    }
+    // The tree may be a little old, so skip the processes that exited since.
+    final List<Integer> known = tree.descendants(pid);
+    final Map<Integer, Long> startTimes = readStartTimes(known);
+    for (final int child : known) {
+      final Long startTime = startTimes.get(child);
+      if (startTime != null && startTime == tree.stats.get(child).startTime) {
+        descendants.add(child);
+      }
+    }
+    return descendants;
+  }
+  /**
+   * Reads the start times of processes, so that a pid can later be told apart from a new process
+   * that reused it.
+   *
+   * @return the start time in clock ticks after boot by pid, without the processes that are gone
+   */
+  public Map<Integer, Long> readStartTimes(final Collection<Integer> pids) {
+    final Map<Integer, Long> startTimes = new HashMap<>();
+    for (final int pid : pids) {
+      final ProcStat stat = readStat(new File(this.procDir, Integer.toString(pid)));
+      // Zombies are already dead, there is nothing to kill.
+      if (stat != null && !stat.zombie) {
+        startTimes.put(pid, stat.startTime);
+      }
+    }
+    return startTimes;
+  }
+
+  /**
+   * @return the last process tree if it is recent enough, a new one otherwise
+   */
+  private synchronized ProcessTree getTree() {
+    if (this.lastTree != null
+        && System.currentTimeMillis() - this.lastTree.timeMs <= this.treeMaxAgeMs) {
+      return this.lastTree;
+    }
+    return readTree();
+  }
+
+  /**
+   * Reads /proc/[pid]/stat of every process.
+   *
+   * @return the tree, or null if /proc can't be listed
+   */
+  private ProcessTree readTree() {
+    final long timeMs = System.currentTimeMillis();
+    final String[] names = this.procDir.list();
+    if (names == null) {
+      return null;
+    }
+    final ProcessTree tree = new ProcessTree(timeMs);
+    for (final String name : names) {
+      if (name.isEmpty() || !Character.isDigit(name.charAt(0))) {
+        continue;
+      }
+      final ProcStat stat = readStat(new File(this.procDir, name));
+      if (stat != null) {
+        tree.stats.put(stat.pid, stat);
+        tree.children.computeIfAbsent(stat.ppid, k -> new ArrayList<>()).add(stat.pid);
+      }
+    }
+    synchronized (this) {
+      if (this.lastTree == null || this.lastTree.timeMs <= timeMs) {
+        this.lastTree = tree;
+      }
+    }
+    return tree;
+  }
+
+  /**
+   * Parses /proc/[pid]/stat, e.g. "42 (java) S 1 42 42 0 -1 ...". The command name can contain
+   * spaces and parentheses, so the fields are counted from the last ')'.
+   */
+  private static ProcStat readStat(final File pidDir) {
+    final String line;
+    try {
+      line = new String(Files.readAllBytes(new File(pidDir, "stat").toPath()),
+          StandardCharsets.US_ASCII);
+    } catch (final IOException e) {
+      // The process exited.
+      return null;
+    }
+    final int commEnd = line.lastIndexOf(')');
+    if (commEnd < 0) {
+      return null;
+    }
+    // Fields from state (3rd field of the file) onwards.
+    final String[] fields = line.substring(commEnd + 1).trim().split("\\s+");
+    if (fields.length < 22) {
+      return null;
+    }
+    try {
+      final ProcStat stat = new ProcStat();
+      stat.pid = Integer.parseInt(line.substring(0, line.indexOf(' ')));
+      stat.zombie = "Z".equals(fields[0]);
+      stat.ppid = Integer.parseInt(fields[1]);
+      // utime, stime and the cutime, cstime of the children that were waited for.
+      stat.cpuMs = (Long.parseLong(fields[11]) + Long.parseLong(fields[12])
+          + Long.parseLong(fields[13]) + Long.parseLong(fields[14])) * MS_PER_CLOCK_TICK;
+      stat.startTime = Long.parseLong(fields[19]);
+      stat.rssBytes = Long.parseLong(fields[21]) * PAGE_SIZE_BYTES;
+      return stat;
+    } catch (final NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return read_bytes and write_bytes of /proc/[pid]/io, or null if they can't be read
+   */
+  private static long[] readIo(final File pidDir) {
+    final List<String> lines;
+    try {
+      lines = Files.readAllLines(new File(pidDir, "io").toPath(), StandardCharsets.US_ASCII);
+    } catch (final IOException e) {
+      return null;
+    }
+    final long[] io = new long[2];
+    for (final String line : lines) {
+      try {
+        if (line.startsWith("read_bytes:")) {
+          io[0] = Long.parseLong(line.substring("read_bytes:".length()).trim());
+        } else if (line.startsWith("write_bytes:")) {
+          io[1] = Long.parseLong(line.substring("write_bytes:".length()).trim());
+        }
+      } catch (final NumberFormatException e) {
+        return null;
+      }
+    }
+    return io;
+  }
+
+  private static class ProcessTree {
+
+    private final long timeMs;
+    private final Map<Integer, ProcStat> stats = new HashMap<>();
+    private final Map<Integer, List<Integer>> children = new HashMap<>();
+
+    ProcessTree(final long timeMs) {
+      this.timeMs = timeMs;
+    }
+
+    List<Integer> descendants(final int pid) {
+      final List<Integer> descendants = new ArrayList<>();
+      final Deque<Integer> tree = new ArrayDeque<>();
+      tree.add(pid);
+      while (!tree.isEmpty()) {
+        final List<Integer> childPids = this.children.get(tree.poll());
+        if (childPids != null) {
+          descendants.addAll(childPids);
+          tree.addAll(childPids);
+        }
+      }
+      return descendants;
+    }
+  }
+
+  private static class ProcStat {
+
+    private int pid;
+    private int ppid;
+    private boolean zombie;
+    private long startTime;
+    private long cpuMs;
+    private long rssBytes;
+  }
+
+  /**
+   * Resource usage of one job process tree. Only aggregates are kept, so the size doesn't grow
+   * with the number of samples.
+   */
+  public static class ResourceUsage {
+
+    public static final String NUM_SAMPLES = "numSamples";
+    public static final String PEAK_PROCESSES = "peakProcesses";
+    public static final String PEAK_RSS_BYTES = "peakRssBytes";
+    public static final String AVG_RSS_BYTES = "avgRssBytes";
+    public static final String CPU_TIME_MS = "cpuTimeMs";
+    public static final String READ_BYTES = "readBytes";
+    public static final String WRITE_BYTES = "writeBytes";
+
+    private int numSamples = 0;
+    private int peakProcesses = 0;
+    private long peakRssBytes = 0;
+    private long totalRssBytes = 0;
+    // The maximum seen, since the sums over the tree drop when a child exits before it was
+    // waited for.
+    private long cpuTimeMs = 0;
+    private long readBytes = 0;
+    private long writeBytes = 0;
+    // Start times by pid of the processes of the last sample, which the last sample on exit reads.
+    private volatile Map<Integer, Long> lastStartTimes = Collections.emptyMap();
+
+    synchronized void record(final int numProcesses, final long rssBytes, final long cpuMs,
+        final long readBytes, final long writeBytes) {
+      this.numSamples++;
+      this.peakProcesses = Math.max(this.peakProcesses, numProcesses);
+      this.peakRssBytes = Math.max(this.peakRssBytes, rssBytes);
+      this.totalRssBytes += rssBytes;
+      this.cpuTimeMs = Math.max(this.cpuTimeMs, cpuMs);
+      this.readBytes = Math.max(this.readBytes, readBytes);
+      this.writeBytes = Math.max(this.writeBytes, writeBytes);
+    }
+
+    public synchronized int getNumSamples() {
+      return this.numSamples;
+    }
+
+    public synchronized int getPeakProcesses() {
+      return this.peakProcesses;
+    }
+
+    public synchronized long getPeakRssBytes() {
+      return this.peakRssBytes;
+    }
+
+    public synchronized long getAverageRssBytes() {
+      return this.numSamples == 0 ? 0 : this.totalRssBytes / this.numSamples;
+    }
+
+    public synchronized long getCpuTimeMs() {
+      return this.cpuTimeMs;
+    }
+
+    public synchronized long getReadBytes() {
+      return this.readBytes;
+    }
+
+    public synchronized long getWriteBytes() {
+      return this.writeBytes;
+    }
+
+    public synchronized Map<String, Object> toObject() {
+      final Map<String, Object> objMap = new HashMap<>();
+      objMap.put(NUM_SAMPLES, this.numSamples);
+      objMap.put(PEAK_PROCESSES, this.peakProcesses);
+      objMap.put(PEAK_RSS_BYTES, this.peakRssBytes);
+      objMap.put(AVG_RSS_BYTES, getAverageRssBytes());
+      objMap.put(CPU_TIME_MS, this.cpuTimeMs);
+      objMap.put(READ_BYTES, this.readBytes);
+      objMap.put(WRITE_BYTES, this.writeBytes);
+      return objMap;
+    }
+
+    @Override
+    public synchronized String toString() {
+      return "cpu time " + this.cpuTimeMs + " ms, peak rss " + this.peakRssBytes
+          + " bytes, average rss " + getAverageRssBytes() + " bytes, read " + this.readBytes
+          + " bytes, written " + this.writeBytes + " bytes, up to " + this.peakProcesses
+          + " processes, " + this.numSamples + " samples";
+    }
+  }
+}
@@ -29,6 +29,7 @@ import azkaban.utils.PropsUtils;
 import azkaban.utils.Utils;
 import java.io.File;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -51,7 +52,8 @@ public class JobTypeManager {
   private final String jobTypePluginDir; // the dir for jobtype plugins
   private final ClassLoader parentLoader;
   private final Props globalProperties;
-  private JobTypePluginSet pluginSet;
+  // Replaced as a whole when the plugins are reloaded, and read without locking.
+  private volatile JobTypePluginSet pluginSet;
 
   public JobTypeManager(final String jobtypePluginDir, final Props globalProperties,
       final ClassLoader parentClassLoader) {
@@ -82,9 +84,7 @@ public class JobTypeManager {
     }
 
     // Swap the plugin set. If exception is thrown, then plugin isn't swapped.
-    synchronized (this) {
-      this.pluginSet = plugins;
-    }
+    this.pluginSet = plugins;
   }
 
   private void loadDefaultTypes(final JobTypePluginSet plugins)
@@ -225,9 +225,8 @@ public class JobTypeManager {
     try {
       final Props fakeSysProps = new Props(pluginLoadProps);
       final Props fakeJobProps = new Props(pluginJobProps);
-      final Job job =
-          (Job) Utils.callConstructor(clazz, "dummy", fakeSysProps,
-              fakeJobProps, logger);
+      final Job job = constructJob(plugins, jobTypeName, "dummy", fakeSysProps, fakeJobProps,
+          logger);
     } catch (final Throwable t) {
       logger.info("Jobtype " + jobTypeName + " failed test!", t);
       throw new JobExecutionException(t);
@@ -340,6 +339,8 @@ public class JobTypeManager {
         pluginJobProps = pluginSet.getCommonPluginJobProps();
       }
       if (pluginJobProps != null) {
+        // Copied into the caller's props, so that e.g. the job runner also sees the plugin
+        // defaults of settings it reads itself.
         for (final String k : pluginJobProps.getKeySet()) {
           if (!jobProps.containsKey(k)) {
             jobProps.put(k, pluginJobProps.get(k));
@@ -350,7 +351,8 @@ public class JobTypeManager {
 
       Props pluginLoadProps = pluginSet.getPluginLoaderProps(jobType);
       if (pluginLoadProps != null) {
-        pluginLoadProps = PropsUtils.resolveProps(pluginLoadProps);
+        // Resolved when the plugin was loaded. Each job gets its own copy-on-write clone.
+        pluginLoadProps = Props.clone(pluginLoadProps);
       } else {
         // pluginSet.getCommonPluginLoadProps() will return null if there is no plugins directory.
         // hence assigning default Props() if that's the case
@@ -360,9 +362,7 @@ public class JobTypeManager {
         }
       }
 
-      job =
-          (Job) Utils.callConstructor(executorClass, jobId, pluginLoadProps,
-              jobProps, logger);
+      job = constructJob(pluginSet, jobType, jobId, pluginLoadProps, jobProps, logger);
     } catch (final Exception e) {
       logger.error("Failed to build job executor for job " + jobId
           + e.getMessage());
@@ -378,10 +378,24 @@ public class JobTypeManager {
     return job;
   }
 
+  /**
+   * Calls the cached constructor of the jobtype, or falls back to reflection if it has none.
+   */
+  private Job constructJob(final JobTypePluginSet plugins, final String jobType,
+      final String jobId, final Props sysProps, final Props jobProps, final Logger logger)
+      throws Throwable {
+    final MethodHandle constructor = plugins.getPluginConstructor(jobType);
+    if (constructor == null) {
+      return (Job) Utils.callConstructor(plugins.getPluginClass(jobType), jobId, sysProps,
+          jobProps, logger);
+    }
+    return (Job) constructor.invokeExact(jobId, sysProps, jobProps, logger);
+  }
+
   /**
    * Public for test reasons. Will need to move tests to the same package
    */
-  public synchronized JobTypePluginSet getJobTypePluginSet() {
+  public JobTypePluginSet getJobTypePluginSet() {
     return this.pluginSet;
   }
 }
@@ -17,8 +17,12 @@ package azkaban.jobtype;
 
 import azkaban.jobExecutor.Job;
 import azkaban.utils.Props;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.HashMap;
 import java.util.Map;
+import org.apache.log4j.Logger;
 
 /**
  * Container for job type plugins
@@ -31,7 +35,12 @@ import java.util.Map;
  */
 public class JobTypePluginSet {
 
+  // Constructor every jobtype has: (String jobId, Props sysProps, Props jobProps, Logger log)
+  private static final MethodType JOB_CONSTRUCTOR_TYPE =
+      MethodType.methodType(Job.class, String.class, Props.class, Props.class, Logger.class);
+
   private final Map<String, Class<? extends Job>> jobToClass;
+  private final Map<String, MethodHandle> jobToConstructor;
   private final Map<String, Props> pluginJobPropsMap;
   private final Map<String, Props> pluginLoadPropsMap;
 
@@ -43,6 +52,7 @@ public class JobTypePluginSet {
    */
   public JobTypePluginSet() {
     this.jobToClass = new HashMap<>();
+    this.jobToConstructor = new HashMap<>();
     this.pluginJobPropsMap = new HashMap<>();
     this.pluginLoadPropsMap = new HashMap<>();
   }
@@ -52,6 +62,7 @@ public class JobTypePluginSet {
    */
   public JobTypePluginSet(final JobTypePluginSet clone) {
     this.jobToClass = new HashMap<>(clone.jobToClass);
+    this.jobToConstructor = new HashMap<>(clone.jobToConstructor);
     this.pluginJobPropsMap = new HashMap<>(clone.pluginJobPropsMap);
     this.pluginLoadPropsMap = new HashMap<>(clone.pluginLoadPropsMap);
     this.commonJobProps = clone.commonJobProps;
@@ -87,7 +98,22 @@ public class JobTypePluginSet {
   }
 
   /**
-   * Get the properties for a jobtype used to setup and load a plugin
+   * Looks up the public (String, Props, Props, Logger) constructor of a job class.
+   *
+   * @return the constructor typed as returning Job, or null if the class doesn't have it
+   */
+  private static MethodHandle findJobConstructor(final Class<? extends Job> jobTypeClass) {
+    try {
+      return MethodHandles.publicLookup().findConstructor(jobTypeClass,
+          JOB_CONSTRUCTOR_TYPE.changeReturnType(void.class)).asType(JOB_CONSTRUCTOR_TYPE);
+    } catch (final NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Get the properties for a jobtype used to setup and load a plugin. The properties are already
+   * resolved.
    */
   public Props getPluginLoaderProps(final String jobTypeName) {
     return this.pluginLoadPropsMap.get(jobTypeName);
@@ -108,12 +134,21 @@ public class JobTypePluginSet {
     return this.jobToClass.get(jobTypeName);
   }
 
+  /**
+   * Gets the constructor of the plugin job runner class, looked up when the class was added. Null
+   * if the class has no public (String, Props, Props, Logger) constructor.
+   */
+  public MethodHandle getPluginConstructor(final String jobTypeName) {
+    return this.jobToConstructor.get(jobTypeName);
+  }
+
   /**
    * Adds plugin jobtype class
    */
   public void addPluginClass(final String jobTypeName,
       final Class<? extends Job> jobTypeClass) {
     this.jobToClass.put(jobTypeName, jobTypeClass);
+    this.jobToConstructor.put(jobTypeName, findJobConstructor(jobTypeClass));
   }
 
   /**
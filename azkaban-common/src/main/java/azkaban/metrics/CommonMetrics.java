@@ -16,9 +16,12 @@
 
 package azkaban.metrics;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -31,13 +34,19 @@ public class CommonMetrics {
 
   private final AtomicLong dbConnectionTime = new AtomicLong(0L);
   private final AtomicLong OOMWaitingJobCount = new AtomicLong(0L);
+  private final AtomicLong artifactCacheHits = new AtomicLong(0L);
+  private final AtomicLong artifactCacheMisses = new AtomicLong(0L);
   private final MetricsManager metricsManager;
+  private final Map<String, Meter> retentionDeleteMeters = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> retentionBacklogs = new ConcurrentHashMap<>();
   private Meter dbConnectionMeter;
   private Meter flowFailMeter;
   private Meter dispatchFailMeter;
   private Meter dispatchSuccessMeter;
   private Meter sendEmailFailMeter;
   private Meter sendEmailSuccessMeter;
+  private Histogram jobKillLatencyHistogram;
+  private Meter artifactCacheBytesServedMeter;
 
   @Inject
   public CommonMetrics(final MetricsManager metricsManager) {
@@ -52,8 +61,13 @@ public class CommonMetrics {
     this.dispatchSuccessMeter = this.metricsManager.addMeter("dispatch-success-meter");
     this.sendEmailFailMeter = this.metricsManager.addMeter("send-email-fail-meter");
     this.sendEmailSuccessMeter = this.metricsManager.addMeter("send-email-success-meter");
+    this.jobKillLatencyHistogram = this.metricsManager.addHistogram("job-kill-latency-ms");
     this.metricsManager.addGauge("OOM-waiting-job-count", this.OOMWaitingJobCount::get);
     this.metricsManager.addGauge("dbConnectionTime", this.dbConnectionTime::get);
+    this.artifactCacheBytesServedMeter =
+        this.metricsManager.addMeter("project-artifact-cache-bytes-served");
+    this.metricsManager.addGauge("project-artifact-cache-hit-ratio",
+        this::getArtifactCacheHitRatio);
   }
 
   /**
@@ -106,6 +120,54 @@ public class CommonMetrics {
     this.sendEmailSuccessMeter.mark();
   }
 
+  /**
+   * Record the time from a job kill request until its process exited.
+   */
+  public void updateJobKillLatency(final long milliseconds) {
+    this.jobKillLatencyHistogram.update(milliseconds);
+  }
+
+  /**
+   * Mark rows of old execution data deleted by the retention cleanup.
+   */
+  public void markRetentionDeletes(final String table, final long rows) {
+    this.retentionDeleteMeters.computeIfAbsent(table,
+        t -> this.metricsManager.addMeter("retention-" + t.toLowerCase() + "-deleted-rows"))
+        .mark(rows);
+  }
+
+  /**
+   * Record whether the last retention cleanup of a table stopped before all old rows were gone.
+   */
+  public void setRetentionBacklog(final String table, final boolean backlog) {
+    this.retentionBacklogs.computeIfAbsent(table, t -> {
+      final AtomicLong value = new AtomicLong();
+      this.metricsManager.addGauge("retention-" + t.toLowerCase() + "-backlog", value::get);
+      return value;
+    }).set(backlog ? 1 : 0);
+  }
+
+  /**
+   * Mark a project file served from the local cache of project files.
+   */
+  public void markArtifactCacheHit(final long bytes) {
+    this.artifactCacheHits.incrementAndGet();
+    this.artifactCacheBytesServedMeter.mark(bytes);
+  }
+
+  /**
+   * Mark a project file that had to be fetched from storage into the local cache.
+   */
+  public void markArtifactCacheMiss() {
+    this.artifactCacheMisses.incrementAndGet();
+  }
+
+  private double getArtifactCacheHitRatio() {
+    final long hits = this.artifactCacheHits.get();
+    final long total = hits + this.artifactCacheMisses.get();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
   public void setDBConnectionTime(final long milliseconds) {
     this.dbConnectionTime.set(milliseconds);
   }
@@ -21,6 +21,7 @@ import static azkaban.Constants.ConfigurationKeys.METRICS_SERVER_URL;
 
 import azkaban.utils.Props;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
@@ -66,6 +67,14 @@ public class MetricsManager {
     return curr;
   }
 
+  /**
+   * A {@link Histogram} tracks the distribution of values, e.g. latencies, over roughly the last
+   * five minutes.
+   */
+  public Histogram addHistogram(final String name) {
+    return this.registry.histogram(name);
+  }
+
   /**
    * A {@link Gauge} is an instantaneous reading of a particular value. This method leverages
    * Supplier, a Functional Interface, to get Generics metrics values. With this support, no matter
@@ -34,6 +34,7 @@ import azkaban.utils.Utils;
 import com.google.inject.Inject;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -78,6 +79,16 @@ class AzkabanProjectLoader {
   public Map<String, ValidationReport> uploadProject(final Project project,
       final File archive, final String fileType, final User uploader, final Props additionalProps)
       throws ProjectManagerException {
+    return uploadProject(project, archive, null, fileType, uploader, additionalProps);
+  }
+
+  /**
+   * @param archiveMd5 md5 hash of the archive if it was computed while it was received, or null.
+   * It isn't used if the validators change the archive.
+   */
+  public Map<String, ValidationReport> uploadProject(final Project project,
+      final File archive, final byte[] archiveMd5, final String fileType, final User uploader,
+      final Props additionalProps) throws ProjectManagerException {
     log.info("Uploading files to " + project.getName());
 
     // Unzip.
@@ -125,7 +136,11 @@ class AzkabanProjectLoader {
     log.info("Validating project " + archive.getName()
         + " using the registered validators "
         + validatorManager.getValidatorsInfo().toString());
+    // Validators that fix the project may rewrite the archive.
+    final long archiveLength = archive.length();
+    final long archiveLastModified = archive.lastModified();
     final Map<String, ValidationReport> reports = validatorManager.validate(project, file);
+    final byte[] md5 = md5IfUnchanged(archive, archiveMd5, archiveLength, archiveLastModified);
     ValidationStatus status = ValidationStatus.PASS;
     for (final Entry<String, ValidationReport> report : reports.entrySet()) {
       if (report.getValue().getStatus().compareTo(status) > 0) {
@@ -159,7 +174,7 @@ class AzkabanProjectLoader {
         flow.setVersion(newVersion);
       }
 
-      this.storageManager.uploadProject(project, newVersion, archive, uploader);
+      this.storageManager.uploadProject(project, newVersion, archive, md5, uploader);
 
       log.info("Uploading flow to db " + archive.getName());
       this.projectLoader.uploadFlows(project, newVersion, flows.values());
@@ -192,6 +207,22 @@ class AzkabanProjectLoader {
     return reports;
   }
 
+  /**
+   * @return the md5 hash, or null if the archive's size or modification time changed since it
+   * was computed
+   */
+  static byte[] md5IfUnchanged(final File archive, final byte[] md5, final long length,
+      final long lastModified) {
+    if (md5 == null) {
+      return null;
+    }
+    if (archive.length() != length || archive.lastModified() != lastModified) {
+      log.info("Archive " + archive.getName() + " was changed by the validators, hashing it again");
+      return null;
+    }
+    return md5;
+  }
+
   private File unzipFile(final File archiveFile) throws IOException {
     final ZipFile zipfile = new ZipFile(archiveFile);
     final File unzipped = Utils.createTempDir(this.tempDir);
@@ -209,4 +240,16 @@ class AzkabanProjectLoader {
     return this.storageManager.getProjectFile(project.getId(), version);
   }
 
+  public ProjectFileHandler getProjectFileMetadata(final Project project, int version)
+      throws ProjectManagerException {
+    if (version == -1) {
+      version = this.projectLoader.getLatestProjectVersion(project);
+    }
+    return this.storageManager.fetchProjectFileMetadata(project.getId(), version);
+  }
+
+  public InputStream openProjectFile(final ProjectFileHandler projectFileHandler) {
+    return this.storageManager.openProjectFile(projectFileHandler);
+  }
+
 }
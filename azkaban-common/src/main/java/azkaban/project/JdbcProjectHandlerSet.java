@@ -189,6 +189,9 @@ class JdbcProjectHandlerSet {
     public static String SELECT_PROJECT_PROPERTIES =
         "SELECT project_id, version, name, modified_time, encoding_type, property FROM project_properties WHERE project_id=? AND version=?";
 
+    public static String SELECT_PROJECT_PROPERTIES_BY_SUFFIX =
+        "SELECT project_id, version, name, modified_time, encoding_type, property FROM project_properties WHERE project_id=? AND version=? AND name LIKE ?";
+
     @Override
     public List<Pair<String, Props>> handle(final ResultSet rs) throws SQLException {
       if (!rs.next()) {
@@ -252,27 +255,6 @@ class JdbcProjectHandlerSet {
     }
   }
 
-  public static class ProjectFileChunkResultHandler implements ResultSetHandler<List<byte[]>> {
-    public static String SELECT_PROJECT_CHUNKS_FILE =
-        "SELECT project_id, version, chunk, size, file FROM project_files WHERE project_id=? AND version=? AND chunk >= ? AND chunk < ? ORDER BY chunk ASC";
-
-    @Override
-    public List<byte[]> handle(final ResultSet rs) throws SQLException {
-      if (!rs.next()) {
-        return Collections.emptyList();
-      }
-
-      final ArrayList<byte[]> data = new ArrayList<>();
-      do {
-        final byte[] bytes = rs.getBytes(5);
-
-        data.add(bytes);
-      } while (rs.next());
-
-      return data;
-    }
-  }
-
   public static class ProjectVersionResultHandler implements ResultSetHandler<List<ProjectFileHandler>> {
     public static String SELECT_PROJECT_VERSION =
         "SELECT project_id, version, upload_time, uploader, file_type, file_name, md5, num_chunks, resource_id "
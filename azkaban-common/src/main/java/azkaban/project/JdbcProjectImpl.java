@@ -15,8 +15,9 @@
  */
 package azkaban.project;
 
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_PROJECT_DOWNLOAD_PREFETCH_CHUNKS;
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_PROJECT_DOWNLOAD_THREADS;
 import static azkaban.project.JdbcProjectHandlerSet.IntHandler;
-import static azkaban.project.JdbcProjectHandlerSet.ProjectFileChunkResultHandler;
 import static azkaban.project.JdbcProjectHandlerSet.ProjectFlowsResultHandler;
 import static azkaban.project.JdbcProjectHandlerSet.ProjectLogsResultHandler;
 import static azkaban.project.JdbcProjectHandlerSet.ProjectPermissionsResultHandler;
@@ -35,6 +36,7 @@ import azkaban.user.User;
 import azkaban.utils.GZIPUtils;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Md5Hasher;
+import azkaban.utils.Md5VerifyingInputStream;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import azkaban.utils.PropsUtils;
@@ -48,12 +50,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
@@ -68,9 +75,13 @@ public class JdbcProjectImpl implements ProjectLoader {
   private static final Logger logger = Logger.getLogger(JdbcProjectImpl.class);
 
   private static final int CHUCK_SIZE = 1024 * 1024 * 10;
+  private static final int DEFAULT_DOWNLOAD_THREADS = 4;
+  private static final int DEFAULT_DOWNLOAD_PREFETCH_CHUNKS = 2;
   private final DatabaseOperator dbOperator;
   private final File tempDir;
   private final EncodingType defaultEncodingType = EncodingType.GZIP;
+  private final ExecutorService downloadPool;
+  private final int downloadPrefetchChunks;
 
   @Inject
   public JdbcProjectImpl(final Props props, final DatabaseOperator databaseOperator) {
@@ -84,6 +95,17 @@ public class JdbcProjectImpl implements ProjectLoader {
         logger.info("project temporary folder already existed.");
       }
     }
+
+    final AtomicInteger downloadThreadCount = new AtomicInteger();
+    this.downloadPool = Executors.newFixedThreadPool(
+        props.getInt(AZKABAN_PROJECT_DOWNLOAD_THREADS, DEFAULT_DOWNLOAD_THREADS), r -> {
+          final Thread thread = new Thread(r,
+              "ProjectFileDownload-" + downloadThreadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    this.downloadPrefetchChunks =
+        props.getInt(AZKABAN_PROJECT_DOWNLOAD_PREFETCH_CHUNKS, DEFAULT_DOWNLOAD_PREFETCH_CHUNKS);
   }
 
   @Override
@@ -235,6 +257,13 @@ public class JdbcProjectImpl implements ProjectLoader {
   @Override
   public void uploadProjectFile(final int projectId, final int version, final File localFile, final String uploader)
       throws ProjectManagerException {
+    uploadProjectFile(projectId, version, localFile, uploader, null);
+  }
+
+  @Override
+  public void uploadProjectFile(final int projectId, final int version, final File localFile, final String uploader,
+      final byte[] md5) throws ProjectManagerException {
+    final byte[] hash = md5 != null ? md5 : computeHash(localFile);
     final long startMs = System.currentTimeMillis();
     logger.info(String.format("Uploading Project ID: %d file: %s [%d bytes]", projectId, localFile.getName(),
         localFile.length()));
@@ -249,7 +278,7 @@ public class JdbcProjectImpl implements ProjectLoader {
     final SQLTransaction<Integer> uploadProjectFileTransaction = transOperator -> {
 
       /* Step 1: Update DB with new project info */
-      addProjectToProjectVersions(transOperator, projectId, version, localFile, uploader, computeHash(localFile), null);
+      addProjectToProjectVersions(transOperator, projectId, version, localFile, uploader, hash, null);
       transOperator.getConnection().commit();
 
       /* Step 2: Upload File in chunks to DB */
@@ -442,66 +471,36 @@ public class JdbcProjectImpl implements ProjectLoader {
     if (projHandler == null) {
       return null;
     }
-    final int numChunks = projHandler.getNumChunks();
-    BufferedOutputStream bStream = null;
-    File file;
-    try {
-      try {
-        file = File.createTempFile(projHandler.getFileName(), String.valueOf(version), this.tempDir);
-        bStream = new BufferedOutputStream(new FileOutputStream(file));
-      } catch (final IOException e) {
-        throw new ProjectManagerException("Error creating temp file for stream.");
-      }
-
-      final int collect = 5;
-      int fromChunk = 0;
-      int toChunk = collect;
-      do {
-        final ProjectFileChunkResultHandler chunkHandler = new ProjectFileChunkResultHandler();
-        List<byte[]> data = null;
-        try {
-          data = this.dbOperator
-              .query(ProjectFileChunkResultHandler.SELECT_PROJECT_CHUNKS_FILE, chunkHandler, projectId,
-              version, fromChunk, toChunk);
-        } catch (final SQLException e) {
-          logger.error(e);
-          throw new ProjectManagerException("Query for uploaded file for " + projectId + " failed.", e);
-        }
-
-        try {
-          for (final byte[] d : data) {
-            bStream.write(d);
-          }
-        } catch (final IOException e) {
-          throw new ProjectManagerException("Error writing file", e);
-        }
-
-        // Add all the bytes to the stream.
-        fromChunk += collect;
-        toChunk += collect;
-      } while (fromChunk <= numChunks);
-    } finally {
-      IOUtils.closeQuietly(bStream);
-    }
-
-    // Check md5.
-    byte[] md5 = null;
+    final File file;
     try {
-      md5 = Md5Hasher.md5Hash(file);
+      file = File.createTempFile(projHandler.getFileName(), String.valueOf(version), this.tempDir);
     } catch (final IOException e) {
-      throw new ProjectManagerException("Error getting md5 hash.", e);
+      throw new ProjectManagerException("Error creating temp file for stream.");
     }
 
-    if (Arrays.equals(projHandler.getMd5Hash(), md5)) {
-      logger.info("Md5 Hash is valid");
-    } else {
-      throw new ProjectManagerException("Md5 Hash failed on retrieval of file");
+    try (InputStream in = openUploadedFile(projHandler);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+      IOUtils.copy(in, out);
+    } catch (final IOException e) {
+      file.delete();
+      throw new ProjectManagerException("Error reading uploaded file for " + projectId + ".", e);
     }
+    logger.info("Md5 Hash is valid");
 
     projHandler.setLocalFile(file);
     return projHandler;
   }
 
+  @Override
+  public InputStream openUploadedFile(final ProjectFileHandler projectFileHandler)
+      throws ProjectManagerException {
+    return new Md5VerifyingInputStream(
+        new ProjectFileChunkInputStream(this.dbOperator, this.downloadPool,
+            projectFileHandler.getProjectId(), projectFileHandler.getVersion(),
+            projectFileHandler.getNumChunks(), this.downloadPrefetchChunks),
+        projectFileHandler.getMd5Hash());
+  }
+
   @Override
   public void changeProjectVersion(final Project project, final int version, final String user) throws ProjectManagerException {
     final long timestamp = System.currentTimeMillis();
@@ -878,6 +877,28 @@ public class JdbcProjectImpl implements ProjectLoader {
     }
   }
 
+  @Override
+  public Map<String, Props> fetchProjectProperties(final int projectId, final int version,
+      final String nameSuffix) throws ProjectManagerException {
+    // The suffix is matched literally.
+    final String pattern = "%" + nameSuffix.replace("\\", "\\\\").replace("%", "\\%")
+        .replace("_", "\\_");
+    try {
+      final List<Pair<String, Props>> properties = this.dbOperator.query(
+          ProjectPropertiesResultsHandler.SELECT_PROJECT_PROPERTIES_BY_SUFFIX,
+          new ProjectPropertiesResultsHandler(), projectId, version, pattern);
+      final HashMap<String, Props> props = new HashMap<>();
+      for (final Pair<String, Props> pair : properties) {
+        props.put(pair.getFirst(), pair.getSecond());
+      }
+      return props;
+    } catch (final SQLException e) {
+      logger.error("Error fetching " + nameSuffix + " properties, project id " + projectId
+          + " version " + version, e);
+      throw new ProjectManagerException("Error fetching properties", e);
+    }
+  }
+
   @Override
   public void cleanOlderProjectVersion(final int projectId, final int version) throws ProjectManagerException {
     final String DELETE_FLOW = "DELETE FROM project_flows WHERE project_id=? AND version<?";
@@ -46,7 +46,8 @@ public class Project {
   private long lastModifiedTimestamp;
   private String lastModifiedUser;
   private String source;
-  private Map<String, Flow> flows = null;
+  private volatile Map<String, Flow> flows = null;
+  private FlowLoader flowLoader = null;
   private Map<String, Object> metadata = new HashMap<>();
 
   public Project(final int id, final String name) {
@@ -106,21 +107,30 @@ public class Project {
   }
 
   public Flow getFlow(final String flowId) {
-    if (this.flows == null) {
+    final Map<String, Flow> flows = getFlowMap();
+    if (flows == null) {
       return null;
     }
 
-    return this.flows.get(flowId);
+    return flows.get(flowId);
   }
 
+  /**
+   * @return the flows that were set, or else the flows from the flow loader, if there is one.
+   */
   public Map<String, Flow> getFlowMap() {
-    return this.flows;
+    final Map<String, Flow> flows = this.flows;
+    if (flows == null && this.flowLoader != null) {
+      return this.flowLoader.loadFlows(this);
+    }
+    return flows;
   }
 
   public List<Flow> getFlows() {
     List<Flow> retFlow = null;
-    if (this.flows != null) {
-      retFlow = new ArrayList<>(this.flows.values());
+    final Map<String, Flow> flows = getFlowMap();
+    if (flows != null) {
+      retFlow = new ArrayList<>(flows.values());
     } else {
       retFlow = new ArrayList<>();
     }
@@ -131,6 +141,13 @@ public class Project {
     this.flows = flows;
   }
 
+  /**
+   * Sets where the flows are loaded from when they are used, if they aren't set.
+   */
+  public void setFlowLoader(final FlowLoader flowLoader) {
+    this.flowLoader = flowLoader;
+  }
+
   public Permission getCollectivePermission(final User user) {
     final Permission permissions = new Permission();
     Permission perm = this.userPermissionMap.get(user.getUserId());
@@ -450,4 +467,12 @@ public class Project {
   public void setVersion(final int version) {
     this.version = version;
   }
+
+  /**
+   * Loads the flows of a project on demand.
+   */
+  public interface FlowLoader {
+
+    Map<String, Flow> loadFlows(Project project);
+  }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.project;
+
+import azkaban.db.DatabaseOperator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a project file from the project_files table one chunk at a time.
+ *
+ * The next chunks are fetched on the given pool while the current one is read, so reading
+ * overlaps with the DB round trips. At most the current chunk and the prefetched ones are held in
+ * memory.
+ */
+class ProjectFileChunkInputStream extends InputStream {
+
+  private static final String SELECT_PROJECT_CHUNK =
+      "SELECT file FROM project_files WHERE project_id=? AND version=? AND chunk=?";
+  private static final byte[] EMPTY = new byte[0];
+
+  private final DatabaseOperator dbOperator;
+  private final ExecutorService pool;
+  private final int projectId;
+  private final int version;
+  private final int numChunks;
+  private final int prefetchChunks;
+  private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+  private int nextChunk = 0;
+  private byte[] current = EMPTY;
+  private int position = 0;
+  private boolean closed = false;
+
+  ProjectFileChunkInputStream(final DatabaseOperator dbOperator, final ExecutorService pool,
+      final int projectId, final int version, final int numChunks, final int prefetchChunks) {
+    this.dbOperator = dbOperator;
+    this.pool = pool;
+    this.projectId = projectId;
+    this.version = version;
+    this.numChunks = numChunks;
+    this.prefetchChunks = Math.max(1, prefetchChunks);
+    prefetch();
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureAvailable()) {
+      return -1;
+    }
+    return this.current[this.position++] & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!ensureAvailable()) {
+      return -1;
+    }
+    final int num = Math.min(len, this.current.length - this.position);
+    System.arraycopy(this.current, this.position, b, off, num);
+    this.position += num;
+    return num;
+  }
+
+  @Override
+  public int available() {
+    return this.current.length - this.position;
+  }
+
+  @Override
+  public void close() {
+    this.closed = true;
+    for (final Future<byte[]> future : this.pending) {
+      future.cancel(true);
+    }
+    this.pending.clear();
+    this.current = EMPTY;
+    this.position = 0;
+  }
+
+  private boolean ensureAvailable() throws IOException {
+    if (this.closed) {
+      throw new IOException("Stream closed");
+    }
+    while (this.position == this.current.length) {
+      final Future<byte[]> next = this.pending.poll();
+      if (next == null) {
+        return false;
+      }
+      prefetch();
+      try {
+        this.current = next.get();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while reading project " + this.projectId
+            + " version " + this.version);
+      } catch (final ExecutionException e) {
+        throw new IOException("Error reading project " + this.projectId + " version "
+            + this.version + " from db", e.getCause());
+      }
+      this.position = 0;
+    }
+    return true;
+  }
+
+  private void prefetch() {
+    while (this.pending.size() < this.prefetchChunks && this.nextChunk < this.numChunks) {
+      final int chunk = this.nextChunk++;
+      this.pending.add(this.pool.submit(() -> fetchChunk(chunk)));
+    }
+  }
+
+  private byte[] fetchChunk(final int chunk) throws SQLException {
+    final byte[] data = this.dbOperator.query(SELECT_PROJECT_CHUNK,
+        rs -> rs.next() ? rs.getBytes(1) : null, this.projectId, this.version, chunk);
+    if (data == null) {
+      throw new SQLException("Chunk " + chunk + " of project " + this.projectId + " version "
+          + this.version + " is missing");
+    }
+    return data;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.project;
+
+import azkaban.flow.Flow;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+/**
+ * Flows of projects, loaded from the db when a project's flows are first used.
+ *
+ * At most the given number of projects' flows are kept, the least recently used are dropped
+ * first. They are also softly referenced, so the GC can drop them before the heap runs out. Flows
+ * that were dropped are loaded again when they are used.
+ */
+class ProjectFlowCache implements Project.FlowLoader {
+
+  private static final Logger logger = Logger.getLogger(ProjectFlowCache.class);
+
+  private final ProjectLoader projectLoader;
+  private final Cache<Integer, Map<String, Flow>> cache;
+
+  ProjectFlowCache(final ProjectLoader projectLoader, final int maxProjects) {
+    this.projectLoader = projectLoader;
+    this.cache = CacheBuilder.newBuilder().maximumSize(maxProjects).softValues().build();
+  }
+
+  static Map<String, Flow> fetchFlows(final ProjectLoader projectLoader, final Project project)
+      throws ProjectManagerException {
+    final List<Flow> flows = projectLoader.fetchAllProjectFlows(project);
+    final Map<String, Flow> flowMap = new HashMap<>();
+    for (final Flow flow : flows) {
+      flowMap.put(flow.getId(), flow);
+    }
+    return flowMap;
+  }
+
+  @Override
+  public Map<String, Flow> loadFlows(final Project project) {
+    try {
+      return this.cache.get(project.getId(), () -> fetchFlows(this.projectLoader, project));
+    } catch (final ExecutionException | UncheckedExecutionException e) {
+      throw new RuntimeException("Could not load flows of project " + project.getName()
+          + " from store.", e.getCause());
+    }
+  }
+
+  /**
+   * Replaces the flows of a project, e.g. after a new version was uploaded.
+   */
+  void put(final Project project, final Map<String, Flow> flows) {
+    this.cache.put(project.getId(), flows);
+  }
+
+  void invalidate(final int projectId) {
+    this.cache.invalidate(projectId);
+  }
+
+  long size() {
+    return this.cache.size();
+  }
+
+  /**
+   * Loads the flows of the given projects in the background.
+   */
+  void warmUp(final List<Project> projects, final int numThreads) {
+    if (projects.isEmpty()) {
+      return;
+    }
+    final ExecutorService pool = Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setNameFormat("ProjectFlowWarmUp-%d").setDaemon(true).build());
+    final long startTime = System.currentTimeMillis();
+    final AtomicInteger remaining = new AtomicInteger(projects.size());
+    for (final Project project : projects) {
+      pool.submit(() -> {
+        try {
+          loadFlows(project);
+        } catch (final RuntimeException e) {
+          logger.warn("Failed to warm up flows of project " + project.getName(), e);
+        }
+        if (remaining.decrementAndGet() == 0) {
+          logger.info(String.format("Warmed up flows of %d projects in %d ms", projects.size(),
+              System.currentTimeMillis() - startTime));
+        }
+      });
+    }
+    pool.shutdown();
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.project;
+
+import azkaban.user.Permission;
+import azkaban.utils.Pair;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the active projects by the users and groups that have permissions on them, and by the
+ * trigrams of their names, so that listing a user's projects or searching them by name doesn't
+ * check every project.
+ *
+ * Lookups don't lock, updates of a project are serialized. The index of a project is updated as a
+ * whole when its permissions change.
+ */
+class ProjectIndex {
+
+  private static final Pattern REGEX_META_CHARS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+  private static final int GRAM = 3;
+
+  // user or group -> project id -> permission flags
+  private final Map<String, Map<Integer, Integer>> userPermissions = new ConcurrentHashMap<>();
+  private final Map<String, Map<Integer, Integer>> groupPermissions = new ConcurrentHashMap<>();
+  private final Map<String, Set<Integer>> projectsByTrigram = new ConcurrentHashMap<>();
+  // What each project is indexed under, to remove it. Guarded by this.
+  private final Map<Integer, Indexed> indexed = new HashMap<>();
+
+  private static Set<String> trigrams(final String name) {
+    final Set<String> trigrams = new HashSet<>();
+    for (int i = 0; i + GRAM <= name.length(); i++) {
+      trigrams.add(name.substring(i, i + GRAM));
+    }
+    return trigrams;
+  }
+
+  private static void put(final Map<String, Map<Integer, Integer>> index, final String name,
+      final int projectId, final int flags) {
+    index.computeIfAbsent(name, n -> new ConcurrentHashMap<>()).put(projectId, flags);
+  }
+
+  private static void remove(final Map<String, Map<Integer, Integer>> index, final String name,
+      final int projectId) {
+    index.computeIfPresent(name, (n, projects) -> {
+      projects.remove(projectId);
+      return projects.isEmpty() ? null : projects;
+    });
+  }
+
+  private static Set<Integer> withFlags(final Map<Integer, Integer> projects, final int flags,
+      final Set<Integer> result) {
+    if (projects != null) {
+      for (final Map.Entry<Integer, Integer> entry : projects.entrySet()) {
+        if ((entry.getValue() & flags) != 0) {
+          result.add(entry.getKey());
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Indexes the project as it is now, replacing what was indexed for it before.
+   */
+  synchronized void update(final Project project) {
+    remove(project.getId());
+    final int id = project.getId();
+    final Indexed entry = new Indexed(project.getName().toLowerCase(Locale.ROOT));
+    for (final Pair<String, Permission> perm : project.getUserPermissions()) {
+      put(this.userPermissions, perm.getFirst(), id, perm.getSecond().toFlags());
+      entry.users.add(perm.getFirst());
+    }
+    for (final Pair<String, Permission> perm : project.getGroupPermissions()) {
+      put(this.groupPermissions, perm.getFirst(), id, perm.getSecond().toFlags());
+      entry.groups.add(perm.getFirst());
+    }
+    for (final String trigram : trigrams(entry.name)) {
+      this.projectsByTrigram.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+    this.indexed.put(id, entry);
+  }
+
+  synchronized void remove(final int projectId) {
+    final Indexed entry = this.indexed.remove(projectId);
+    if (entry == null) {
+      return;
+    }
+    for (final String user : entry.users) {
+      remove(this.userPermissions, user, projectId);
+    }
+    for (final String group : entry.groups) {
+      remove(this.groupPermissions, group, projectId);
+    }
+    for (final String trigram : trigrams(entry.name)) {
+      this.projectsByTrigram.computeIfPresent(trigram, (t, projects) -> {
+        projects.remove(projectId);
+        return projects.isEmpty() ? null : projects;
+      });
+    }
+  }
+
+  /**
+   * @return ids of the projects on which the user has any of the permission flags
+   */
+  Set<Integer> getUserProjectIds(final String userId, final int flags) {
+    return withFlags(this.userPermissions.get(userId), flags, new HashSet<>());
+  }
+
+  /**
+   * @return ids of the projects on which any of the groups has any of the permission flags
+   */
+  Set<Integer> getGroupProjectIds(final Collection<String> groups, final int flags) {
+    final Set<Integer> result = new HashSet<>();
+    for (final String group : groups) {
+      withFlags(this.groupPermissions.get(group), flags, result);
+    }
+    return result;
+  }
+
+  /**
+   * Candidates for a case insensitive search of the project names. Only a literal pattern of at
+   * least 3 characters can be looked up. The names of the candidates still have to be matched,
+   * since all their trigrams being in a name doesn't mean they are in the same order.
+   *
+   * @return ids of the candidates, or null if the pattern can't be looked up
+   */
+  Set<Integer> getNameCandidates(final String pattern) {
+    if (pattern.length() < GRAM || REGEX_META_CHARS.matcher(pattern).find()) {
+      return null;
+    }
+    final List<Set<Integer>> sets = new ArrayList<>();
+    for (final String trigram : trigrams(pattern.toLowerCase(Locale.ROOT))) {
+      final Set<Integer> projects = this.projectsByTrigram.get(trigram);
+      if (projects == null) {
+        return Collections.emptySet();
+      }
+      sets.add(projects);
+    }
+    // Intersect, starting from the smallest set.
+    sets.sort((a, b) -> Integer.compare(a.size(), b.size()));
+    final Set<Integer> result = new HashSet<>(sets.get(0));
+    for (int i = 1; i < sets.size() && !result.isEmpty(); i++) {
+      result.retainAll(sets.get(i));
+    }
+    return result;
+  }
+
+  private static class Indexed {
+
+    private final String name;
+    private final Set<String> users = new HashSet<>();
+    private final Set<String> groups = new HashSet<>();
+
+    Indexed(final String name) {
+      this.name = name;
+    }
+  }
+}
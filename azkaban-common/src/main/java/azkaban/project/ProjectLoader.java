@@ -23,6 +23,7 @@ import azkaban.user.User;
 import azkaban.utils.Props;
 import azkaban.utils.Triple;
 import java.io.File;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -102,6 +103,13 @@ public interface ProjectLoader {
   void uploadProjectFile(int projectId, int version, File localFile, String user)
       throws ProjectManagerException;
 
+  /**
+   * Same as {@link #uploadProjectFile(int, int, File, String)} with the md5 hash of the file
+   * already computed, e.g. while it was received. The hash is computed if null.
+   */
+  void uploadProjectFile(int projectId, int version, File localFile, String user, byte[] md5)
+      throws ProjectManagerException;
+
   /**
    * Add project and version info to the project_versions table. This current maintains the metadata
    * for each uploaded version of the project
@@ -125,6 +133,15 @@ public interface ProjectLoader {
   ProjectFileHandler getUploadedFile(int projectId, int version)
       throws ProjectManagerException;
 
+  /**
+   * Open a stream over the file that's uploaded, without copying it to a local file. The md5 hash
+   * of the file is checked when the stream reaches its end.
+   *
+   * @param projectFileHandler metadata of the file, from {@link #fetchProjectMetaData(int, int)}
+   */
+  InputStream openUploadedFile(ProjectFileHandler projectFileHandler)
+      throws ProjectManagerException;
+
   /**
    * Changes and commits different project version.
    */
@@ -188,6 +205,13 @@ public interface ProjectLoader {
   Map<String, Props> fetchProjectProperties(int projectId, int version)
       throws ProjectManagerException;
 
+  /**
+   * Fetch the project properties whose name ends with the given suffix, e.g. all job overrides
+   * (.jor) of a project version in one query.
+   */
+  Map<String, Props> fetchProjectProperties(int projectId, int version, String nameSuffix)
+      throws ProjectManagerException;
+
   /**
    * Cleans all project versions less tha
    */
@@ -16,8 +16,12 @@
 
 package azkaban.project;
 
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_PROJECT_FLOW_CACHE_SIZE;
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_PROJECT_FLOW_WARMUP_COUNT;
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_PROJECT_FLOW_WARMUP_THREADS;
 import static java.util.Objects.requireNonNull;
 
+import azkaban.executor.ExecutableFlowTemplateCache;
 import azkaban.flow.Flow;
 import azkaban.project.ProjectLogEvent.EventType;
 import azkaban.project.validator.ValidationReport;
@@ -32,10 +36,13 @@ import azkaban.utils.PropsUtils;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -46,27 +53,41 @@ import org.apache.log4j.Logger;
 public class ProjectManager {
 
   private static final Logger logger = Logger.getLogger(ProjectManager.class);
+  private static final int DEFAULT_FLOW_CACHE_SIZE = 1000;
+  private static final int DEFAULT_FLOW_WARMUP_COUNT = 200;
+  private static final int DEFAULT_FLOW_WARMUP_THREADS = 4;
+  private static final int READ_OR_ADMIN = Type.READ.getFlag() | Type.ADMIN.getFlag();
   private final AzkabanProjectLoader azkabanProjectLoader;
   private final ProjectLoader projectLoader;
+  private final ExecutableFlowTemplateCache flowTemplateCache;
   private final Props props;
   private final boolean creatorDefaultPermissions;
+  // Null if the flows of all projects are loaded at startup.
+  private final ProjectFlowCache flowCache;
   private final ConcurrentHashMap<Integer, Project> projectsById =
       new ConcurrentHashMap<>();
   private final ConcurrentHashMap<String, Project> projectsByName =
       new ConcurrentHashMap<>();
+  private final ProjectIndex projectIndex = new ProjectIndex();
 
   @Inject
   public ProjectManager(final AzkabanProjectLoader azkabanProjectLoader,
       final ProjectLoader loader,
       final StorageManager storageManager,
+      final ExecutableFlowTemplateCache flowTemplateCache,
       final Props props) {
     this.projectLoader = requireNonNull(loader);
+    this.flowTemplateCache = requireNonNull(flowTemplateCache);
     this.props = requireNonNull(props);
     this.azkabanProjectLoader = requireNonNull(azkabanProjectLoader);
 
     this.creatorDefaultPermissions =
         props.getBoolean("creator.default.proxy", true);
 
+    final int flowCacheSize = props.getInt(AZKABAN_PROJECT_FLOW_CACHE_SIZE,
+        DEFAULT_FLOW_CACHE_SIZE);
+    this.flowCache = flowCacheSize > 0 ? new ProjectFlowCache(loader, flowCacheSize) : null;
+
     // The prop passed to XmlValidatorManager is used to initialize all the
     // validators
     // Each validator will take certain key/value pairs from the prop to
@@ -81,6 +102,8 @@ public class ProjectManager {
   }
 
   private void loadAllProjects() {
+    final long startTime = System.currentTimeMillis();
+    final long heapBefore = getUsedHeap();
     final List<Project> projects;
     try {
       projects = this.projectLoader.fetchAllActiveProjects();
@@ -90,22 +113,46 @@ public class ProjectManager {
     for (final Project proj : projects) {
       this.projectsByName.put(proj.getName(), proj);
       this.projectsById.put(proj.getId(), proj);
+      this.projectIndex.update(proj);
     }
 
     for (final Project proj : projects) {
-      loadAllProjectFlows(proj);
+      if (this.flowCache != null) {
+        proj.setFlowLoader(this.flowCache);
+      } else {
+        loadAllProjectFlows(proj);
+      }
+    }
+    logger.info(String.format(
+        "Loaded %d projects%s in %d ms. Heap used before: %d MB, after: %d MB", projects.size(),
+        this.flowCache != null ? "" : " with their flows",
+        System.currentTimeMillis() - startTime, heapBefore >> 20, getUsedHeap() >> 20));
+
+    if (this.flowCache != null) {
+      warmUpProjectFlows(projects);
+    }
+  }
+
+  private void warmUpProjectFlows(final List<Project> projects) {
+    final int count = this.props.getInt(AZKABAN_PROJECT_FLOW_WARMUP_COUNT,
+        DEFAULT_FLOW_WARMUP_COUNT);
+    if (count <= 0) {
+      return;
     }
+    final List<Project> recent = new ArrayList<>(projects);
+    recent.sort(Comparator.comparingLong(Project::getLastModifiedTimestamp).reversed());
+    this.flowCache.warmUp(recent.subList(0, Math.min(count, recent.size())),
+        this.props.getInt(AZKABAN_PROJECT_FLOW_WARMUP_THREADS, DEFAULT_FLOW_WARMUP_THREADS));
+  }
+
+  private static long getUsedHeap() {
+    final Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
   }
 
   private void loadAllProjectFlows(final Project project) {
     try {
-      final List<Flow> flows = this.projectLoader.fetchAllProjectFlows(project);
-      final Map<String, Flow> flowMap = new HashMap<>();
-      for (final Flow flow : flows) {
-        flowMap.put(flow.getId(), flow);
-      }
-
-      project.setFlows(flowMap);
+      project.setFlows(ProjectFlowCache.fetchFlows(this.projectLoader, project));
     } catch (final ProjectManagerException e) {
       throw new RuntimeException("Could not load projects flows from store.", e);
     }
@@ -120,51 +167,28 @@ public class ProjectManager {
   }
 
   public List<Project> getUserProjects(final User user) {
-    final ArrayList<Project> array = new ArrayList<>();
-    for (final Project project : this.projectsById.values()) {
-      final Permission perm = project.getUserPermission(user);
-
-      if (perm != null
-          && (perm.isPermissionSet(Type.ADMIN) || perm
-          .isPermissionSet(Type.READ))) {
-        array.add(project);
-      }
-    }
-    return array;
+    return toProjects(this.projectIndex.getUserProjectIds(user.getUserId(), READ_OR_ADMIN));
   }
 
   public List<Project> getGroupProjects(final User user) {
-    final List<Project> array = new ArrayList<>();
-    for (final Project project : this.projectsById.values()) {
-      if (project.hasGroupPermission(user, Type.READ)) {
-        array.add(project);
-      }
-    }
-    return array;
+    return toProjects(this.projectIndex.getGroupProjectIds(user.getGroups(), READ_OR_ADMIN));
   }
 
   public List<Project> getUserProjectsByRegex(final User user, final String regexPattern) {
-    final List<Project> array = new ArrayList<>();
     final Pattern pattern;
     try {
       pattern = Pattern.compile(regexPattern, Pattern.CASE_INSENSITIVE);
     } catch (final PatternSyntaxException e) {
       logger.error("Bad regex pattern " + regexPattern);
-      return array;
+      return new ArrayList<>();
     }
 
-    for (final Project project : this.projectsById.values()) {
-      final Permission perm = project.getUserPermission(user);
-
-      if (perm != null
-          && (perm.isPermissionSet(Type.ADMIN) || perm
-          .isPermissionSet(Type.READ))) {
-        if (pattern.matcher(project.getName()).find()) {
-          array.add(project);
-        }
-      }
+    final Set<Integer> ids = this.projectIndex.getUserProjectIds(user.getUserId(), READ_OR_ADMIN);
+    final Set<Integer> candidates = this.projectIndex.getNameCandidates(regexPattern);
+    if (candidates != null) {
+      ids.retainAll(candidates);
     }
-    return array;
+    return filterByName(toProjects(ids), pattern);
   }
 
   public List<Project> getProjects() {
@@ -172,20 +196,43 @@ public class ProjectManager {
   }
 
   public List<Project> getProjectsByRegex(final String regexPattern) {
-    final List<Project> allProjects = new ArrayList<>();
     final Pattern pattern;
     try {
       pattern = Pattern.compile(regexPattern, Pattern.CASE_INSENSITIVE);
     } catch (final PatternSyntaxException e) {
       logger.error("Bad regex pattern " + regexPattern);
-      return allProjects;
+      return new ArrayList<>();
+    }
+
+    final Set<Integer> candidates = this.projectIndex.getNameCandidates(regexPattern);
+    return filterByName(candidates != null ? toProjects(candidates) : getProjects(), pattern);
+  }
+
+  /**
+   * @return the active projects with the given ids, in the order of their ids
+   */
+  private List<Project> toProjects(final Set<Integer> ids) {
+    final List<Integer> sortedIds = new ArrayList<>(ids);
+    Collections.sort(sortedIds);
+    final List<Project> projects = new ArrayList<>(sortedIds.size());
+    for (final Integer id : sortedIds) {
+      final Project project = this.projectsById.get(id);
+      if (project != null) {
+        projects.add(project);
+      }
     }
-    for (final Project project : getProjects()) {
+    return projects;
+  }
+
+  private static List<Project> filterByName(final List<Project> projects,
+      final Pattern pattern) {
+    final List<Project> matching = new ArrayList<>();
+    for (final Project project : projects) {
       if (pattern.matcher(project.getName()).find()) {
-        allProjects.add(project);
+        matching.add(project);
       }
     }
-    return allProjects;
+    return matching;
   }
 
   /**
@@ -269,13 +316,16 @@ public class ProjectManager {
         + creator.getUserId());
     final Project newProject =
         this.projectLoader.createNewProject(projectName, description, creator);
+    newProject.setFlowLoader(this.flowCache);
     this.projectsByName.put(newProject.getName(), newProject);
     this.projectsById.put(newProject.getId(), newProject);
+    this.projectIndex.update(newProject);
 
     if (this.creatorDefaultPermissions) {
       // Add permission to project
       this.projectLoader.updatePermission(newProject, creator.getUserId(),
           new Permission(Permission.Type.ADMIN), false);
+      this.projectIndex.update(newProject);
 
       // Add proxy user
       newProject.addProxyUser(creator.getUserId());
@@ -320,6 +370,11 @@ public class ProjectManager {
 
     this.projectsByName.remove(project.getName());
     this.projectsById.remove(project.getId());
+    this.projectIndex.remove(project.getId());
+    this.flowTemplateCache.invalidateProject(project.getId());
+    if (this.flowCache != null) {
+      this.flowCache.invalidate(project.getId());
+    }
 
     return project;
   }
@@ -402,6 +457,7 @@ public class ProjectManager {
         + " updating permissions for project " + project.getName() + " for "
         + name + " " + perm.toString());
     this.projectLoader.updatePermission(project, name, perm, group);
+    updateProjectIndex(project);
     if (group) {
       this.projectLoader.postEvent(project, EventType.GROUP_PERMISSION,
           modifier.getUserId(), "Permission for group " + name + " set to "
@@ -419,6 +475,7 @@ public class ProjectManager {
         + " removing permissions for project " + project.getName() + " for "
         + name);
     this.projectLoader.removePermission(project, name, group);
+    updateProjectIndex(project);
     if (group) {
       this.projectLoader.postEvent(project, EventType.GROUP_PERMISSION,
           modifier.getUserId(), "Permission for group " + name + " removed.");
@@ -428,6 +485,13 @@ public class ProjectManager {
     }
   }
 
+  private void updateProjectIndex(final Project project) {
+    // Only active projects are listed.
+    if (this.projectsById.get(project.getId()) == project) {
+      this.projectIndex.update(project);
+    }
+  }
+
   /**
    * This method retrieves the uploaded project zip file from DB. A temporary
    * file is created to hold the content of the uploaded zip file. This
@@ -447,16 +511,53 @@ public class ProjectManager {
     return this.azkabanProjectLoader.getProjectFile(project, version);
   }
 
+  /**
+   * Like {@link #getProjectFileHandler(Project, int)}, but without copying the file to a local
+   * file. Use {@link #openProjectFile(ProjectFileHandler)} to read it.
+   *
+   * @param version - latest version is used if value is -1
+   * @return null if the version doesn't exist
+   */
+  public ProjectFileHandler getProjectFileMetadata(final Project project, final int version)
+      throws ProjectManagerException {
+    return this.azkabanProjectLoader.getProjectFileMetadata(project, version);
+  }
+
+  /**
+   * Stream a project file. The md5 hash is checked when the end of the stream is read.
+   */
+  public InputStream openProjectFile(final ProjectFileHandler projectFileHandler) {
+    return this.azkabanProjectLoader.openProjectFile(projectFileHandler);
+  }
+
   public Map<String, ValidationReport> uploadProject(final Project project,
       final File archive, final String fileType, final User uploader, final Props additionalProps)
       throws ProjectManagerException {
-    return this.azkabanProjectLoader
-        .uploadProject(project, archive, fileType, uploader, additionalProps);
+    return uploadProject(project, archive, null, fileType, uploader, additionalProps);
+  }
+
+  /**
+   * @param archiveMd5 md5 hash of the archive if it was computed while it was received, so it
+   * isn't read again to compute it. May be null.
+   */
+  public Map<String, ValidationReport> uploadProject(final Project project,
+      final File archive, final byte[] archiveMd5, final String fileType, final User uploader,
+      final Props additionalProps) throws ProjectManagerException {
+    final Map<String, ValidationReport> reports = this.azkabanProjectLoader
+        .uploadProject(project, archive, archiveMd5, fileType, uploader, additionalProps);
+    this.flowTemplateCache.invalidateProject(project.getId());
+    if (this.flowCache != null && project.getFlowMap() != null) {
+      // The new flows were set on the project. Move them to the cache, so they can be dropped.
+      this.flowCache.put(project, project.getFlowMap());
+      project.setFlows(null);
+    }
+    return reports;
   }
 
   public void updateFlow(final Project project, final Flow flow)
       throws ProjectManagerException {
     this.projectLoader.updateFlow(project, flow.getVersion(), flow);
+    this.flowTemplateCache.invalidateProject(project.getId());
   }
 
 
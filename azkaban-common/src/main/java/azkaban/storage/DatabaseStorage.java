@@ -53,12 +53,16 @@ public class DatabaseStorage implements Storage {
     return this.projectLoader.getUploadedFile(projectId, version);
   }
 
+  public InputStream open(final ProjectFileHandler projectFileHandler) {
+    return this.projectLoader.openUploadedFile(projectFileHandler);
+  }
+
   @Override
   public String put(final StorageMetadata metadata, final File localFile) {
     this.projectLoader.uploadProjectFile(
         metadata.getProjectId(),
         metadata.getVersion(),
-        localFile, metadata.getUploader());
+        localFile, metadata.getUploader(), metadata.getHash());
 
     return null;
   }
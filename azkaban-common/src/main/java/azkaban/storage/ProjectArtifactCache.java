@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.storage;
+
+import azkaban.metrics.CommonMetrics;
+import azkaban.project.ProjectFileHandler;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps recently used project files on local disk, up to a total size, so that they aren't
+ * fetched from storage again for every download.
+ *
+ * Project files never change once they are uploaded, so the cached copies are never stale. When
+ * several callers want a file that isn't cached, only one fetches it and the others wait for it.
+ * Files are evicted least recently used first. An evicted file that is still being read stays
+ * readable until it is closed.
+ */
+public class ProjectArtifactCache {
+
+  private static final Logger log = Logger.getLogger(ProjectArtifactCache.class);
+
+  private final File dir;
+  private final long maxBytes;
+  private final CommonMetrics commonMetrics;
+  // In access order, the least recently used first. Guarded by this.
+  private final LinkedHashMap<String, CachedFile> files =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, CompletableFuture<Boolean>> fetching = new ConcurrentHashMap<>();
+  private long totalBytes = 0;
+
+  public ProjectArtifactCache(final File dir, final long maxBytes,
+      final CommonMetrics commonMetrics) {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+    this.commonMetrics = commonMetrics;
+    // Files from before a restart aren't known, start over.
+    FileUtils.deleteQuietly(dir);
+    dir.mkdirs();
+  }
+
+  /**
+   * The key of a project file. The md5 hash is part of it so that a resource id that is reused
+   * for different content, e.g. after a database is restored, doesn't get the old content.
+   */
+  public static String key(final ProjectFileHandler pfh) {
+    final String resource = pfh.getResourceId() != null ? pfh.getResourceId()
+        : pfh.getProjectId() + "." + pfh.getVersion();
+    return resource + "." + Hex.encodeHexString(pfh.getMd5Hash());
+  }
+
+  /**
+   * Opens the cached file, fetching it with the loader first if it isn't cached. The loader's
+   * stream must fail if the content is wrong, since what it returns is cached as is.
+   */
+  public InputStream open(final String key, final Loader loader) throws IOException {
+    final InputStream cached = openCached(key, true);
+    if (cached != null) {
+      return cached;
+    }
+
+    final CompletableFuture<Boolean> fetch = new CompletableFuture<>();
+    final CompletableFuture<Boolean> running = this.fetching.putIfAbsent(key, fetch);
+    if (running != null) {
+      // Someone else is fetching it, so for this caller it is a hit.
+      waitFor(running);
+      final InputStream fetched = openCached(key, true);
+      return fetched != null ? fetched : loader.open();
+    }
+
+    this.commonMetrics.markArtifactCacheMiss();
+    try {
+      final File file = fetch(loader);
+      final boolean added = add(key, file);
+      fetch.complete(added);
+      if (!added) {
+        // Too large to cache. Still readable after it's deleted.
+        final InputStream in = new FileInputStream(file);
+        file.delete();
+        return in;
+      }
+    } catch (final IOException | RuntimeException e) {
+      fetch.completeExceptionally(e);
+      throw e;
+    } finally {
+      this.fetching.remove(key, fetch);
+    }
+    final InputStream fetched = openCached(key, false);
+    return fetched != null ? fetched : loader.open();
+  }
+
+  public synchronized long getTotalBytes() {
+    return this.totalBytes;
+  }
+
+  public synchronized int getNumFiles() {
+    return this.files.size();
+  }
+
+  private synchronized InputStream openCached(final String key, final boolean hit) {
+    final CachedFile cached = this.files.get(key);
+    if (cached == null) {
+      return null;
+    }
+    try {
+      final InputStream in = new FileInputStream(cached.file);
+      if (hit) {
+        this.commonMetrics.markArtifactCacheHit(cached.size);
+      }
+      return in;
+    } catch (final FileNotFoundException e) {
+      log.warn("Cached project file " + cached.file + " is gone.", e);
+      remove(key);
+      return null;
+    }
+  }
+
+  private File fetch(final Loader loader) throws IOException {
+    final File file = File.createTempFile("artifact", ".tmp", this.dir);
+    try (InputStream in = loader.open(); OutputStream out = new FileOutputStream(file)) {
+      IOUtils.copy(in, out);
+    } catch (final IOException | RuntimeException e) {
+      file.delete();
+      throw e;
+    }
+    return file;
+  }
+
+  private synchronized boolean add(final String key, final File file) {
+    final long size = file.length();
+    if (size > this.maxBytes) {
+      return false;
+    }
+    this.files.put(key, new CachedFile(file, size));
+    this.totalBytes += size;
+
+    final Iterator<Map.Entry<String, CachedFile>> it = this.files.entrySet().iterator();
+    while (this.totalBytes > this.maxBytes && it.hasNext()) {
+      final Map.Entry<String, CachedFile> eldest = it.next();
+      if (eldest.getKey().equals(key)) {
+        continue;
+      }
+      it.remove();
+      this.totalBytes -= eldest.getValue().size;
+      eldest.getValue().file.delete();
+    }
+    return true;
+  }
+
+  private synchronized void remove(final String key) {
+    // The file may already be gone, so its size is the one it was added with.
+    final CachedFile cached = this.files.remove(key);
+    if (cached != null) {
+      this.totalBytes -= cached.size;
+      cached.file.delete();
+    }
+  }
+
+  private static void waitFor(final CompletableFuture<Boolean> fetch) throws IOException {
+    try {
+      fetch.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a project file", e);
+    } catch (final ExecutionException e) {
+      throw new IOException("Fetching the project file failed", e.getCause());
+    }
+  }
+
+  /**
+   * Fetches a file from storage.
+   */
+  public interface Loader {
+
+    InputStream open() throws IOException;
+  }
+
+  private static class CachedFile {
+
+    private final File file;
+    private final long size;
+
+    CachedFile(final File file, final long size) {
+      this.file = file;
+      this.size = size;
+    }
+  }
+}
@@ -21,6 +21,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.metrics.CommonMetrics;
 import azkaban.project.Project;
 import azkaban.project.ProjectFileHandler;
 import azkaban.project.ProjectLoader;
@@ -29,6 +31,7 @@ import azkaban.spi.StorageException;
 import azkaban.spi.StorageMetadata;
 import azkaban.user.User;
 import azkaban.utils.Md5Hasher;
+import azkaban.utils.Md5VerifyingInputStream;
 import azkaban.utils.Props;
 import com.google.inject.Inject;
 import java.io.File;
@@ -52,15 +55,27 @@ public class StorageManager {
   private final Storage storage;
   private final ProjectLoader projectLoader;
   private final File tempDir;
+  private final ProjectArtifactCache cache;
 
   @Inject
   public StorageManager(final Props props, final Storage storage,
-      final ProjectLoader projectLoader) {
+      final ProjectLoader projectLoader, final CommonMetrics commonMetrics) {
     this.tempDir = new File(props.getString("project.temp.dir", "temp"));
     this.storage = requireNonNull(storage);
     this.projectLoader = requireNonNull(projectLoader);
 
     prepareTempDir();
+
+    final long cacheMaxBytes = props.getLong(ConfigurationKeys.AZKABAN_STORAGE_CACHE_MAX_BYTES, 0);
+    if (cacheMaxBytes > 0) {
+      final File cacheDir = new File(props.getString(ConfigurationKeys.AZKABAN_STORAGE_CACHE_DIR,
+          new File(this.tempDir, "artifacts").getPath()));
+      log.info(String.format("Caching project files in %s, up to %d bytes", cacheDir,
+          cacheMaxBytes));
+      this.cache = new ProjectArtifactCache(cacheDir, cacheMaxBytes, commonMetrics);
+    } else {
+      this.cache = null;
+    }
   }
 
   private void prepareTempDir() {
@@ -85,10 +100,20 @@ public class StorageManager {
       final int version,
       final File localFile,
       final User uploader) {
-    byte[] md5 = null;
-    if (!(this.storage instanceof DatabaseStorage)) {
-      md5 = computeHash(localFile);
-    }
+    uploadProject(project, version, localFile, null, uploader);
+  }
+
+  /**
+   * Same as {@link #uploadProject(Project, int, File, User)}, with the md5 hash of the file if it
+   * was computed while the file was received. Otherwise it's computed here.
+   */
+  public void uploadProject(
+      final Project project,
+      final int version,
+      final File localFile,
+      final byte[] localFileMd5,
+      final User uploader) {
+    final byte[] md5 = localFileMd5 != null ? localFileMd5 : computeHash(localFile);
     final StorageMetadata metadata = new StorageMetadata(
         project.getId(),
         version,
@@ -136,6 +161,9 @@ public class StorageManager {
   public ProjectFileHandler getProjectFile(final int projectId, final int version) {
     log.info(
         String.format("Fetching project file. project ID: %d version: %d", projectId, version));
+    if (this.cache != null) {
+      return getCachedProjectFile(projectId, version);
+    }
     // TODO spyne: remove huge hack ! There should not be any special handling for Database Storage.
     if (this.storage instanceof DatabaseStorage) {
       return ((DatabaseStorage) this.storage).get(projectId, version);
@@ -168,6 +196,75 @@ public class StorageManager {
     }
   }
 
+  private ProjectFileHandler getCachedProjectFile(final int projectId, final int version) {
+    final ProjectFileHandler pfh = fetchProjectFileMetadata(projectId, version);
+    if (pfh == null) {
+      return null;
+    }
+    // A copy, since callers delete the local file when they are done with it.
+    try (InputStream is = openProjectFile(pfh)) {
+      final File file = createTempOutputFile(pfh);
+      try (FileOutputStream fos = new FileOutputStream(file)) {
+        IOUtils.copy(is, fos);
+      } catch (final IOException e) {
+        file.delete();
+        throw e;
+      }
+      pfh.setLocalFile(file);
+      return pfh;
+    } catch (final IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  /**
+   * Fetch the metadata of a project file, to be opened with {@link #openProjectFile}.
+   *
+   * @return null if the version doesn't exist
+   */
+  public ProjectFileHandler fetchProjectFileMetadata(final int projectId, final int version) {
+    return this.projectLoader.fetchProjectMetaData(projectId, version);
+  }
+
+  /**
+   * Open a stream over a project file, without copying it to a local file first. The checksum is
+   * validated when the stream reaches its end, so callers must read it to the end and should
+   * discard what they read if that read fails.
+   *
+   * If project files are cached, the stream is a {@link java.io.FileInputStream} over the cached
+   * file, whose checksum was validated when it was cached.
+   *
+   * @param pfh metadata from {@link #fetchProjectFileMetadata(int, int)}
+   */
+  public InputStream openProjectFile(final ProjectFileHandler pfh) {
+    if (this.cache != null) {
+      try {
+        return this.cache.open(ProjectArtifactCache.key(pfh), () -> openStoredProjectFile(pfh));
+      } catch (final IOException e) {
+        throw new StorageException(e);
+      }
+    }
+    return openStoredProjectFile(pfh);
+  }
+
+  private InputStream openStoredProjectFile(final ProjectFileHandler pfh) {
+    log.info(String.format("Streaming project file. project ID: %d version: %d",
+        pfh.getProjectId(), pfh.getVersion()));
+    // TODO spyne: remove huge hack ! There should not be any special handling for Database Storage.
+    if (this.storage instanceof DatabaseStorage) {
+      return ((DatabaseStorage) this.storage).open(pfh);
+    }
+
+    final String resourceId = requireNonNull(pfh.getResourceId(),
+        String.format("URI is null. project ID: %d version: %d",
+            pfh.getProjectId(), pfh.getVersion()));
+    try {
+      return new Md5VerifyingInputStream(this.storage.get(resourceId), pfh.getMd5Hash());
+    } catch (final IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
   private void validateChecksum(final File file, final ProjectFileHandler pfh) throws IOException {
     final byte[] hash = Md5Hasher.md5Hash(file);
     checkState(Arrays.equals(pfh.getMd5Hash(), hash),
@@ -17,6 +17,7 @@
 package azkaban.trigger.builtin;
 
 import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowTemplateCache;
 import azkaban.executor.ExecutionOptions;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
@@ -41,6 +42,7 @@ public class ExecuteFlowAction implements TriggerAction {
   private static ExecutorManagerAdapter executorManager;
   private static TriggerManager triggerManager;
   private static ProjectManager projectManager;
+  private static ExecutableFlowTemplateCache flowTemplateCache;
   private static Logger logger = Logger.getLogger(ExecuteFlowAction.class);
   private final String actionId;
   private final String projectName;
@@ -90,6 +92,14 @@ public class ExecuteFlowAction implements TriggerAction {
     ExecuteFlowAction.projectManager = projectManager;
   }
 
+  public static ExecutableFlowTemplateCache getFlowTemplateCache() {
+    return flowTemplateCache;
+  }
+
+  public static void setFlowTemplateCache(final ExecutableFlowTemplateCache flowTemplateCache) {
+    ExecuteFlowAction.flowTemplateCache = flowTemplateCache;
+  }
+
   public static TriggerAction createFromJson(final HashMap<String, Object> obj) {
     final Map<String, Object> jsonObj = (HashMap<String, Object>) obj;
     final String objType = (String) jsonObj.get("type");
@@ -216,13 +226,20 @@ public class ExecuteFlowAction implements TriggerAction {
           + this.flowName);
     }
 
-    final ExecutableFlow exflow = new ExecutableFlow(project, flow);
-    exflow.setSubmitUser(this.submitUser);
-    exflow.addAllProxyUsers(project.getProxyUsers());
-
     if (this.executionOptions == null) {
       this.executionOptions = new ExecutionOptions();
     }
+
+    final ExecutableFlow exflow;
+    if (flowTemplateCache != null) {
+      exflow = flowTemplateCache
+          .newExecutableFlow(project, flow, this.executionOptions.getDisabledJobs());
+    } else {
+      exflow = new ExecutableFlow(project, flow);
+    }
+    exflow.setSubmitUser(this.submitUser);
+    exflow.addAllProxyUsers(project.getProxyUsers());
+
     if (!this.executionOptions.isFailureEmailsOverridden()) {
       this.executionOptions.setFailureEmails(flow.getFailureEmails());
     }
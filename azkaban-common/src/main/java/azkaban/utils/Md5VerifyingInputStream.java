@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Computes the md5 hash of the bytes while they are read and checks it against the expected hash
+ * at the end of the stream, so a download doesn't have to be written to disk and read again to be
+ * validated.
+ *
+ * A mismatch is reported as an IOException from the read that hits the end of the stream. Callers
+ * have to read to the end, and shouldn't trust what they read before that.
+ */
+public class Md5VerifyingInputStream extends FilterInputStream {
+
+  private final MessageDigest digest = Md5Hasher.getMd5Digest();
+  private final byte[] expected;
+  private boolean verified = false;
+
+  public Md5VerifyingInputStream(final InputStream in, final byte[] expected) {
+    super(in);
+    this.expected = expected;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final int b = this.in.read();
+    if (b == -1) {
+      verify();
+    } else {
+      this.digest.update((byte) b);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    final int num = this.in.read(b, off, len);
+    if (num == -1) {
+      verify();
+    } else {
+      this.digest.update(b, off, num);
+    }
+    return num;
+  }
+
+  /**
+   * Skipped bytes still count towards the hash, so they are read.
+   */
+  @Override
+  public long skip(final long n) throws IOException {
+    final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+    long skipped = 0;
+    while (skipped < n) {
+      final int num = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+      if (num == -1) {
+        break;
+      }
+      skipped += num;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void verify() throws IOException {
+    if (this.verified) {
+      return;
+    }
+    final byte[] actual = this.digest.digest();
+    if (!Arrays.equals(this.expected, actual)) {
+      throw new IOException("MD5 hash failed. Expected: "
+          + Hex.encodeHexString(this.expected) + " Actual: "
+          + Hex.encodeHexString(actual));
+    }
+    this.verified = true;
+  }
+}
@@ -40,10 +40,15 @@ import org.apache.log4j.Logger;
 /**
  * Hashmap implementation of a hierarchitical properties with helpful converter
  * functions and Exception throwing. This class is not threadsafe.
+ *
+ * Clones share the local maps of the original copy-on-write, so cloning a chain only costs one
+ * object per level until either side is modified.
  */
 public class Props {
 
-  private final Map<String, String> _current;
+  private Map<String, String> _current;
+  // True while _current may be referenced by a clone. It is copied before the first write.
+  private boolean _shared = false;
   private Props _parent;
   private String source = null;
 
@@ -151,7 +156,8 @@ public class Props {
   }
 
   /**
-   * Clones the Props p object and all of its parents.
+   * Clones the Props p object and all of its parents. The local properties of every level are
+   * shared copy-on-write.
    */
   public static Props clone(final Props p) {
     return copyNext(p);
@@ -168,13 +174,46 @@ public class Props {
       priorNodeCopy = copyNext(source.getParent());
     }
     final Props dest = new Props(priorNodeCopy);
-    for (final String key : source.localKeySet()) {
-      dest.put(key, source.get(key));
-    }
+    source._shared = true;
+    dest._current = source._current;
+    dest._shared = true;
 
     return dest;
   }
 
+  /**
+   * Returns a copy of all properties of this Props and its parents in a single level without
+   * parent. Keys are interned, since snapshots of the same flow have the same keys. Lookups on the
+   * snapshot never walk a parent chain, and clones of it share its map until they are modified.
+   */
+  public Props snapshot() {
+    final Map<String, String> flattened = new HashMap<>();
+    for (Props curr = this; curr != null; curr = curr._parent) {
+      for (final Map.Entry<String, String> entry : curr._current.entrySet()) {
+        final String key = entry.getKey().intern();
+        if (!flattened.containsKey(key)) {
+          flattened.put(key, entry.getValue());
+        }
+      }
+    }
+
+    final Props snapshot = new Props();
+    snapshot._current = flattened;
+    snapshot.setSource(this.source);
+    return snapshot;
+  }
+
+  /**
+   * Returns the local map, copying it first if it may be shared with a clone.
+   */
+  private Map<String, String> writableCurrent() {
+    if (this._shared) {
+      this._current = new HashMap<>(this._current);
+      this._shared = false;
+    }
+    return this._current;
+  }
+
   /**
    *
    * @param inputStream
@@ -203,15 +242,19 @@ public class Props {
    * Clear the current Props, but leaves the parent untouched.
    */
   public void clearLocal() {
-    this._current.clear();
+    writableCurrent().clear();
   }
 
   /**
    * Check key in current Props then search in parent
    */
   public boolean containsKey(final Object k) {
-    return this._current.containsKey(k)
-        || (this._parent != null && this._parent.containsKey(k));
+    for (Props curr = this; curr != null; curr = curr._parent) {
+      if (curr._current.containsKey(k)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -226,20 +269,21 @@ public class Props {
    * Return value if available in current Props otherwise return from parent
    */
   public String get(final Object key) {
-    if (this._current.containsKey(key)) {
-      return this._current.get(key);
-    } else if (this._parent != null) {
-      return this._parent.get(key);
-    } else {
-      return null;
+    for (Props curr = this; curr != null; curr = curr._parent) {
+      final String value = curr._current.get(key);
+      if (value != null || curr._current.containsKey(key)) {
+        return value;
+      }
     }
+    return null;
   }
 
   /**
    * Get the key set from the current Props
    */
   public Set<String> localKeySet() {
-    return this._current.keySet();
+    return this._shared ? Collections.unmodifiableSet(this._current.keySet())
+        : this._current.keySet();
   }
 
   /**
@@ -264,7 +308,7 @@ public class Props {
    * this Props.
    */
   public String put(final String key, final String value) {
-    return this._current.put(key, value);
+    return writableCurrent().put(key, value);
   }
 
   /**
@@ -278,8 +322,9 @@ public class Props {
    * this Props.
    */
   public void put(final Properties properties) {
+    final Map<String, String> current = writableCurrent();
     for (final String propName : properties.stringPropertyNames()) {
-      this._current.put(propName, properties.getProperty(propName));
+      current.put(propName, properties.getProperty(propName));
     }
   }
 
@@ -287,21 +332,21 @@ public class Props {
    * Put integer
    */
   public String put(final String key, final Integer value) {
-    return this._current.put(key, value.toString());
+    return writableCurrent().put(key, value.toString());
   }
 
   /**
    * Put Long. Stores as String.
    */
   public String put(final String key, final Long value) {
-    return this._current.put(key, value.toString());
+    return writableCurrent().put(key, value.toString());
   }
 
   /**
    * Put Double. Stores as String.
    */
   public String put(final String key, final Double value) {
-    return this._current.put(key, value.toString());
+    return writableCurrent().put(key, value.toString());
   }
 
   /**
@@ -343,7 +388,7 @@ public class Props {
    * Remove only the local value of key s, and not the parents.
    */
   public String removeLocal(final Object s) {
-    return this._current.remove(s);
+    return writableCurrent().remove(s);
   }
 
   /**
@@ -724,13 +769,18 @@ public class Props {
    * @param prefix The string prefix
    */
   public Map<String, String> getMapByPrefix(final String prefix) {
-    final Map<String, String> values = this._parent == null ? new HashMap<>() :
-        this._parent.getMapByPrefix(prefix);
+    final Map<String, String> values = new HashMap<>();
 
     // when there is a conflict, value from the child takes the priority.
-    for (final String key : this.localKeySet()) {
-      if (key.startsWith(prefix)) {
-        values.put(key.substring(prefix.length()), get(key));
+    for (Props curr = this; curr != null; curr = curr._parent) {
+      for (final Map.Entry<String, String> entry : curr._current.entrySet()) {
+        final String key = entry.getKey();
+        if (key.startsWith(prefix)) {
+          final String name = key.substring(prefix.length());
+          if (!values.containsKey(name)) {
+            values.put(name, entry.getValue());
+          }
+        }
       }
     }
     return values;
@@ -742,10 +792,8 @@ public class Props {
   public Set<String> getKeySet() {
     final HashSet<String> keySet = new HashSet<>();
 
-    keySet.addAll(localKeySet());
-
-    if (this._parent != null) {
-      keySet.addAll(this._parent.getKeySet());
+    for (Props curr = this; curr != null; curr = curr._parent) {
+      keySet.addAll(curr._current.keySet());
     }
 
     return keySet;
@@ -44,6 +44,15 @@ public class PropsUtils {
   private static final Logger logger = Logger.getLogger(PropsUtils.class);
   private static final Pattern VARIABLE_REPLACEMENT_PATTERN = Pattern
       .compile("\\$\\{([a-zA-Z_.0-9]+)\\}");
+  // Number of parsed $(...) expressions kept by the shared JEXL engine.
+  private static final int JEXL_EXPRESSION_CACHE_SIZE = 1024;
+  private static final JexlEngine JEXL_ENGINE = createJexlEngine();
+
+  private static JexlEngine createJexlEngine() {
+    final JexlEngine jexl = new JexlEngine();
+    jexl.setCache(JEXL_EXPRESSION_CACHE_SIZE);
+    return jexl;
+  }
 
   /**
    * Load job schedules from the given directories
@@ -151,48 +160,66 @@ public class PropsUtils {
     return matcher.matches();
   }
 
+  /**
+   * Returns a single level Props with every ${var} reference replaced and every $(expression)
+   * evaluated.
+   *
+   * Every key is resolved at most once. References are followed depth first and the resolved
+   * value of each key is memoized, so keys are resolved in dependency order no matter how often
+   * they are referenced. Values without any marker are copied as they are, which makes resolving
+   * already resolved props cheap.
+   */
   public static Props resolveProps(final Props props) {
     if (props == null) {
       return null;
     }
 
+    final Map<String, String> values = props.getMapByPrefix("");
+    final Map<String, String> resolved = new HashMap<>(values.size() * 2);
+    final LinkedHashSet<String> visitedVariables = new LinkedHashSet<>();
     final Props resolvedProps = new Props();
 
-    final LinkedHashSet<String> visitedVariables = new LinkedHashSet<>();
-    for (final String key : props.getKeySet()) {
-      String value = props.get(key);
+    for (final Map.Entry<String, String> entry : values.entrySet()) {
+      final String key = entry.getKey();
+      String value = entry.getValue();
       if (value == null) {
         logger.warn("Null value in props for key '" + key + "'. Replacing with empty string.");
         value = "";
+      } else {
+        String replacedValue = resolved.get(key);
+        if (replacedValue == null) {
+          visitedVariables.add(key);
+          replacedValue = resolveVariableReplacement(value, values, resolved, visitedVariables);
+          visitedVariables.clear();
+          resolved.put(key, replacedValue);
+        }
+        value = replacedValue;
       }
 
-      visitedVariables.add(key);
-      final String replacedValue =
-          resolveVariableReplacement(value, props, visitedVariables);
-      visitedVariables.clear();
-
-      resolvedProps.put(key, replacedValue);
-    }
-
-    for (final String key : resolvedProps.getKeySet()) {
-      final String value = resolvedProps.get(key);
-      final String expressedValue = resolveVariableExpression(value);
-      resolvedProps.put(key, expressedValue);
+      if (value.contains("$(")) {
+        value = resolveVariableExpression(value);
+      }
+      resolvedProps.put(key, value);
     }
 
     return resolvedProps;
   }
 
-  private static String resolveVariableReplacement(final String value, final Props props,
+  private static String resolveVariableReplacement(final String value,
+      final Map<String, String> values, final Map<String, String> resolved,
       final LinkedHashSet<String> visitedVariables) {
-    final StringBuffer buffer = new StringBuffer();
+    if (!value.contains("${")) {
+      return value;
+    }
+
+    final StringBuilder buffer = new StringBuilder();
     int startIndex = 0;
 
     final Matcher matcher = VARIABLE_REPLACEMENT_PATTERN.matcher(value);
     while (matcher.find(startIndex)) {
       if (startIndex < matcher.start()) {
         // Copy everything up front to the buffer
-        buffer.append(value.substring(startIndex, matcher.start()));
+        buffer.append(value, startIndex, matcher.start());
       }
 
       final String subVariable = matcher.group(1);
@@ -201,35 +228,39 @@ public class PropsUtils {
         throw new IllegalArgumentException(String.format(
             "Circular variable substitution found: [%s] -> [%s]",
             StringUtils.join(visitedVariables, "->"), subVariable));
-      } else {
+      }
+
+      String replacement = resolved.get(subVariable);
+      if (replacement == null) {
         // Add substitute variable and recurse.
-        final String replacement = props.get(subVariable);
+        final String rawReplacement = values.get(subVariable);
         visitedVariables.add(subVariable);
 
-        if (replacement == null) {
+        if (rawReplacement == null) {
           throw new UndefinedPropertyException(String.format(
               "Could not find variable substitution for variable(s) [%s]",
               StringUtils.join(visitedVariables, "->")));
         }
 
-        buffer.append(resolveVariableReplacement(replacement, props,
-            visitedVariables));
+        replacement = resolveVariableReplacement(rawReplacement, values, resolved,
+            visitedVariables);
         visitedVariables.remove(subVariable);
+        resolved.put(subVariable, replacement);
       }
+      buffer.append(replacement);
 
       startIndex = matcher.end();
     }
 
     if (startIndex < value.length()) {
-      buffer.append(value.substring(startIndex));
+      buffer.append(value, startIndex, value.length());
     }
 
     return buffer.toString();
   }
 
   private static String resolveVariableExpression(final String value) {
-    final JexlEngine jexl = new JexlEngine();
-    return resolveVariableExpression(value, value.length(), jexl);
+    return resolveVariableExpression(value, value.length(), JEXL_ENGINE);
   }
 
   /**
@@ -1,6 +1,15 @@
 package azkaban.utils;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.LoggerFactory;
 
 
@@ -12,17 +21,44 @@ import org.slf4j.LoggerFactory;
  * Memory information is obtained from /proc/meminfo, so only Unix/Linux like system
  * will support this class.
  *
+ * Jobs ask for memory with {@link #reserve(long)}. Requests are granted in FIFO order, and a
+ * granted reservation counts against the free memory read from /proc until the job releases it or
+ * the settle time has passed. By then the process has allocated its memory and /proc accounts
+ * for it. This keeps jobs that start at the same time from all being granted the same free
+ * memory. Waiting requests are granted as soon as a reservation is released, and on a periodic
+ * tick that re-reads /proc.
+ *
  * All the memory size used in this function is in KB.
  */
+@Singleton
 public class SystemMemoryInfo {
 
   private static final org.slf4j.Logger logger = LoggerFactory.getLogger(SystemMemoryInfo.class);
   private static final long LOW_MEM_THRESHOLD = 3L * 1024L * 1024L; //3 GB
+  private static final long DEFAULT_SETTLE_MS = 60 * 1000;
+  private static final long DEFAULT_RECONCILE_INTERVAL_MS = 10 * 1000;
+
   private final OsMemoryUtil util;
+  private final long settleMs;
+  private final long reconcileIntervalMs;
+
+  // Guarded by this.
+  private final LinkedList<MemoryReservation> waiting = new LinkedList<>();
+  private final List<MemoryReservation> inFlight = new ArrayList<>();
+  private long freeMemSize = 0;
+  private ScheduledExecutorService reconciler = null;
 
   @Inject
   public SystemMemoryInfo(final OsMemoryUtil util) {
+    this(util, DEFAULT_SETTLE_MS, DEFAULT_RECONCILE_INTERVAL_MS);
+  }
+
+  @VisibleForTesting
+  SystemMemoryInfo(final OsMemoryUtil util, final long settleMs,
+      final long reconcileIntervalMs) {
     this.util = util;
+    this.settleMs = settleMs;
+    this.reconcileIntervalMs = reconcileIntervalMs;
   }
 
   /**
@@ -48,4 +84,154 @@ public class SystemMemoryInfo {
     }
     return true;
   }
+
+  /**
+   * Queues a request for xmx kb of memory. The returned reservation may already be granted.
+   * It must be released once the process is done, or when the caller gives up waiting.
+   */
+  public synchronized MemoryReservation reserve(final long xmx) {
+    final MemoryReservation reservation = new MemoryReservation(xmx);
+    if (this.waiting.isEmpty()) {
+      this.freeMemSize = this.util.getOsTotalFreeMemorySize();
+    }
+    this.waiting.add(reservation);
+    grantWaiting();
+
+    if (!reservation.granted && this.reconciler == null) {
+      this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "SystemMemoryInfo-reconciler");
+        thread.setDaemon(true);
+        return thread;
+      });
+      this.reconciler.scheduleWithFixedDelay(this::reconcile, this.reconcileIntervalMs,
+          this.reconcileIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    return reservation;
+  }
+
+  public synchronized int getNumWaiting() {
+    return this.waiting.size();
+  }
+
+  /**
+   * @return the memory granted recently enough to not show up in /proc yet
+   */
+  public synchronized long getInFlightSize() {
+    removeSettled(System.currentTimeMillis());
+    long size = 0;
+    for (final MemoryReservation reservation : this.inFlight) {
+      size += reservation.size;
+    }
+    return size;
+  }
+
+  @VisibleForTesting
+  synchronized void reconcile() {
+    if (!this.waiting.isEmpty()) {
+      this.freeMemSize = this.util.getOsTotalFreeMemorySize();
+      grantWaiting();
+    }
+  }
+
+  private synchronized void release(final MemoryReservation reservation) {
+    if (this.waiting.remove(reservation) || this.inFlight.remove(reservation)) {
+      // The memory of the released process is back in /proc.
+      if (!this.waiting.isEmpty()) {
+        this.freeMemSize = this.util.getOsTotalFreeMemorySize();
+        grantWaiting();
+      }
+    }
+    notifyAll();
+  }
+
+  private void removeSettled(final long now) {
+    this.inFlight.removeIf(reservation -> now - reservation.grantedTime >= this.settleMs);
+  }
+
+  /**
+   * Grants waiting requests in order. A request that fits once the in-flight reservations settle
+   * holds back the ones behind it, so large jobs aren't starved by a stream of small ones. A request
+   * that doesn't fit even then waits for /proc to change without holding anyone back.
+   */
+  private void grantWaiting() {
+    final long now = System.currentTimeMillis();
+    removeSettled(now);
+    final long usable = this.freeMemSize - LOW_MEM_THRESHOLD;
+    long available = usable;
+    for (final MemoryReservation reservation : this.inFlight) {
+      available -= reservation.size;
+    }
+
+    boolean blocked = false;
+    for (final Iterator<MemoryReservation> it = this.waiting.iterator(); it.hasNext(); ) {
+      final MemoryReservation reservation = it.next();
+      // Fail open on the platforms that don't support the mem info file.
+      if (this.freeMemSize == 0 || (!blocked && reservation.size <= available)) {
+        it.remove();
+        reservation.granted = true;
+        reservation.grantedTime = now;
+        this.inFlight.add(reservation);
+        available -= reservation.size;
+      } else if (reservation.size <= usable) {
+        blocked = true;
+      }
+    }
+    notifyAll();
+  }
+
+  /**
+   * Memory requested by a single job.
+   */
+  public class MemoryReservation {
+
+    private final long size;
+    // Guarded by the enclosing SystemMemoryInfo.
+    private boolean granted = false;
+    private boolean released = false;
+    private long grantedTime;
+
+    private MemoryReservation(final long size) {
+      this.size = size;
+    }
+
+    /**
+     * Waits up to waitMs for the memory to be granted.
+     *
+     * @return true if the memory has been granted
+     */
+    public boolean await(final long waitMs) throws InterruptedException {
+      final long deadline = System.currentTimeMillis() + waitMs;
+      synchronized (SystemMemoryInfo.this) {
+        long remaining = waitMs;
+        while (!this.granted && !this.released && remaining > 0) {
+          SystemMemoryInfo.this.wait(remaining);
+          remaining = deadline - System.currentTimeMillis();
+        }
+        return this.granted && !this.released;
+      }
+    }
+
+    public boolean isGranted() {
+      synchronized (SystemMemoryInfo.this) {
+        return this.granted && !this.released;
+      }
+    }
+
+    public long getSize() {
+      return this.size;
+    }
+
+    /**
+     * Returns the memory, or leaves the queue if it hasn't been granted yet. Wakes up anyone
+     * waiting on this reservation.
+     */
+    public void release() {
+      synchronized (SystemMemoryInfo.this) {
+        if (!this.released) {
+          this.released = true;
+          SystemMemoryInfo.this.release(this);
+        }
+      }
+    }
+  }
 }
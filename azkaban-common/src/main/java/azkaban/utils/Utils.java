@@ -35,6 +35,7 @@ import java.util.Random;
 import java.util.TimeZone;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
@@ -219,6 +220,28 @@ public class Utils {
     }
   }
 
+  /**
+   * Unzips a zip file while it is being read, e.g. from a download. Doesn't close the source.
+   */
+  public static void unzip(final ZipInputStream source, final File dest) throws IOException {
+    ZipEntry entry;
+    while ((entry = source.getNextEntry()) != null) {
+      final File newFile = new File(dest, entry.getName());
+      if (entry.isDirectory()) {
+        newFile.mkdirs();
+      } else {
+        newFile.getParentFile().mkdirs();
+        final OutputStream output =
+            new BufferedOutputStream(new FileOutputStream(newFile));
+        try {
+          IOUtils.copy(source, output);
+        } finally {
+          output.close();
+        }
+      }
+    }
+  }
+
   public static String flattenToString(final Collection<?> collection,
       final String delimiter) {
     final StringBuffer buffer = new StringBuffer();
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.event.Event.Type;
+import azkaban.executor.Status;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AsyncEventListenerTest {
+
+  private static final int NUM_RUNNERS = 8;
+  private static final int NUM_EVENTS = 200;
+
+  private static void awaitHandled(final AsyncEventListener listener, final long count)
+      throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (listener.getNumHandled() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(listener.getNumHandled()).isEqualTo(count);
+  }
+
+  @Test
+  public void testEventsOfARunnerAreHandledInOrder() throws Exception {
+    final Map<Object, List<String>> received = new HashMap<>();
+    final AsyncEventListener listener = new AsyncEventListener("test", event -> {
+      synchronized (received) {
+        received.computeIfAbsent(event.getRunner(), k -> new ArrayList<>())
+            .add(event.getData().getNestedId());
+      }
+    }, 3, 4);
+
+    final List<Object> runners = new ArrayList<>();
+    for (int i = 0; i < NUM_RUNNERS; i++) {
+      runners.add(new Object());
+    }
+    for (int i = 0; i < NUM_EVENTS; i++) {
+      for (final Object runner : runners) {
+        listener.handleEvent(
+            Event.create(runner, Type.JOB_STATUS_CHANGED, new EventData(Status.RUNNING, "" + i)));
+      }
+    }
+
+    awaitHandled(listener, NUM_RUNNERS * NUM_EVENTS);
+    assertThat(listener.getNumQueued()).isEqualTo(0);
+    assertThat(received).hasSize(NUM_RUNNERS);
+    for (final List<String> ids : received.values()) {
+      assertThat(ids).hasSize(NUM_EVENTS);
+      for (int i = 0; i < NUM_EVENTS; i++) {
+        assertThat(ids.get(i)).isEqualTo("" + i);
+      }
+    }
+  }
+
+  @Test
+  public void testSlowListenerDoesNotBlockFiring() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<Type> received = Collections.synchronizedList(new ArrayList<>());
+    final AsyncEventListener listener = new AsyncEventListener("slow", event -> {
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      received.add(event.getType());
+    }, 1, 16);
+
+    final EventHandler handler = new EventHandler();
+    handler.addListener(listener);
+    final Object runner = new Object();
+    handler.fireEventListeners(
+        Event.create(runner, Type.JOB_STARTED, new EventData(Status.RUNNING, "job")));
+    handler.fireEventListeners(
+        Event.create(runner, Type.JOB_FINISHED, new EventData(Status.SUCCEEDED, "job")));
+    assertThat(received).isEmpty();
+
+    Thread.sleep(50);
+    release.countDown();
+    awaitHandled(listener, 2);
+    assertThat(received).containsExactly(Type.JOB_STARTED, Type.JOB_FINISHED);
+    assertThat(listener.getMaxLagMs()).isGreaterThanOrEqualTo(0);
+    assertThat(listener.getLastLagMs()).isGreaterThanOrEqualTo(50);
+    assertThat(listener.getAverageLagMs()).isLessThanOrEqualTo(listener.getMaxLagMs());
+  }
+
+  @Test
+  public void testFailingListenerKeepsHandlingEvents() throws Exception {
+    final CountDownLatch handled = new CountDownLatch(2);
+    final AsyncEventListener listener = new AsyncEventListener("failing", event -> {
+      handled.countDown();
+      throw new IllegalStateException("expected");
+    }, 1, 1);
+
+    final Object runner = new Object();
+    listener.handleEvent(
+        Event.create(runner, Type.JOB_STARTED, new EventData(Status.RUNNING, "job")));
+    listener.handleEvent(
+        Event.create(runner, Type.JOB_FINISHED, new EventData(Status.FAILED, "job")));
+
+    assertThat(handled.await(10, TimeUnit.SECONDS)).isTrue();
+    awaitHandled(listener, 2);
+  }
+
+  @Test
+  public void testShutdownStopsThreads() throws Exception {
+    final List<Type> received = Collections.synchronizedList(new ArrayList<>());
+    final AsyncEventListener listener =
+        new AsyncEventListener("stopped", event -> received.add(event.getType()), 2, 4);
+
+    listener.shutdown();
+    assertThat(listener.awaitTermination(10000)).isTrue();
+
+    // Later events are handled on the caller's thread instead of waiting in a buffer.
+    listener.handleEvent(
+        Event.create(new Object(), Type.JOB_FINISHED, new EventData(Status.SUCCEEDED, "job")));
+    assertThat(received).containsExactly(Type.JOB_FINISHED);
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.flow.Flow;
+import azkaban.project.DirectoryFlowLoader;
+import azkaban.project.Project;
+import azkaban.test.executions.TestExecutions;
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Props;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutableFlowTemplateTest {
+
+  private Project project;
+  private Flow flow;
+
+  @Before
+  public void setUp() throws Exception {
+    this.project = new Project(11, "myTestProject");
+
+    final Logger logger = Logger.getLogger(this.getClass());
+    final DirectoryFlowLoader loader = new DirectoryFlowLoader(new Props(), logger);
+
+    loader.loadProjectFlow(this.project, TestExecutions.getFlowDir("embedded"));
+    assertThat(loader.getErrors()).isEmpty();
+
+    this.project.setFlows(loader.getFlowMap());
+    this.project.setVersion(123);
+    this.flow = this.project.getFlow("jobe");
+  }
+
+  @Test
+  public void testCloneMatchesFreshFlow() throws Exception {
+    final ExecutableFlowTemplate template =
+        ExecutableFlowTemplate.create(this.project, this.flow, null);
+
+    final ExecutableFlow clone = template.newExecutableFlow();
+    final ExecutableFlow fresh = new ExecutableFlow(this.project, this.flow);
+
+    assertThat(clone.getTemplate()).isSameAs(template);
+    assertThat(clone.toObject()).isEqualTo(fresh.toObject());
+    assertThat(template.newExecutableFlow()).isNotSameAs(clone);
+  }
+
+  @Test
+  public void testClonesDoNotShareState() throws Exception {
+    final ExecutableFlowTemplate template =
+        ExecutableFlowTemplate.create(this.project, this.flow, null);
+
+    final ExecutableFlow first = template.newExecutableFlow();
+    first.getExecutableNode("joba").setStatus(Status.SUCCEEDED);
+    first.getExecutableNodePath("jobb:innerJobA").setStatus(Status.FAILED);
+
+    final ExecutableFlow second = template.newExecutableFlow();
+    assertThat(second.getExecutableNode("joba").getStatus()).isEqualTo(Status.READY);
+    assertThat(second.getExecutableNodePath("jobb:innerJobA").getStatus())
+        .isEqualTo(Status.READY);
+  }
+
+  @Test
+  public void testCloneRoundTripsThroughJSON() throws Exception {
+    final List<Object> disabled = Arrays.asList("joba",
+        ImmutableMap.of("id", "jobb", "children", Arrays.asList("innerJobA")));
+    final ExecutableFlowTemplate template =
+        ExecutableFlowTemplate.create(this.project, this.flow, disabled);
+
+    final ExecutableFlow exflow = template.newExecutableFlow();
+    exflow.setExecutionId(42);
+    exflow.setSubmitUser("testUser");
+    exflow.setSubmitTime(1000L);
+    exflow.setStatus(Status.PREPARING);
+
+    // What the executor loader stores when the execution is uploaded.
+    final Object parsed = JSONUtils.parseJSONFromString(JSONUtils.toJSON(exflow.toObject()));
+    final ExecutableFlow loaded = ExecutableFlow.createExecutableFlowFromObject(parsed);
+    assertThat(loaded.toObject()).isEqualTo(exflow.toObject());
+    assertThat(loaded.getExecutableNode("joba").getStatus()).isEqualTo(Status.DISABLED);
+  }
+
+  @Test
+  public void testCacheAppliesDisabledJobs() throws Exception {
+    final ExecutableFlowTemplateCache cache = new ExecutableFlowTemplateCache(new Props());
+
+    final ExecutableFlow enabled = cache.newExecutableFlow(this.project, this.flow, null);
+    final ExecutableFlow disabled = cache.newExecutableFlow(this.project, this.flow,
+        Arrays.asList("joba"));
+
+    assertThat(enabled.getExecutableNode("joba").getStatus()).isEqualTo(Status.READY);
+    assertThat(disabled.getExecutableNode("joba").getStatus()).isEqualTo(Status.DISABLED);
+    assertThat(cache.size()).isEqualTo(2);
+
+    final ExecutableFlow again = cache.newExecutableFlow(this.project, this.flow, null);
+    assertThat(again.getTemplate()).isSameAs(enabled.getTemplate());
+    assertThat(again).isNotSameAs(enabled);
+  }
+
+  @Test
+  public void testCacheKeyedByVersion() throws Exception {
+    final ExecutableFlowTemplateCache cache = new ExecutableFlowTemplateCache(new Props());
+
+    final ExecutableFlow first = cache.newExecutableFlow(this.project, this.flow, null);
+    this.project.setVersion(124);
+    final ExecutableFlow second = cache.newExecutableFlow(this.project, this.flow, null);
+
+    assertThat(second.getTemplate()).isNotSameAs(first.getTemplate());
+    assertThat(second.getVersion()).isEqualTo(124);
+  }
+
+  @Test
+  public void testCacheKeyedByProjectMetadata() throws Exception {
+    final ExecutableFlowTemplateCache cache = new ExecutableFlowTemplateCache(new Props());
+    this.project.setLastModifiedUser("alice");
+    this.project.setLastModifiedTimestamp(1000L);
+
+    final ExecutableFlow first = cache.newExecutableFlow(this.project, this.flow, null);
+    assertThat(cache.newExecutableFlow(this.project, this.flow, null).getTemplate())
+        .isSameAs(first.getTemplate());
+
+    // E.g. permissions were changed, which doesn't upload a new version.
+    this.project.setLastModifiedUser("bob");
+    this.project.setLastModifiedTimestamp(2000L);
+    final ExecutableFlow second = cache.newExecutableFlow(this.project, this.flow, null);
+
+    assertThat(second.getTemplate()).isNotSameAs(first.getTemplate());
+    assertThat(second.toObject())
+        .isEqualTo(new ExecutableFlow(this.project, this.flow).toObject());
+    assertThat(second.getLastModifiedByUser()).isEqualTo("bob");
+    assertThat(second.getLastModifiedTimestamp()).isEqualTo(2000L);
+  }
+
+  @Test
+  public void testInvalidateProject() throws Exception {
+    final ExecutableFlowTemplateCache cache = new ExecutableFlowTemplateCache(new Props());
+
+    cache.newExecutableFlow(this.project, this.flow, null);
+    cache.newExecutableFlow(this.project, this.project.getFlow("innerFlow"), null);
+    assertThat(cache.size()).isEqualTo(2);
+
+    cache.invalidateProject(this.project.getId() + 1);
+    assertThat(cache.size()).isEqualTo(2);
+
+    cache.invalidateProject(this.project.getId());
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testDisabledCache() throws Exception {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_FLOW_TEMPLATE_CACHE_SIZE, 0);
+    final ExecutableFlowTemplateCache cache = new ExecutableFlowTemplateCache(props);
+
+    final ExecutableFlow exflow = cache.newExecutableFlow(this.project, this.flow, null);
+    assertThat(exflow.getTemplate()).isNull();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+}
@@ -405,6 +405,31 @@ public class ExecutableFlowTest {
     Assert.assertNull(updateObject.get("nodes"));
   }
 
+  @Test
+  public void testInputPropsSnapshotFollowsInputProps() throws Exception {
+    final ExecutableFlow exFlow = new ExecutableFlow(this.project, this.project.getFlow("jobe"));
+    Assert.assertNull(exFlow.getInputPropsSnapshot());
+
+    final Props parent = new Props();
+    parent.put("a", "1");
+    final Props input = new Props(parent);
+    input.put("b", "2");
+    exFlow.setInputProps(input);
+
+    final Props snapshot = exFlow.getInputPropsSnapshot();
+    Assert.assertNull(snapshot.getParent());
+    Assert.assertEquals("1", snapshot.get("a"));
+    Assert.assertEquals("2", snapshot.get("b"));
+    Assert.assertSame(snapshot, exFlow.getInputPropsSnapshot());
+
+    // Replaced input props, e.g. of a retried embedded flow, drop the old snapshot.
+    final Props replaced = new Props();
+    replaced.put("c", "3");
+    exFlow.setInputProps(replaced);
+    Assert.assertNull(exFlow.getInputPropsSnapshot().get("a"));
+    Assert.assertEquals("3", exFlow.getInputPropsSnapshot().get("c"));
+  }
+
   private void assertNotNull(final ExecutableNode... nodes) {
     for (final ExecutableNode node : nodes) {
       Assert.assertNotNull(node);
@@ -115,6 +115,36 @@ public class ExecutionFlowDaoTest {
     assertTwoFlowSame(flowList1.get(0), fetchFlow);
   }
 
+  @Test
+  public void fetchExecutionSummaries() throws Exception {
+    final ExecutableFlow flow = createTestFlow();
+    flow.setSubmitUser("summaryUser");
+    this.executionFlowDao.uploadExecutableFlow(flow);
+    flow.setStatus(Status.SUCCEEDED);
+    flow.setStartTime(100);
+    flow.setEndTime(200);
+    this.executionFlowDao.updateExecutableFlow(flow);
+
+    final List<ExecutionSummary> all = this.executionFlowDao.fetchExecutionSummaries(0, 2);
+    assertThat(all).hasSize(1);
+    final ExecutionSummary summary = all.get(0);
+    assertThat(summary.getExecutionId()).isEqualTo(flow.getExecutionId());
+    assertThat(summary.getProjectId()).isEqualTo(flow.getProjectId());
+    assertThat(summary.getVersion()).isEqualTo(flow.getVersion());
+    assertThat(summary.getFlowId()).isEqualTo(flow.getFlowId());
+    assertThat(summary.getStatus()).isEqualTo(Status.SUCCEEDED);
+    assertThat(summary.getSubmitUser()).isEqualTo("summaryUser");
+    assertThat(summary.getStartTime()).isEqualTo(100);
+    assertThat(summary.getEndTime()).isEqualTo(200);
+
+    assertThat(this.executionFlowDao
+        .fetchExecutionSummaries(flow.getProjectId(), flow.getFlowId(), 0, 2)).hasSize(1);
+    assertThat(this.executionFlowDao.fetchExecutionSummaries(flow.getProjectId(),
+        flow.getFlowId(), 0, 2, Status.SUCCEEDED)).hasSize(1);
+    assertThat(this.executionFlowDao.fetchExecutionSummaries(flow.getProjectId(),
+        flow.getFlowId(), 0, 2, Status.FAILED)).isEmpty();
+  }
+
   private void assertTwoFlowSame(final ExecutableFlow flow1, final ExecutableFlow flow2) {
     assertThat(flow1.getExecutionId()).isEqualTo(flow2.getExecutionId());
     assertThat(flow1.getStatus()).isEqualTo(flow2.getStatus());
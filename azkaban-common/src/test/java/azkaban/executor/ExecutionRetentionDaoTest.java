@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.db.DatabaseOperator;
+import azkaban.executor.ExecutionRetentionDao.Table;
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import azkaban.test.Utils;
+import azkaban.utils.Props;
+import com.codahale.metrics.MetricRegistry;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ExecutionRetentionDaoTest {
+
+  private static DatabaseOperator dbOperator;
+  private final List<Long> batches = new ArrayList<>();
+  private MetricRegistry registry;
+  private ExecutionRetentionDao retentionDao;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dbOperator = Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Before
+  public void setup() {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_RETENTION_BATCH_SIZE, 2);
+    props.put(ConfigurationKeys.AZKABAN_RETENTION_BATCH_PAUSE_MS, 0);
+    this.registry = new MetricRegistry();
+    this.retentionDao = new ExecutionRetentionDao(dbOperator, props,
+        new CommonMetrics(new MetricsManager(this.registry)) {
+          @Override
+          public void markRetentionDeletes(final String table, final long rows) {
+            ExecutionRetentionDaoTest.this.batches.add(rows);
+            super.markRetentionDeletes(table, rows);
+          }
+        });
+  }
+
+  @After
+  public void clearDB() {
+    try {
+      dbOperator.update("DELETE FROM execution_logs");
+      dbOperator.update("DELETE FROM execution_jobs");
+      dbOperator.update("DELETE FROM execution_flows");
+      dbOperator.update("DELETE FROM executor_events");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static void insertLog(final int execId, final long uploadTime) throws SQLException {
+    insertLog(execId, 0, uploadTime);
+  }
+
+  private static void insertLog(final int execId, final int startByte, final long uploadTime)
+      throws SQLException {
+    dbOperator.update("INSERT INTO execution_logs (exec_id, name, attempt, enc_type, start_byte, "
+        + "end_byte, upload_time) VALUES (?,'job',0,0,?,?,?)", execId, startByte, startByte + 10,
+        uploadTime);
+  }
+
+  private static void insertExecution(final int execId, final long submitTime,
+      final long endTime) throws SQLException {
+    dbOperator.update("INSERT INTO execution_flows (exec_id, project_id, flow_id, version, "
+            + "status, submit_user, submit_time, update_time, start_time, end_time) "
+            + "VALUES (?,1,'flow',1,?,'azkaban',?,?,?,?)", execId,
+        Status.SUCCEEDED.getNumVal(), submitTime, endTime, submitTime, endTime);
+    dbOperator.update("INSERT INTO execution_jobs (exec_id, project_id, version, flow_id, "
+        + "job_id, attempt, start_time, end_time, status) VALUES (?,1,1,'flow','job',0,?,?,?)",
+        execId, submitTime, endTime, Status.SUCCEEDED.getNumVal());
+  }
+
+  private static void insertEvent(final int executorId, final long time) throws SQLException {
+    dbOperator.update("INSERT INTO executor_events (executor_id, event_type, event_time, "
+        + "username, message) VALUES (?,1,?,'azkaban','event')", executorId, new Date(time));
+  }
+
+  private static List<Integer> execIds(final String table) throws SQLException {
+    return dbOperator.query("SELECT DISTINCT exec_id FROM " + table + " ORDER BY exec_id", rs -> {
+      final List<Integer> ids = new ArrayList<>();
+      while (rs.next()) {
+        ids.add(rs.getInt(1));
+      }
+      return ids;
+    });
+  }
+
+  @Test
+  public void testRemoveLogsInBatches() throws Exception {
+    for (int i = 1; i <= 5; i++) {
+      insertLog(i, i * 100);
+    }
+    // A gap in the execution ids.
+    insertLog(20, 2000);
+
+    assertThat(this.retentionDao.removeByTime(Table.EXECUTION_LOGS, 350, Long.MAX_VALUE))
+        .isEqualTo(3);
+    assertThat(execIds("execution_logs")).containsExactly(4, 5, 20);
+    assertThat(this.retentionDao.removeByTime(Table.EXECUTION_LOGS, 1500, Long.MAX_VALUE))
+        .isEqualTo(2);
+    assertThat(execIds("execution_logs")).containsExactly(20);
+    assertThat(this.registry.meter("retention-execution_logs-deleted-rows").getCount())
+        .isEqualTo(5);
+  }
+
+  @Test
+  public void testDeletesAreLimitedByRows() throws Exception {
+    // One execution with more log pieces than the batch size.
+    for (int i = 0; i < 5; i++) {
+      insertLog(1, i * 10, 100);
+    }
+    insertLog(2, 200);
+
+    assertThat(this.retentionDao.removeByTime(Table.EXECUTION_LOGS, 1000, Long.MAX_VALUE))
+        .isEqualTo(6);
+    assertThat(execIds("execution_logs")).isEmpty();
+    assertThat(this.batches).containsExactly(2L, 2L, 2L, 0L);
+  }
+
+  @Test
+  public void testRemoveFinishedExecutionsWithJobs() throws Exception {
+    insertExecution(1, 100, 150);
+    // Still running.
+    insertExecution(2, 200, -1);
+    insertExecution(3, 300, 350);
+    insertExecution(4, 400, 1000);
+    insertExecution(5, 500, 550);
+
+    assertThat(this.retentionDao.removeByTime(Table.EXECUTIONS, 600, Long.MAX_VALUE))
+        .isEqualTo(6);
+    assertThat(execIds("execution_flows")).containsExactly(2, 4);
+    assertThat(execIds("execution_jobs")).containsExactly(2, 4);
+  }
+
+  @Test
+  public void testRemoveExecutorEvents() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      insertEvent(1, i * 1000);
+      insertEvent(2, i * 1000);
+    }
+
+    assertThat(this.retentionDao.removeByTime(Table.EXECUTOR_EVENTS, 3500, Long.MAX_VALUE))
+        .isEqualTo(8);
+    final int remaining = dbOperator.query("SELECT COUNT(*) FROM executor_events", rs -> {
+      rs.next();
+      return rs.getInt(1);
+    });
+    assertThat(remaining).isEqualTo(2);
+  }
+
+  @Test
+  public void testStopAtDeadline() throws Exception {
+    for (int i = 1; i <= 5; i++) {
+      insertLog(i, i * 100);
+    }
+
+    assertThat(this.retentionDao.removeByTime(Table.EXECUTION_LOGS, 1000, 0)).isEqualTo(0);
+    assertThat(execIds("execution_logs")).containsExactly(1, 2, 3, 4, 5);
+    assertThat(this.registry.getGauges().get("retention-execution_logs-backlog").getValue())
+        .isEqualTo(1L);
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.test.Utils;
+import azkaban.utils.TestUtils;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ExecutionSearchDaoTest {
+
+  private static DatabaseOperator dbOperator;
+  private ExecutionSearchDao searchDao;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dbOperator = Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Before
+  public void setup() {
+    this.searchDao = new ExecutionSearchDao(dbOperator);
+  }
+
+  @After
+  public void clearDB() {
+    try {
+      dbOperator.update("DELETE FROM execution_flows");
+      dbOperator.update("DELETE FROM execution_search_keys");
+      dbOperator.update("DELETE FROM projects");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static void insertExecution(final int projectId, final String flowId,
+      final String user, final Status status, final long startTime) throws SQLException {
+    dbOperator.update("INSERT INTO execution_flows (project_id, flow_id, version, status, "
+            + "submit_user, submit_time, update_time, start_time, end_time) "
+            + "VALUES (?,?,1,?,?,?,?,?,?)", projectId, flowId, status.getNumVal(), user,
+        startTime, startTime, startTime, startTime + 10);
+  }
+
+  private static void insertProject(final int id, final String name) throws SQLException {
+    dbOperator.update("INSERT INTO projects (id, name, active, modified_time, create_time, "
+        + "last_modified_by) VALUES (?,?,true,0,0,'azkaban')", id, name);
+  }
+
+  private static List<Integer> ids(final List<ExecutionSummary> summaries) {
+    final List<Integer> ids = new ArrayList<>();
+    for (final ExecutionSummary summary : summaries) {
+      ids.add(summary.getExecutionId());
+    }
+    return ids;
+  }
+
+  private List<Integer> allExecIds() throws SQLException {
+    return dbOperator.query("SELECT exec_id FROM execution_flows ORDER BY exec_id DESC", rs -> {
+      final List<Integer> ids = new ArrayList<>();
+      while (rs.next()) {
+        ids.add(rs.getInt(1));
+      }
+      return ids;
+    });
+  }
+
+  @Test
+  public void testSearchByFlowUserAndProject() throws Exception {
+    insertProject(1, "ads-reporting");
+    insertProject(2, "search-indexing");
+    insertExecution(1, "daily_rollup", "alice", Status.SUCCEEDED, 1000);
+    insertExecution(2, "daily_index", "bob", Status.FAILED, 2000);
+    insertExecution(1, "hourly_rollup", "bob", Status.SUCCEEDED, 3000);
+    insertExecution(1, "daily_rollup", "bob", Status.SUCCEEDED, 4000);
+    assertThat(this.searchDao.rebuild()).isEqualTo(4);
+    final List<Integer> execIds = allExecIds();
+
+    assertThat(ids(this.searchDao.search(null, "rollup", null, 0, -1, -1, -1, 0, 10)))
+        .containsExactly(execIds.get(0), execIds.get(1), execIds.get(3));
+    assertThat(ids(this.searchDao.search(null, "rollup", "bo", 0, -1, -1, -1, 0, 10)))
+        .containsExactly(execIds.get(0), execIds.get(1));
+    assertThat(ids(this.searchDao.search("index", null, null, 0, -1, -1, -1, 0, 10)))
+        .containsExactly(execIds.get(2));
+    assertThat(ids(this.searchDao.search("ads", "daily", null, 0, 2500, -1, -1, 0, 10)))
+        .containsExactly(execIds.get(0));
+    assertThat(ids(this.searchDao.search(null, "daily", null, Status.FAILED.getNumVal(), -1,
+        -1, -1, 0, 10))).containsExactly(execIds.get(2));
+    assertThat(this.searchDao.search(null, "weekly", null, 0, -1, -1, -1, 0, 10)).isEmpty();
+  }
+
+  @Test
+  public void testKeysetPagination() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      insertExecution(1, i % 2 == 0 ? "flow_even" : "flow_odd", "alice", Status.SUCCEEDED,
+          i * 1000);
+    }
+    this.searchDao.rebuild();
+    final List<Integer> execIds = allExecIds();
+
+    final List<ExecutionSummary> first =
+        this.searchDao.search(null, "flow_", null, 0, -1, -1, -1, 0, 4);
+    assertThat(ids(first)).isEqualTo(execIds.subList(0, 4));
+    final List<ExecutionSummary> second = this.searchDao.search(null, "flow_", null, 0, -1, -1,
+        first.get(3).getExecutionId(), 0, 4);
+    assertThat(ids(second)).isEqualTo(execIds.subList(4, 8));
+    // Offsets still work for jumping to a page.
+    assertThat(ids(this.searchDao.search(null, "flow_", null, 0, -1, -1, -1, 8, 4)))
+        .isEqualTo(execIds.subList(8, 10));
+  }
+
+  @Test
+  public void testUnselectiveTermScansExecutions() throws Exception {
+    for (int i = 0; i <= ExecutionSearchDao.MAX_KEYS_PER_SEARCH; i++) {
+      insertExecution(1, "etl_" + i, "alice", Status.SUCCEEDED, i);
+    }
+    insertExecution(1, "report", "alice", Status.SUCCEEDED, 100);
+    this.searchDao.rebuild();
+    final List<Integer> execIds = allExecIds();
+
+    final List<ExecutionSummary> page =
+        this.searchDao.search(null, "etl_", null, 0, -1, -1, -1, 0, 5);
+    assertThat(ids(page)).isEqualTo(execIds.subList(1, 6));
+    assertThat(ids(this.searchDao.search(null, "etl_", null, 0, -1, -1,
+        page.get(4).getExecutionId(), 0, 5))).isEqualTo(execIds.subList(6, 11));
+  }
+
+  @Test
+  public void testScanOfUnselectiveTermIsBounded() throws Exception {
+    for (int i = 0; i <= ExecutionSearchDao.MAX_KEYS_PER_SEARCH; i++) {
+      insertExecution(1, "etl_" + i, "alice", Status.SUCCEEDED, i);
+    }
+    for (int i = 0; i < 20; i++) {
+      insertExecution(1, "report", "alice", Status.SUCCEEDED, 100 + i);
+    }
+    this.searchDao.rebuild();
+    final List<Integer> execIds = allExecIds();
+    // Scans 5 execution ids at a time, 10 at most.
+    final ExecutionSearchDao boundedDao = new ExecutionSearchDao(dbOperator, 5, 10);
+
+    // The etl executions are older than the 10 most recent ones.
+    assertThat(boundedDao.search(null, "etl_", null, 0, -1, -1, -1, 0, 5)).isEmpty();
+    // Paging before them finds them.
+    assertThat(ids(boundedDao.search(null, "etl_", null, 0, -1, -1, execIds.get(19), 0, 5)))
+        .isEqualTo(execIds.subList(20, 25));
+  }
+
+  @Test
+  public void testUploadedExecutionsAreSearchable() throws Exception {
+    final ExecutionFlowDao flowDao = new ExecutionFlowDao(dbOperator);
+    final ExecutableFlow flow = TestUtils.createExecutableFlow("exectest1", "exec1");
+    flow.setSubmitUser("carol");
+    flowDao.uploadExecutableFlow(flow);
+    this.searchDao.addExecution(flow);
+    final ExecutableFlow flow2 = TestUtils.createExecutableFlow("exectest1", "exec1");
+    flow2.setSubmitUser("carol");
+    flowDao.uploadExecutableFlow(flow2);
+    this.searchDao.addExecution(flow2);
+
+    final List<ExecutionSummary> found =
+        this.searchDao.search(null, flow.getFlowId(), "car", 0, -1, -1, -1, 0, 10);
+    assertThat(ids(found)).containsExactly(flow2.getExecutionId(), flow.getExecutionId());
+    // Already indexed.
+    assertThat(this.searchDao.rebuild()).isEqualTo(0);
+  }
+}
@@ -217,6 +217,33 @@ public class MockExecutorLoader implements ExecutorLoader {
     return null;
   }
 
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int skip, final int num)
+      throws ExecutorManagerException {
+    return null;
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int projectId,
+      final String flowId, final int skip, final int num) throws ExecutorManagerException {
+    return null;
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int projectId,
+      final String flowId, final int skip, final int num, final Status status)
+      throws ExecutorManagerException {
+    return null;
+  }
+
+  @Override
+  public List<ExecutionSummary> searchExecutions(final String projContain,
+      final String flowContains, final String userNameContains, final int status,
+      final long startTime, final long endTime, final int beforeExecId, final int skip,
+      final int num) throws ExecutorManagerException {
+    return null;
+  }
+
   @Override
   public List<ExecutableJobInfo> fetchJobHistory(final int projectId, final String jobId,
       final int skip, final int size) throws ExecutorManagerException {
@@ -266,6 +293,12 @@ public class MockExecutorLoader implements ExecutorLoader {
     return 0;
   }
 
+  @Override
+  public int removeExecutionDataByTime(final ExecutionRetentionDao.Table table, final long millis,
+      final long deadline) throws ExecutorManagerException {
+    return 0;
+  }
+
   @Override
   public List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId,
       final int skip, final int num, final Status status) throws ExecutorManagerException {
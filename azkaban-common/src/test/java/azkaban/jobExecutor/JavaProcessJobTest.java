@@ -16,6 +16,8 @@
 
 package azkaban.jobExecutor;
 
+import azkaban.jobExecutor.utils.process.JvmWorkerPool;
+import azkaban.jobExecutor.utils.process.PooledJavaProcess;
 import azkaban.utils.Props;
 import java.io.File;
 import java.io.IOException;
@@ -90,6 +92,7 @@ public class JavaProcessJobTest {
 
   @AfterClass
   public static void cleanup() {
+    JvmWorkerPool.getInstance().shutdown();
     classTemp.delete();
   }
 
@@ -147,4 +150,69 @@ public class JavaProcessJobTest {
       Assert.assertTrue(true);
     }
   }
+
+  @Test
+  public void testJavaJobInWorkerPool() throws Exception {
+    this.props.put(JavaProcessJob.JVM_WORKER_POOL_ENABLED, "true");
+    this.props.put(JavaProcessJob.JVM_WORKER_POOL, "true");
+    this.props.put(JavaProcessJob.JAVA_CLASS, "azkaban.jobExecutor.WordCountLocal");
+    this.props.put("input", inputFile);
+    this.props.put("output", outputFile);
+    this.props.put("classpath", classPaths);
+    this.job.run();
+    Assert.assertTrue(this.job.getProcess() instanceof PooledJavaProcess);
+    Assert.assertTrue(this.job.isSuccess());
+    final int workerId = this.job.getProcessId();
+
+    // The second job runs in the same worker, with its own job properties.
+    final JavaProcessJob secondJob =
+        new JavaProcessJob("testJavaProcess2", this.props, this.props, this.log);
+    secondJob.run();
+    Assert.assertTrue(secondJob.isSuccess());
+    Assert.assertEquals(workerId, secondJob.getProcessId());
+  }
+
+  @Test
+  public void testFailedJavaJobInWorkerPool() throws Exception {
+    this.props.put(JavaProcessJob.JVM_WORKER_POOL_ENABLED, "true");
+    this.props.put(JavaProcessJob.JVM_WORKER_POOL, "true");
+    this.props.put(JavaProcessJob.JAVA_CLASS, "azkaban.jobExecutor.NoSuchJob");
+    this.props.put("classpath", classPaths);
+
+    try {
+      this.job.run();
+      Assert.fail("The job should have failed.");
+    } catch (final RuntimeException e) {
+      Assert.assertFalse(this.job.isSuccess());
+    }
+    // A failed job doesn't take its worker down.
+    Assert.assertTrue(JvmWorkerPool.getInstance().getNumIdleWorkers() > 0);
+  }
+
+  @Test
+  public void testCancelJavaJobInWorkerPool() throws Exception {
+    this.props.put(JavaProcessJob.JVM_WORKER_POOL_ENABLED, "true");
+    this.props.put(JavaProcessJob.JVM_WORKER_POOL, "true");
+    this.props.put(JavaProcessJob.JAVA_CLASS, "azkaban.executor.SleepJavaJob");
+    this.props.put("seconds", 60);
+    this.props.put("classpath", classPaths);
+
+    final Thread jobThread = new Thread(() -> {
+      try {
+        this.job.run();
+      } catch (final Exception e) {
+        // Cancelled.
+      }
+    });
+    jobThread.start();
+    for (int i = 0; i < 200 && this.job.getProcess() == null; i++) {
+      Thread.sleep(50);
+    }
+    Assert.assertTrue(this.job.getProcess() instanceof PooledJavaProcess);
+
+    this.job.cancel();
+    jobThread.join(10000);
+    Assert.assertFalse(jobThread.isAlive());
+    Assert.assertFalse(this.job.isSuccess());
+  }
 }
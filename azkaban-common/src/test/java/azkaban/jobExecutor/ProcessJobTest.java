@@ -19,9 +19,14 @@ package azkaban.jobExecutor;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import azkaban.flow.CommonJobProperties;
+import azkaban.jobExecutor.utils.process.ProcessResourceSampler;
 import azkaban.utils.Props;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -29,6 +34,7 @@ import java.util.concurrent.Future;
 import org.apache.log4j.Logger;
 import org.junit.After;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -227,6 +233,45 @@ public class ProcessJobTest {
     assertThat(this.job.isSuccess()).isFalse();
   }
 
+  @Test
+  public void testCancelKillsChildProcesses() throws Exception {
+    final File procDir = new File("/proc");
+    Assume.assumeTrue(procDir.isDirectory());
+    this.props.put(ProcessJob.COMMAND, "bash -c 'sleep 60 & sleep 61'");
+
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    final Future future = executorService.submit(() -> {
+      try {
+        this.job.run();
+      } catch (final Exception e) {
+        e.printStackTrace();
+      }
+    });
+    while (this.job.getProcess() == null) {
+      Thread.sleep(1);
+    }
+    this.job.getProcess().awaitStartup();
+    List<Integer> children = Collections.emptyList();
+    while (children.size() < 2) {
+      Thread.sleep(10);
+      children = ProcessResourceSampler.getInstance().listDescendants(this.job.getProcessId());
+    }
+
+    final long startMs = System.currentTimeMillis();
+    this.job.cancel();
+    future.get();
+    assertThat(System.currentTimeMillis() - startMs).isLessThan(10000);
+    for (final int child : children) {
+      // The orphaned children may linger as zombies.
+      final File stat = new File(procDir, child + "/stat");
+      while (stat.exists() && !new String(Files.readAllBytes(stat.toPath()),
+          StandardCharsets.US_ASCII).contains(") Z ")) {
+        assertThat(System.currentTimeMillis() - startMs).isLessThan(10000);
+        Thread.sleep(10);
+      }
+    }
+  }
+
   static class SleepBeforeRunJob extends ProcessJob implements Runnable {
 
     public SleepBeforeRunJob(final String jobId, final Props sysProps, final Props jobProps,
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.log4j.Logger;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AzkabanProcessTest {
+
+  private static final Logger logger = Logger.getLogger(AzkabanProcessTest.class);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Before
+  public void setUp() throws Exception {
+    azkaban.test.Utils.initServiceProvider();
+  }
+
+  private static boolean isAlive(final int pid) {
+    return !ProcessResourceSampler.getInstance()
+        .readStartTimes(Collections.singletonList(pid)).isEmpty();
+  }
+
+  /**
+   * The process exits on SIGTERM, but its child ignores it and outlives it.
+   */
+  @Test
+  public void testChildSurvivingTermIsKilled() throws Exception {
+    Assume.assumeTrue(new File("/proc/self/stat").exists());
+    final AzkabanProcess process = new AzkabanProcess(
+        Arrays.asList("bash", "-c", "(trap '' TERM; exec sleep 60) & wait"),
+        Collections.emptyMap(), this.temp.getRoot().getAbsolutePath(), logger);
+    final Thread runner = new Thread(() -> {
+      try {
+        process.run();
+      } catch (final Exception e) {
+        // Killed.
+      }
+    });
+    runner.start();
+    process.awaitStartup();
+
+    List<Integer> children = Collections.emptyList();
+    for (int i = 0; i < 100 && children.isEmpty(); i++) {
+      Thread.sleep(50);
+      children = ProcessResourceSampler.getInstance().listDescendants(process.getProcessId());
+    }
+    assertThat(children).hasSize(1);
+    final int child = children.get(0);
+
+    process.kill(Duration.ofMillis(500));
+    runner.join(10000);
+    assertThat(process.isComplete()).isTrue();
+    assertThat(isAlive(child)).isTrue();
+
+    for (int i = 0; i < 100 && isAlive(child); i++) {
+      Thread.sleep(50);
+    }
+    assertThat(isAlive(child)).isFalse();
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JvmWorkerPoolTest {
+
+  private static final List<String> LAUNCH_COMMAND = Arrays.asList("java", "-Xmx1G");
+  private static final long MODIFIED = 1500000000000L;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File createJobDir(final String execDir, final String jar) throws Exception {
+    final File dir = this.temp.newFolder(execDir, "project");
+    final File file = new File(dir, "lib/" + jar);
+    FileUtils.writeStringToFile(file, "jar", StandardCharsets.UTF_8);
+    file.setLastModified(MODIFIED);
+    return dir;
+  }
+
+  private static String createKey(final File cwd, final String... classpath) {
+    return JvmWorkerPool.createKey("java", LAUNCH_COMMAND, cwd.getPath(),
+        Arrays.asList(classpath));
+  }
+
+  @Test
+  public void testExecutionsOfTheSameJobShareKey() throws Exception {
+    final File cwd1 = createJobDir("1", "job.jar");
+    final File cwd2 = createJobDir("2", "job.jar");
+
+    assertThat(createKey(cwd1, "lib/job.jar")).isEqualTo(createKey(cwd2, "lib/job.jar"));
+    assertThat(createKey(cwd1, "lib/*")).isEqualTo(createKey(cwd2, "lib/*"));
+    // As JavaProcessJob passes them, resolved against the cwd.
+    assertThat(createKey(cwd1, new File(cwd1, "lib/job.jar").getPath()))
+        .isEqualTo(createKey(cwd2, new File(cwd2, "lib/job.jar").getPath()))
+        .isEqualTo(createKey(cwd1, "lib/job.jar"));
+  }
+
+  @Test
+  public void testChangedJarChangesKey() throws Exception {
+    final File cwd1 = createJobDir("1", "job.jar");
+    final File cwd2 = createJobDir("2", "job.jar");
+    new File(cwd2, "lib/job.jar").setLastModified(MODIFIED + 1000);
+    final File cwd3 = createJobDir("3", "other.jar");
+
+    assertThat(createKey(cwd1, "lib/*")).isNotEqualTo(createKey(cwd2, "lib/*"));
+    assertThat(createKey(cwd1, "lib/*")).isNotEqualTo(createKey(cwd3, "lib/*"));
+  }
+
+  @Test
+  public void testIdleWorkersExpireWithoutLease() throws Exception {
+    final JvmWorkerPool pool = new JvmWorkerPool(2, 100, 20);
+    // Stands in for a worker JVM, only its liveness matters to the pool.
+    final JvmWorkerPool.Worker worker = pool.lease("key", Arrays.asList("sleep", "60"));
+    pool.release(worker, true);
+
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (pool.isReaperRunning() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(pool.isReaperRunning()).isFalse();
+    assertThat(pool.getNumIdleWorkers()).isEqualTo(0);
+    assertThat(worker.isReusable()).isFalse();
+  }
+
+  @Test
+  public void testShutdownStopsReaper() throws Exception {
+    final JvmWorkerPool pool = new JvmWorkerPool(2, 100, 60000);
+    final JvmWorkerPool.Worker worker = pool.lease("key", Arrays.asList("sleep", "60"));
+    pool.release(worker, true);
+    assertThat(pool.isReaperRunning()).isTrue();
+
+    pool.shutdown();
+    assertThat(pool.isReaperRunning()).isFalse();
+    assertThat(pool.getNumIdleWorkers()).isEqualTo(0);
+    assertThat(worker.isReusable()).isFalse();
+  }
+}
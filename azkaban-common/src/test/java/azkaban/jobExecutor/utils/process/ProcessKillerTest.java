@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.jobExecutor.utils.process.ProcessKiller.Request;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class ProcessKillerTest {
+
+  @Test
+  public void testRequestsAreBatchedBySignalAndUser() throws Exception {
+    final List<Request> batch = Arrays.asList(
+        new Request(Arrays.asList(10, 11), false, null, null),
+        new Request(Arrays.asList(20), false, "/bin/execute-as-user", "alice"),
+        new Request(Arrays.asList(12, 11), false, null, null),
+        new Request(Arrays.asList(30), true, null, null),
+        new Request(Arrays.asList(21), false, "/bin/execute-as-user", "alice"),
+        new Request(Arrays.asList(40), false, "/bin/execute-as-user", "bob"));
+
+    assertThat(ProcessKiller.createCommands(batch)).containsExactly(
+        Arrays.asList("kill", "-15", "10", "11", "12"),
+        Arrays.asList("/bin/execute-as-user", "alice", "kill", "-15", "20", "21"),
+        Arrays.asList("kill", "-9", "30"),
+        Arrays.asList("/bin/execute-as-user", "bob", "kill", "-15", "40"));
+  }
+
+  @Test
+  public void testLargeBatchesAreSplit() throws Exception {
+    final List<Integer> pids = new ArrayList<>();
+    for (int pid = 1; pid <= 300; pid++) {
+      pids.add(pid);
+    }
+    final List<List<String>> commands =
+        ProcessKiller.createCommands(Arrays.asList(new Request(pids, true, null, null)));
+
+    assertThat(commands).hasSize(2);
+    assertThat(commands.get(0)).hasSize(2 + 256);
+    assertThat(commands.get(1)).hasSize(2 + 44).endsWith("300");
+  }
+}
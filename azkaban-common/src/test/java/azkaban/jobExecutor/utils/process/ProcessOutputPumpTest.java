@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.Constants;
+import azkaban.utils.Props;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProcessOutputPumpTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private StringWriter logOutput;
+  private Logger logger;
+
+  private static InputStream stream(final String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    azkaban.test.Utils.initServiceProvider();
+    this.logOutput = new StringWriter();
+    this.logger = Logger.getLogger("ProcessOutputPumpTest-" + System.nanoTime());
+    this.logger.setAdditivity(false);
+    this.logger.addAppender(new WriterAppender(new PatternLayout("%m%n"), this.logOutput));
+  }
+
+  @Test
+  public void testLinesAreLoggedAndTailKept() throws Exception {
+    final ProcessOutputPump pump = new ProcessOutputPump(1, 4, 1, 100, 16);
+    final ProcessOutputPump.Source source =
+        pump.register(stream("one\ntwo\r\nthree\nfour"), this.logger, Level.INFO, 2);
+    source.processExited();
+
+    assertThat(source.awaitCompletion(5000)).isTrue();
+    assertThat(this.logOutput.toString()).isEqualTo("one\ntwo\nthree\nfour\n");
+    assertThat(source.getRecentLog()).isEqualTo("three" + System.lineSeparator() + "four");
+  }
+
+  @Test
+  public void testNotCompleteUntilProcessExited() throws Exception {
+    final ProcessOutputPump pump = new ProcessOutputPump(1, 1024, 1, 100, 16);
+    final ProcessOutputPump.Source source =
+        pump.register(stream("line\n"), this.logger, Level.INFO, 30);
+
+    // ByteArrayInputStream never blocks, so without the exit signal an empty stream just means
+    // no new output yet.
+    assertThat(source.awaitCompletion(100)).isFalse();
+    source.processExited();
+    assertThat(source.awaitCompletion(5000)).isTrue();
+  }
+
+  @Test
+  public void testNoisyStreamDoesNotStarveOthers() throws Exception {
+    final ProcessOutputPump pump = new ProcessOutputPump(1, 1024, 1, 100, 16);
+    // Never runs out of output until stopped.
+    final AtomicBoolean stopped = new AtomicBoolean(false);
+    final InputStream noisy = new InputStream() {
+      @Override
+      public int read() {
+        return 'x';
+      }
+
+      @Override
+      public int available() {
+        return stopped.get() ? 0 : 1024 * 1024;
+      }
+    };
+    final ProcessOutputPump.Source noisySource = pump.register(noisy, null, Level.INFO, 30);
+    final ProcessOutputPump.Source quiet =
+        pump.register(stream("done\n"), this.logger, Level.INFO, 30);
+    quiet.processExited();
+
+    assertThat(quiet.awaitCompletion(5000)).isTrue();
+    assertThat(quiet.getRecentLog()).isEqualTo("done");
+    assertThat(noisySource.isComplete()).isFalse();
+    stopped.set(true);
+    noisySource.processExited();
+    assertThat(noisySource.awaitCompletion(5000)).isTrue();
+  }
+
+  @Test
+  public void testSlowSinkOnlyHoldsUpItsOwnStream() throws Exception {
+    final ProcessOutputPump pump = new ProcessOutputPump(1, 4, 1, 100, 2);
+    final CountDownLatch sinkBlocked = new CountDownLatch(1);
+    final CountDownLatch unblockSink = new CountDownLatch(1);
+    final Logger slowLogger = Logger.getLogger("ProcessOutputPumpTest-slow-" + System.nanoTime());
+    slowLogger.setAdditivity(false);
+    slowLogger.addAppender(new AppenderSkeleton() {
+      @Override
+      protected void append(final LoggingEvent event) {
+        sinkBlocked.countDown();
+        try {
+          unblockSink.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      @Override
+      public void close() {
+      }
+
+      @Override
+      public boolean requiresLayout() {
+        return false;
+      }
+    });
+    final StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      lines.append("ab\n");
+    }
+    final ByteArrayInputStream slowInput =
+        new ByteArrayInputStream(lines.toString().getBytes(StandardCharsets.UTF_8));
+    final ProcessOutputPump.Source slow =
+        pump.register(slowInput, slowLogger, Level.INFO, 30);
+    slow.processExited();
+    assertThat(sinkBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+    // The same pump thread still serves other streams.
+    final ProcessOutputPump.Source quiet =
+        pump.register(stream("done\n"), this.logger, Level.INFO, 30);
+    quiet.processExited();
+    assertThat(quiet.awaitCompletion(5000)).isTrue();
+    assertThat(this.logOutput.toString()).isEqualTo("done\n");
+
+    // The slow stream is only read up to its queue: one chunk being logged, two queued.
+    assertThat(slowInput.available()).isGreaterThanOrEqualTo(300 - 3 * 4);
+    assertThat(slow.isComplete()).isFalse();
+    unblockSink.countDown();
+    assertThat(slow.awaitCompletion(5000)).isTrue();
+    assertThat(slowInput.available()).isEqualTo(0);
+  }
+
+  @Test
+  public void testConfiguredFromProps() throws Exception {
+    final Props props = new Props();
+    props.put(Constants.ConfigurationKeys.AZKABAN_PROCESS_OUTPUT_THREADS, 3);
+    final ProcessOutputPump pump = new ProcessOutputPump(props);
+    assertThat(pump.getNumThreads()).isEqualTo(3);
+    final ProcessOutputPump.Source source =
+        pump.register(stream("line\n"), this.logger, Level.INFO, 30);
+    source.processExited();
+    assertThat(source.awaitCompletion(5000)).isTrue();
+  }
+
+  @Test
+  public void testIdleStreamIsPolledLessOften() throws Exception {
+    final ProcessOutputPump pump = new ProcessOutputPump(1, 1024, 1, 10000, 16);
+    final AtomicInteger polls = new AtomicInteger();
+    final InputStream idle = new InputStream() {
+      @Override
+      public int read() {
+        return -1;
+      }
+
+      @Override
+      public int available() {
+        polls.incrementAndGet();
+        return 0;
+      }
+    };
+    final ProcessOutputPump.Source source = pump.register(idle, null, Level.INFO, 30);
+
+    Thread.sleep(1000);
+    // 1, 2, 4, ... ms apart, instead of every ms.
+    assertThat(polls.get()).isBetween(1, 15);
+    // The exit isn't noticed only at the next poll, up to 10 s later.
+    source.processExited();
+    assertThat(source.awaitCompletion(1000)).isTrue();
+  }
+
+  @Test
+  public void testProcessFailureKeepsRecentOutput() throws Exception {
+    final File dir = this.temp.newFolder();
+    final AzkabanProcess process = new AzkabanProcess(
+        Arrays.asList("bash", "-c", "echo out; echo err 1>&2; exit 3"),
+        Collections.emptyMap(), dir.getAbsolutePath(), this.logger);
+    try {
+      process.run();
+      throw new AssertionError("Expected the process to fail");
+    } catch (final ProcessFailureException e) {
+      assertThat(e.getExitCode()).isEqualTo(3);
+      assertThat(e.getLogSnippet()).contains("out").contains("err").doesNotContain("Stderr");
+    }
+    assertThat(this.logOutput.toString()).contains("out\n").contains("err\n");
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import azkaban.jobExecutor.utils.process.ProcessResourceSampler.ResourceUsage;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProcessResourceSamplerTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File procDir;
+  private ProcessResourceSampler sampler;
+
+  @Before
+  public void setUp() throws Exception {
+    this.procDir = this.temp.newFolder("proc");
+    // Sampled explicitly by the tests, and kills always read a new process tree.
+    this.sampler = new ProcessResourceSampler(this.procDir, Long.MAX_VALUE, -1);
+  }
+
+  /**
+   * Writes a fake /proc/[pid] with the given cpu ticks (utime, stime, cutime, cstime) and rss
+   * pages.
+   */
+  private void writeProcess(final int pid, final int ppid, final String comm, final long[] ticks,
+      final long rssPages, final String io) throws Exception {
+    final File pidDir = new File(this.procDir, Integer.toString(pid));
+    pidDir.mkdirs();
+    final String stat = String.format(
+        "%d (%s) S %d %d %d 0 -1 4194304 100 0 0 0 %d %d %d %d 20 0 1 0 100 1000000 %d 0 0 0%n",
+        pid, comm, ppid, pid, pid, ticks[0], ticks[1], ticks[2], ticks[3], rssPages);
+    FileUtils.writeStringToFile(new File(pidDir, "stat"), stat, StandardCharsets.US_ASCII);
+    if (io != null) {
+      FileUtils.writeStringToFile(new File(pidDir, "io"), io, StandardCharsets.US_ASCII);
+    }
+  }
+
+  private static String io(final long readBytes, final long writeBytes) {
+    return "rchar: 1\nwchar: 1\nsyscr: 1\nsyscw: 1\nread_bytes: " + readBytes
+        + "\nwrite_bytes: " + writeBytes + "\ncancelled_write_bytes: 0\n";
+  }
+
+  @Test
+  public void testProcessTreeIsSummed() throws Exception {
+    writeProcess(100, 1, "bash", new long[]{10, 5, 3, 2}, 100, io(1000, 2000));
+    // The command name may contain spaces and parentheses.
+    writeProcess(101, 100, "java (worker) 1", new long[]{50, 10, 0, 0}, 1000, io(5000, 0));
+    // No permission to read the io of a child run as another user.
+    writeProcess(102, 101, "python", new long[]{1, 1, 0, 0}, 10, null);
+    writeProcess(200, 1, "other", new long[]{999, 999, 0, 0}, 99999, io(99, 99));
+
+    final ResourceUsage usage = this.sampler.register(100);
+    this.sampler.sample();
+
+    // The first sample, on registration, only reads the process itself.
+    assertThat(usage.getNumSamples()).isEqualTo(2);
+    assertThat(usage.getPeakProcesses()).isEqualTo(3);
+    assertThat(usage.getCpuTimeMs()).isEqualTo((10 + 5 + 3 + 2 + 50 + 10 + 1 + 1) * 10);
+    assertThat(usage.getPeakRssBytes()).isEqualTo(1110 * 4096);
+    assertThat(usage.getReadBytes()).isEqualTo(6000);
+    assertThat(usage.getWriteBytes()).isEqualTo(2000);
+    assertThat(this.sampler.getNumSampledProcesses()).isEqualTo(3);
+    assertThat(this.sampler.getSampledRssBytes()).isEqualTo(1110 * 4096);
+  }
+
+  @Test
+  public void testPeakAndAverage() throws Exception {
+    writeProcess(100, 1, "java", new long[]{10, 0, 0, 0}, 100, io(0, 0));
+    final ResourceUsage usage = this.sampler.register(100);
+
+    writeProcess(100, 1, "java", new long[]{30, 0, 0, 0}, 500, io(0, 0));
+    this.sampler.sample();
+
+    assertThat(usage.getNumSamples()).isEqualTo(2);
+    assertThat(usage.getPeakRssBytes()).isEqualTo(500 * 4096);
+    assertThat(usage.getAverageRssBytes()).isEqualTo(300 * 4096);
+    assertThat(usage.getCpuTimeMs()).isEqualTo(300);
+    assertThat(usage.toObject()).containsEntry(ResourceUsage.AVG_RSS_BYTES, 300L * 4096);
+  }
+
+  @Test
+  public void testUnregisteredAndExitedProcessesAreNotSampled() throws Exception {
+    writeProcess(100, 1, "java", new long[]{10, 0, 0, 0}, 100, io(0, 0));
+    final ResourceUsage exited = this.sampler.register(300);
+    final ResourceUsage unregistered = this.sampler.register(100);
+    FileUtils.deleteDirectory(new File(this.procDir, "100"));
+    this.sampler.unregister(100);
+    writeProcess(100, 1, "java", new long[]{10, 0, 0, 0}, 100, io(0, 0));
+    this.sampler.sample();
+
+    assertThat(exited.getNumSamples()).isEqualTo(0);
+    // Only the sample on registration, nothing was left to sample on exit.
+    assertThat(unregistered.getNumSamples()).isEqualTo(1);
+    assertThat(this.sampler.getNumSampledProcesses()).isEqualTo(0);
+  }
+
+  @Test
+  public void testShortJobIsSampledOnStartAndExit() throws Exception {
+    writeProcess(100, 1, "bash", new long[]{1, 0, 0, 0}, 100, io(0, 0));
+    final ResourceUsage usage = this.sampler.register(100);
+    assertThat(usage.getNumSamples()).isEqualTo(1);
+    assertThat(usage.getPeakRssBytes()).isEqualTo(100 * 4096);
+
+    writeProcess(101, 100, "java", new long[]{20, 0, 0, 0}, 1000, io(0, 0));
+    this.sampler.sample();
+
+    // The process was reaped, its child outlived it and was reparented.
+    FileUtils.deleteDirectory(new File(this.procDir, "100"));
+    writeProcess(101, 1, "java", new long[]{50, 0, 0, 0}, 1000, io(0, 0));
+    this.sampler.unregister(100);
+
+    assertThat(usage.getNumSamples()).isEqualTo(3);
+    assertThat(usage.getCpuTimeMs()).isEqualTo(500);
+  }
+
+  @Test
+  public void testListDescendants() throws Exception {
+    writeProcess(100, 1, "bash", new long[]{0, 0, 0, 0}, 1, null);
+    writeProcess(101, 100, "java", new long[]{0, 0, 0, 0}, 1, null);
+    writeProcess(102, 101, "python", new long[]{0, 0, 0, 0}, 1, null);
+    writeProcess(103, 100, "sleep", new long[]{0, 0, 0, 0}, 1, null);
+    writeProcess(200, 1, "other", new long[]{0, 0, 0, 0}, 1, null);
+
+    assertThat(this.sampler.listDescendants(100)).containsOnly(101, 102, 103);
+    assertThat(this.sampler.listDescendants(200)).isEmpty();
+  }
+
+  @Test
+  public void testKillsReuseRecentProcessTree() throws Exception {
+    this.sampler = new ProcessResourceSampler(this.procDir, Long.MAX_VALUE, Long.MAX_VALUE);
+    writeProcess(100, 1, "bash", new long[]{0, 0, 0, 0}, 1, null);
+    writeProcess(101, 100, "java", new long[]{0, 0, 0, 0}, 1, null);
+    writeProcess(102, 100, "sleep", new long[]{0, 0, 0, 0}, 1, null);
+    this.sampler.register(100);
+    this.sampler.sample();
+
+    // Not read again: the new child isn't seen, but the exited one is skipped.
+    writeProcess(103, 100, "python", new long[]{0, 0, 0, 0}, 1, null);
+    FileUtils.deleteDirectory(new File(this.procDir, "102"));
+    assertThat(this.sampler.listDescendants(100)).containsOnly(101);
+  }
+
+  @Test
+  public void testStartTimes() throws Exception {
+    writeProcess(100, 1, "bash", new long[]{0, 0, 0, 0}, 1, null);
+    final File zombie = new File(this.procDir, "101");
+    zombie.mkdirs();
+    FileUtils.writeStringToFile(new File(zombie, "stat"),
+        "101 (sleep) Z 1 101 101 0 -1 4194304 0 0 0 0 0 0 0 0 20 0 1 0 200 0 0 0 0 0\n",
+        StandardCharsets.US_ASCII);
+
+    assertThat(this.sampler.readStartTimes(Arrays.asList(100, 101, 102)))
+        .containsOnly(entry(100, 100L));
+  }
+}
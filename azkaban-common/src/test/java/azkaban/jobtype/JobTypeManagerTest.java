@@ -19,7 +19,9 @@ package azkaban.jobtype;
 import static azkaban.test.Utils.initServiceProvider;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import azkaban.jobExecutor.Job;
@@ -27,6 +29,7 @@ import azkaban.utils.Props;
 import com.google.common.io.Resources;
 import java.io.File;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
 import java.net.URL;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
@@ -205,6 +208,61 @@ public class JobTypeManagerTest {
     assertNull(props.get("commonprivate1"));
   }
 
+  /**
+   * Plugin defaults are also seen by the caller's props, e.g. the job runner's, for settings it
+   * reads itself.
+   */
+  @Test
+  public void testPluginDefaultsReachCallerProps() throws Exception {
+    final Props jobProps = new Props();
+    jobProps.put("type", "testjob");
+    jobProps.put("pluginprops3", "4");
+    final Job job = this.manager.buildJobExecutor("testjob", jobProps, this.logger);
+
+    assertEquals("1", ((FakeJavaJob2) job).getJobProps().get("pluginprops1"));
+    // Only set in the plugin defaults.
+    assertEquals("1", jobProps.get("pluginprops1"));
+    assertEquals("pluginprops", jobProps.get("commonprop3"));
+    // Not overridden by them.
+    assertEquals("4", jobProps.get("pluginprops3"));
+    assertNotNull(this.manager.getJobTypePluginSet().getPluginConstructor("testjob"));
+  }
+
+  /**
+   * Building a job resolves only the job's own props. The plugin's loader props were resolved
+   * when the plugin was loaded and each job gets its own copy of them.
+   */
+  @Test
+  public void testBuildJobExecutorResolvesPluginPropsOnce() throws Exception {
+    final JobTypePluginSet pluginSet = this.manager.getJobTypePluginSet();
+    final Props loaderProps = pluginSet.getPluginLoaderProps("testjob");
+    final MethodHandle constructor = pluginSet.getPluginConstructor("testjob");
+    // Would fail to resolve if the loader props were resolved again for each job.
+    loaderProps.put("unresolved", "${not.defined}");
+
+    final Props parent = new Props();
+    parent.put("flow.key", "flow");
+    for (int i = 0; i < 3; i++) {
+      final Props jobProps = new Props(parent);
+      jobProps.put("type", "testjob");
+      jobProps.put("test", "test" + i);
+      jobProps.put("ref", "${test}-${flow.key}");
+      final FakeJavaJob2 job =
+          (FakeJavaJob2) this.manager.buildJobExecutor("testjob" + i, jobProps, this.logger);
+
+      assertEquals("test" + i + "-flow", job.getJobProps().get("ref"));
+      final Props sysProps = job.getSysProps();
+      assertNotSame(loaderProps, sysProps);
+      assertEquals("${not.defined}", sysProps.get("unresolved"));
+      assertEquals("0", sysProps.get("testprivate"));
+      sysProps.put("testprivate", "changed" + i);
+    }
+    // Changes to a job's copy don't leak into the plugin set.
+    assertEquals("0", loaderProps.get("testprivate"));
+    assertSame(loaderProps, pluginSet.getPluginLoaderProps("testjob"));
+    assertSame(constructor, pluginSet.getPluginConstructor("testjob"));
+  }
+
   /**
    * Test out reloading properties
    */
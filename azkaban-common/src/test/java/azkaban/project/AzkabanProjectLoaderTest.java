@@ -19,6 +19,7 @@ package azkaban.project;
 
 import static azkaban.Constants.ConfigurationKeys.PROJECT_TEMP_DIR;
 import static java.util.Objects.requireNonNull;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -26,8 +27,10 @@ import static org.mockito.Mockito.when;
 import azkaban.storage.StorageManager;
 import azkaban.user.User;
 import azkaban.utils.Props;
+import azkaban.utils.Md5Hasher;
 import java.io.File;
 import java.net.URL;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -70,7 +73,40 @@ public class AzkabanProjectLoaderTest {
     this.azkabanProjectLoader.uploadProject(this.project, projectZipFile, "zip", uploader, null);
 
     verify(this.storageManager)
-        .uploadProject(this.project, this.VERSION + 1, projectZipFile, uploader);
+        .uploadProject(this.project, this.VERSION + 1, projectZipFile, null, uploader);
+  }
+
+  @Test
+  public void uploadProjectWithMd5() throws Exception {
+    when(this.projectLoader.getLatestProjectVersion(this.project)).thenReturn(this.VERSION);
+
+    final URL resource = requireNonNull(
+        getClass().getClassLoader().getResource("sample_flow_01.zip"));
+    final File projectZipFile = new File(resource.getPath());
+    final byte[] md5 = Md5Hasher.md5Hash(projectZipFile);
+    final User uploader = new User("test_user");
+
+    this.azkabanProjectLoader.uploadProject(this.project, projectZipFile, md5, "zip", uploader,
+        null);
+
+    verify(this.storageManager)
+        .uploadProject(this.project, this.VERSION + 1, projectZipFile, md5, uploader);
+  }
+
+  @Test
+  public void md5OfChangedArchiveIsDropped() throws Exception {
+    final File archive = this.TEMP_DIR.newFile("archive.zip");
+    FileUtils.writeStringToFile(archive, "before");
+    final byte[] md5 = Md5Hasher.md5Hash(archive);
+    final long length = archive.length();
+    final long lastModified = archive.lastModified();
+
+    assertThat(AzkabanProjectLoader.md5IfUnchanged(archive, md5, length, lastModified))
+        .isSameAs(md5);
+    // A validator rewrote it.
+    FileUtils.writeStringToFile(archive, "after, fixed");
+    assertThat(AzkabanProjectLoader.md5IfUnchanged(archive, md5, length, lastModified))
+        .isNull();
   }
 
   @Test
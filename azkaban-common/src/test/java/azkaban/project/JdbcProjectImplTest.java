@@ -25,11 +25,15 @@ import azkaban.utils.Props;
 import azkaban.utils.Triple;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -128,6 +132,55 @@ public class JdbcProjectImplTest {
     Assert.assertEquals(fileHandler.getUploader(), "uploadUser1");
   }
 
+  @Test
+  public void testOpenUploadedFile() throws Exception {
+    createThreeProjects();
+    final Project project = this.loader.fetchProjectByName("mytestProject");
+    final File testFile = new File(getClass().getClassLoader().getResource(SAMPLE_FILE).getFile());
+    final int newVersion = this.loader.getLatestProjectVersion(project) + 1;
+    this.loader.uploadProjectFile(project.getId(), newVersion, testFile, "uploadUser1");
+
+    final ProjectFileHandler fileHandler =
+        this.loader.fetchProjectMetaData(project.getId(), newVersion);
+    try (InputStream in = this.loader.openUploadedFile(fileHandler)) {
+      Assert.assertArrayEquals(FileUtils.readFileToByteArray(testFile), IOUtils.toByteArray(in));
+    }
+  }
+
+  private static ProjectFileHandler insertChunks(final byte[] md5, final byte[]... chunks)
+      throws SQLException {
+    for (int i = 0; i < chunks.length; i++) {
+      dbOperator.update("INSERT INTO project_files (project_id, version, chunk, size, file) "
+          + "VALUES (?,?,?,?,?)", 1, 1, i, chunks[i].length, chunks[i]);
+    }
+    return new ProjectFileHandler(1, 1, 0, "uploadUser1", "zip", "chunks.zip", chunks.length,
+        md5, null);
+  }
+
+  @Test
+  public void testOpenUploadedFileReadsChunksInOrder() throws Exception {
+    final MessageDigest digest = Md5Hasher.getMd5Digest();
+    final byte[][] chunks = {"first ".getBytes(), "second ".getBytes(), "third".getBytes()};
+    for (final byte[] chunk : chunks) {
+      digest.update(chunk);
+    }
+    final ProjectFileHandler fileHandler = insertChunks(digest.digest(), chunks);
+
+    try (InputStream in = this.loader.openUploadedFile(fileHandler)) {
+      Assert.assertEquals("first second third", new String(IOUtils.toByteArray(in)));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testOpenUploadedFileFailsOnWrongMd5() throws Exception {
+    final ProjectFileHandler fileHandler =
+        insertChunks(new byte[16], "first ".getBytes(), "second".getBytes());
+
+    try (InputStream in = this.loader.openUploadedFile(fileHandler)) {
+      IOUtils.toByteArray(in);
+    }
+  }
+
   @Test(expected = ProjectManagerException.class)
   public void testDuplicateUploadProjectFile() throws Exception {
     createThreeProjects();
@@ -317,6 +370,25 @@ public class JdbcProjectImplTest {
     Assert.assertEquals(propsMap.get("source2").get("keyaaa"), "valueaaa");
   }
 
+  @Test
+  public void testFetchProjectPropertiesBySuffix() throws Exception {
+    final Props jobProps = new Props();
+    jobProps.setSource("job_1.job");
+    jobProps.put("key", "job");
+    final Props overrideProps = new Props();
+    overrideProps.setSource("job_1.jor");
+    overrideProps.put("key", "override");
+
+    createThreeProjects();
+    final Project project = this.loader.fetchProjectByName("mytestProject");
+    this.loader.uploadProjectProperties(project, Arrays.asList(jobProps, overrideProps));
+
+    final Map<String, Props> propsMap =
+        this.loader.fetchProjectProperties(project.getId(), project.getVersion(), ".jor");
+    Assert.assertEquals(1, propsMap.size());
+    Assert.assertEquals("override", propsMap.get("job_1.jor").get("key"));
+  }
+
   @Test
   public void cleanOlderProjectVersion() throws Exception {
     createThreeProjects();
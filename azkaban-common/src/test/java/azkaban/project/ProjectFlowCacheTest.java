@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.project;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.flow.Flow;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProjectFlowCacheTest {
+
+  private final Project project1 = new Project(1, "project1");
+  private final Project project2 = new Project(2, "project2");
+  private ProjectLoader projectLoader;
+  private ProjectFlowCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    this.projectLoader = mock(ProjectLoader.class);
+    when(this.projectLoader.fetchAllProjectFlows(this.project1))
+        .thenReturn(Collections.singletonList(new Flow("flow1")));
+    when(this.projectLoader.fetchAllProjectFlows(this.project2))
+        .thenReturn(Collections.singletonList(new Flow("flow2")));
+    this.cache = new ProjectFlowCache(this.projectLoader, 1);
+    this.project1.setFlowLoader(this.cache);
+    this.project2.setFlowLoader(this.cache);
+  }
+
+  @Test
+  public void testFlowsAreLoadedOnFirstUse() throws Exception {
+    verify(this.projectLoader, times(0)).fetchAllProjectFlows(this.project1);
+    assertThat(this.project1.getFlow("flow1").getId()).isEqualTo("flow1");
+    assertThat(this.project1.getFlows()).hasSize(1);
+    verify(this.projectLoader, times(1)).fetchAllProjectFlows(this.project1);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedAreDropped() throws Exception {
+    this.project1.getFlow("flow1");
+    this.project2.getFlow("flow2");
+    assertThat(this.cache.size()).isEqualTo(1);
+    assertThat(this.project1.getFlow("flow1")).isNotNull();
+    verify(this.projectLoader, times(2)).fetchAllProjectFlows(this.project1);
+  }
+
+  @Test
+  public void testSetFlowsTakePrecedence() throws Exception {
+    this.project1.setFlows(Collections.singletonMap("flow3", new Flow("flow3")));
+    assertThat(this.project1.getFlow("flow3")).isNotNull();
+    assertThat(this.project1.getFlow("flow1")).isNull();
+    verify(this.projectLoader, times(0)).fetchAllProjectFlows(this.project1);
+  }
+
+  @Test
+  public void testLoadFailure() throws Exception {
+    when(this.projectLoader.fetchAllProjectFlows(this.project1))
+        .thenThrow(new ProjectManagerException("db is down"));
+    assertThatThrownBy(() -> this.project1.getFlow("flow1"))
+        .isInstanceOf(RuntimeException.class);
+    assertThat(this.cache.size()).isEqualTo(0);
+  }
+}
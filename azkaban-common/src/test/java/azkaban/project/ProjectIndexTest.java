@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.project;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.user.Permission;
+import azkaban.user.Permission.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+public class ProjectIndexTest {
+
+  private static final Logger logger = Logger.getLogger(ProjectIndexTest.class);
+  private static final int READ_OR_ADMIN = Type.READ.getFlag() | Type.ADMIN.getFlag();
+
+  private final ProjectIndex index = new ProjectIndex();
+
+  private static Project project(final int id, final String name) {
+    return new Project(id, name);
+  }
+
+  @Test
+  public void testUserAndGroupPermissions() {
+    final Project project1 = project(1, "project1");
+    project1.setUserPermission("alice", new Permission(Type.READ));
+    project1.setUserPermission("bob", new Permission(Type.EXECUTE));
+    project1.setGroupPermission("team", new Permission(Type.ADMIN));
+    final Project project2 = project(2, "project2");
+    project2.setUserPermission("alice", new Permission(Type.ADMIN));
+    this.index.update(project1);
+    this.index.update(project2);
+
+    assertThat(this.index.getUserProjectIds("alice", READ_OR_ADMIN)).containsOnly(1, 2);
+    assertThat(this.index.getUserProjectIds("bob", READ_OR_ADMIN)).isEmpty();
+    assertThat(this.index.getUserProjectIds("bob", Type.EXECUTE.getFlag())).containsOnly(1);
+    assertThat(this.index.getGroupProjectIds(Arrays.asList("other", "team"), READ_OR_ADMIN))
+        .containsOnly(1);
+
+    project1.removeUserPermission("alice");
+    this.index.update(project1);
+    assertThat(this.index.getUserProjectIds("alice", READ_OR_ADMIN)).containsOnly(2);
+
+    this.index.remove(2);
+    assertThat(this.index.getUserProjectIds("alice", READ_OR_ADMIN)).isEmpty();
+  }
+
+  @Test
+  public void testNameCandidates() {
+    this.index.update(project(1, "SalesReport"));
+    this.index.update(project(2, "sales_daily"));
+    this.index.update(project(3, "reportsales"));
+    this.index.update(project(4, "etl"));
+
+    assertThat(this.index.getNameCandidates("sales")).containsOnly(1, 2, 3);
+    assertThat(this.index.getNameCandidates("REPORT")).containsOnly(1, 3);
+    assertThat(this.index.getNameCandidates("xyz")).isEmpty();
+    // Can't be looked up.
+    assertThat(this.index.getNameCandidates("et")).isNull();
+    assertThat(this.index.getNameCandidates("sales.*")).isNull();
+
+    this.index.remove(1);
+    assertThat(this.index.getNameCandidates("REPORT")).containsOnly(3);
+  }
+
+  /**
+   * Compares lookups in the index with scans of all projects, on 10k projects.
+   */
+  @Test
+  public void testTenThousandProjects() {
+    final Random random = new Random(42);
+    final String[] words = {"sales", "report", "daily", "etl", "ads", "search", "feed", "jobs"};
+    final List<Project> projects = new ArrayList<>();
+    for (int id = 1; id <= 10000; id++) {
+      final Project project = project(id, words[random.nextInt(words.length)] + "_"
+          + words[random.nextInt(words.length)] + id);
+      for (int i = 0; i < 5; i++) {
+        project.setUserPermission("user" + random.nextInt(500), new Permission(Type.READ));
+      }
+      project.setGroupPermission("group" + random.nextInt(50), new Permission(Type.READ));
+      projects.add(project);
+      this.index.update(project);
+    }
+
+    final int rounds = 200;
+    long start = System.nanoTime();
+    Set<Integer> scanned = null;
+    for (int i = 0; i < rounds; i++) {
+      scanned = new HashSet<>();
+      final Pattern pattern = Pattern.compile("_sales", Pattern.CASE_INSENSITIVE);
+      for (final Project project : projects) {
+        final Permission perm = project.getUserPermission("user7");
+        if (perm != null && perm.isPermissionSet(Type.READ)
+            && pattern.matcher(project.getName()).find()) {
+          scanned.add(project.getId());
+        }
+      }
+    }
+    final long scanNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    Set<Integer> indexed = null;
+    for (int i = 0; i < rounds; i++) {
+      final Pattern pattern = Pattern.compile("_sales", Pattern.CASE_INSENSITIVE);
+      indexed = this.index.getUserProjectIds("user7", READ_OR_ADMIN);
+      indexed.retainAll(this.index.getNameCandidates("_sales"));
+      indexed.removeIf(id -> !pattern.matcher(projects.get(id - 1).getName()).find());
+    }
+    final long indexNanos = System.nanoTime() - start;
+
+    assertThat(scanned).isNotEmpty();
+    assertThat(indexed).isEqualTo(scanned);
+    logger.info(String.format("Projects of a user by name, 10k projects: scan %d us, index %d us",
+        scanNanos / rounds / 1000, indexNanos / rounds / 1000));
+  }
+}
@@ -39,6 +39,6 @@ public class DatabaseStorageTest {
     final String uploader = "testuser";
     final StorageMetadata metadata = new StorageMetadata(projectId, version, uploader, null);
     this.databaseStorage.put(metadata, file);
-    verify(this.projectLoader).uploadProjectFile(projectId, version, file, uploader);
+    verify(this.projectLoader).uploadProjectFile(projectId, version, file, uploader, null);
   }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import com.codahale.metrics.MetricRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProjectArtifactCacheTest {
+
+  @Rule
+  public final TemporaryFolder temp = new TemporaryFolder();
+
+  private final MetricRegistry registry = new MetricRegistry();
+  private final AtomicInteger loads = new AtomicInteger();
+  private ProjectArtifactCache cache;
+  private ExecutorService pool;
+
+  @Before
+  public void setUp() throws Exception {
+    this.cache = new ProjectArtifactCache(new File(this.temp.getRoot(), "cache"), 10,
+        new CommonMetrics(new MetricsManager(this.registry)));
+    this.pool = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    this.pool.shutdownNow();
+  }
+
+  private ProjectArtifactCache.Loader loader(final String content) {
+    return () -> {
+      this.loads.incrementAndGet();
+      return new ByteArrayInputStream(content.getBytes());
+    };
+  }
+
+  private String read(final String key, final ProjectArtifactCache.Loader loader)
+      throws IOException {
+    try (InputStream in = this.cache.open(key, loader)) {
+      return IOUtils.toString(in);
+    }
+  }
+
+  @Test
+  public void testLoadsOnce() throws Exception {
+    assertThat(read("a", loader("aaaa"))).isEqualTo("aaaa");
+    assertThat(read("a", loader("aaaa"))).isEqualTo("aaaa");
+    assertThat(this.loads.get()).isEqualTo(1);
+    assertThat(this.registry.meter("project-artifact-cache-bytes-served").getCount())
+        .isEqualTo(4);
+    assertThat(this.registry.getGauges().get("project-artifact-cache-hit-ratio").getValue())
+        .isEqualTo(0.5);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws Exception {
+    read("a", loader("aaaa"));
+    read("b", loader("bbbb"));
+    read("a", loader("aaaa"));
+    read("c", loader("cccc"));
+    assertThat(this.cache.getNumFiles()).isEqualTo(2);
+    assertThat(this.cache.getTotalBytes()).isEqualTo(8);
+    assertThat(this.loads.get()).isEqualTo(3);
+
+    read("a", loader("aaaa"));
+    assertThat(this.loads.get()).isEqualTo(3);
+    read("b", loader("bbbb"));
+    assertThat(this.loads.get()).isEqualTo(4);
+  }
+
+  @Test
+  public void testTooLargeIsNotCached() throws Exception {
+    assertThat(read("big", loader("0123456789abc"))).isEqualTo("0123456789abc");
+    assertThat(this.cache.getNumFiles()).isEqualTo(0);
+    assertThat(new File(this.temp.getRoot(), "cache").list()).isEmpty();
+  }
+
+  @Test
+  public void testDeletedFileIsRefetched() throws Exception {
+    read("a", loader("aaaa"));
+    for (final File file : new File(this.temp.getRoot(), "cache").listFiles()) {
+      file.delete();
+    }
+
+    assertThat(read("a", loader("aaaa"))).isEqualTo("aaaa");
+    assertThat(this.loads.get()).isEqualTo(2);
+    assertThat(this.cache.getNumFiles()).isEqualTo(1);
+    assertThat(this.cache.getTotalBytes()).isEqualTo(4);
+  }
+
+  @Test
+  public void testFailedLoadIsNotCached() throws Exception {
+    final ProjectArtifactCache.Loader failing = () -> new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("Checksum mismatch");
+      }
+    };
+    assertThatThrownBy(() -> read("a", failing)).isInstanceOf(IOException.class);
+    assertThat(this.cache.getNumFiles()).isEqualTo(0);
+    assertThat(read("a", loader("aaaa"))).isEqualTo("aaaa");
+  }
+
+  @Test
+  public void testConcurrentFetchesLoadOnce() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final ProjectArtifactCache.Loader slow = () -> {
+      this.loads.incrementAndGet();
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        throw new IOException(e);
+      }
+      return new ByteArrayInputStream("aaaa".getBytes());
+    };
+
+    final List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      results.add(this.pool.submit(() -> read("a", slow)));
+    }
+    Thread.sleep(100);
+    release.countDown();
+    for (final Future<String> result : results) {
+      assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("aaaa");
+    }
+    assertThat(this.loads.get()).isEqualTo(1);
+  }
+}
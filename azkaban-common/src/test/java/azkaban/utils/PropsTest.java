@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class PropsTest {
+
+  private static Props createChain() {
+    final Props root = Props.of("a", "root", "b", "root", "c", "root");
+    final Props middle = Props.of(root, "b", "middle", "prefix.x", "middle");
+    return Props.of(middle, "c", "top", "prefix.y", "top");
+  }
+
+  @Test
+  public void testCloneIsIndependent() throws Exception {
+    final Props original = createChain();
+    final Props clone = Props.clone(original);
+    assertThat(clone.equalsProps(original)).isTrue();
+
+    clone.put("c", "clone");
+    clone.getParent().put("d", "clone");
+    clone.getParent().removeLocal("b");
+
+    assertThat(original.get("c")).isEqualTo("top");
+    assertThat(original.get("d")).isNull();
+    assertThat(original.get("b")).isEqualTo("middle");
+    assertThat(clone.get("b")).isEqualTo("root");
+  }
+
+  @Test
+  public void testOriginalChangesDoNotLeakIntoClone() throws Exception {
+    final Props original = createChain();
+    final Props clone = Props.clone(original);
+
+    original.put("c", "changed");
+    original.getParent().clearLocal();
+
+    assertThat(clone.get("c")).isEqualTo("top");
+    assertThat(clone.get("b")).isEqualTo("middle");
+    assertThat(original.get("b")).isEqualTo("root");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSharedLocalKeySetIsReadOnly() throws Exception {
+    final Props original = createChain();
+    Props.clone(original);
+    original.localKeySet().remove("c");
+  }
+
+  @Test
+  public void testSnapshot() throws Exception {
+    final Props props = createChain();
+    final Props snapshot = props.snapshot();
+
+    assertThat(snapshot.getParent()).isNull();
+    assertThat(snapshot.localSize()).isEqualTo(5);
+    assertThat(snapshot.equalsProps(props)).isTrue();
+    assertThat(snapshot.getMapByPrefix("prefix.")).containsOnlyKeys("x", "y");
+
+    // Clones of a snapshot are layered on top of other props without copying it.
+    final Props layer = Props.clone(snapshot);
+    layer.setParent(Props.of("e", "parent"));
+    layer.put("a", "layer");
+    assertThat(layer.get("e")).isEqualTo("parent");
+    assertThat(snapshot.get("a")).isEqualTo("root");
+  }
+
+  @Test
+  public void testChildOverridesParent() throws Exception {
+    final Props props = createChain();
+    assertThat(props.get("a")).isEqualTo("root");
+    assertThat(props.get("b")).isEqualTo("middle");
+    assertThat(props.get("c")).isEqualTo("top");
+    assertThat(props.getKeySet()).containsOnly("a", "b", "c", "prefix.x", "prefix.y");
+    assertThat(props.getFlattened()).containsEntry("b", "middle").containsEntry("c", "top");
+
+    props.put("a", (String) null);
+    assertThat(props.containsKey("a")).isTrue();
+    assertThat(props.get("a")).isNull();
+  }
+}
@@ -17,6 +17,7 @@
 package azkaban.utils;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 import org.junit.Assert;
 import org.junit.Test;
@@ -240,6 +241,76 @@ public class PropsUtilsTest {
         "Newly created Properties: [ c, a_value1], \nDeleted Properties: [ a, a_value1], \n");
   }
 
+  @Test
+  public void testSharedReferencesResolvedOnce() throws Exception {
+    final Props parent = Props.of("base", "b", "left", "${base}-l", "right", "${base}-r");
+    final Props props = Props.of(parent, "top", "${left}+${right}", "plain", "no markers",
+        "sum", "$(1 + 2)", "nested", "${top}/$(${base.length} * 2)", "base.length", "3");
+
+    final Props resolved = PropsUtils.resolveProps(props);
+    Assert.assertEquals("b-l+b-r", resolved.get("top"));
+    Assert.assertEquals("no markers", resolved.get("plain"));
+    Assert.assertEquals("3", resolved.get("sum"));
+    Assert.assertEquals("b-l+b-r/6", resolved.get("nested"));
+
+    // Resolving resolved props changes nothing.
+    Assert.assertTrue(PropsUtils.resolveProps(resolved).equalsProps(resolved));
+  }
+
+  @Test
+  public void testSelfReference() throws Exception {
+    failIfNotException(Props.of("a", "${a}"));
+  }
+
+  /**
+   * Resolves 5,000 keys spread over a chain of 5 levels. Every key past the first 50 references
+   * two of them, which in turn reference a shared base key, and every tenth value is an
+   * expression. Each referenced value is looked up once and then reused.
+   */
+  @Test
+  public void testResolveLargePropsResolvesEachKeyOnce() throws Exception {
+    final int numKeys = 5000;
+    final int numBaseKeys = 50;
+    final int numLevels = 5;
+    final Map<String, Integer> lookups = new HashMap<>();
+    Props props = Props.of("base", "b");
+    for (int level = 0; level < numLevels; level++) {
+      props = new Props(props) {
+        @Override
+        public Map<String, String> getMapByPrefix(final String prefix) {
+          // Counts the lookups of referenced values.
+          return new HashMap<String, String>(super.getMapByPrefix(prefix)) {
+            @Override
+            public String get(final Object key) {
+              lookups.merge((String) key, 1, Integer::sum);
+              return super.get(key);
+            }
+          };
+        }
+      };
+      for (int i = level; i < numKeys; i += numLevels) {
+        if (i < numBaseKeys) {
+          props.put("key" + i, "${base}" + i);
+        } else if (i % 10 == 0) {
+          props.put("key" + i, "${key" + (i % numBaseKeys) + "}:$(" + i + " * 2)");
+        } else {
+          props.put("key" + i,
+              "${key" + (i % numBaseKeys) + "}-${key" + ((i + 1) % numBaseKeys) + "}");
+        }
+      }
+    }
+
+    final Props resolved = PropsUtils.resolveProps(props);
+    Assert.assertEquals(numKeys + 1, resolved.size());
+    Assert.assertEquals("b1-b2", resolved.get("key51"));
+    Assert.assertEquals("b0:200", resolved.get("key100"));
+    // Values are only looked up when referenced before they were resolved themselves.
+    Assert.assertEquals(1, (int) lookups.get("base"));
+    for (final Map.Entry<String, Integer> lookup : lookups.entrySet()) {
+      Assert.assertEquals("Lookups of " + lookup.getKey(), 1, (int) lookup.getValue());
+    }
+  }
+
   private void failIfNotException(final Props props) {
     try {
       PropsUtils.resolveProps(props);
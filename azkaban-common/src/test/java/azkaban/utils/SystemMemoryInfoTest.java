@@ -1,10 +1,12 @@
 package azkaban.utils;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import azkaban.utils.SystemMemoryInfo.MemoryReservation;
 import org.junit.Test;
 
 
@@ -43,4 +45,85 @@ public class SystemMemoryInfoTest {
     final boolean isGranted = memInfo.canSystemGrantMemory(xmx);
     assertTrue("Memory check failed. Should fail open", isGranted);
   }
+
+  @Test
+  public void concurrentReservationsDoNotShareFreeMemory() throws Exception {
+    final OsMemoryUtil memUtil = mock(OsMemoryUtil.class);
+    when(memUtil.getOsTotalFreeMemorySize()).thenReturn(8 * GB_UNIT);
+    final SystemMemoryInfo memInfo = new SystemMemoryInfo(memUtil, 60 * 1000, 60 * 1000);
+
+    // 5 GB are usable above the low mem threshold, which fits only one of two 3 GB jobs until
+    // /proc reflects the first one.
+    final MemoryReservation first = memInfo.reserve(3 * GB_UNIT);
+    final MemoryReservation second = memInfo.reserve(3 * GB_UNIT);
+    assertTrue(first.isGranted());
+    assertFalse(second.isGranted());
+    assertEquals(1, memInfo.getNumWaiting());
+    assertEquals(3 * GB_UNIT, memInfo.getInFlightSize());
+
+    final Thread releaser = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+      } catch (final InterruptedException e) {
+        return;
+      }
+      first.release();
+    });
+    releaser.start();
+    assertTrue("Waiting job should be woken by the release", second.await(10 * 1000));
+    releaser.join();
+    assertEquals(0, memInfo.getNumWaiting());
+  }
+
+  @Test
+  public void settledReservationsAreLeftToProcMemInfo() throws Exception {
+    final OsMemoryUtil memUtil = mock(OsMemoryUtil.class);
+    when(memUtil.getOsTotalFreeMemorySize()).thenReturn(8 * GB_UNIT);
+    final SystemMemoryInfo memInfo = new SystemMemoryInfo(memUtil, 0, 60 * 1000);
+
+    assertTrue(memInfo.reserve(3 * GB_UNIT).isGranted());
+    final MemoryReservation second = memInfo.reserve(3 * GB_UNIT);
+    assertTrue(second.isGranted());
+    assertEquals(0, memInfo.getInFlightSize());
+  }
+
+  @Test
+  public void oversizedRequestDoesNotBlockQueue() throws Exception {
+    final OsMemoryUtil memUtil = mock(OsMemoryUtil.class);
+    when(memUtil.getOsTotalFreeMemorySize()).thenReturn(8 * GB_UNIT);
+    final SystemMemoryInfo memInfo = new SystemMemoryInfo(memUtil, 60 * 1000, 60 * 1000);
+
+    final MemoryReservation first = memInfo.reserve(3 * GB_UNIT);
+    // Fits once the first one settles, so it holds back the small ones behind it.
+    final MemoryReservation second = memInfo.reserve(5 * GB_UNIT);
+    final MemoryReservation third = memInfo.reserve(GB_UNIT);
+    assertTrue(first.isGranted());
+    assertFalse(second.isGranted());
+    assertFalse(third.isGranted());
+
+    // Never fits with the current free memory, so it doesn't hold back anyone.
+    second.release();
+    final MemoryReservation huge = memInfo.reserve(6 * GB_UNIT);
+    final MemoryReservation small = memInfo.reserve(GB_UNIT);
+    assertTrue(third.isGranted());
+    assertFalse(huge.isGranted());
+    assertTrue(small.isGranted());
+
+    when(memUtil.getOsTotalFreeMemorySize()).thenReturn(20 * GB_UNIT);
+    memInfo.reconcile();
+    assertTrue(huge.isGranted());
+  }
+
+  @Test
+  public void releaseLeavesQueue() throws Exception {
+    final OsMemoryUtil memUtil = mock(OsMemoryUtil.class);
+    when(memUtil.getOsTotalFreeMemorySize()).thenReturn(4 * GB_UNIT);
+    final SystemMemoryInfo memInfo = new SystemMemoryInfo(memUtil, 60 * 1000, 60 * 1000);
+
+    final MemoryReservation reservation = memInfo.reserve(2 * GB_UNIT);
+    assertFalse(reservation.isGranted());
+    reservation.release();
+    assertFalse(reservation.await(1000));
+    assertEquals(0, memInfo.getNumWaiting());
+  }
 }
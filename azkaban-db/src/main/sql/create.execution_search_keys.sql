@@ -0,0 +1,6 @@
+CREATE TABLE execution_search_keys (
+	project_id INT NOT NULL,
+	flow_id VARCHAR(128) NOT NULL,
+	submit_user VARCHAR(64) NOT NULL,
+	PRIMARY KEY (project_id, flow_id, submit_user)
+);
@@ -0,0 +1,14 @@
+-- DB Migration from release 3.22.0 to 3.23.0
+--
+-- Adds the 'execution_search_keys' table that execution searches look up.
+-- Run azkaban.executor.ExecutionSearchIndexRebuilder afterwards, to make the
+-- executions that ran before the upgrade searchable.
+--
+-- IF NOT EXISTS, since the build concatenates this file with the create scripts.
+--
+CREATE TABLE IF NOT EXISTS execution_search_keys (
+	project_id INT NOT NULL,
+	flow_id VARCHAR(128) NOT NULL,
+	submit_user VARCHAR(64) NOT NULL,
+	PRIMARY KEY (project_id, flow_id, submit_user)
+);
@@ -35,6 +35,7 @@ import azkaban.executor.Executor;
 import azkaban.executor.ExecutorLoader;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.jmx.JmxJettyServer;
+import azkaban.jobExecutor.utils.process.JvmWorkerPool;
 import azkaban.metric.IMetricEmitter;
 import azkaban.metric.MetricException;
 import azkaban.metric.MetricReportManager;
@@ -563,6 +564,10 @@ public class AzkabanExecutorServer {
     this.server.stop();
     this.server.destroy();
     getFlowRunnerManager().shutdownNow();
+    if (JobCallbackManager.isInitialized()) {
+      JobCallbackManager.getInstance().shutdown();
+    }
+    JvmWorkerPool.getInstance().shutdown();
     close();
   }
 }
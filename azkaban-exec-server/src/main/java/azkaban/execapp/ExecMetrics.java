@@ -16,6 +16,8 @@
 
 package azkaban.execapp;
 
+import azkaban.event.AsyncEventListener;
+import azkaban.execapp.event.JobCallbackManager;
 import azkaban.metrics.MetricsManager;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -43,5 +45,31 @@ public class ExecMetrics {
         .addGauge("EXEC-NumRunningFlows", flowRunnerManager::getNumRunningFlows);
     this.metricsManager
         .addGauge("EXEC-NumQueuedFlows", flowRunnerManager::getNumQueuedFlows);
+
+    final JobSlotScheduler jobSlotScheduler = flowRunnerManager.getJobSlotScheduler();
+    if (jobSlotScheduler != null) {
+      this.metricsManager
+          .addGauge("EXEC-NumRunningSlotJobs", jobSlotScheduler::getNumRunningJobs);
+      this.metricsManager
+          .addGauge("EXEC-NumQueuedSlotJobs", jobSlotScheduler::getNumQueuedJobs);
+      this.metricsManager
+          .addGauge("EXEC-AvgJobQueueWaitMs", jobSlotScheduler::getAverageQueueWaitMs);
+      this.metricsManager
+          .addGauge("EXEC-MaxJobQueueWaitMs", jobSlotScheduler::getMaxQueueWaitMs);
+    }
+
+    if (JobCallbackManager.isInitialized()
+        && JobCallbackManager.getInstance().getAsyncEventListener() != null) {
+      addEventListenerMetrics(JobCallbackManager.getInstance().getAsyncEventListener());
+    }
+  }
+
+  private void addEventListenerMetrics(final AsyncEventListener listener) {
+    final String prefix = "EXEC-" + listener.getName() + "Events";
+    this.metricsManager.addGauge(prefix + "Queued", listener::getNumQueued);
+    this.metricsManager.addGauge(prefix + "Handled", listener::getNumHandled);
+    this.metricsManager.addGauge(prefix + "LastLagMs", listener::getLastLagMs);
+    this.metricsManager.addGauge(prefix + "MaxLagMs", listener::getMaxLagMs);
+    this.metricsManager.addGauge(prefix + "AvgLagMs", listener::getAverageLagMs);
   }
 }
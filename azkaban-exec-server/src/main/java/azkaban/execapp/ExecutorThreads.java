@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.utils.Props;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+/**
+ * Decides how the executor creates the threads that run flows and jobs.
+ *
+ * Flow runners and job runners spend nearly all of their time blocked on child processes, pipeline
+ * watchers or their job pools. In the default platform mode, the pools keep every thread they ever
+ * started at the JVM's default stack size. In compact mode, threads are started with a smaller
+ * stack and are released after they have been idle for a while, so an executor with many
+ * configured flow and job threads only pays for those that are actually in use.
+ *
+ * The following properties can be used:
+ * executor.thread.mode - platform (default) or compact.
+ * executor.thread.stack.size.kb - stack size of threads created in compact mode. Default is 512.
+ * executor.thread.idle.timeout.ms - how long an idle thread is kept in compact mode. Default is
+ * 60000.
+ */
+public class ExecutorThreads {
+
+  public static final String EXECUTOR_THREAD_MODE = "executor.thread.mode";
+  public static final String EXECUTOR_THREAD_STACK_SIZE_KB = "executor.thread.stack.size.kb";
+  public static final String EXECUTOR_THREAD_IDLE_TIMEOUT_MS = "executor.thread.idle.timeout.ms";
+
+  private static final Logger logger = Logger.getLogger(ExecutorThreads.class);
+  private static final int DEFAULT_STACK_SIZE_KB = 512;
+  private static final long DEFAULT_IDLE_TIMEOUT_MS = 60 * 1000;
+
+  private final Mode mode;
+  private final long stackSizeBytes;
+  private final long idleTimeoutMs;
+
+  public ExecutorThreads(final Mode mode, final int stackSizeKb, final long idleTimeoutMs) {
+    this.mode = mode;
+    this.stackSizeBytes = stackSizeKb * 1024L;
+    this.idleTimeoutMs = idleTimeoutMs;
+  }
+
+  public static ExecutorThreads fromProps(final Props props) {
+    final String modeName = props.getString(EXECUTOR_THREAD_MODE, Mode.PLATFORM.name());
+    final Mode mode;
+    try {
+      mode = Mode.valueOf(modeName.trim().toUpperCase());
+    } catch (final IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown " + EXECUTOR_THREAD_MODE + " " + modeName, e);
+    }
+
+    final ExecutorThreads threads = new ExecutorThreads(mode,
+        props.getInt(EXECUTOR_THREAD_STACK_SIZE_KB, DEFAULT_STACK_SIZE_KB),
+        props.getLong(EXECUTOR_THREAD_IDLE_TIMEOUT_MS, DEFAULT_IDLE_TIMEOUT_MS));
+    logger.info("Executor thread mode " + mode + (mode == Mode.COMPACT ? " with stack size "
+        + threads.stackSizeBytes + " bytes and idle timeout " + threads.idleTimeoutMs + " ms"
+        : ""));
+    return threads;
+  }
+
+  public Mode getMode() {
+    return this.mode;
+  }
+
+  public boolean isCompact() {
+    return this.mode == Mode.COMPACT;
+  }
+
+  /**
+   * Creates a thread factory naming its threads namePrefix-N.
+   */
+  public ThreadFactory newThreadFactory(final String namePrefix) {
+    return newThreadFactory(namePrefix, false);
+  }
+
+  /**
+   * Creates a thread factory naming its threads namePrefix-N.
+   *
+   * @param daemon whether the threads are daemon threads
+   */
+  public ThreadFactory newThreadFactory(final String namePrefix, final boolean daemon) {
+    final AtomicInteger count = new AtomicInteger(0);
+    // A stack size of 0 means the JVM default.
+    final long stackSize = isCompact() ? this.stackSizeBytes : 0;
+    return r -> {
+      final Thread thread =
+          new Thread(null, r, namePrefix + "-" + count.incrementAndGet(), stackSize);
+      thread.setDaemon(daemon);
+      return thread;
+    };
+  }
+
+  /**
+   * Creates a pool running at most numThreads tasks at a time. In compact mode its threads stop
+   * when they have been idle for the idle timeout.
+   */
+  public ExecutorService newFixedThreadPool(final int numThreads, final String namePrefix) {
+    if (!isCompact()) {
+      return Executors.newFixedThreadPool(numThreads);
+    }
+    final ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, numThreads, 0L,
+        TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), newThreadFactory(namePrefix));
+    configure(pool, namePrefix);
+    return pool;
+  }
+
+  /**
+   * Applies the thread mode to a pool created elsewhere. Does nothing in platform mode.
+   */
+  public void configure(final ThreadPoolExecutor pool, final String namePrefix) {
+    configure(pool, namePrefix, false);
+  }
+
+  /**
+   * Applies the thread mode to a pool created elsewhere. Does nothing in platform mode.
+   *
+   * @param daemon whether the pool's threads are daemon threads
+   */
+  public void configure(final ThreadPoolExecutor pool, final String namePrefix,
+      final boolean daemon) {
+    if (isCompact()) {
+      pool.setThreadFactory(newThreadFactory(namePrefix, daemon));
+      pool.setKeepAliveTime(this.idleTimeoutMs, TimeUnit.MILLISECONDS);
+      pool.allowCoreThreadTimeOut(true);
+    }
+  }
+
+  public enum Mode {
+    PLATFORM,
+    COMPACT
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.executor.ExecutableFlowBase;
+import azkaban.executor.ExecutableNode;
+import azkaban.executor.Status;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a remaining-dependency count for every node of an executing flow.
+ *
+ * When a node finishes, each of its out-nodes is credited once, which costs O(1) per edge. A node
+ * becomes a candidate to run only when its count drops to zero, so the flow runner never has to
+ * walk a node's in-nodes again to find out whether it can start. Crediting the same edge twice is
+ * a no-op, because a finished flow can be reported more than once.
+ *
+ * A node's count is built from its in-nodes' statuses the first time it is needed. Statuses only
+ * move backwards when failed jobs are retried, and {@link #reset()} drops all counts in that case.
+ *
+ * Not thread safe. The flow runner only calls it while holding its main sync object.
+ */
+class FlowDependencyTracker {
+
+  private final Map<ExecutableNode, DependencyState> states = new HashMap<>();
+  // Number of in-node statuses read to build counts.
+  private long numInNodeReads = 0;
+
+  private static boolean isFailure(final Status status) {
+    return status == Status.FAILED || status == Status.CANCELLED || status == Status.KILLED;
+  }
+
+  /**
+   * Forgets every count. Counts are rebuilt lazily from the nodes' current statuses, so this must
+   * be called whenever finished nodes are reset to run again.
+   */
+  void reset() {
+    this.states.clear();
+  }
+
+  /**
+   * Records that the dependency has finished with its current status.
+   *
+   * @return true if the dependent has no unfinished dependencies left
+   */
+  boolean dependencyFinished(final ExecutableNode dependent, final ExecutableNode dependency) {
+    final DependencyState state = getState(dependent);
+    state.credit(dependency.getId(), dependency.getStatus());
+    return state.remaining == 0;
+  }
+
+  /**
+   * Returns true if every in-node of the node has finished.
+   */
+  boolean isReady(final ExecutableNode node) {
+    return getState(node).remaining == 0;
+  }
+
+  /**
+   * Returns true if any finished in-node of the node failed, was killed or was cancelled.
+   */
+  boolean hasFailedDependency(final ExecutableNode node) {
+    return getState(node).failed;
+  }
+
+  int getRemaining(final ExecutableNode node) {
+    return getState(node).remaining;
+  }
+
+  @VisibleForTesting
+  long getNumInNodeReads() {
+    return this.numInNodeReads;
+  }
+
+  private DependencyState getState(final ExecutableNode node) {
+    DependencyState state = this.states.get(node);
+    if (state == null) {
+      final ExecutableFlowBase flow = node.getParentFlow();
+      state = new DependencyState(node.getInNodes().size());
+      this.numInNodeReads += node.getInNodes().size();
+      for (final String inNodeId : node.getInNodes()) {
+        final ExecutableNode inNode = flow.getExecutableNode(inNodeId);
+        if (Status.isStatusFinished(inNode.getStatus())) {
+          state.credit(inNodeId, inNode.getStatus());
+        }
+      }
+      this.states.put(node, state);
+    }
+    return state;
+  }
+
+  private static class DependencyState {
+
+    private final Set<String> finishedInNodes = new HashSet<>();
+    private int remaining;
+    private boolean failed = false;
+
+    DependencyState(final int numInNodes) {
+      this.remaining = numInNodes;
+    }
+
+    void credit(final String inNodeId, final Status status) {
+      if (this.finishedInNodes.add(inNodeId)) {
+        this.remaining--;
+        if (isFailure(status)) {
+          this.failed = true;
+        }
+      }
+    }
+  }
+}
@@ -28,13 +28,16 @@ import azkaban.utils.FileIOUtils;
 import azkaban.utils.Pair;
 import azkaban.utils.Utils;
 import com.google.common.annotations.VisibleForTesting;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.Map;
-import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 
@@ -63,8 +66,9 @@ public class FlowPreparer {
    * Prepare the flow directory for execution.
    *
    * @param flow Executable Flow instance.
+   * @return the installed project version the execution directory was created from
    */
-  void setup(final ExecutableFlow flow) {
+  ProjectVersion setup(final ExecutableFlow flow) {
     File execDir = null;
     try {
       // First get the ProjectVersion
@@ -81,6 +85,7 @@ public class FlowPreparer {
 
       log.info(String.format("Flow Preparation complete. [execid: %d, path: %s]",
           flow.getExecutionId(), execDir.getPath()));
+      return projectVersion;
     } catch (final Exception e) {
       log.error("Error in setting up project directory: " + this.projectsDir + ", Exception: " + e);
       cleanup(execDir);
@@ -118,25 +123,23 @@ public class FlowPreparer {
     // TODO spyne: Why mkdirs? This path should be already set up.
     tempDir.mkdirs();
 
-    ProjectFileHandler projectFileHandler = null;
     try {
-      projectFileHandler = requireNonNull(this.storageManager.getProjectFile(projectId, version));
+      final ProjectFileHandler projectFileHandler =
+          requireNonNull(this.storageManager.fetchProjectFileMetadata(projectId, version));
       checkState("zip".equals(projectFileHandler.getFileType()));
 
       log.info("Downloading zip file.");
-      final File zipFile = requireNonNull(projectFileHandler.getLocalFile());
-      final ZipFile zip = new ZipFile(zipFile);
-      Utils.unzip(zip, tempDir);
+      // Unzip while downloading, without a local copy of the zip file.
+      try (InputStream in = this.storageManager.openProjectFile(projectFileHandler)) {
+        Utils.unzip(new ZipInputStream(new BufferedInputStream(in)), tempDir);
+        // The checksum is checked at the end of the file, after the entries the unzip read.
+        IOUtils.skip(in, Long.MAX_VALUE);
+      }
 
       Files.move(tempDir.toPath(), pv.getInstalledDir().toPath(), StandardCopyOption.ATOMIC_MOVE);
 
       log.warn(String.format("Project Preparation complete. [%s]", pv));
     } finally {
-
-      if (projectFileHandler != null) {
-        projectFileHandler.deleteLocalFile();
-      }
-
       // Clean up: Remove tempDir if exists
       FileUtils.deleteDirectory(tempDir);
     }
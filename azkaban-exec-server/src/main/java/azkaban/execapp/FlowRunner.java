@@ -51,7 +51,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -95,10 +94,15 @@ public class FlowRunner extends EventHandler implements Runnable {
       .newSetFromMap(new ConcurrentHashMap<JobRunner, Boolean>());
   // Thread safe swap queue for finishedExecutions.
   private final SwapQueue<ExecutableNode> finishedNodes;
+  // Remaining dependency counts. Only accessed while holding mainSyncObj.
+  private final FlowDependencyTracker dependencyTracker = new FlowDependencyTracker();
   private Logger logger;
   private Appender flowAppender;
   private File logFile;
   private ExecutorService executorService;
+  private ProjectVersion projectVersion;
+  // Job override (.jor) properties of the project version, loaded once per execution.
+  private Map<String, Props> jobOverrideProps = null;
   private Thread flowRunnerThread;
   private int numJobThreads = 10;
   // Used for pipelining
@@ -165,6 +169,14 @@ public class FlowRunner extends EventHandler implements Runnable {
     return this;
   }
 
+  /**
+   * Sets the installed project version, whose parsed job files are shared with other executions.
+   */
+  public FlowRunner setProjectVersion(final ProjectVersion projectVersion) {
+    this.projectVersion = projectVersion;
+    return this;
+  }
+
   public FlowRunner setNumJobThreads(final int jobs) {
     this.numJobThreads = jobs;
     return this;
@@ -268,7 +280,7 @@ public class FlowRunner extends EventHandler implements Runnable {
           + ". Pipelining level " + this.pipelineLevel);
     }
 
-    // The current thread is used for interrupting blocks
+    // The current thread runs the main loop until the flow finishes
     this.flowRunnerThread = Thread.currentThread();
     this.flowRunnerThread.setName("FlowRunner-exec-" + this.flow.getExecutionId());
   }
@@ -386,12 +398,15 @@ public class FlowRunner extends EventHandler implements Runnable {
     this.logger.info("Restarting all failed jobs");
 
     this.retryFailedJobs = false;
+    // Pick up job overrides edited since the execution started.
+    this.jobOverrideProps = null;
     this.flowKilled = false;
     this.flowFailed = false;
     this.flow.setStatus(Status.RUNNING);
 
     final ArrayList<ExecutableNode> retryJobs = new ArrayList<>();
     resetFailedState(this.flow, retryJobs);
+    this.dependencyTracker.reset();
 
     for (final ExecutableNode node : retryJobs) {
       if (node.getStatus() == Status.READY
@@ -413,12 +428,13 @@ public class FlowRunner extends EventHandler implements Runnable {
   private boolean progressGraph() throws IOException {
     this.finishedNodes.swap();
 
-    // The following nodes are finished, so we'll collect a list of outnodes
-    // that are candidates for running next.
-    final HashSet<ExecutableNode> nodesToCheck = new HashSet<>();
+    // Nodes whose dependencies have all finished. Retried jobs go straight in. Out-nodes are
+    // only credited once every retry decision below is made, so that a job about to be retried
+    // isn't seen as a failed dependency.
+    final List<ExecutableNode> readyNodes = new ArrayList<>();
+    final List<ExecutableNode> finishedDependencies = new ArrayList<>();
     for (final ExecutableNode node : this.finishedNodes) {
-      Set<String> outNodeIds = node.getOutNodes();
-      ExecutableFlowBase parentFlow = node.getParentFlow();
+      final ExecutableFlowBase parentFlow = node.getParentFlow();
 
       // If a job is seen as failed or killed due to failing SLA, then we set the parent flow to
       // FAILED_FINISHING
@@ -432,30 +448,36 @@ public class FlowRunner extends EventHandler implements Runnable {
           }
           this.flowFailed = true;
         } else {
-          nodesToCheck.add(node);
+          readyNodes.add(node);
           continue;
         }
       }
 
-      if (outNodeIds.isEmpty()) {
+      if (node.getOutNodes().isEmpty()) {
         // There's no outnodes means it's the end of a flow, so we finalize
         // and fire an event.
         finalizeFlow(parentFlow);
         finishExecutableNode(parentFlow);
 
-        // If the parent has a parent, then we process
+        // If the parent has a parent, then the embedded flow itself is the
+        // finished dependency of its out nodes.
         if (!(parentFlow instanceof ExecutableFlow)) {
-          outNodeIds = parentFlow.getOutNodes();
-          parentFlow = parentFlow.getParentFlow();
+          finishedDependencies.add(parentFlow);
         }
+      } else {
+        finishedDependencies.add(node);
       }
+    }
 
-      // Add all out nodes from the finished job. We'll check against this set
-      // to
-      // see if any are candidates for running.
-      for (final String nodeId : outNodeIds) {
+    // Credit every out node of the finished nodes. A node whose last dependency
+    // just finished is a candidate for running.
+    for (final ExecutableNode dependency : finishedDependencies) {
+      final ExecutableFlowBase parentFlow = dependency.getParentFlow();
+      for (final String nodeId : dependency.getOutNodes()) {
         final ExecutableNode outNode = parentFlow.getExecutableNode(nodeId);
-        nodesToCheck.add(outNode);
+        if (this.dependencyTracker.dependencyFinished(outNode, dependency)) {
+          readyNodes.add(outNode);
+        }
       }
     }
 
@@ -463,10 +485,10 @@ public class FlowRunner extends EventHandler implements Runnable {
     // before
     // Instant kill or skip if necessary.
     boolean jobsRun = false;
-    for (final ExecutableNode node : nodesToCheck) {
+    for (final ExecutableNode node : readyNodes) {
       if (Status.isStatusFinished(node.getStatus())
           || Status.isStatusRunning(node.getStatus())) {
-        // Really shouldn't get in here.
+        // Already handled, e.g. a flow that was reported finished twice.
         continue;
       }
 
@@ -637,8 +659,9 @@ public class FlowRunner extends EventHandler implements Runnable {
     // 2. Parent Flow Properties
     final ExecutableFlowBase parentFlow = node.getParentFlow();
     if (parentFlow != null) {
-      final Props flowProps = Props.clone(parentFlow.getInputProps());
-      flowProps.setEarliestAncestor(props);
+      // Sibling jobs share the flattened flow properties copy-on-write.
+      final Props flowProps = Props.clone(parentFlow.getInputPropsSnapshot());
+      flowProps.setParent(props);
       props = flowProps;
     }
 
@@ -676,21 +699,20 @@ public class FlowRunner extends EventHandler implements Runnable {
     }
 
     // load the override props if any
-    try {
-      props =
-          this.projectLoader.fetchProjectProperty(this.flow.getProjectId(),
-              this.flow.getVersion(), node.getId() + ".jor");
-    } catch (final ProjectManagerException e) {
-      e.printStackTrace();
-      this.logger.error("Error loading job override property for job "
-          + node.getId());
+    final Props overrideProps = getJobOverrideProps().get(node.getId() + ".jor");
+    if (overrideProps != null) {
+      props = Props.clone(overrideProps);
     }
 
     final File path = new File(this.execDir, source);
     if (props == null) {
       // if no override prop, load the original one on disk
       try {
-        props = new Props(null, path);
+        if (this.projectVersion != null) {
+          props = this.projectVersion.getJobProps(path);
+        } else {
+          props = new Props(null, path);
+        }
       } catch (final IOException e) {
         e.printStackTrace();
         this.logger.error("Error loading job file " + source + " for job "
@@ -708,6 +730,25 @@ public class FlowRunner extends EventHandler implements Runnable {
     return props;
   }
 
+  /**
+   * Loads all job overrides of the project version with a single query the first time they are
+   * needed. Jobs without overrides are simply absent from the map.
+   */
+  private Map<String, Props> getJobOverrideProps() {
+    if (this.jobOverrideProps == null) {
+      Map<String, Props> overrides = null;
+      try {
+        overrides = this.projectLoader.fetchProjectProperties(this.flow.getProjectId(),
+            this.flow.getVersion(), ".jor");
+      } catch (final ProjectManagerException e) {
+        this.logger.error("Error loading job override properties for project "
+            + this.flow.getProjectId() + " version " + this.flow.getVersion(), e);
+      }
+      this.jobOverrideProps = overrides != null ? overrides : Collections.emptyMap();
+    }
+    return this.jobOverrideProps;
+  }
+
   @SuppressWarnings("FutureReturnValueIgnored")
   private void runExecutableNode(final ExecutableNode node) throws IOException {
     // Collect output props from the job's dependencies.
@@ -736,23 +777,12 @@ public class FlowRunner extends EventHandler implements Runnable {
       return null;
     }
 
-    // Go through the node's dependencies. If all of the previous job's
-    // statuses is finished and not FAILED or KILLED, than we can safely
-    // run this job.
-    final ExecutableFlowBase flow = node.getParentFlow();
-    boolean shouldKill = false;
-    for (final String dependency : node.getInNodes()) {
-      final ExecutableNode dependencyNode = flow.getExecutableNode(dependency);
-      final Status depStatus = dependencyNode.getStatus();
-
-      if (!Status.isStatusFinished(depStatus)) {
-        return null;
-      } else if (depStatus == Status.FAILED || depStatus == Status.CANCELLED
-          || depStatus == Status.KILLED) {
-        // We propagate failures as KILLED states.
-        shouldKill = true;
-      }
+    // If all of the previous jobs are finished and not FAILED or KILLED, than
+    // we can safely run this job. Failures are propagated as KILLED states.
+    if (!this.dependencyTracker.isReady(node)) {
+      return null;
     }
+    final boolean shouldKill = this.dependencyTracker.hasFailedDependency(node);
 
     // If it's disabled but ready to run, we want to make sure it continues
     // being disabled.
@@ -810,7 +840,7 @@ public class FlowRunner extends EventHandler implements Runnable {
     jobRunner.addListener(this.listener);
 
     if (JobCallbackManager.isInitialized()) {
-      jobRunner.addListener(JobCallbackManager.getInstance());
+      jobRunner.addListener(JobCallbackManager.getInstance().getEventListener());
     }
 
     configureJobLevelMetrics(jobRunner);
@@ -852,7 +882,7 @@ public class FlowRunner extends EventHandler implements Runnable {
       }
     }
 
-    interrupt();
+    wakeUpMainLoop();
   }
 
   public void resume(final String user) {
@@ -874,7 +904,7 @@ public class FlowRunner extends EventHandler implements Runnable {
       }
     }
 
-    interrupt();
+    wakeUpMainLoop();
   }
 
   public void kill(final String user) {
@@ -906,14 +936,14 @@ public class FlowRunner extends EventHandler implements Runnable {
       }
       updateFlow();
     }
-    interrupt();
+    wakeUpMainLoop();
   }
 
   public void retryFailures(final String user) {
     synchronized (this.mainSyncObj) {
       this.logger.info("Retrying failures invoked by " + user);
       this.retryFailedJobs = true;
-      interrupt();
+      wakeUpMainLoop();
     }
   }
 
@@ -1015,8 +1045,14 @@ public class FlowRunner extends EventHandler implements Runnable {
         + oldFlowState + " to " + flow.getStatus());
   }
 
-  private void interrupt() {
-    this.flowRunnerThread.interrupt();
+  /**
+   * Wakes up the main loop. Every change the loop waits for is made while holding mainSyncObj, so
+   * no wake up can be lost between the loop's last check and its wait.
+   */
+  private void wakeUpMainLoop() {
+    synchronized (this.mainSyncObj) {
+      this.mainSyncObj.notifyAll();
+    }
   }
 
   public boolean isKilled() {
@@ -1121,7 +1157,7 @@ public class FlowRunner extends EventHandler implements Runnable {
           FlowRunner.this.finishedNodes.add(node);
           activeJobRunners.remove(runner);
           node.getParentFlow().setUpdateTime(System.currentTimeMillis());
-          interrupt();
+          wakeUpMainLoop();
           fireEventListeners(event);
         }
       } else if (event.getType() == Type.JOB_STARTED) {
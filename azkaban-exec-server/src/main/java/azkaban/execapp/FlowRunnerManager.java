@@ -58,6 +58,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -95,6 +96,11 @@ public class FlowRunnerManager implements EventListener,
   private static final String EXECUTOR_THREADPOOL_WORKQUEUE_SIZE = "executor.threadpool.workqueue.size";
   private static final String EXECUTOR_FLOW_THREADS = "executor.flow.threads";
   private static final String FLOW_NUM_JOB_THREADS = "flow.num.job.threads";
+  // Number of jobs that can run at the same time across all flows. 0 gives every flow its own
+  // pool of flow.num.job.threads threads instead.
+  private static final String EXECUTOR_JOB_SLOTS = "executor.job.slots";
+  // Share of the project's job slots given to a flow relative to its other flows.
+  private static final String FLOW_JOB_SLOT_WEIGHT = "flow.job.slot.weight";
 
   // recently finished secs to clean up. 1 minute
   private static final int RECENTLY_FINISHED_TIME_TO_LIVE = 60 * 1000;
@@ -111,6 +117,9 @@ public class FlowRunnerManager implements EventListener,
   private final Map<Pair<Integer, Integer>, ProjectVersion> installedProjects;
 
   private final TrackingThreadPool executorService;
+  private final ExecutorThreads executorThreads;
+  // Shared by all flows if executor.job.slots is set, null otherwise.
+  private final JobSlotScheduler jobSlotScheduler;
   private final CleanerThread cleanerThread;
   private final ExecutorLoader executorLoader;
   private final ProjectLoader projectLoader;
@@ -174,7 +183,11 @@ public class FlowRunnerManager implements EventListener,
     // azkaban.temp.dir
     this.numThreads = props.getInt(EXECUTOR_FLOW_THREADS, DEFAULT_NUM_EXECUTING_FLOWS);
     this.numJobThreadPerFlow = props.getInt(FLOW_NUM_JOB_THREADS, DEFAULT_FLOW_NUM_JOB_TREADS);
+    this.executorThreads = ExecutorThreads.fromProps(props);
     this.executorService = createExecutorService(this.numThreads);
+    final int numJobSlots = props.getInt(EXECUTOR_JOB_SLOTS, 0);
+    this.jobSlotScheduler = numJobSlots > 0
+        ? new JobSlotScheduler(numJobSlots, this.executorThreads) : null;
 
     // Create a flow preparer
     this.flowPreparer = new FlowPreparer(storageManager, this.executionDirectory,
@@ -237,14 +250,18 @@ public class FlowRunnerManager implements EventListener,
       final TrackingThreadPool executor =
           new TrackingThreadPool(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
               new LinkedBlockingQueue<>(this.threadPoolQueueSize), this);
+      this.executorThreads.configure(executor, "FlowRunner");
 
       return executor;
     } else {
       // the old way of using unbounded task queue.
       // if the running tasks are taking a long time or stuck, this queue
       // will be very very long.
-      return new TrackingThreadPool(nThreads, nThreads, 0L,
+      final TrackingThreadPool executor = new TrackingThreadPool(nThreads, nThreads, 0L,
           TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), this);
+      this.executorThreads.configure(executor, "FlowRunner");
+
+      return executor;
     }
   }
 
@@ -299,6 +316,7 @@ public class FlowRunnerManager implements EventListener,
   public void deleteDirectory(final ProjectVersion pv) throws IOException {
     synchronized (pv) {
       logger.warn("Deleting project: " + pv);
+      pv.clearJobPropsCache();
       final File installedDir = pv.getInstalledDir();
       if (installedDir != null && installedDir.exists()) {
         FileUtils.deleteDirectory(installedDir);
@@ -321,7 +339,7 @@ public class FlowRunnerManager implements EventListener,
     }
 
     // Sets up the project files and execution directory.
-    this.flowPreparer.setup(flow);
+    final ProjectVersion projectVersion = this.flowPreparer.setup(flow);
 
     // Setup flow runner
     FlowWatcher watcher = null;
@@ -356,10 +374,19 @@ public class FlowRunnerManager implements EventListener,
       }
     }
 
+    ExecutorService jobExecutor = null;
+    if (this.jobSlotScheduler != null) {
+      jobExecutor = this.jobSlotScheduler.newFlowExecutor(execId, flow.getProjectId(),
+          numJobThreads, getJobSlotWeight(flow));
+    } else if (this.executorThreads.isCompact()) {
+      jobExecutor = this.executorThreads.newFixedThreadPool(numJobThreads, "FlowJobs-" + execId);
+    }
+
     final FlowRunner runner =
         new FlowRunner(flow, this.executorLoader, this.projectLoader, this.jobtypeManager,
-            this.azkabanProps);
+            jobExecutor, this.azkabanProps);
     runner.setFlowWatcher(watcher)
+        .setProjectVersion(projectVersion)
         .setJobLogSettings(this.jobLogChunkSize, this.jobLogNumFiles)
         .setValidateProxyUser(this.validateProxyUser)
         .setNumJobThreads(numJobThreads).addListener(this);
@@ -393,6 +420,29 @@ public class FlowRunnerManager implements EventListener,
     }
   }
 
+  /**
+   * Only whitelisted projects can raise the weight of their flows, the same way they can raise
+   * their number of job threads.
+   */
+  private int getJobSlotWeight(final ExecutableFlow flow) throws ExecutorManagerException {
+    final String weightParam =
+        flow.getExecutionOptions().getFlowParameters().get(FLOW_JOB_SLOT_WEIGHT);
+    if (weightParam == null) {
+      return 1;
+    }
+    try {
+      final int weight = Integer.valueOf(weightParam);
+      if (weight == 1 || (weight > 1 && ProjectWhitelist
+          .isProjectWhitelisted(flow.getProjectId(), WhitelistType.NumJobPerFlow))) {
+        return weight;
+      }
+      return 1;
+    } catch (final NumberFormatException e) {
+      throw new ExecutorManagerException("Failed to set the job slot weight " + weightParam
+          + " for flow " + flow.getExecutionId(), e);
+    }
+  }
+
   /**
    * Configure Azkaban metrics tracking for a new flowRunner instance
    */
@@ -660,6 +710,14 @@ public class FlowRunnerManager implements EventListener,
     return this.executorService.getActiveCount();
   }
 
+  /**
+   * Returns the executor-wide job slot scheduler, or null if every flow runs its jobs in its own
+   * thread pool.
+   */
+  public JobSlotScheduler getJobSlotScheduler() {
+    return this.jobSlotScheduler;
+  }
+
   public String getRunningFlowIds() {
     // The in progress tasks are actually of type FutureTask
     final Set<Runnable> inProgressTasks = this.executorService.getInProgressTasks();
@@ -739,6 +797,9 @@ public class FlowRunnerManager implements EventListener,
         logger.error(e);
       }
     }
+    if (this.jobSlotScheduler != null) {
+      this.jobSlotScheduler.shutdown();
+    }
     logger.warn("Shutdown FlowRunnerManager complete.");
   }
 
@@ -749,6 +810,9 @@ public class FlowRunnerManager implements EventListener,
   public void shutdownNow() {
     logger.warn("Shutting down FlowRunnerManager now...");
     this.executorService.shutdownNow();
+    if (this.jobSlotScheduler != null) {
+      this.jobSlotScheduler.shutdownNow();
+    }
     this.triggerManager.shutdown();
   }
 
@@ -32,6 +32,8 @@ import azkaban.flow.CommonJobProperties;
 import azkaban.jobExecutor.AbstractProcessJob;
 import azkaban.jobExecutor.JavaProcessJob;
 import azkaban.jobExecutor.Job;
+import azkaban.jobExecutor.ProcessJob;
+import azkaban.jobExecutor.utils.process.ProcessResourceSampler;
 import azkaban.jobtype.JobTypeManager;
 import azkaban.jobtype.JobTypeManagerException;
 import azkaban.utils.ExternalLinkUtils;
@@ -91,6 +93,10 @@ public class JobRunner extends EventHandler implements Runnable {
   private int jobLogBackupIndex;
 
   private long delayStartMs = 0;
+  // Time spent waiting for a slot of the executor's job slot scheduler.
+  private volatile long queueWaitMs = 0;
+  // The executor-wide job slot this job runs in, or null if the executor doesn't use them.
+  private volatile JobSlotScheduler.Slot jobSlot = null;
   private boolean killed = false;
   private BlockingStatus currentBlockStatus = null;
 
@@ -242,6 +248,18 @@ public class JobRunner extends EventHandler implements Runnable {
     this.delayStartMs = delayMS;
   }
 
+  public long getQueueWaitTime() {
+    return this.queueWaitMs;
+  }
+
+  public void setQueueWaitTime(final long queueWaitMs) {
+    this.queueWaitMs = queueWaitMs;
+  }
+
+  public void setJobSlot(final JobSlotScheduler.Slot jobSlot) {
+    this.jobSlot = jobSlot;
+  }
+
   public ExecutableNode getNode() {
     return this.node;
   }
@@ -563,7 +581,18 @@ public class JobRunner extends EventHandler implements Runnable {
 
     createAttachmentFile();
     createLogger();
+    if (this.queueWaitMs > 0) {
+      this.logger.info("Waited " + this.queueWaitMs + " ms for a free job slot.");
+    }
     boolean errorFound = false;
+    // The jobs this job waits for may need the job slot to run.
+    final JobSlotScheduler.Slot slot = this.jobSlot;
+    final boolean releaseSlot =
+        slot != null && (this.delayStartMs > 0 || !this.pipelineJobs.isEmpty());
+    if (releaseSlot) {
+      slot.release();
+    }
+
     // Delay execution if necessary. Will return a true if something went wrong.
     errorFound |= delayExecution();
 
@@ -571,6 +600,20 @@ public class JobRunner extends EventHandler implements Runnable {
     // something went wrong.
     errorFound |= blockOnPipeLine();
 
+    if (releaseSlot) {
+      try {
+        final long slotWaitMs = slot.reacquire();
+        if (slotWaitMs > 0) {
+          this.logger.info("Waited " + slotWaitMs + " ms for a free job slot after waiting.");
+        } else if (slotWaitMs < 0) {
+          this.logger.info("Killed while waiting for a free job slot.");
+        }
+      } catch (final InterruptedException e) {
+        this.logger.error("Interrupted while waiting for a free job slot.");
+        errorFound = true;
+      }
+    }
+
     // Start the node.
     this.node.setStartTime(System.currentTimeMillis());
     Status finalStatus = this.node.getStatus();
@@ -763,6 +806,15 @@ public class JobRunner extends EventHandler implements Runnable {
       this.node.setOutputProps(this.job.getJobGeneratedProperties());
     }
 
+    if (this.job instanceof ProcessJob) {
+      final ProcessResourceSampler.ResourceUsage usage =
+          ((ProcessJob) this.job).getResourceUsage();
+      if (usage != null && usage.getNumSamples() > 0) {
+        logInfo("Resource usage of job processes: " + usage);
+        this.node.setResourceUsage(usage.toObject());
+      }
+    }
+
     // If the job is still running, set the status to Success.
     if (!Status.isStatusFinished(finalStatus)) {
       finalStatus = changeStatus(Status.SUCCEEDED);
@@ -810,6 +862,11 @@ public class JobRunner extends EventHandler implements Runnable {
         status.unblock();
       }
 
+      final JobSlotScheduler.Slot slot = this.jobSlot;
+      if (slot != null) {
+        slot.cancel();
+      }
+
       // Cancel code here
       if (this.job == null) {
         logError("Job hasn't started yet.");
@@ -0,0 +1,498 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Executor-wide pool of job slots shared by every running flow.
+ *
+ * Instead of each flow runner owning a fixed thread pool, flows get a lightweight
+ * {@link ExecutorService} from {@link #newFlowExecutor} that queues their jobs here. At most
+ * {@code numSlots} jobs run at the same time on the executor, and each flow never runs more than
+ * its own cap.
+ *
+ * Free slots are handed out with weighted fair queuing at two levels. Projects share the slots
+ * equally, and flows of the same project share their project's portion according to their weight.
+ * Every dispatched job advances the virtual time of its project by 1 and of its flow by
+ * 1 / weight, and the next slot goes to the eligible project, then flow, with the lowest virtual
+ * time. Projects and flows that become active start at the lowest virtual time of their peers, so
+ * they can't claim slots for the time they were idle.
+ *
+ * The time every job spent waiting for a slot is handed to its {@link JobRunner} and summed up
+ * for metrics.
+ *
+ * A job that waits for other jobs before it starts, e.g. on a pipeline or a delay, releases its
+ * {@link Slot} while it waits, so that the jobs it waits for can get one. It takes a slot again
+ * before it goes on, ahead of the queued jobs.
+ */
+public class JobSlotScheduler {
+
+  private static final Logger logger = Logger.getLogger(JobSlotScheduler.class);
+
+  private final int numSlots;
+  private final ExecutorService workers;
+  private final Object lock = new Object();
+  // Projects that have at least one registered flow, keyed by project id.
+  private final Map<Integer, ProjectQueue> projects = new HashMap<>();
+
+  private int runningJobs = 0;
+  // Jobs waiting to take back the slot they released. Free slots go to them first.
+  private int resumingJobs = 0;
+  private int queuedJobs = 0;
+  private long totalDispatchedJobs = 0;
+  private long totalQueueWaitMs = 0;
+  private long maxQueueWaitMs = 0;
+
+  public JobSlotScheduler(final int numSlots) {
+    this(numSlots, new ExecutorThreads(ExecutorThreads.Mode.PLATFORM, 0, 0));
+  }
+
+  public JobSlotScheduler(final int numSlots, final ExecutorThreads executorThreads) {
+    if (numSlots <= 0) {
+      throw new IllegalArgumentException("Number of job slots must be positive: " + numSlots);
+    }
+    this.numSlots = numSlots;
+    // Jobs are only handed to the workers when a slot is free. Jobs that released their slot
+    // keep their thread, so there can be more threads than slots.
+    final ThreadPoolExecutor workers = new ThreadPoolExecutor(numSlots, Integer.MAX_VALUE, 60L,
+        TimeUnit.SECONDS, new SynchronousQueue<>(),
+        executorThreads.newThreadFactory("JobSlot", true));
+    executorThreads.configure(workers, "JobSlot", true);
+    this.workers = workers;
+    logger.info("Created job slot scheduler with " + numSlots + " slots");
+  }
+
+  /**
+   * Registers a flow and returns the executor service its jobs should be submitted to.
+   *
+   * @param maxRunningJobs maximum number of jobs of this flow running at the same time
+   * @param weight share of its project's slots relative to the project's other flows
+   */
+  public ExecutorService newFlowExecutor(final int execId, final int projectId,
+      final int maxRunningJobs, final int weight) {
+    if (maxRunningJobs <= 0 || weight <= 0) {
+      throw new IllegalArgumentException("Invalid max running jobs " + maxRunningJobs
+          + " or weight " + weight + " for execution " + execId);
+    }
+
+    synchronized (this.lock) {
+      ProjectQueue project = this.projects.get(projectId);
+      if (project == null) {
+        project = new ProjectQueue(projectId);
+        project.virtualTime = minVirtualTime(this.projects.values());
+        this.projects.put(projectId, project);
+      }
+      final FlowQueue flow = new FlowQueue(execId, project, maxRunningJobs, weight);
+      flow.virtualTime = minVirtualTime(project.flows);
+      project.flows.add(flow);
+      return flow;
+    }
+  }
+
+  public int getNumSlots() {
+    return this.numSlots;
+  }
+
+  public int getNumRunningJobs() {
+    synchronized (this.lock) {
+      return this.runningJobs;
+    }
+  }
+
+  public int getNumQueuedJobs() {
+    synchronized (this.lock) {
+      return this.queuedJobs;
+    }
+  }
+
+  public long getTotalQueueWaitMs() {
+    synchronized (this.lock) {
+      return this.totalQueueWaitMs;
+    }
+  }
+
+  public long getMaxQueueWaitMs() {
+    synchronized (this.lock) {
+      return this.maxQueueWaitMs;
+    }
+  }
+
+  /**
+   * Returns the average time in ms that dispatched jobs waited for a slot.
+   */
+  public long getAverageQueueWaitMs() {
+    synchronized (this.lock) {
+      return this.totalDispatchedJobs == 0 ? 0
+          : this.totalQueueWaitMs / this.totalDispatchedJobs;
+    }
+  }
+
+  /**
+   * Stops the slot threads once the running jobs are done. Flows must have been shut down first.
+   */
+  public void shutdown() {
+    this.workers.shutdown();
+  }
+
+  public void shutdownNow() {
+    this.workers.shutdownNow();
+  }
+
+  private static double minVirtualTime(final Iterable<? extends Scheduled> queues) {
+    double min = Double.MAX_VALUE;
+    for (final Scheduled queue : queues) {
+      if (queue.hasEligibleJob()) {
+        min = Math.min(min, queue.getVirtualTime());
+      }
+    }
+    return min == Double.MAX_VALUE ? 0 : min;
+  }
+
+  private static <T extends Scheduled> T pickLowestVirtualTime(final Iterable<T> queues) {
+    T next = null;
+    for (final T queue : queues) {
+      if (queue.hasEligibleJob()
+          && (next == null || queue.getVirtualTime() < next.getVirtualTime())) {
+        next = queue;
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Hands free slots to queued jobs until either runs out. Must hold the lock.
+   */
+  private void dispatch() {
+    while (this.runningJobs + this.resumingJobs < this.numSlots) {
+      final ProjectQueue project = pickLowestVirtualTime(this.projects.values());
+      if (project == null) {
+        return;
+      }
+      final FlowQueue flow = pickLowestVirtualTime(project.flows);
+      final SlotTask<?> task = flow.queue.poll();
+
+      project.virtualTime += 1;
+      flow.virtualTime += 1.0 / flow.weight;
+      flow.running++;
+      this.runningJobs++;
+      this.queuedJobs--;
+
+      final long waitMs = System.currentTimeMillis() - task.queuedTime;
+      this.totalDispatchedJobs++;
+      this.totalQueueWaitMs += waitMs;
+      this.maxQueueWaitMs = Math.max(this.maxQueueWaitMs, waitMs);
+      final Slot slot = new Slot();
+      if (task.runnable instanceof JobRunner) {
+        ((JobRunner) task.runnable).setQueueWaitTime(waitMs);
+        ((JobRunner) task.runnable).setJobSlot(slot);
+      }
+
+      try {
+        this.workers.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            release(flow, slot);
+          }
+        });
+      } catch (final RejectedExecutionException e) {
+        logger.error("Job slot scheduler is shut down. Dropping job of execution "
+            + flow.execId, e);
+        task.cancel(false);
+        flow.running--;
+        this.runningJobs--;
+        flow.removeIfTerminated();
+      }
+    }
+  }
+
+  private void release(final FlowQueue flow, final Slot slot) {
+    synchronized (this.lock) {
+      flow.running--;
+      if (!slot.released) {
+        this.runningJobs--;
+      }
+      flow.removeIfTerminated();
+      dispatch();
+      this.lock.notifyAll();
+    }
+  }
+
+  /**
+   * The executor-wide slot a job runs in. Its flow's running jobs still count the job while the
+   * slot is released.
+   */
+  public class Slot {
+
+    // Guarded by the lock.
+    private boolean released = false;
+    private boolean cancelled = false;
+
+    /**
+     * Lets a queued job have the slot while this job waits.
+     */
+    public void release() {
+      synchronized (JobSlotScheduler.this.lock) {
+        if (this.released) {
+          return;
+        }
+        this.released = true;
+        JobSlotScheduler.this.runningJobs--;
+        dispatch();
+        JobSlotScheduler.this.lock.notifyAll();
+      }
+    }
+
+    /**
+     * Makes a pending or later {@link #reacquire()} give up waiting, e.g. when the job is killed.
+     */
+    public void cancel() {
+      synchronized (JobSlotScheduler.this.lock) {
+        this.cancelled = true;
+        JobSlotScheduler.this.lock.notifyAll();
+      }
+    }
+
+    /**
+     * Waits for a free slot, if the slot was released.
+     *
+     * @return time in ms waited for the slot, or -1 if the slot was cancelled while released
+     * @throws InterruptedException if interrupted while waiting, in which case the slot stays
+     * released
+     */
+    public long reacquire() throws InterruptedException {
+      final long startTime = System.currentTimeMillis();
+      synchronized (JobSlotScheduler.this.lock) {
+        if (!this.released) {
+          return 0;
+        }
+        JobSlotScheduler.this.resumingJobs++;
+        try {
+          while (JobSlotScheduler.this.runningJobs >= JobSlotScheduler.this.numSlots) {
+            if (this.cancelled) {
+              return -1;
+            }
+            JobSlotScheduler.this.lock.wait();
+          }
+          JobSlotScheduler.this.runningJobs++;
+          this.released = false;
+        } finally {
+          JobSlotScheduler.this.resumingJobs--;
+          if (this.released) {
+            // Queued jobs may have been held back for this job.
+            dispatch();
+          }
+        }
+      }
+      return System.currentTimeMillis() - startTime;
+    }
+  }
+
+  private interface Scheduled {
+
+    boolean hasEligibleJob();
+
+    double getVirtualTime();
+  }
+
+  private static class SlotTask<T> extends FutureTask<T> {
+
+    private final Object runnable;
+    private final long queuedTime = System.currentTimeMillis();
+
+    SlotTask(final Runnable runnable, final T value) {
+      super(runnable, value);
+      this.runnable = runnable;
+    }
+
+    SlotTask(final Callable<T> callable) {
+      super(callable);
+      this.runnable = callable;
+    }
+  }
+
+  private class ProjectQueue implements Scheduled {
+
+    private final int projectId;
+    private final List<FlowQueue> flows = new ArrayList<>();
+    private double virtualTime = 0;
+
+    ProjectQueue(final int projectId) {
+      this.projectId = projectId;
+    }
+
+    @Override
+    public boolean hasEligibleJob() {
+      for (final FlowQueue flow : this.flows) {
+        if (flow.hasEligibleJob()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public double getVirtualTime() {
+      return this.virtualTime;
+    }
+  }
+
+  /**
+   * Per flow view of the scheduler. Shutting it down lets the queued and running jobs finish,
+   * after which the flow is unregistered.
+   */
+  private class FlowQueue extends AbstractExecutorService implements Scheduled {
+
+    private final int execId;
+    private final ProjectQueue project;
+    private final int maxRunning;
+    private final int weight;
+    private final Deque<SlotTask<?>> queue = new ArrayDeque<>();
+    private int running = 0;
+    private double virtualTime = 0;
+    private boolean shutdown = false;
+
+    FlowQueue(final int execId, final ProjectQueue project, final int maxRunning,
+        final int weight) {
+      this.execId = execId;
+      this.project = project;
+      this.maxRunning = maxRunning;
+      this.weight = weight;
+    }
+
+    @Override
+    public boolean hasEligibleJob() {
+      return !this.queue.isEmpty() && this.running < this.maxRunning;
+    }
+
+    @Override
+    public double getVirtualTime() {
+      return this.virtualTime;
+    }
+
+    @Override
+    protected <T> SlotTask<T> newTaskFor(final Runnable runnable, final T value) {
+      return new SlotTask<>(runnable, value);
+    }
+
+    @Override
+    protected <T> SlotTask<T> newTaskFor(final Callable<T> callable) {
+      return new SlotTask<>(callable);
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+      final SlotTask<?> task =
+          command instanceof SlotTask ? (SlotTask<?>) command : newTaskFor(command, null);
+      synchronized (JobSlotScheduler.this.lock) {
+        if (this.shutdown) {
+          throw new RejectedExecutionException("Execution " + this.execId + " is shut down");
+        }
+        if (!hasEligibleJob() && this.running < this.maxRunning) {
+          // Coming back from idle. Don't let the flow claim the slots it didn't use.
+          this.virtualTime = Math.max(this.virtualTime, minVirtualTime(this.project.flows));
+          if (!this.project.hasEligibleJob()) {
+            this.project.virtualTime = Math.max(this.project.virtualTime,
+                minVirtualTime(JobSlotScheduler.this.projects.values()));
+          }
+        }
+        this.queue.add(task);
+        JobSlotScheduler.this.queuedJobs++;
+        dispatch();
+      }
+    }
+
+    @Override
+    public void shutdown() {
+      synchronized (JobSlotScheduler.this.lock) {
+        this.shutdown = true;
+        removeIfTerminated();
+        JobSlotScheduler.this.lock.notifyAll();
+      }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      synchronized (JobSlotScheduler.this.lock) {
+        this.shutdown = true;
+        final List<Runnable> dropped = new ArrayList<>(this.queue);
+        JobSlotScheduler.this.queuedJobs -= this.queue.size();
+        this.queue.clear();
+        removeIfTerminated();
+        JobSlotScheduler.this.lock.notifyAll();
+        return dropped;
+      }
+    }
+
+    @Override
+    public boolean isShutdown() {
+      synchronized (JobSlotScheduler.this.lock) {
+        return this.shutdown;
+      }
+    }
+
+    @Override
+    public boolean isTerminated() {
+      synchronized (JobSlotScheduler.this.lock) {
+        return this.shutdown && this.queue.isEmpty() && this.running == 0;
+      }
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit)
+        throws InterruptedException {
+      final long deadline = System.nanoTime() + unit.toNanos(timeout);
+      synchronized (JobSlotScheduler.this.lock) {
+        while (!isTerminated()) {
+          final long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          }
+          TimeUnit.NANOSECONDS.timedWait(JobSlotScheduler.this.lock, remaining);
+        }
+        return true;
+      }
+    }
+
+    /**
+     * Unregisters the flow, and its project if it was the last flow. Must hold the lock.
+     */
+    private void removeIfTerminated() {
+      if (this.shutdown && this.queue.isEmpty() && this.running == 0) {
+        this.project.flows.remove(this);
+        if (this.project.flows.isEmpty()) {
+          JobSlotScheduler.this.projects.remove(this.project.projectId);
+        }
+      }
+    }
+  }
+}
@@ -18,13 +18,24 @@ package azkaban.execapp;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import azkaban.utils.Props;
+import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class ProjectVersion implements Comparable<ProjectVersion> {
 
   private final int projectId;
   private final int version;
+  // Parsed job files, keyed by their file key. The exec dirs of the version are hard links to
+  // its installed files, so the job files of all its executions share their file keys.
+  private final Map<Object, ParsedJobFile> jobPropsCache = new ConcurrentHashMap<>();
 
   private File installedDir;
 
@@ -55,6 +66,42 @@ public class ProjectVersion implements Comparable<ProjectVersion> {
 
   public void setInstalledDir(final File installedDir) {
     this.installedDir = installedDir;
+    this.jobPropsCache.clear();
+  }
+
+  /**
+   * Parses a job file in an exec dir of this version. A file is only parsed again when it isn't
+   * the same file any more, or has been modified, so a job file changed in the exec dir is always
+   * seen. Callers get a new Props they are free to modify.
+   */
+  public Props getJobProps(final File file) throws IOException {
+    final BasicFileAttributes attributes =
+        Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    final Object fileKey = attributes.fileKey();
+    if (fileKey == null) {
+      // Files can't be identified on this platform.
+      return new Props(null, file);
+    }
+    ParsedJobFile parsed = this.jobPropsCache.get(fileKey);
+    if (parsed == null || !parsed.matches(attributes)) {
+      parsed = new ParsedJobFile(attributes, new Props(null, file));
+      this.jobPropsCache.put(fileKey, parsed);
+    }
+    final Props props = new Props(null, parsed.props);
+    props.setSource(file.getPath());
+    return props;
+  }
+
+  @VisibleForTesting
+  int getNumParsedJobFiles() {
+    return this.jobPropsCache.size();
+  }
+
+  /**
+   * Drops the parsed job files, e.g. when the installed version is deleted.
+   */
+  public void clearJobPropsCache() {
+    this.jobPropsCache.clear();
   }
 
   @Override
@@ -73,4 +120,23 @@ public class ProjectVersion implements Comparable<ProjectVersion> {
         + this.installedDir
         + '}';
   }
+
+  private static class ParsedJobFile {
+
+    private final long size;
+    private final long lastModifiedMs;
+    // Never modified, it's copied for every caller.
+    private final Map<String, String> props;
+
+    ParsedJobFile(final BasicFileAttributes attributes, final Props props) {
+      this.size = attributes.size();
+      this.lastModifiedMs = attributes.lastModifiedTime().toMillis();
+      this.props = Collections.unmodifiableMap(props.getFlattened());
+    }
+
+    boolean matches(final BasicFileAttributes attributes) {
+      return this.size == attributes.size()
+          && this.lastModifiedMs == attributes.lastModifiedTime().toMillis();
+    }
+  }
 }
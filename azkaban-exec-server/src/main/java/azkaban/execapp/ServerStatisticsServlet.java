@@ -17,6 +17,7 @@
 package azkaban.execapp;
 
 import azkaban.executor.ExecutorInfo;
+import azkaban.jobExecutor.utils.process.ProcessResourceSampler;
 import azkaban.utils.JSONUtils;
 import java.io.File;
 import java.io.IOException;
@@ -194,12 +195,26 @@ public class ServerStatisticsServlet extends HttpServlet {
       fillRemainingMemoryPercent(stats);
       fillRemainingFlowCapacityAndLastDispatchedTime(stats);
       fillCpuUsage(stats);
+      fillJobProcessUsage(stats);
 
       cachedstats = stats;
       lastRefreshedTime = System.currentTimeMillis();
     }
   }
 
+  /**
+   * fill the result set with the processes of the running jobs, as seen by the last pass of the
+   * {@link ProcessResourceSampler}.
+   *
+   * @param stats reference to the result container which contains all the results, this specific
+   * method will only work on the property "numberOfJobProcesses" and "jobProcessMemoryInMB".
+   */
+  protected void fillJobProcessUsage(final ExecutorInfo stats) {
+    final ProcessResourceSampler sampler = ProcessResourceSampler.getInstance();
+    stats.setNumberOfJobProcesses(sampler.getNumSampledProcesses());
+    stats.setJobProcessMemoryInMB(sampler.getSampledRssBytes() / (1024 * 1024));
+  }
+
   /**
    * fill the result set with the remaining flow capacity .
    *
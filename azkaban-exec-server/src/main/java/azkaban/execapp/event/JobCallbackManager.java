@@ -1,11 +1,14 @@
 package azkaban.execapp.event;
 
+import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_EXECUTION_ID_TOKEN;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_JOB_TOKEN;
 import static azkaban.jobcallback.JobCallbackStatusEnum.COMPLETED;
 import static azkaban.jobcallback.JobCallbackStatusEnum.FAILURE;
 import static azkaban.jobcallback.JobCallbackStatusEnum.STARTED;
 import static azkaban.jobcallback.JobCallbackStatusEnum.SUCCESS;
 
+import azkaban.Constants.JobCallbackProperties;
+import azkaban.event.AsyncEventListener;
 import azkaban.event.Event;
 import azkaban.event.EventData;
 import azkaban.event.EventListener;
@@ -31,13 +34,16 @@ import org.apache.log4j.Logger;
  * Responsible processing job callback properties on job status change events.
  *
  * When job callback properties are specified, they will be converted to HTTP
- * calls to execute. The HTTP requests will be made in asynchronous mode so the
- * caller to the handleEvent method will not be block. In addition, the HTTP
+ * calls to execute. The HTTP requests are queued and made by
+ * {@link JobCallbackRequestMaker}'s thread pool so the caller to the
+ * handleEvent method will not be blocked. In addition, the HTTP
  * calls will be configured to time appropriately for connection request,
  * creating connection, and socket timeout.
  *
  * The HTTP request and response will be logged out the job's log for debugging
- * and traceability purpose.
+ * and traceability purpose. If the events are handled on threads of their own
+ * (jobcallback.event.threads), they are logged to this class's log instead,
+ * since the job's log may already be closed by then.
  *
  * @author hluu
  */
@@ -50,9 +56,11 @@ public class JobCallbackManager implements EventListener {
   private static boolean isInitialized = false;
   private static JobCallbackManager instance;
   private static int maxNumCallBack = 3;
+  private static final int DEFAULT_EVENT_BUFFER_SIZE = 1024;
   private final JmxJobCallbackMBean callbackMbean;
   private final String azkabanHostName;
   private final SimpleDateFormat gmtDateFormatter;
+  private final AsyncEventListener asyncListener;
 
   private JobCallbackManager(final Props props) {
     maxNumCallBack = props.getInt("jobcallback.max_count", maxNumCallBack);
@@ -61,14 +69,22 @@ public class JobCallbackManager implements EventListener {
     JobCallbackRequestMaker.initialize(props);
 
     this.callbackMbean =
-        new JmxJobCallback(JobCallbackRequestMaker.getInstance()
-            .getJobcallbackMetrics());
+        new JmxJobCallback(JobCallbackRequestMaker.getInstance());
 
     this.azkabanHostName = getAzkabanHostName(props);
 
     this.gmtDateFormatter = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z");
     this.gmtDateFormatter.setTimeZone(TimeZone.getTimeZone("GMT"));
 
+    final int eventThreads = props.getInt(JobCallbackProperties.JOBCALLBACK_EVENT_THREADS, 0);
+    if (eventThreads > 0) {
+      this.asyncListener = new AsyncEventListener("JobCallback", this, eventThreads,
+          props.getInt(JobCallbackProperties.JOBCALLBACK_EVENT_BUFFER_SIZE,
+              DEFAULT_EVENT_BUFFER_SIZE));
+    } else {
+      this.asyncListener = null;
+    }
+
     logger.info("Initialization completed " + getClass().getName());
     logger.info("azkabanHostName " + this.azkabanHostName);
   }
@@ -97,10 +113,41 @@ public class JobCallbackManager implements EventListener {
     return instance;
   }
 
+  /**
+   * @return the listener to add to job runners, which hands the events to this manager on its own
+   * threads if {@link JobCallbackProperties#JOBCALLBACK_EVENT_THREADS} is set
+   */
+  public EventListener getEventListener() {
+    return this.asyncListener != null ? this.asyncListener : this;
+  }
+
+  /**
+   * @return the asynchronous listener, or null if events are handled on the job thread
+   */
+  public AsyncEventListener getAsyncEventListener() {
+    return this.asyncListener;
+  }
+
   public JmxJobCallbackMBean getJmxJobCallbackMBean() {
     return this.callbackMbean;
   }
 
+  /**
+   * Stops the threads that handle events asynchronously, if any.
+   */
+  public void shutdown() {
+    if (this.asyncListener != null) {
+      this.asyncListener.shutdown();
+    }
+  }
+
+  /**
+   * The job finishes, and closes its log, without waiting for an asynchronous listener.
+   */
+  private Logger getJobLogger(final JobRunner jobRunner) {
+    return this.asyncListener != null ? logger : jobRunner.getLogger();
+  }
+
   @Override
   public void handleEvent(final Event event) {
     if (!isInitialized) {
@@ -117,7 +164,7 @@ public class JobCallbackManager implements EventListener {
       } catch (final Throwable e) {
         // Use job runner logger so user can see the issue in their job log
         final JobRunner jobRunner = (JobRunner) event.getRunner();
-        jobRunner.getLogger().error(
+        getJobLogger(jobRunner).error(
             "Encountered error while hanlding job callback event", e);
       }
     } else {
@@ -144,7 +191,7 @@ public class JobCallbackManager implements EventListener {
         JobCallbackUtil.buildJobContextInfoMap(event, this.azkabanHostName);
 
     JobCallbackStatusEnum jobCallBackStatusEnum = null;
-    final Logger jobLogger = jobRunner.getLogger();
+    final Logger jobLogger = getJobLogger(jobRunner);
 
     final Status jobStatus = eventData.getStatus();
 
@@ -171,16 +218,18 @@ public class JobCallbackManager implements EventListener {
 
       if (!jobCallbackHttpRequests.isEmpty()) {
         final String msg =
-            String.format("Making %d job callbacks for status: %s",
-                jobCallbackHttpRequests.size(), jobCallBackStatusEnum.name());
+            String.format("Making %d job callbacks for job %s for status: %s",
+                jobCallbackHttpRequests.size(), jobId, jobCallBackStatusEnum.name());
         jobLogger.info(msg);
 
         addDefaultHeaders(jobCallbackHttpRequests);
 
-        JobCallbackRequestMaker.getInstance().makeHttpRequest(jobId, jobLogger,
-            jobCallbackHttpRequests);
+        JobCallbackRequestMaker.getInstance().makeHttpRequest(
+            contextInfo.get(CONTEXT_EXECUTION_ID_TOKEN), jobId, jobCallBackStatusEnum,
+            jobLogger, jobCallbackHttpRequests);
       } else {
-        jobLogger.info("No job callbacks for status: " + jobCallBackStatusEnum);
+        jobLogger.info("No job callbacks for job " + jobId + " for status: "
+            + jobCallBackStatusEnum);
       }
     }
 
@@ -192,18 +241,20 @@ public class JobCallbackManager implements EventListener {
     // now make the call
     if (!httpRequestsForCompletedStatus.isEmpty()) {
       jobLogger.info("Making " + httpRequestsForCompletedStatus.size()
-          + " job callbacks for status: " + COMPLETED);
+          + " job callbacks for job " + jobId + " for status: " + COMPLETED);
 
       addDefaultHeaders(httpRequestsForCompletedStatus);
-      JobCallbackRequestMaker.getInstance().makeHttpRequest(jobId, jobLogger,
+      JobCallbackRequestMaker.getInstance().makeHttpRequest(
+          contextInfo.get(CONTEXT_EXECUTION_ID_TOKEN), jobId, COMPLETED, jobLogger,
           httpRequestsForCompletedStatus);
     } else {
-      jobLogger.info("No job callbacks for status: " + COMPLETED);
+      jobLogger.info("No job callbacks for job " + jobId + " for status: " + COMPLETED);
     }
   }
 
   private void processJobCallOnStart(final Event event) {
     final JobRunner jobRunner = (JobRunner) event.getRunner();
+    final Logger jobLogger = getJobLogger(jobRunner);
 
     if (JobCallbackUtil.isThereJobCallbackProperty(jobRunner.getProps(),
         JobCallbackStatusEnum.STARTED)) {
@@ -217,19 +268,20 @@ public class JobCallbackManager implements EventListener {
 
       final List<HttpRequestBase> jobCallbackHttpRequests =
           JobCallbackUtil.parseJobCallbackProperties(props, STARTED,
-              contextInfo, maxNumCallBack, jobRunner.getLogger());
+              contextInfo, maxNumCallBack, jobLogger);
 
       final String jobId = contextInfo.get(CONTEXT_JOB_TOKEN);
       final String msg =
           String.format("Making %d job callbacks for job %s for jobStatus: %s",
               jobCallbackHttpRequests.size(), jobId, STARTED.name());
 
-      jobRunner.getLogger().info(msg);
+      jobLogger.info(msg);
 
       addDefaultHeaders(jobCallbackHttpRequests);
 
-      JobCallbackRequestMaker.getInstance().makeHttpRequest(jobId,
-          jobRunner.getLogger(), jobCallbackHttpRequests);
+      JobCallbackRequestMaker.getInstance().makeHttpRequest(
+          contextInfo.get(CONTEXT_EXECUTION_ID_TOKEN), jobId, STARTED,
+          jobLogger, jobCallbackHttpRequests);
     }
   }
 
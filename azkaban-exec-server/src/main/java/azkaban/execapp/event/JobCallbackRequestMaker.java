@@ -2,42 +2,66 @@ package azkaban.execapp.event;
 
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_CONNECTION_REQUEST_TIMEOUT;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_CONNECTION_TIMEOUT;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_MAX_REQUESTS_PER_HOST;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_MAX_RETRIES;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_QUEUE_CAPACITY;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_RESPONSE_WAIT_TIMEOUT;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_RETRY_BACKOFF_MS;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_SOCKET_TIMEOUT;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_THREAD_POOL_SIZE;
 
+import azkaban.jobcallback.JobCallbackStatusEnum;
 import azkaban.utils.Props;
+import com.google.common.annotations.VisibleForTesting;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.impl.client.FutureRequestExecutionMetrics;
-import org.apache.http.impl.client.FutureRequestExecutionService;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.HttpRequestFutureTask;
+import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 
 /**
  * Responsible for making the job callback HTTP requests.
  *
- * One of the requirements is to log out the request information and response
- * using the given logger, which should be the job logger.
+ * The requests are logged to the given logger, which should be the job
+ * logger, when they are queued. Responses and errors are logged later, after
+ * the job log may have been closed, so they go to this class's logger with the
+ * execution and job id.
+ *
+ * Requests are queued and sent by a thread pool, so the job runner thread
+ * never waits for a callback target. Each host has a queue of its own and at
+ * most a few requests in flight, so a slow or unreachable target only delays
+ * its own callbacks. The total number of queued callbacks is bounded. A
+ * callback identical to one that is still queued for the same execution, job
+ * and status is dropped. Failed callbacks are retried with exponential backoff
+ * and jitter.
  *
  * @author hluu
  */
@@ -51,14 +75,40 @@ public class JobCallbackRequestMaker {
   private static final int MAX_RESPONSE_LINE_TO_PRINT = 50;
 
   private static final int DEFAULT_THREAD_POOL_SIZE = 10;
+  private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 2;
+  private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+  private static final int DEFAULT_MAX_RETRIES = 2;
+  private static final long DEFAULT_RETRY_BACKOFF_MS = 1000;
 
   private static JobCallbackRequestMaker instance;
   private static boolean isInitialized = false;
 
-  private final FutureRequestExecutionService futureRequestExecutionService;
-  private int responseWaitTimeoutMS = -1;
-
-  private JobCallbackRequestMaker(final Props props) {
+  private final HttpClient httpClient;
+  private final ExecutorService executorService;
+  private final ScheduledExecutorService scheduler;
+  private final int responseWaitTimeoutMS;
+  private final int maxRequestsPerHost;
+  private final int queueCapacity;
+  private final int maxRetries;
+  private final long retryBackoffMs;
+
+  // Guarded by this.
+  private final Map<String, HostQueue> hostQueues = new HashMap<>();
+  private final Set<String> queuedCallbackKeys = new HashSet<>();
+  private int numQueued = 0;
+  private int numInFlight = 0;
+  private int numWaitingForRetry = 0;
+
+  private final AtomicLong numRequests = new AtomicLong();
+  private final AtomicLong numSuccessful = new AtomicLong();
+  private final AtomicLong numFailed = new AtomicLong();
+  private final AtomicLong numDropped = new AtomicLong();
+  private final AtomicLong numCoalesced = new AtomicLong();
+  private final AtomicLong numRetried = new AtomicLong();
+  private final Map<String, EndpointStats> endpointStats = new TreeMap<>();
+
+  @VisibleForTesting
+  JobCallbackRequestMaker(final Props props) {
 
     final int connectionRequestTimeout =
         props.getInt(JOBCALLBACK_CONNECTION_REQUEST_TIMEOUT, DEFAULT_TIME_OUT_MS);
@@ -80,18 +130,35 @@ public class JobCallbackRequestMaker {
 
     logger.info("Global request configuration " + requestConfig.toString());
 
-    final HttpClient httpClient =
-        HttpClientBuilder.create().setDefaultRequestConfig(requestConfig)
-            .build();
-
     final int jobCallbackThreadPoolSize =
         props.getInt(JOBCALLBACK_THREAD_POOL_SIZE, DEFAULT_THREAD_POOL_SIZE);
     logger.info("Jobcall thread pool size: " + jobCallbackThreadPoolSize);
 
-    final ExecutorService executorService =
-        Executors.newFixedThreadPool(jobCallbackThreadPoolSize);
-    this.futureRequestExecutionService =
-        new FutureRequestExecutionService(httpClient, executorService);
+    this.maxRequestsPerHost =
+        props.getInt(JOBCALLBACK_MAX_REQUESTS_PER_HOST, DEFAULT_MAX_REQUESTS_PER_HOST);
+    this.queueCapacity = props.getInt(JOBCALLBACK_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY);
+    this.maxRetries = props.getInt(JOBCALLBACK_MAX_RETRIES, DEFAULT_MAX_RETRIES);
+    this.retryBackoffMs = props.getLong(JOBCALLBACK_RETRY_BACKOFF_MS, DEFAULT_RETRY_BACKOFF_MS);
+    logger.info(String.format("Max requests per host: %d, queue capacity: %d, max retries: %d",
+        this.maxRequestsPerHost, this.queueCapacity, this.maxRetries));
+
+    // Connections are pooled and kept alive between callbacks to the same host.
+    this.httpClient =
+        HttpClientBuilder.create().setDefaultRequestConfig(requestConfig)
+            .setMaxConnPerRoute(this.maxRequestsPerHost)
+            .setMaxConnTotal(jobCallbackThreadPoolSize)
+            .build();
+
+    this.executorService = Executors.newFixedThreadPool(jobCallbackThreadPoolSize, r -> {
+      final Thread thread = new Thread(r, "JobCallbackRequestMaker");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "JobCallbackRequestMaker-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   public static void initialize(final Props props) {
@@ -121,11 +188,11 @@ public class JobCallbackRequestMaker {
     return instance;
   }
 
-  public FutureRequestExecutionMetrics getJobcallbackMetrics() {
-    return this.futureRequestExecutionService.metrics();
-  }
-
-  public void makeHttpRequest(final String jobId, final Logger logger,
+  /**
+   * Queues the requests. Returns without waiting for any of them to be sent.
+   */
+  public void makeHttpRequest(final String execId, final String jobId,
+      final JobCallbackStatusEnum status, final Logger logger,
       final List<HttpRequestBase> httpRequestList) {
 
     if (httpRequestList == null || httpRequestList.isEmpty()) {
@@ -143,53 +210,273 @@ public class JobCallbackRequestMaker {
       }
       logger.info("]");
 
-      final HttpRequestFutureTask<Integer> task =
-          this.futureRequestExecutionService.execute(httpRequest,
-              HttpClientContext.create(), new LoggingResponseHandler(logger));
+      submit(new Callback(httpRequest, logger,
+          "exec " + execId + " job " + jobId + " " + status + ": "));
+    }
+  }
 
-      try {
-        // get with timeout
-        final Integer statusCode =
-            task.get(this.responseWaitTimeoutMS, TimeUnit.MILLISECONDS);
-
-        logger.info("http callback status code: " + statusCode);
-      } catch (final TimeoutException timeOutEx) {
-        logger
-            .warn("Job callback target took longer "
-                    + (this.responseWaitTimeoutMS / 1000) + " seconds to respond",
-                timeOutEx);
-      } catch (final ExecutionException ee) {
-        if (ee.getCause() instanceof SocketTimeoutException) {
-          logger.warn("Job callback target took longer "
-              + (this.responseWaitTimeoutMS / 1000) + " seconds to respond", ee);
-        } else {
-          logger.warn(
-              "Encountered error while waiting for job callback to complete",
-              ee);
+  private synchronized void submit(final Callback callback) {
+    if (this.queuedCallbackKeys.contains(callback.key)) {
+      this.numCoalesced.incrementAndGet();
+      callback.logger.info("Skipping job callback identical to one that is still queued");
+      return;
+    }
+    if (this.numQueued >= this.queueCapacity) {
+      this.numDropped.incrementAndGet();
+      callback.logger.warn("Dropping job callback, " + this.numQueued
+          + " job callbacks are waiting to be sent");
+      return;
+    }
+    this.queuedCallbackKeys.add(callback.key);
+    this.numQueued++;
+    final HostQueue hostQueue =
+        this.hostQueues.computeIfAbsent(callback.host, k -> new HostQueue());
+    hostQueue.queued.add(callback);
+    dispatch(hostQueue);
+  }
+
+  /**
+   * Puts a failed callback back at the head of its host's queue. Retries are
+   * neither coalesced nor dropped.
+   */
+  private synchronized void requeue(final Callback callback) {
+    this.numWaitingForRetry--;
+    this.numQueued++;
+    final HostQueue hostQueue =
+        this.hostQueues.computeIfAbsent(callback.host, k -> new HostQueue());
+    hostQueue.queued.addFirst(callback);
+    dispatch(hostQueue);
+  }
+
+  private void dispatch(final HostQueue hostQueue) {
+    while (hostQueue.numInFlight < this.maxRequestsPerHost && !hostQueue.queued.isEmpty()) {
+      final Callback callback = hostQueue.queued.poll();
+      if (callback.attempt == 0) {
+        this.queuedCallbackKeys.remove(callback.key);
+      }
+      this.numQueued--;
+      hostQueue.numInFlight++;
+      this.numInFlight++;
+      this.executorService.execute(() -> execute(callback));
+    }
+  }
+
+  private void execute(final Callback callback) {
+    this.numRequests.incrementAndGet();
+    final long startMs = System.currentTimeMillis();
+    // The socket timeout only bounds each read, so a target that trickles out
+    // its response could hold the thread forever.
+    final ScheduledFuture<?> abort = this.scheduler.schedule(callback.request::abort,
+        this.responseWaitTimeoutMS, TimeUnit.MILLISECONDS);
+    boolean failed = true;
+    boolean retry = false;
+    try {
+      final int statusCode = this.httpClient.execute(callback.request,
+          new LoggingResponseHandler(callback.source));
+      logger.info(callback.source + "http callback status code: " + statusCode);
+      failed = statusCode >= 400;
+      // Server errors are likely to go away, client errors aren't.
+      retry = statusCode >= 500;
+    } catch (final SocketTimeoutException e) {
+      logger.warn(callback.source + "Job callback target took longer "
+          + (this.responseWaitTimeoutMS / 1000) + " seconds to respond", e);
+      retry = true;
+    } catch (final IOException e) {
+      if (callback.request.isAborted()) {
+        logger.warn(callback.source + "Job callback target took longer "
+            + (this.responseWaitTimeoutMS / 1000) + " seconds to respond");
+      } else {
+        logger.warn(callback.source + "Encountered error while making job callback", e);
+      }
+      retry = true;
+    } catch (final Throwable e) {
+      logger.warn(callback.source + "Encountered error while making job callback", e);
+    } finally {
+      abort.cancel(false);
+      final long latencyMs = System.currentTimeMillis() - startMs;
+      (failed ? this.numFailed : this.numSuccessful).incrementAndGet();
+      synchronized (this.endpointStats) {
+        this.endpointStats.computeIfAbsent(callback.host, k -> new EndpointStats())
+            .record(latencyMs, failed);
+      }
+      complete(callback, retry && callback.attempt < this.maxRetries);
+    }
+  }
+
+  private synchronized void complete(final Callback callback, final boolean retry) {
+    final HostQueue hostQueue = this.hostQueues.get(callback.host);
+    hostQueue.numInFlight--;
+    this.numInFlight--;
+
+    if (retry) {
+      callback.attempt++;
+      callback.request.reset();
+      final long backoffMs = (long) (this.retryBackoffMs * (1L << (callback.attempt - 1))
+          * ThreadLocalRandom.current().nextDouble(0.5, 1.5));
+      logger.info(callback.source + "Retrying job callback in " + backoffMs + " ms");
+      this.numRetried.incrementAndGet();
+      this.numWaitingForRetry++;
+      this.scheduler.schedule(() -> requeue(callback), backoffMs, TimeUnit.MILLISECONDS);
+    }
+
+    if (hostQueue.numInFlight == 0 && hostQueue.queued.isEmpty()) {
+      this.hostQueues.remove(callback.host);
+    } else {
+      dispatch(hostQueue);
+    }
+    notifyAll();
+  }
+
+  /**
+   * Waits until all callbacks, including retries, are done.
+   *
+   * @return false if they weren't done in time
+   */
+  @VisibleForTesting
+  synchronized boolean awaitIdle(final long timeoutMs) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + timeoutMs;
+    while (this.numQueued + this.numInFlight + this.numWaitingForRetry > 0) {
+      final long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        return false;
+      }
+      wait(remaining);
+    }
+    return true;
+  }
+
+  public long getNumRequests() {
+    return this.numRequests.get();
+  }
+
+  public long getNumSuccessful() {
+    return this.numSuccessful.get();
+  }
+
+  public long getNumFailed() {
+    return this.numFailed.get();
+  }
+
+  public long getNumDropped() {
+    return this.numDropped.get();
+  }
+
+  public long getNumCoalesced() {
+    return this.numCoalesced.get();
+  }
+
+  public long getNumRetried() {
+    return this.numRetried.get();
+  }
+
+  public synchronized int getNumQueued() {
+    return this.numQueued;
+  }
+
+  public synchronized int getNumInFlight() {
+    return this.numInFlight;
+  }
+
+  /**
+   * @return request count, failure count and latencies of every callback target host
+   */
+  public List<String> getEndpointStats() {
+    final List<String> stats = new ArrayList<>();
+    synchronized (this.endpointStats) {
+      for (final Map.Entry<String, EndpointStats> entry : this.endpointStats.entrySet()) {
+        stats.add(entry.getKey() + " " + entry.getValue());
+      }
+    }
+    return stats;
+  }
+
+  private static class HostQueue {
+
+    private final Deque<Callback> queued = new ArrayDeque<>();
+    private int numInFlight = 0;
+  }
+
+  private static class Callback {
+
+    private final HttpRequestBase request;
+    private final Logger logger;
+    // Prefix of the messages logged after the callback was queued.
+    private final String source;
+    private final String host;
+    // Identifies identical callbacks of the same execution, job and status.
+    // The Date header is left out.
+    private final String key;
+    private int attempt = 0;
+
+    private Callback(final HttpRequestBase request, final Logger logger,
+        final String source) {
+      this.request = request;
+      this.logger = logger;
+      this.source = source;
+      final int port = request.getURI().getPort();
+      this.host = request.getURI().getHost() + (port < 0 ? "" : ":" + port);
+
+      final StringBuilder key = new StringBuilder(source);
+      key.append('\n').append(request.getRequestLine());
+      for (final Header header : request.getAllHeaders()) {
+        if (!"Date".equalsIgnoreCase(header.getName())) {
+          key.append('\n').append(header.getName()).append(": ").append(header.getValue());
+        }
+      }
+      if (request instanceof HttpEntityEnclosingRequest) {
+        final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+        if (entity != null && entity.isRepeatable()) {
+          try {
+            key.append("\n\n").append(EntityUtils.toString(entity));
+          } catch (final IOException e) {
+            // Not coalesced then.
+            key.append("\n\n").append(System.identityHashCode(request));
+          }
+        } else if (entity != null) {
+          key.append("\n\n").append(System.identityHashCode(request));
         }
-      } catch (final Throwable e) {
-        logger.warn(
-            "Encountered error while waiting for job callback to complete", e);
       }
+      this.key = key.toString();
+    }
+  }
+
+  private static class EndpointStats {
+
+    private long numRequests = 0;
+    private long numFailed = 0;
+    private long totalLatencyMs = 0;
+    private long maxLatencyMs = 0;
+
+    private void record(final long latencyMs, final boolean failed) {
+      this.numRequests++;
+      if (failed) {
+        this.numFailed++;
+      }
+      this.totalLatencyMs += latencyMs;
+      this.maxLatencyMs = Math.max(this.maxLatencyMs, latencyMs);
+    }
+
+    @Override
+    public String toString() {
+      return "requests=" + this.numRequests + " failed=" + this.numFailed
+          + " avgLatencyMs=" + (this.totalLatencyMs / this.numRequests)
+          + " maxLatencyMs=" + this.maxLatencyMs;
     }
   }
 
   /**
-   * Response handler for logging job callback response using the given logger
-   * instance
+   * Response handler for logging job callback response, with each line
+   * prefixed by the source of the callback
    *
    * @author hluu
    */
   private static final class LoggingResponseHandler implements
       ResponseHandler<Integer> {
 
-    private final Logger logger;
+    private final String source;
 
-    public LoggingResponseHandler(final Logger logger) {
-      if (logger == null) {
-        throw new NullPointerException("Argument logger can't be null");
-      }
-      this.logger = logger;
+    public LoggingResponseHandler(final String source) {
+      this.source = source;
     }
 
     @Override
@@ -208,22 +495,22 @@ public class JobCallbackRequestMaker {
 
           String line = "";
           int lineCount = 0;
-          this.logger.info("HTTP response [");
+          logger.info(this.source + "HTTP response [");
           while ((line = bufferedReader.readLine()) != null) {
-            this.logger.info(line);
+            logger.info(this.source + line);
             lineCount++;
             if (lineCount > MAX_RESPONSE_LINE_TO_PRINT) {
               break;
             }
           }
-          this.logger.info("]");
+          logger.info(this.source + "]");
         } else {
-          this.logger.info("No response");
+          logger.info(this.source + "No response");
         }
 
       } catch (final Throwable t) {
-        this.logger.warn(
-            "Encountered error while logging out job callback response", t);
+        logger.warn(this.source
+            + "Encountered error while logging out job callback response", t);
       } finally {
         if (bufferedReader != null) {
           try {
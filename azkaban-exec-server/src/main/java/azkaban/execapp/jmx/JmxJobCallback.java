@@ -1,33 +1,59 @@
 package azkaban.execapp.jmx;
 
-import org.apache.http.impl.client.FutureRequestExecutionMetrics;
+import azkaban.execapp.event.JobCallbackRequestMaker;
+import java.util.List;
 
 public class JmxJobCallback implements JmxJobCallbackMBean {
 
-  private final FutureRequestExecutionMetrics jobCallbackMetrics;
+  private final JobCallbackRequestMaker requestMaker;
 
-  public JmxJobCallback(final FutureRequestExecutionMetrics jobCallbackMetrics) {
-    this.jobCallbackMetrics = jobCallbackMetrics;
+  public JmxJobCallback(final JobCallbackRequestMaker requestMaker) {
+    this.requestMaker = requestMaker;
   }
 
   @Override
   public long getNumJobCallbacks() {
-    return this.jobCallbackMetrics.getRequestCount();
+    return this.requestMaker.getNumRequests();
   }
 
   @Override
   public long getNumSuccessfulJobCallbacks() {
-    return this.jobCallbackMetrics.getSuccessfulConnectionCount();
+    return this.requestMaker.getNumSuccessful();
   }
 
   @Override
   public long getNumFailedJobCallbacks() {
-    return this.jobCallbackMetrics.getFailedConnectionCount();
+    return this.requestMaker.getNumFailed();
   }
 
   @Override
   public long getNumActiveJobCallbacks() {
-    return this.jobCallbackMetrics.getActiveConnectionCount();
+    return this.requestMaker.getNumInFlight();
+  }
+
+  @Override
+  public long getNumQueuedJobCallbacks() {
+    return this.requestMaker.getNumQueued();
+  }
+
+  @Override
+  public long getNumDroppedJobCallbacks() {
+    return this.requestMaker.getNumDropped();
+  }
+
+  @Override
+  public long getNumCoalescedJobCallbacks() {
+    return this.requestMaker.getNumCoalesced();
+  }
+
+  @Override
+  public long getNumRetriedJobCallbacks() {
+    return this.requestMaker.getNumRetried();
+  }
+
+  @Override
+  public List<String> getJobCallbackEndpointStats() {
+    return this.requestMaker.getEndpointStats();
   }
 
 }
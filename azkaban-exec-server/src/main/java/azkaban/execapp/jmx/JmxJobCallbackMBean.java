@@ -1,6 +1,7 @@
 package azkaban.execapp.jmx;
 
 import azkaban.jmx.DisplayName;
+import java.util.List;
 
 public interface JmxJobCallbackMBean {
 
@@ -16,4 +17,19 @@ public interface JmxJobCallbackMBean {
   @DisplayName("OPERATION: getNumActiveJobCallbacks")
   public long getNumActiveJobCallbacks();
 
+  @DisplayName("OPERATION: getNumQueuedJobCallbacks")
+  public long getNumQueuedJobCallbacks();
+
+  @DisplayName("OPERATION: getNumDroppedJobCallbacks")
+  public long getNumDroppedJobCallbacks();
+
+  @DisplayName("OPERATION: getNumCoalescedJobCallbacks")
+  public long getNumCoalescedJobCallbacks();
+
+  @DisplayName("OPERATION: getNumRetriedJobCallbacks")
+  public long getNumRetriedJobCallbacks();
+
+  @DisplayName("OPERATION: getJobCallbackEndpointStats")
+  public List<String> getJobCallbackEndpointStats();
+
 }
@@ -6,10 +6,13 @@ import azkaban.event.EventListener;
 import azkaban.execapp.JobRunner;
 import azkaban.executor.ExecutableNode;
 import azkaban.executor.Status;
+import azkaban.jobExecutor.utils.process.ProcessResourceSampler;
+import azkaban.jobExecutor.utils.process.ProcessResourceSampler.ResourceUsage;
 import azkaban.utils.Props;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.log4j.Logger;
 
 /**
@@ -29,6 +32,10 @@ public class JmxJobMBeanManager implements JmxJobMXBean, EventListener {
   private final AtomicInteger totalExecutedJobCount = new AtomicInteger(0);
   private final AtomicInteger totalFailedJobCount = new AtomicInteger(0);
   private final AtomicInteger totalSucceededJobCount = new AtomicInteger(0);
+  private final AtomicLong totalJobCpuTimeMs = new AtomicLong(0);
+  private final AtomicLong totalJobReadBytes = new AtomicLong(0);
+  private final AtomicLong totalJobWriteBytes = new AtomicLong(0);
+  private final AtomicLong maxJobPeakRssBytes = new AtomicLong(0);
 
   private final Map<String, AtomicInteger> jobTypeFailureMap =
       new HashMap<>();
@@ -80,6 +87,36 @@ public class JmxJobMBeanManager implements JmxJobMXBean, EventListener {
     return convertMapValueToInteger(this.jobTypeFailureMap);
   }
 
+  @Override
+  public long getTotalJobCpuTimeMs() {
+    return this.totalJobCpuTimeMs.get();
+  }
+
+  @Override
+  public long getTotalJobReadBytes() {
+    return this.totalJobReadBytes.get();
+  }
+
+  @Override
+  public long getTotalJobWriteBytes() {
+    return this.totalJobWriteBytes.get();
+  }
+
+  @Override
+  public long getMaxJobPeakRssBytes() {
+    return this.maxJobPeakRssBytes.get();
+  }
+
+  @Override
+  public int getNumRunningJobProcesses() {
+    return ProcessResourceSampler.getInstance().getNumSampledProcesses();
+  }
+
+  @Override
+  public long getRunningJobProcessesRssBytes() {
+    return ProcessResourceSampler.getInstance().getSampledRssBytes();
+  }
+
   private Map<String, Integer> convertMapValueToInteger(
       final Map<String, AtomicInteger> map) {
     final Map<String, Integer> result = new HashMap<>(map.size());
@@ -127,6 +164,7 @@ public class JmxJobMBeanManager implements JmxJobMXBean, EventListener {
         }
 
         handleJobFinishedCount(eventData.getStatus(), node.getType());
+        handleJobResourceUsage(node.getResourceUsage());
       }
 
     } else {
@@ -147,6 +185,22 @@ public class JmxJobMBeanManager implements JmxJobMXBean, EventListener {
     }
   }
 
+  private void handleJobResourceUsage(final Map<String, Object> usage) {
+    if (usage == null) {
+      return;
+    }
+    this.totalJobCpuTimeMs.addAndGet(getLong(usage, ResourceUsage.CPU_TIME_MS));
+    this.totalJobReadBytes.addAndGet(getLong(usage, ResourceUsage.READ_BYTES));
+    this.totalJobWriteBytes.addAndGet(getLong(usage, ResourceUsage.WRITE_BYTES));
+    this.maxJobPeakRssBytes.accumulateAndGet(getLong(usage, ResourceUsage.PEAK_RSS_BYTES),
+        Math::max);
+  }
+
+  private long getLong(final Map<String, Object> map, final String key) {
+    final Object value = map.get(key);
+    return value instanceof Number ? ((Number) value).longValue() : 0;
+  }
+
   private void handleJobFinishedByType(final Map<String, AtomicInteger> jobTypeMap,
       final String jobType) {
 
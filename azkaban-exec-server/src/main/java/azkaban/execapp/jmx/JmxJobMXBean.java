@@ -28,4 +28,22 @@ public interface JmxJobMXBean {
   @DisplayName("OPERATION: getTotalFailedJobsByJobType")
   public Map<String, Integer> getTotalFailedJobsByJobType();
 
+  @DisplayName("OPERATION: getTotalJobCpuTimeMs")
+  public long getTotalJobCpuTimeMs();
+
+  @DisplayName("OPERATION: getTotalJobReadBytes")
+  public long getTotalJobReadBytes();
+
+  @DisplayName("OPERATION: getTotalJobWriteBytes")
+  public long getTotalJobWriteBytes();
+
+  @DisplayName("OPERATION: getMaxJobPeakRssBytes")
+  public long getMaxJobPeakRssBytes();
+
+  @DisplayName("OPERATION: getNumRunningJobProcesses")
+  public int getNumRunningJobProcesses();
+
+  @DisplayName("OPERATION: getRunningJobProcessesRssBytes")
+  public long getRunningJobProcessesRssBytes();
+
 }
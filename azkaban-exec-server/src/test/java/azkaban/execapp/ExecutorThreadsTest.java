@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.execapp.ExecutorThreads.Mode;
+import azkaban.utils.Props;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ExecutorThreadsTest {
+
+  private static final int NUM_JOB_THREADS = 10;
+  private static final long IDLE_TIMEOUT_MS = 10;
+  private static final int STACK_SIZE_KB = 256;
+
+  /**
+   * Runs a burst of short jobs on a flow's pool and then a long one, which is what a flow with a
+   * long tail job looks like. Returns the pool while only the long job is running, which finishes
+   * once tail is counted down.
+   */
+  private static ThreadPoolExecutor runBurstThenTail(final ExecutorThreads threads,
+      final CountDownLatch tail) throws Exception {
+    final ThreadPoolExecutor pool =
+        (ThreadPoolExecutor) threads.newFixedThreadPool(NUM_JOB_THREADS, "flow");
+    final CountDownLatch burstStarted = new CountDownLatch(NUM_JOB_THREADS);
+    final CountDownLatch burst = new CountDownLatch(1);
+    for (int i = 0; i < NUM_JOB_THREADS; i++) {
+      pool.submit(() -> {
+        burstStarted.countDown();
+        await(burst);
+      });
+    }
+    assertThat(burstStarted.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(pool.getPoolSize()).isEqualTo(NUM_JOB_THREADS);
+
+    final CountDownLatch tailStarted = new CountDownLatch(1);
+    pool.submit(() -> {
+      tailStarted.countDown();
+      await(tail);
+    });
+    burst.countDown();
+    assertThat(tailStarted.await(10, TimeUnit.SECONDS)).isTrue();
+    // The tail job may still be queued behind the burst, wait until only it is left.
+    while (pool.getActiveCount() > 1) {
+      Thread.sleep(1);
+    }
+    return pool;
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void testFromProps() throws Exception {
+    assertThat(ExecutorThreads.fromProps(new Props()).getMode()).isEqualTo(Mode.PLATFORM);
+
+    final Props props = new Props();
+    props.put(ExecutorThreads.EXECUTOR_THREAD_MODE, "compact");
+    assertThat(ExecutorThreads.fromProps(props).isCompact()).isTrue();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownMode() throws Exception {
+    final Props props = new Props();
+    props.put(ExecutorThreads.EXECUTOR_THREAD_MODE, "green");
+    ExecutorThreads.fromProps(props);
+  }
+
+  @Test
+  public void testCompactThreadsAreNamed() throws Exception {
+    final ExecutorThreads threads = new ExecutorThreads(Mode.COMPACT, STACK_SIZE_KB,
+        IDLE_TIMEOUT_MS);
+    final Thread thread = threads.newThreadFactory("test").newThread(() -> {
+    });
+    assertThat(thread.getName()).isEqualTo("test-1");
+    assertThat(thread.isDaemon()).isFalse();
+  }
+
+  @Test
+  public void testDaemonThreads() throws Exception {
+    for (final Mode mode : Mode.values()) {
+      final ExecutorThreads threads = new ExecutorThreads(mode, STACK_SIZE_KB, IDLE_TIMEOUT_MS);
+      final Thread thread = threads.newThreadFactory("test", true).newThread(() -> {
+      });
+      assertThat(thread.isDaemon()).isTrue();
+    }
+  }
+
+  @Test
+  public void testPlatformModeKeepsIdleThreads() throws Exception {
+    final CountDownLatch tail = new CountDownLatch(1);
+    final ThreadPoolExecutor pool =
+        runBurstThenTail(new ExecutorThreads(Mode.PLATFORM, 0, 0), tail);
+
+    assertThat(pool.allowsCoreThreadTimeOut()).isFalse();
+    assertThat(pool.getPoolSize()).isEqualTo(NUM_JOB_THREADS);
+    tail.countDown();
+    pool.shutdown();
+    assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void testCompactModeReleasesIdleThreads() throws Exception {
+    final CountDownLatch tail = new CountDownLatch(1);
+    final ThreadPoolExecutor pool = runBurstThenTail(
+        new ExecutorThreads(Mode.COMPACT, STACK_SIZE_KB, IDLE_TIMEOUT_MS), tail);
+
+    assertThat(pool.allowsCoreThreadTimeOut()).isTrue();
+    assertThat(pool.getKeepAliveTime(TimeUnit.MILLISECONDS)).isEqualTo(IDLE_TIMEOUT_MS);
+    // Only the thread running the tail job is left once the others timed out.
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (pool.getPoolSize() > 1 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(IDLE_TIMEOUT_MS);
+    }
+    assertThat(pool.getPoolSize()).isEqualTo(1);
+    tail.countDown();
+    pool.shutdown();
+    assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+  }
+}
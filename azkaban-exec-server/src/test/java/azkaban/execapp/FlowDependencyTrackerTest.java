@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableNode;
+import azkaban.executor.Status;
+import azkaban.flow.Edge;
+import azkaban.flow.Flow;
+import azkaban.flow.Node;
+import azkaban.project.Project;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.junit.Test;
+
+public class FlowDependencyTrackerTest {
+
+  /**
+   * Builds a flow with a single root fanning out to width middle jobs, each of which fans in
+   * to a single end job.
+   */
+  private static ExecutableFlow createWideFlow(final int width) {
+    final Flow flow = new Flow("end");
+    flow.addNode(createNode("root"));
+    flow.addNode(createNode("end"));
+    for (int i = 0; i < width; i++) {
+      final String id = "middle" + i;
+      flow.addNode(createNode(id));
+      flow.addEdge(new Edge("root", id));
+      flow.addEdge(new Edge(id, "end"));
+    }
+    return createExecutableFlow(flow);
+  }
+
+  /**
+   * Builds a chain of depth jobs.
+   */
+  private static ExecutableFlow createDeepFlow(final int depth) {
+    final Flow flow = new Flow("job" + (depth - 1));
+    flow.addNode(createNode("job0"));
+    for (int i = 1; i < depth; i++) {
+      flow.addNode(createNode("job" + i));
+      flow.addEdge(new Edge("job" + (i - 1), "job" + i));
+    }
+    return createExecutableFlow(flow);
+  }
+
+  private static Node createNode(final String id) {
+    final Node node = new Node(id);
+    node.setType("test");
+    return node;
+  }
+
+  private static ExecutableFlow createExecutableFlow(final Flow flow) {
+    final Project project = new Project(1, "project");
+    return new ExecutableFlow(project, flow);
+  }
+
+  /**
+   * Runs every job of the flow to success in dependency order, the way the flow runner does, and
+   * returns the number of jobs run.
+   */
+  private static int runToCompletion(final ExecutableFlow flow,
+      final FlowDependencyTracker tracker) {
+    final Deque<ExecutableNode> ready = new ArrayDeque<>();
+    for (final String id : flow.getStartNodes()) {
+      ready.add(flow.getExecutableNode(id));
+    }
+
+    int run = 0;
+    while (!ready.isEmpty()) {
+      final ExecutableNode node = ready.poll();
+      assertThat(tracker.isReady(node)).isTrue();
+      node.setStatus(Status.SUCCEEDED);
+      run++;
+      for (final String outId : node.getOutNodes()) {
+        final ExecutableNode outNode = flow.getExecutableNode(outId);
+        if (tracker.dependencyFinished(outNode, node)) {
+          ready.add(outNode);
+        }
+      }
+    }
+    return run;
+  }
+
+  @Test
+  public void testWideFlowFanIn() throws Exception {
+    final ExecutableFlow flow = createWideFlow(10);
+    final FlowDependencyTracker tracker = new FlowDependencyTracker();
+    final ExecutableNode root = flow.getExecutableNode("root");
+    final ExecutableNode end = flow.getExecutableNode("end");
+
+    assertThat(tracker.isReady(root)).isTrue();
+    assertThat(tracker.getRemaining(end)).isEqualTo(10);
+
+    root.setStatus(Status.SUCCEEDED);
+    for (int i = 0; i < 10; i++) {
+      final ExecutableNode middle = flow.getExecutableNode("middle" + i);
+      assertThat(tracker.dependencyFinished(middle, root)).isTrue();
+      middle.setStatus(Status.SUCCEEDED);
+      assertThat(tracker.dependencyFinished(end, middle)).isEqualTo(i == 9);
+    }
+    assertThat(tracker.hasFailedDependency(end)).isFalse();
+  }
+
+  @Test
+  public void testDuplicateCreditIsIgnored() throws Exception {
+    final ExecutableFlow flow = createWideFlow(2);
+    final FlowDependencyTracker tracker = new FlowDependencyTracker();
+    final ExecutableNode end = flow.getExecutableNode("end");
+    final ExecutableNode middle0 = flow.getExecutableNode("middle0");
+
+    assertThat(tracker.getRemaining(end)).isEqualTo(2);
+    middle0.setStatus(Status.SUCCEEDED);
+    assertThat(tracker.dependencyFinished(end, middle0)).isFalse();
+    assertThat(tracker.dependencyFinished(end, middle0)).isFalse();
+    assertThat(tracker.getRemaining(end)).isEqualTo(1);
+  }
+
+  @Test
+  public void testFailedDependency() throws Exception {
+    final ExecutableFlow flow = createWideFlow(2);
+    final FlowDependencyTracker tracker = new FlowDependencyTracker();
+    final ExecutableNode end = flow.getExecutableNode("end");
+    final ExecutableNode middle0 = flow.getExecutableNode("middle0");
+    final ExecutableNode middle1 = flow.getExecutableNode("middle1");
+
+    middle0.setStatus(Status.FAILED);
+    assertThat(tracker.dependencyFinished(end, middle0)).isFalse();
+    middle1.setStatus(Status.SKIPPED);
+    assertThat(tracker.dependencyFinished(end, middle1)).isTrue();
+    assertThat(tracker.hasFailedDependency(end)).isTrue();
+  }
+
+  @Test
+  public void testStateBuiltFromCurrentStatuses() throws Exception {
+    final ExecutableFlow flow = createWideFlow(3);
+    flow.getExecutableNode("middle0").setStatus(Status.SUCCEEDED);
+    flow.getExecutableNode("middle1").setStatus(Status.CANCELLED);
+
+    final FlowDependencyTracker tracker = new FlowDependencyTracker();
+    final ExecutableNode end = flow.getExecutableNode("end");
+    assertThat(tracker.getRemaining(end)).isEqualTo(1);
+    assertThat(tracker.hasFailedDependency(end)).isTrue();
+  }
+
+  @Test
+  public void testReset() throws Exception {
+    final ExecutableFlow flow = createWideFlow(2);
+    final FlowDependencyTracker tracker = new FlowDependencyTracker();
+    final ExecutableNode end = flow.getExecutableNode("end");
+    final ExecutableNode middle0 = flow.getExecutableNode("middle0");
+
+    middle0.setStatus(Status.FAILED);
+    tracker.dependencyFinished(end, middle0);
+    assertThat(tracker.hasFailedDependency(end)).isTrue();
+
+    // Retrying the failed job moves its status back.
+    middle0.resetForRetry();
+    tracker.reset();
+    assertThat(tracker.getRemaining(end)).isEqualTo(2);
+    assertThat(tracker.hasFailedDependency(end)).isFalse();
+  }
+
+  @Test
+  public void testDeepFlow() throws Exception {
+    final ExecutableFlow flow = createDeepFlow(100);
+    assertThat(runToCompletion(flow, new FlowDependencyTracker())).isEqualTo(100);
+  }
+
+  /**
+   * Synthetic wide (5k jobs with a fan-in of 5k) and deep (a 5k job chain) DAGs. Each count is
+   * built once from its in-nodes, so scheduling reads every edge once instead of once per
+   * finished in-node.
+   */
+  @Test
+  public void testLargeFlowsReadEachEdgeOnce() throws Exception {
+    final int size = 5000;
+
+    final ExecutableFlow wide = createWideFlow(size);
+    final FlowDependencyTracker wideTracker = new FlowDependencyTracker();
+    assertThat(runToCompletion(wide, wideTracker)).isEqualTo(size + 2);
+    assertThat(wideTracker.getNumInNodeReads()).isEqualTo(2 * size);
+
+    final ExecutableFlow deep = createDeepFlow(size);
+    final FlowDependencyTracker deepTracker = new FlowDependencyTracker();
+    assertThat(runToCompletion(deep, deepTracker)).isEqualTo(size);
+    assertThat(deepTracker.getNumInNodeReads()).isEqualTo(size - 1);
+  }
+}
@@ -26,6 +26,7 @@ import azkaban.project.ProjectFileHandler;
 import azkaban.storage.StorageManager;
 import azkaban.utils.Pair;
 import java.io.File;
+import java.io.FileInputStream;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.commons.io.FileUtils;
@@ -56,10 +57,11 @@ public class FlowPreparerTest {
 
     final ProjectFileHandler projectFileHandler = mock(ProjectFileHandler.class);
     when(projectFileHandler.getFileType()).thenReturn("zip");
-    when(projectFileHandler.getLocalFile()).thenReturn(file);
 
     final StorageManager storageManager = mock(StorageManager.class);
-    when(storageManager.getProjectFile(12, 34)).thenReturn(projectFileHandler);
+    when(storageManager.fetchProjectFileMetadata(12, 34)).thenReturn(projectFileHandler);
+    when(storageManager.openProjectFile(projectFileHandler))
+        .thenAnswer(invocation -> new FileInputStream(file));
 
     this.instance = new FlowPreparer(storageManager, this.executionsDir, this.projectsDir,
         this.installedProjects);
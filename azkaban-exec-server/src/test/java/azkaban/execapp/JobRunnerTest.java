@@ -19,6 +19,8 @@ package azkaban.execapp;
 import azkaban.event.Event;
 import azkaban.event.Event.Type;
 import azkaban.event.EventData;
+import azkaban.execapp.event.BlockingStatus;
+import azkaban.execapp.event.FlowWatcher;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutorLoader;
@@ -32,6 +34,8 @@ import azkaban.utils.Props;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.junit.After;
@@ -310,6 +314,50 @@ public class JobRunnerTest {
     eventCollector.assertEvents(Type.JOB_FINISHED);
   }
 
+  /**
+   * With a single job slot, a pipelined job that starts first must not keep the job it waits for
+   * from getting the slot.
+   */
+  @Test(timeout = 60000)
+  public void testPipelinedJobReleasesSlot() throws Exception {
+    final JobSlotScheduler scheduler = new JobSlotScheduler(1);
+    final MockExecutorLoader loader = new MockExecutorLoader();
+    final JobRunner upstream =
+        createJobRunner(1, "testJob", 1, false, loader, new EventCollectorListener());
+    final JobRunner pipelined =
+        createJobRunner(2, "testJob", 1, false, loader, new EventCollectorListener());
+    upstream.getProps().put("type", "noop");
+    pipelined.getProps().put("type", "noop");
+    final JobWatcher watcher = new JobWatcher(upstream.getNode());
+    watcher.setLogger(this.logger);
+    pipelined.setPipeline(watcher, 1);
+    upstream.addListener(event -> {
+      if (event.getType() == Type.JOB_FINISHED) {
+        watcher.status.changeStatus(event.getData().getStatus());
+      }
+    });
+
+    try {
+      final ExecutorService pipelinedFlow = scheduler.newFlowExecutor(2, 1, 1, 1);
+      final ExecutorService upstreamFlow = scheduler.newFlowExecutor(1, 1, 1, 1);
+      pipelinedFlow.submit(pipelined);
+      Thread.sleep(500);
+      upstreamFlow.submit(upstream);
+
+      upstreamFlow.shutdown();
+      pipelinedFlow.shutdown();
+      Assert.assertTrue(upstreamFlow.awaitTermination(30, TimeUnit.SECONDS));
+      Assert.assertTrue(pipelinedFlow.awaitTermination(30, TimeUnit.SECONDS));
+    } finally {
+      scheduler.shutdownNow();
+    }
+
+    Assert.assertEquals(Status.SUCCEEDED, upstream.getNode().getStatus());
+    Assert.assertEquals(Status.SUCCEEDED, pipelined.getNode().getStatus());
+    Assert.assertTrue(pipelined.getNode().getStartTime() >= upstream.getNode().getEndTime());
+    Assert.assertEquals(0, scheduler.getNumRunningJobs());
+  }
+
   private Props createProps(final int sleepSec, final boolean fail) {
     final Props props = new Props();
     props.put("type", "java");
@@ -348,4 +396,33 @@ public class JobRunnerTest {
     return runner;
   }
 
+
+  /**
+   * Watches a single job of another execution.
+   */
+  private static class JobWatcher extends FlowWatcher {
+
+    private final ExecutableNode watched;
+    private final BlockingStatus status;
+
+    JobWatcher(final ExecutableNode watched) {
+      super(watched.getExecutableFlow().getExecutionId());
+      this.watched = watched;
+      this.status = new BlockingStatus(getExecId(), watched.getId(), watched.getStatus());
+    }
+
+    @Override
+    public synchronized BlockingStatus getBlockingStatus(final String jobId) {
+      return this.status;
+    }
+
+    @Override
+    public Status peekStatus(final String jobId) {
+      return this.watched.getStatus();
+    }
+
+    @Override
+    public void stopWatcher() {
+    }
+  }
 }
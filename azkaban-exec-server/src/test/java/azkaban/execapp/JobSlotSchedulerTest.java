@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JobSlotSchedulerTest {
+
+  private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+  private final CountDownLatch gate = new CountDownLatch(1);
+  private JobSlotScheduler scheduler;
+
+  @Before
+  public void setUp() throws Exception {
+    this.scheduler = new JobSlotScheduler(1);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.gate.countDown();
+    this.scheduler.shutdownNow();
+  }
+
+  private Runnable record(final String name) {
+    return () -> this.order.add(name);
+  }
+
+  private Runnable blockOnGate(final String name) {
+    return () -> {
+      this.order.add(name);
+      try {
+        this.gate.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+  }
+
+  private static void awaitTermination(final ExecutorService... flows) throws Exception {
+    for (final ExecutorService flow : flows) {
+      flow.shutdown();
+      assertThat(flow.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+  }
+
+  @Test
+  public void testGlobalSlotLimit() throws Exception {
+    this.scheduler = new JobSlotScheduler(2);
+    final ExecutorService flow1 = this.scheduler.newFlowExecutor(1, 1, 5, 1);
+    final ExecutorService flow2 = this.scheduler.newFlowExecutor(2, 2, 5, 1);
+
+    for (int i = 0; i < 3; i++) {
+      flow1.submit(blockOnGate("a" + i));
+      flow2.submit(blockOnGate("b" + i));
+    }
+    assertThat(this.scheduler.getNumRunningJobs()).isEqualTo(2);
+    assertThat(this.scheduler.getNumQueuedJobs()).isEqualTo(4);
+
+    this.gate.countDown();
+    awaitTermination(flow1, flow2);
+    assertThat(this.order).hasSize(6);
+    assertThat(this.scheduler.getNumRunningJobs()).isEqualTo(0);
+    assertThat(this.scheduler.getNumQueuedJobs()).isEqualTo(0);
+  }
+
+  @Test
+  public void testPerFlowLimit() throws Exception {
+    this.scheduler = new JobSlotScheduler(4);
+    final ExecutorService flow = this.scheduler.newFlowExecutor(1, 1, 1, 1);
+
+    for (int i = 0; i < 3; i++) {
+      flow.submit(blockOnGate("a" + i));
+    }
+    assertThat(this.scheduler.getNumRunningJobs()).isEqualTo(1);
+    assertThat(this.scheduler.getNumQueuedJobs()).isEqualTo(2);
+
+    this.gate.countDown();
+    awaitTermination(flow);
+    assertThat(this.order).containsExactly("a0", "a1", "a2");
+  }
+
+  @Test
+  public void testFairAcrossProjects() throws Exception {
+    final ExecutorService flowA = this.scheduler.newFlowExecutor(1, 1, 10, 1);
+    final ExecutorService flowB = this.scheduler.newFlowExecutor(2, 2, 10, 1);
+
+    flowA.submit(blockOnGate("a0"));
+    for (int i = 1; i < 6; i++) {
+      flowA.submit(record("a" + i));
+    }
+    flowB.submit(record("b0"));
+    flowB.submit(record("b1"));
+
+    this.gate.countDown();
+    awaitTermination(flowA, flowB);
+    assertThat(this.order).containsExactly("a0", "a1", "b0", "a2", "b1", "a3", "a4", "a5");
+  }
+
+  @Test
+  public void testWeightedWithinProject() throws Exception {
+    final ExecutorService heavy = this.scheduler.newFlowExecutor(1, 1, 10, 2);
+    final ExecutorService light = this.scheduler.newFlowExecutor(2, 1, 10, 1);
+
+    heavy.submit(blockOnGate("x0"));
+    for (int i = 1; i < 7; i++) {
+      heavy.submit(record("x" + i));
+    }
+    for (int i = 0; i < 3; i++) {
+      light.submit(record("y" + i));
+    }
+
+    this.gate.countDown();
+    awaitTermination(heavy, light);
+    assertThat(this.order)
+        .containsExactly("x0", "x1", "y0", "x2", "x3", "y1", "x4", "x5", "y2", "x6");
+  }
+
+  @Test
+  public void testQueueWaitTime() throws Exception {
+    final ExecutorService flow = this.scheduler.newFlowExecutor(1, 1, 10, 1);
+
+    flow.submit(blockOnGate("a0"));
+    flow.submit(record("a1"));
+    Thread.sleep(100);
+    this.gate.countDown();
+    awaitTermination(flow);
+
+    assertThat(this.scheduler.getMaxQueueWaitMs()).isGreaterThanOrEqualTo(100);
+    assertThat(this.scheduler.getTotalQueueWaitMs())
+        .isGreaterThanOrEqualTo(this.scheduler.getMaxQueueWaitMs());
+  }
+
+  @Test
+  public void testShutdownFlow() throws Exception {
+    final ExecutorService flow = this.scheduler.newFlowExecutor(1, 1, 10, 1);
+    flow.submit(blockOnGate("a0"));
+    flow.submit(record("a1"));
+
+    flow.shutdown();
+    assertThat(flow.isShutdown()).isTrue();
+    assertThat(flow.isTerminated()).isFalse();
+    try {
+      flow.submit(record("a2"));
+      throw new AssertionError("Expected the shut down flow to reject new jobs");
+    } catch (final RejectedExecutionException e) {
+      // expected
+    }
+
+    // Jobs queued before the shutdown still run.
+    this.gate.countDown();
+    assertThat(flow.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(this.order).containsExactly("a0", "a1");
+  }
+
+  @Test
+  public void testReacquireGivesUpOnInterruptAndCancel() throws Exception {
+    final ExecutorService flowA = this.scheduler.newFlowExecutor(1, 1, 10, 1);
+    final ExecutorService flowB = this.scheduler.newFlowExecutor(2, 2, 10, 1);
+    flowA.submit(blockOnGate("a0"));
+    // Stands in for a0's slot, released while a0 waits on its pipeline.
+    final JobSlotScheduler.Slot slot = this.scheduler.new Slot();
+    slot.release();
+    flowB.submit(blockOnGate("b0"));
+    assertThat(this.scheduler.getNumRunningJobs()).isEqualTo(1);
+
+    final AtomicReference<Object> result = new AtomicReference<>();
+    final Thread waiter = new Thread(() -> {
+      try {
+        result.set(slot.reacquire());
+      } catch (final InterruptedException e) {
+        result.set(e);
+      }
+    });
+    waiter.start();
+    waiter.interrupt();
+    waiter.join(10000);
+    assertThat(waiter.isAlive()).isFalse();
+    assertThat(result.get()).isInstanceOf(InterruptedException.class);
+    assertThat(this.scheduler.getNumRunningJobs()).isEqualTo(1);
+
+    final Thread killed = new Thread(() -> {
+      try {
+        result.set(slot.reacquire());
+      } catch (final InterruptedException e) {
+        result.set(e);
+      }
+    });
+    killed.start();
+    slot.cancel();
+    killed.join(10000);
+    assertThat(killed.isAlive()).isFalse();
+    assertThat(result.get()).isEqualTo(-1L);
+    assertThat(this.scheduler.getNumRunningJobs()).isEqualTo(1);
+
+    // The slot wasn't taken back, so a queued job runs once b0 is done.
+    flowB.submit(record("b1"));
+    this.gate.countDown();
+    awaitTermination(flowB);
+    assertThat(this.order).containsExactly("a0", "b0", "b1");
+  }
+}
@@ -16,13 +16,24 @@
 
 package azkaban.execapp;
 
+import azkaban.utils.Props;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class ProjectVersionsTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void testVersionOrdering() {
     final ArrayList<ProjectVersion> pversion = new ArrayList<>();
@@ -38,4 +49,44 @@ public class ProjectVersionsTest {
       i = version.getVersion();
     }
   }
+
+  @Test
+  public void testJobPropsAreParsedOncePerFile() throws Exception {
+    final File installedDir = this.temp.newFolder();
+    final File jobFile = new File(installedDir, "test.job");
+    FileUtils.writeStringToFile(jobFile, "type=command\n", StandardCharsets.UTF_8);
+    final ProjectVersion version = new ProjectVersion(1, 1, installedDir);
+    // Exec dirs are hard links to the installed files.
+    final File execFile1 = new File(this.temp.newFolder(), "test.job");
+    final File execFile2 = new File(this.temp.newFolder(), "test.job");
+    Files.createLink(execFile1.toPath(), jobFile.toPath());
+    Files.createLink(execFile2.toPath(), jobFile.toPath());
+
+    final Props first = version.getJobProps(execFile1);
+    first.put("type", "changed");
+    final Props second = version.getJobProps(execFile2);
+
+    // Changes to a returned copy don't leak.
+    Assert.assertEquals("command", second.getString("type"));
+    Assert.assertEquals(execFile2.getPath(), second.getSource());
+    Assert.assertEquals(1, version.getNumParsedJobFiles());
+  }
+
+  @Test
+  public void testChangedJobFileIsParsedAgain() throws Exception {
+    final File jobFile = new File(this.temp.newFolder(), "test.job");
+    FileUtils.writeStringToFile(jobFile, "type=command\n", StandardCharsets.UTF_8);
+    final ProjectVersion version = new ProjectVersion(1, 1, jobFile.getParentFile());
+    Assert.assertEquals("command", version.getJobProps(jobFile).getString("type"));
+
+    // Modified in place.
+    FileUtils.writeStringToFile(jobFile, "type=javaprocess\n", StandardCharsets.UTF_8);
+    Assert.assertEquals("javaprocess", version.getJobProps(jobFile).getString("type"));
+
+    // Replaced by another file.
+    final File replacement = new File(jobFile.getParentFile(), "test.job.new");
+    FileUtils.writeStringToFile(replacement, "type=noop\n", StandardCharsets.UTF_8);
+    Files.move(replacement.toPath(), jobFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Assert.assertEquals("noop", version.getJobProps(jobFile).getString("type"));
+  }
 }
@@ -2,6 +2,9 @@ package azkaban.execapp.event;
 
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_CONNECTION_REQUEST_TIMEOUT;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_CONNECTION_TIMEOUT;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_MAX_REQUESTS_PER_HOST;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_QUEUE_CAPACITY;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_RETRY_BACKOFF_MS;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_SOCKET_TIMEOUT;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_EXECUTION_ID_TOKEN;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_FLOW_TOKEN;
@@ -9,6 +12,7 @@ import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_JOB_STATUS_TOKEN;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_JOB_TOKEN;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_PROJECT_TOKEN;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_SERVER_TOKEN;
+import static org.assertj.core.api.Assertions.assertThat;
 
 import azkaban.jobcallback.JobCallbackConstants;
 import azkaban.jobcallback.JobCallbackStatusEnum;
@@ -113,7 +117,8 @@ public class JobCallbackRequestMakerTest {
         JobCallbackUtil.parseJobCallbackProperties(props,
             JobCallbackStatusEnum.STARTED, contextInfo, 3);
 
-    jobCBMaker.makeHttpRequest(JOB_NANE, logger, httpRequestList);
+    jobCBMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        httpRequestList);
   }
 
   @Test(timeout = 4000)
@@ -127,7 +132,8 @@ public class JobCallbackRequestMakerTest {
         JobCallbackUtil.parseJobCallbackProperties(props,
             JobCallbackStatusEnum.STARTED, contextInfo, 3);
 
-    jobCBMaker.makeHttpRequest(JOB_NANE, logger, httpRequestList);
+    jobCBMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        httpRequestList);
   }
 
   @Test(timeout = 4000)
@@ -141,7 +147,8 @@ public class JobCallbackRequestMakerTest {
         JobCallbackUtil.parseJobCallbackProperties(props,
             JobCallbackStatusEnum.STARTED, contextInfo, 3);
 
-    jobCBMaker.makeHttpRequest(JOB_NANE, logger, httpRequestList);
+    jobCBMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        httpRequestList);
   }
 
   @Test(timeout = 4000)
@@ -161,7 +168,97 @@ public class JobCallbackRequestMakerTest {
         JobCallbackUtil.parseJobCallbackProperties(props,
             JobCallbackStatusEnum.STARTED, contextInfo, 3);
 
-    jobCBMaker.makeHttpRequest(JOB_NANE, logger, httpRequestList);
+    jobCBMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        httpRequestList);
+  }
+
+  private static JobCallbackRequestMaker createRequestMaker(final int maxRequestsPerHost,
+      final int queueCapacity) {
+    final Props props = new Props();
+    props.put(JOBCALLBACK_MAX_REQUESTS_PER_HOST, maxRequestsPerHost);
+    props.put(JOBCALLBACK_QUEUE_CAPACITY, queueCapacity);
+    props.put(JOBCALLBACK_RETRY_BACKOFF_MS, 10);
+    return new JobCallbackRequestMaker(props);
+  }
+
+  private List<HttpRequestBase> createRequests(final String url) {
+    final Props props = new Props();
+    props.put("job.notification."
+        + JobCallbackStatusEnum.STARTED.name().toLowerCase() + ".1.url", url);
+    return JobCallbackUtil.parseJobCallbackProperties(props,
+        JobCallbackStatusEnum.STARTED, contextInfo, 3);
+  }
+
+  @Test(timeout = 10000)
+  public void identicalQueuedCallbacksAreCoalescedTest() throws Exception {
+    final JobCallbackRequestMaker requestMaker = createRequestMaker(1, 10);
+    final long startMs = System.currentTimeMillis();
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(buildUrlForDelay(1)));
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(buildUrlForStatusCode(200)));
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(buildUrlForStatusCode(200)));
+    // Nothing waits for the slow target.
+    assertThat(System.currentTimeMillis() - startMs).isLessThan(1000);
+
+    assertThat(requestMaker.awaitIdle(5000)).isTrue();
+    assertThat(requestMaker.getNumCoalesced()).isEqualTo(1);
+    assertThat(requestMaker.getNumRequests()).isEqualTo(2);
+    assertThat(requestMaker.getNumSuccessful()).isEqualTo(2);
+  }
+
+  @Test(timeout = 10000)
+  public void callbacksOfOtherJobsAreNotCoalescedTest() throws Exception {
+    final JobCallbackRequestMaker requestMaker = createRequestMaker(1, 10);
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(buildUrlForDelay(1)));
+    final String url = buildUrlForStatusCode(200);
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(url));
+    requestMaker.makeHttpRequest(EXECUTION_ID, "JOBY", JobCallbackStatusEnum.STARTED, logger,
+        createRequests(url));
+    requestMaker.makeHttpRequest("1235", JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(url));
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.COMPLETED, logger,
+        createRequests(url));
+
+    assertThat(requestMaker.awaitIdle(5000)).isTrue();
+    assertThat(requestMaker.getNumCoalesced()).isEqualTo(0);
+    assertThat(requestMaker.getNumRequests()).isEqualTo(5);
+  }
+
+  @Test(timeout = 10000)
+  public void callbacksBeyondQueueCapacityAreDroppedTest() throws Exception {
+    final JobCallbackRequestMaker requestMaker = createRequestMaker(1, 1);
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(buildUrlForDelay(1)));
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(buildUrlForStatusCode(200)));
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(buildUrlForStatusCode(201)));
+
+    assertThat(requestMaker.awaitIdle(5000)).isTrue();
+    assertThat(requestMaker.getNumDropped()).isEqualTo(1);
+    assertThat(requestMaker.getNumRequests()).isEqualTo(2);
+  }
+
+  @Test(timeout = 10000)
+  public void serverErrorsAreRetriedTest() throws Exception {
+    final JobCallbackRequestMaker requestMaker = createRequestMaker(2, 10);
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(buildUrlForStatusCode(503)));
+    requestMaker.makeHttpRequest(EXECUTION_ID, JOB_NANE, JobCallbackStatusEnum.STARTED, logger,
+        createRequests(buildUrlForStatusCode(404)));
+
+    assertThat(requestMaker.awaitIdle(5000)).isTrue();
+    // Client errors aren't retried.
+    assertThat(requestMaker.getNumRetried()).isEqualTo(2);
+    assertThat(requestMaker.getNumRequests()).isEqualTo(4);
+    assertThat(requestMaker.getNumFailed()).isEqualTo(4);
+    assertThat(requestMaker.getEndpointStats()).hasSize(1);
+    assertThat(requestMaker.getEndpointStats().get(0))
+        .startsWith("localhost:" + PORT_NUMBER + " requests=4 failed=4");
   }
 
   private static class DelayServlet extends HttpServlet {
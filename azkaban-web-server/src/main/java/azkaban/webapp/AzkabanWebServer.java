@@ -22,6 +22,7 @@ import static java.util.Objects.requireNonNull;
 import azkaban.AzkabanCommonModule;
 import azkaban.Constants;
 import azkaban.database.AzkabanDatabaseSetup;
+import azkaban.executor.ExecutableFlowTemplateCache;
 import azkaban.executor.ExecutorManager;
 import azkaban.jmx.JmxExecutorManager;
 import azkaban.jmx.JmxJettyServer;
@@ -133,6 +134,7 @@ public class AzkabanWebServer extends AzkabanServer {
   private final Server server;
   private final UserManager userManager;
   private final ProjectManager projectManager;
+  private final ExecutableFlowTemplateCache flowTemplateCache;
   private final ExecutorManager executorManager;
   private final ScheduleManager scheduleManager;
   private final TriggerManager triggerManager;
@@ -149,6 +151,7 @@ public class AzkabanWebServer extends AzkabanServer {
       final Server server,
       final ExecutorManager executorManager,
       final ProjectManager projectManager,
+      final ExecutableFlowTemplateCache flowTemplateCache,
       final TriggerManager triggerManager,
       final MetricsManager metricsManager,
       final SessionCache sessionCache,
@@ -160,6 +163,7 @@ public class AzkabanWebServer extends AzkabanServer {
     this.server = requireNonNull(server, "server is null.");
     this.executorManager = requireNonNull(executorManager, "executorManager is null.");
     this.projectManager = requireNonNull(projectManager, "projectManager is null.");
+    this.flowTemplateCache = requireNonNull(flowTemplateCache, "flowTemplateCache is null.");
     this.triggerManager = requireNonNull(triggerManager, "triggerManager is null.");
     this.metricsManager = requireNonNull(metricsManager, "metricsManager is null.");
     this.sessionCache = requireNonNull(sessionCache, "sessionCache is null.");
@@ -559,6 +563,7 @@ public class AzkabanWebServer extends AzkabanServer {
     logger.info("Loading built-in checker and action types");
     ExecuteFlowAction.setExecutorManager(this.executorManager);
     ExecuteFlowAction.setProjectManager(this.projectManager);
+    ExecuteFlowAction.setFlowTemplateCache(this.flowTemplateCache);
     ExecuteFlowAction.setTriggerManager(this.triggerManager);
     KillExecutionAction.setExecutorManager(this.executorManager);
     CreateTriggerAction.setTriggerManager(this.triggerManager);
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp.servlet;
+
+import static azkaban.Constants.ConfigurationKeys.EXECUTION_PAGE_STATE_REFRESH_MS;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorManager;
+import azkaban.executor.ExecutorManagerAdapter;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.Props;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Executions as seen by the pages that poll them for updates and logs, so that all the clients
+ * watching an execution share one source instead of each reading it from the db.
+ *
+ * A running execution is the copy the executor manager keeps in memory and updates from its
+ * executor. Other executions are read from the db once for everybody, and kept briefly, or, once
+ * finished, until they are evicted.
+ *
+ * Log chunks are kept briefly too, by execution, job, attempt, offset and length. Clients that
+ * request the same chunk within the refresh interval, e.g. pages that were opened at the same
+ * time or that have caught up with the end of a log, share one fetch. Clients at different
+ * offsets each still fetch their own chunks.
+ *
+ * The following global azkaban property can be used: execution.page.state.refresh.ms - how long
+ * executions that aren't running and log chunks are kept. Default is 1 second.
+ */
+@Singleton
+public class ExecutionStateCache {
+
+  private static final long DEFAULT_REFRESH_MS = 1000;
+  private static final int MAX_FINISHED = 500;
+  private static final long FINISHED_EXPIRY_MINUTES = 10;
+  private static final long MAX_LOG_CHARS = 8 * 1024 * 1024;
+  // Guava caches can't hold null, which means there is no log (yet).
+  private static final LogData NO_LOG = new LogData(0, 0, "");
+
+  private final ExecutorManagerAdapter executorManager;
+  // Neither running nor finished, e.g. queued or just finishing.
+  private final Cache<Integer, ExecutableFlow> recent;
+  private final Cache<Integer, ExecutableFlow> finished = CacheBuilder.newBuilder()
+      .maximumSize(MAX_FINISHED)
+      .expireAfterAccess(FINISHED_EXPIRY_MINUTES, TimeUnit.MINUTES)
+      .build();
+  private final Cache<String, LogData> logs;
+
+  @Inject
+  public ExecutionStateCache(final ExecutorManager executorManager, final Props props) {
+    this(executorManager, props.getLong(EXECUTION_PAGE_STATE_REFRESH_MS, DEFAULT_REFRESH_MS));
+  }
+
+  ExecutionStateCache(final ExecutorManagerAdapter executorManager, final long refreshMs) {
+    this.executorManager = executorManager;
+    this.recent = CacheBuilder.newBuilder()
+        .expireAfterWrite(refreshMs, TimeUnit.MILLISECONDS)
+        .build();
+    this.logs = CacheBuilder.newBuilder()
+        .expireAfterWrite(refreshMs, TimeUnit.MILLISECONDS)
+        .maximumWeight(MAX_LOG_CHARS)
+        .weigher((final String key, final LogData data) -> data.getData().length())
+        .build();
+  }
+
+  /**
+   * Callers must not modify the returned execution. A running execution is updated by the
+   * executor manager while it is read, so the fields of its jobs may not all be from the same
+   * update.
+   *
+   * @return null if the execution doesn't exist
+   */
+  ExecutableFlow get(final int execId) throws ExecutorManagerException {
+    final ExecutableFlow running = this.executorManager.getRunningExecutableFlow(execId);
+    if (running != null) {
+      return running;
+    }
+    final ExecutableFlow finished = this.finished.getIfPresent(execId);
+    if (finished != null) {
+      return finished;
+    }
+
+    final ExecutableFlow flow;
+    try {
+      // Concurrent requests for the same execution wait for one read.
+      flow = this.recent.get(execId, () -> this.executorManager.getExecutableFlow(execId));
+    } catch (final InvalidCacheLoadException e) {
+      // Not found.
+      return null;
+    } catch (final ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof ExecutorManagerException) {
+        throw (ExecutorManagerException) e.getCause();
+      }
+      throw new ExecutorManagerException(e.getCause().getMessage(), e.getCause());
+    }
+    if (Status.isStatusFinished(flow.getStatus())) {
+      this.finished.put(execId, flow);
+      this.recent.invalidate(execId);
+    }
+    return flow;
+  }
+
+  /**
+   * @return null if there is no log
+   */
+  LogData getFlowLog(final ExecutableFlow flow, final int offset, final int length)
+      throws ExecutorManagerException {
+    return getLog(flow.getExecutionId() + "//" + offset + "/" + length,
+        () -> this.executorManager.getExecutableFlowLog(flow, offset, length));
+  }
+
+  /**
+   * @return null if there is no log
+   */
+  LogData getJobLog(final ExecutableFlow flow, final String jobId, final int offset,
+      final int length, final int attempt) throws ExecutorManagerException {
+    return getLog(flow.getExecutionId() + "/" + jobId + "/" + attempt + "/" + offset + "/"
+            + length,
+        () -> this.executorManager.getExecutionJobLog(flow, jobId, offset, length, attempt));
+  }
+
+  private LogData getLog(final String key, final LogLoader loader)
+      throws ExecutorManagerException {
+    final LogData data;
+    try {
+      data = this.logs.get(key, () -> {
+        final LogData loaded = loader.load();
+        return loaded == null ? NO_LOG : loaded;
+      });
+    } catch (final ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof ExecutorManagerException) {
+        throw (ExecutorManagerException) e.getCause();
+      }
+      throw new ExecutorManagerException(e.getCause().getMessage(), e.getCause());
+    }
+    return data == NO_LOG ? null : data;
+  }
+
+  private interface LogLoader {
+
+    LogData load() throws ExecutorManagerException;
+  }
+}
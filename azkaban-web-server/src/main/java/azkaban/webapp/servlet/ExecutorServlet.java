@@ -50,11 +50,13 @@ import azkaban.webapp.AzkabanWebServer;
 import azkaban.webapp.WebMetrics;
 import azkaban.webapp.plugin.PluginRegistry;
 import azkaban.webapp.plugin.ViewerPlugin;
+import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -68,12 +70,18 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
   private static final Logger LOGGER =
       Logger.getLogger(ExecutorServlet.class.getName());
   private static final long serialVersionUID = 1L;
+  // Actions that execution pages poll. They read executions and log chunks from the shared
+  // execution state instead of the db, see ExecutionStateCache.
+  private static final Set<String> POLLED_AJAX_ACTIONS =
+      ImmutableSet.of("fetchexecflowupdate", "fetchExecFlowLogs", "fetchExecJobLogs");
   private WebMetrics webMetrics;
   private ProjectManager projectManager;
   private ExecutorManagerAdapter executorManager;
   private ScheduleManager scheduleManager;
   private ExecutorVelocityHelper velocityHelper;
   private UserManager userManager;
+  private FlowGraphCache flowGraphCache;
+  private ExecutionStateCache executionStateCache;
 
   @Override
   public void init(final ServletConfig config) throws ServletException {
@@ -86,6 +94,8 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
     this.velocityHelper = new ExecutorVelocityHelper();
     // TODO: reallocf fully guicify
     this.webMetrics = SERVICE_PROVIDER.getInstance(WebMetrics.class);
+    this.flowGraphCache = SERVICE_PROVIDER.getInstance(FlowGraphCache.class);
+    this.executionStateCache = SERVICE_PROVIDER.getInstance(ExecutionStateCache.class);
   }
 
   @Override
@@ -115,7 +125,11 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
       ExecutableFlow exFlow = null;
 
       try {
-        exFlow = this.executorManager.getExecutableFlow(execid);
+        if (POLLED_AJAX_ACTIONS.contains(ajaxName)) {
+          exFlow = this.executionStateCache.get(execid);
+        } else {
+          exFlow = this.executorManager.getExecutableFlow(execid);
+        }
       } catch (final ExecutorManagerException e) {
         ret.put("error",
             "Error fetching execution '" + execid + "': " + e.getMessage());
@@ -125,7 +139,9 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
         ret.put("error", "Cannot find execution '" + execid + "'");
       } else {
         if (ajaxName.equals("fetchexecflow")) {
-          ajaxFetchExecutableFlow(req, resp, ret, session.getUser(), exFlow);
+          if (ajaxFetchExecutableFlow(req, resp, ret, session.getUser(), exFlow)) {
+            return;
+          }
         } else if (ajaxName.equals("fetchexecflowupdate")) {
           ajaxFetchExecutableFlowUpdate(req, resp, ret, session.getUser(),
               exFlow);
@@ -501,8 +517,7 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
     resp.setCharacterEncoding("utf-8");
 
     try {
-      final LogData data =
-          this.executorManager.getExecutableFlowLog(exFlow, offset, length);
+      final LogData data = this.executionStateCache.getFlowLog(exFlow, offset, length);
       if (data == null) {
         ret.put("length", 0);
         ret.put("offset", offset);
@@ -553,8 +568,7 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
 
       final int attempt = this.getIntParam(req, "attempt", node.getAttempt());
       final LogData data =
-          this.executorManager.getExecutionJobLog(exFlow, jobId, offset, length,
-              attempt);
+          this.executionStateCache.getJobLog(exFlow, jobId, offset, length, attempt);
       if (data == null) {
         ret.put("length", 0);
         ret.put("offset", offset);
@@ -858,17 +872,39 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
     ret.putAll(map);
   }
 
-  private void ajaxFetchExecutableFlow(final HttpServletRequest req,
+  /**
+   * The graph of a finished execution doesn't change any more, so it's cached and served with an
+   * ETag.
+   *
+   * @return true if the response was written
+   */
+  private boolean ajaxFetchExecutableFlow(final HttpServletRequest req,
       final HttpServletResponse resp, final HashMap<String, Object> ret, final User user,
-      final ExecutableFlow exFlow) throws ServletException {
+      final ExecutableFlow exFlow) throws ServletException, IOException {
     System.out.println("Fetching " + exFlow.getExecutionId());
 
     final Project project =
         getProjectAjaxByPermission(ret, exFlow.getProjectId(), user, Type.READ);
     if (project == null) {
-      return;
+      return false;
+    }
+
+    if (Status.isStatusFinished(exFlow.getStatus())) {
+      final String key = "execflow/" + exFlow.getExecutionId() + "/" + exFlow.getUpdateTime();
+      this.flowGraphCache.write(req, resp, key, () -> {
+        final HashMap<String, Object> graph = new HashMap<>();
+        fillExecutableFlowInfo(graph, project, exFlow);
+        return graph;
+      });
+      return true;
     }
 
+    fillExecutableFlowInfo(ret, project, exFlow);
+    return false;
+  }
+
+  private void fillExecutableFlowInfo(final HashMap<String, Object> ret, final Project project,
+      final ExecutableFlow exFlow) {
     ret.put("submitTime", exFlow.getSubmitTime());
     ret.put("submitUser", exFlow.getSubmitUser());
     ret.put("execid", exFlow.getExecutionId());
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp.servlet;
+
+import static azkaban.Constants.ConfigurationKeys.AZKABAN_FLOW_GRAPH_CACHE_MAX_BYTES;
+
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Props;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * JSON of flow graphs that never change for a given key, e.g. the graph of a flow in a project
+ * version, kept with its gzipped form and served with an ETag.
+ *
+ * The ETag is derived from the key, not the content, so a conditional request can be answered
+ * before the graph is loaded or built. Keys must therefore contain everything the JSON depends
+ * on.
+ *
+ * The following global azkaban property can be used: azkaban.flow.graph.cache.max.bytes - max
+ * total size of the cached JSON. Default is 64 MB. Setting it to 0 disables the cache, the ETags
+ * are still used.
+ */
+@Singleton
+public class FlowGraphCache {
+
+  // Changes the ETags when the JSON format changes.
+  private static final String FORMAT_VERSION = "1";
+  private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+  private static final String CACHE_CONTROL = "private, no-cache";
+
+  private final Cache<String, CachedJson> cache;
+
+  @Inject
+  public FlowGraphCache(final Props props) {
+    final long maxBytes = props.getLong(AZKABAN_FLOW_GRAPH_CACHE_MAX_BYTES, DEFAULT_MAX_BYTES);
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(Math.max(maxBytes, 0))
+        .weigher((final String key, final CachedJson json) -> json.json.length + json.gzip.length)
+        .build();
+  }
+
+  static String etag(final String key) {
+    return "\"" + DigestUtils.md5Hex(FORMAT_VERSION + key) + "\"";
+  }
+
+  static boolean matches(final String ifNoneMatch, final String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static byte[] gzip(final byte[] data) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+    try (OutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(data);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static CachedJson build(final String key, final Supplier<Object> graph)
+      throws IOException {
+    final byte[] json = JSONUtils.toJSON(graph.get(), true).getBytes(StandardCharsets.UTF_8);
+    return new CachedJson(etag(key), json, gzip(json));
+  }
+
+  /**
+   * Answers a conditional request for the key with 304, if the client has the current JSON.
+   *
+   * @return true if the response was sent
+   */
+  public boolean writeNotModified(final HttpServletRequest req, final HttpServletResponse resp,
+      final String key) {
+    final String etag = etag(key);
+    if (!matches(req.getHeader("If-None-Match"), etag)) {
+      return false;
+    }
+    resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    resp.setHeader("ETag", etag);
+    resp.setHeader("Cache-Control", CACHE_CONTROL);
+    resp.setHeader("Vary", "Accept-Encoding");
+    return true;
+  }
+
+  /**
+   * Writes the JSON of the key, built from the graph if it isn't cached. It's gzipped if the
+   * client accepts it.
+   */
+  public void write(final HttpServletRequest req, final HttpServletResponse resp,
+      final String key, final Supplier<Object> graph) throws IOException, ServletException {
+    if (writeNotModified(req, resp, key)) {
+      return;
+    }
+    final CachedJson json;
+    try {
+      json = this.cache.get(key, () -> build(key, graph));
+    } catch (final ExecutionException | UncheckedExecutionException e) {
+      throw new ServletException("Failed to build the JSON of " + key, e.getCause());
+    }
+
+    resp.setContentType(AbstractAzkabanServlet.JSON_MIME_TYPE);
+    resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    resp.setHeader("ETag", json.etag);
+    resp.setHeader("Cache-Control", CACHE_CONTROL);
+    resp.setHeader("Vary", "Accept-Encoding");
+    final String acceptEncoding = req.getHeader("Accept-Encoding");
+    final byte[] body;
+    if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+      resp.setHeader("Content-Encoding", "gzip");
+      body = json.gzip;
+    } else {
+      body = json.json;
+    }
+    resp.setContentLength(body.length);
+    resp.getOutputStream().write(body);
+  }
+
+  public long size() {
+    return this.cache.size();
+  }
+
+  private static class CachedJson {
+
+    private final String etag;
+    private final byte[] json;
+    private final byte[] gzip;
+
+    CachedJson(final String etag, final byte[] json, final byte[] gzip) {
+      this.etag = etag;
+      this.json = json;
+      this.gzip = gzip;
+    }
+  }
+}
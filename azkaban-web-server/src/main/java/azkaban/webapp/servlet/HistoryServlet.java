@@ -16,7 +16,7 @@
 
 package azkaban.webapp.servlet;
 
-import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.project.Project;
@@ -96,7 +96,10 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
     if (pageNum < 0) {
       pageNum = 1;
     }
-    List<ExecutableFlow> history = null;
+    // Searches page through the executions before the last one shown, rather than by offset.
+    final int beforeExecId = getIntParam(req, "before", -1);
+    final int searchSkip = beforeExecId > 0 ? 0 : (pageNum - 1) * pageSize;
+    List<ExecutionSummary> history = null;
     if (hasParam(req, "advfilter")) {
       final String projContain = getParam(req, "projcontain");
       final String flowContain = getParam(req, "flowcontain");
@@ -114,9 +117,8 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
               .parseDateTime(end).getMillis();
       try {
         history =
-            this.executorManager.getExecutableFlows(projContain, flowContain,
-                userContain, status, beginTime, endTime, (pageNum - 1)
-                    * pageSize, pageSize);
+            this.executorManager.getExecutionSummaries(projContain, flowContain,
+                userContain, status, beginTime, endTime, beforeExecId, searchSkip, pageSize);
       } catch (final ExecutorManagerException e) {
         page.add("error", e.getMessage());
       }
@@ -124,21 +126,24 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
       final String searchTerm = getParam(req, "searchterm");
       try {
         history =
-            this.executorManager.getExecutableFlows(searchTerm, (pageNum - 1)
-                * pageSize, pageSize);
+            this.executorManager.getExecutionSummaries(searchTerm, beforeExecId, searchSkip,
+                pageSize);
       } catch (final ExecutorManagerException e) {
         page.add("error", e.getMessage());
       }
     } else {
       try {
         history =
-            this.executorManager.getExecutableFlows((pageNum - 1) * pageSize,
+            this.executorManager.getExecutionSummaries((pageNum - 1) * pageSize,
                 pageSize);
       } catch (final ExecutorManagerException e) {
         e.printStackTrace();
       }
     }
     page.add("flowHistory", history);
+    if (history != null && !history.isEmpty()) {
+      page.add("nextBefore", history.get(history.size() - 1).getExecutionId());
+    }
     page.add("size", pageSize);
     page.add("page", pageNum);
     // keep the search terms so that we can navigate to later pages
@@ -16,8 +16,12 @@
 
 package azkaban.webapp.servlet;
 
+import static azkaban.ServiceProvider.SERVICE_PROVIDER;
+
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutableJobInfo;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.executor.Status;
@@ -44,6 +48,7 @@ import azkaban.user.User;
 import azkaban.user.UserManager;
 import azkaban.user.UserUtils;
 import azkaban.utils.JSONUtils;
+import azkaban.utils.Md5Hasher;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import azkaban.utils.PropsUtils;
@@ -54,9 +59,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.security.AccessControlException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -92,6 +100,16 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
 
   private static final String PROJECT_DOWNLOAD_BUFFER_SIZE_IN_BYTES =
       "project.download.buffer.size";
+  // Uploads in pieces that don't get a piece for this long are deleted.
+  private static final String PROJECT_UPLOAD_EXPIRY_MS = "project.upload.resumable.expiry.ms";
+  private static final long DEFAULT_PROJECT_UPLOAD_EXPIRY_MS = 24 * 60 * 60 * 1000L;
+  // Uploads in pieces a user can have in progress at once.
+  private static final String PROJECT_UPLOAD_MAX_PER_USER =
+      "project.upload.resumable.max.per.user";
+  private static final int DEFAULT_PROJECT_UPLOAD_MAX_PER_USER = 10;
+  // Max size of an uploaded project archive.
+  private static final String PROJECT_UPLOAD_MAX_BYTES = "project.upload.max.bytes";
+  private static final long DEFAULT_PROJECT_UPLOAD_MAX_BYTES = 2L * 1024 * 1024 * 1024;
   private static final Comparator<Flow> FLOW_ID_COMPARATOR = new Comparator<Flow>() {
     @Override
     public int compare(final Flow f1, final Flow f2) {
@@ -99,10 +117,13 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     }
   };
   private ProjectManager projectManager;
+  private FlowGraphCache flowGraphCache;
   private ExecutorManagerAdapter executorManager;
   private ScheduleManager scheduleManager;
   private UserManager userManager;
   private int downloadBufferSize;
+  private ResumableUploadStore uploadStore;
+  private long uploadMaxBytes;
   private boolean lockdownCreateProjects = false;
   private boolean lockdownUploadProjects = false;
 
@@ -112,6 +133,7 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
 
     final AzkabanWebServer server = (AzkabanWebServer) getApplication();
     this.projectManager = server.getProjectManager();
+    this.flowGraphCache = SERVICE_PROVIDER.getInstance(FlowGraphCache.class);
     this.executorManager = server.getExecutorManager();
     this.scheduleManager = server.getScheduleManager();
     this.userManager = server.getUserManager();
@@ -132,6 +154,21 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
             8192);
 
     logger.info("downloadBufferSize: " + this.downloadBufferSize);
+
+    final Props serverProps = server.getServerProps();
+    this.uploadMaxBytes =
+        serverProps.getLong(PROJECT_UPLOAD_MAX_BYTES, DEFAULT_PROJECT_UPLOAD_MAX_BYTES);
+    this.uploadStore = new ResumableUploadStore(
+        new File(serverProps.getString(ConfigurationKeys.PROJECT_TEMP_DIR, "temp"), "uploads"),
+        serverProps.getLong(PROJECT_UPLOAD_EXPIRY_MS, DEFAULT_PROJECT_UPLOAD_EXPIRY_MS),
+        this.uploadMaxBytes,
+        serverProps.getInt(PROJECT_UPLOAD_MAX_PER_USER, DEFAULT_PROJECT_UPLOAD_MAX_PER_USER));
+  }
+
+  @Override
+  public void destroy() {
+    this.uploadStore.shutdown();
+    super.destroy();
   }
 
   @Override
@@ -198,7 +235,9 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
   @Override
   protected void handlePost(final HttpServletRequest req, final HttpServletResponse resp,
       final Session session) throws ServletException, IOException {
-    if (hasParam(req, "action")) {
+    if (hasParam(req, "ajax")) {
+      handleAjaxUploadAction(req, resp, session);
+    } else if (hasParam(req, "action")) {
       final String action = getParam(req, "action");
       if (action.equals("create")) {
         handleCreate(req, resp, session);
@@ -236,8 +275,9 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
           ajaxFetchFlowDetails(project, ret, req);
         }
       } else if (ajaxName.equals("fetchflowgraph")) {
-        if (handleAjaxPermission(project, user, Type.READ, ret)) {
-          ajaxFetchFlowGraph(project, ret, req);
+        if (handleAjaxPermission(project, user, Type.READ, ret)
+            && ajaxFetchFlowGraph(project, ret, req, resp)) {
+          return;
         }
       } else if (ajaxName.equals("fetchflownodedata")) {
         if (handleAjaxPermission(project, user, Type.READ, ret)) {
@@ -375,10 +415,10 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
       final HashMap<String, Object> ret, final HttpServletRequest req)
       throws ServletException {
     final String flowId = getParam(req, "flow");
-    List<ExecutableFlow> exFlows = null;
+    List<ExecutionSummary> exFlows = null;
     try {
       exFlows =
-          this.executorManager.getExecutableFlows(project.getId(), flowId, 0, 1,
+          this.executorManager.getExecutionSummaries(project.getId(), flowId, 0, 1,
               Status.SUCCEEDED);
     } catch (final ExecutorManagerException e) {
       ret.put("error", "Error retrieving executable flows");
@@ -403,11 +443,11 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     final int from = Integer.valueOf(getParam(req, "start"));
     final int length = Integer.valueOf(getParam(req, "length"));
 
-    final ArrayList<ExecutableFlow> exFlows = new ArrayList<>();
+    final ArrayList<ExecutionSummary> exFlows = new ArrayList<>();
     int total = 0;
     try {
       total =
-          this.executorManager.getExecutableFlows(project.getId(), flowId, from,
+          this.executorManager.getExecutionSummaries(project.getId(), flowId, from,
               length, exFlows);
     } catch (final ExecutorManagerException e) {
       ret.put("error", "Error retrieving executable flows");
@@ -419,7 +459,7 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     ret.put("length", length);
 
     final ArrayList<Object> history = new ArrayList<>();
-    for (final ExecutableFlow flow : exFlows) {
+    for (final ExecutionSummary flow : exFlows) {
       final HashMap<String, Object> flowInfo = new HashMap<>();
       flowInfo.put("execId", flow.getExecutionId());
       flowInfo.put("flowId", flow.getFlowId());
@@ -462,31 +502,29 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
       version = getIntParam(req, "version");
     }
 
-    ProjectFileHandler projectFileHandler = null;
-    FileInputStream inStream = null;
+    InputStream inStream = null;
     OutputStream outStream = null;
     try {
-      projectFileHandler =
-          this.projectManager.getProjectFileHandler(project, version);
+      final ProjectFileHandler projectFileHandler =
+          this.projectManager.getProjectFileMetadata(project, version);
       if (projectFileHandler == null) {
         this.setErrorMessageInCookie(resp, "Project " + projectName
             + " with version " + version + " doesn't exist");
         resp.sendRedirect(req.getContextPath());
         return;
       }
-      final File projectZipFile = projectFileHandler.getLocalFile();
       final String logStr =
           String.format(
-              "downloading project zip file for project \"%s\" at \"%s\""
-                  + " size: %d type: %s  fileName: \"%s\"",
-              projectFileHandler.getFileName(),
-              projectZipFile.getAbsolutePath(), projectZipFile.length(),
+              "downloading project zip file for project \"%s\" version: %d"
+                  + " type: %s  fileName: \"%s\"",
+              projectName, projectFileHandler.getVersion(),
               projectFileHandler.getFileType(),
               projectFileHandler.getFileName());
       logger.info(logStr);
 
-      // now set up HTTP response for downloading file
-      inStream = new FileInputStream(projectZipFile);
+      // The file is streamed from storage. If its checksum turns out to be wrong at the end,
+      // the exception below aborts the response, so the client doesn't get a complete file.
+      inStream = this.projectManager.openProjectFile(projectFileHandler);
 
       resp.setContentType(APPLICATION_ZIP_MIME_TYPE);
 
@@ -502,13 +540,20 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
 
       outStream = resp.getOutputStream();
 
-      final byte[] buffer = new byte[this.downloadBufferSize];
-      int bytesRead = -1;
+      if (inStream instanceof FileInputStream) {
+        // A cached file, already validated, so its size is known up front.
+        final long size = ((FileInputStream) inStream).getChannel().size();
+        resp.setHeader("Content-Length", Long.toString(size));
+        IOUtils.copyLarge(inStream, outStream, new byte[this.downloadBufferSize]);
+      } else {
+        final byte[] buffer = new byte[this.downloadBufferSize];
+        int bytesRead = -1;
 
-      while ((bytesRead = inStream.read(buffer)) != -1) {
-        outStream.write(buffer, 0, bytesRead);
+        while ((bytesRead = inStream.read(buffer)) != -1) {
+          outStream.write(buffer, 0, bytesRead);
+        }
       }
-
+      outStream.close();
     } catch (final Throwable e) {
       logger.error(
           "Encountered error while downloading project zip file for project: "
@@ -516,11 +561,6 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
       throw new ServletException(e);
     } finally {
       IOUtils.closeQuietly(inStream);
-      IOUtils.closeQuietly(outStream);
-
-      if (projectFileHandler != null) {
-        projectFileHandler.deleteLocalFile();
-      }
     }
 
   }
@@ -765,11 +805,33 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     ret.put("flows", flowList);
   }
 
-  private void ajaxFetchFlowGraph(final Project project, final HashMap<String, Object> ret,
-      final HttpServletRequest req) throws ServletException {
+  /**
+   * The graph of a flow doesn't change within a project version, so it's cached and a client that
+   * has it gets a 304 without the flow being loaded.
+   *
+   * @return true if the response was written
+   */
+  private boolean ajaxFetchFlowGraph(final Project project, final HashMap<String, Object> ret,
+      final HttpServletRequest req, final HttpServletResponse resp)
+      throws ServletException, IOException {
     final String flowId = getParam(req, "flow");
+    final String key = "flowgraph/" + project.getId() + "/" + project.getVersion() + "/" + flowId;
+    if (this.flowGraphCache.writeNotModified(req, resp, key)) {
+      return true;
+    }
+    if (project.getFlow(flowId) == null) {
+      ret.put("error", "Flow " + flowId + " doesn't exist.");
+      return false;
+    }
 
-    fillFlowInfo(project, flowId, ret);
+    this.flowGraphCache.write(req, resp, key, () -> {
+      final HashMap<String, Object> graph = new HashMap<>();
+      graph.put("project", project.getName());
+      graph.put("projectId", project.getId());
+      fillFlowInfo(project, flowId, graph);
+      return graph;
+    });
+    return true;
   }
 
   private void fillFlowInfo(final Project project, final String flowId,
@@ -1654,36 +1716,21 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     final User user = session.getUser();
     final String projectName = (String) multipart.get("project");
     final Project project = this.projectManager.getProject(projectName);
-    final String autoFix = (String) multipart.get("fix");
-    final Props props = new Props();
-    if (autoFix != null && autoFix.equals("off")) {
-      props.put(ValidatorConfigs.CUSTOM_AUTO_FIX_FLAG_PARAM, "false");
-    } else {
-      props.put(ValidatorConfigs.CUSTOM_AUTO_FIX_FLAG_PARAM, "true");
-    }
 
-    if (this.lockdownUploadProjects && !UserUtils
-        .hasPermissionforAction(this.userManager, user, Type.UPLOADPROJECTS)) {
-      final String message =
-          "Project uploading is locked out. Only admin users and users with special permissions can upload projects. "
-              + "User " + user.getUserId() + " doesn't have permission to upload project.";
-      logger.info(message);
-      registerError(ret, message, resp, 403);
-    } else if (projectName == null || projectName.isEmpty()) {
-      registerError(ret, "No project name found.", resp, 400);
-    } else if (project == null) {
-      registerError(ret, "Installation Failed. Project '" + projectName
-          + "' doesn't exist.", resp, 400);
-    } else if (!hasPermission(project, user, Type.WRITE)) {
-      registerError(ret, "Installation Failed. User '" + user.getUserId()
-          + "' does not have write access.", resp, 400);
-    } else {
+    if (checkUploadPermission(projectName, project, user, ret, resp)) {
       ret.put("projectId", String.valueOf(project.getId()));
 
       final FileItem item = (FileItem) multipart.get("file");
       final String name = item.getName();
       String type = null;
 
+      if (item.getSize() > this.uploadMaxBytes) {
+        item.delete();
+        registerError(ret, "File " + name + " is larger than " + this.uploadMaxBytes
+            + " bytes.", resp, 413);
+        return;
+      }
+
       final String contentType = item.getContentType();
       if (contentType != null
           && (contentType.startsWith(APPLICATION_ZIP_MIME_TYPE)
@@ -1702,69 +1749,15 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
       try {
         logger.info("Uploading file " + name);
         final File archiveFile = new File(tempDir, name);
-        out = new BufferedOutputStream(new FileOutputStream(archiveFile));
+        // Hash the archive while copying it, so it isn't read again for that.
+        final MessageDigest digest = Md5Hasher.getMd5Digest();
+        out = new DigestOutputStream(
+            new BufferedOutputStream(new FileOutputStream(archiveFile)), digest);
         IOUtils.copy(item.getInputStream(), out);
         out.close();
 
-        final Map<String, ValidationReport> reports =
-            this.projectManager.uploadProject(project, archiveFile, type, user,
-                props);
-        final StringBuffer errorMsgs = new StringBuffer();
-        final StringBuffer warnMsgs = new StringBuffer();
-        for (final Entry<String, ValidationReport> reportEntry : reports.entrySet()) {
-          final ValidationReport report = reportEntry.getValue();
-          if (!report.getInfoMsgs().isEmpty()) {
-            for (final String msg : report.getInfoMsgs()) {
-              switch (ValidationReport.getInfoMsgLevel(msg)) {
-                case ERROR:
-                  errorMsgs.append(ValidationReport.getInfoMsg(msg) + "<br/>");
-                  break;
-                case WARN:
-                  warnMsgs.append(ValidationReport.getInfoMsg(msg) + "<br/>");
-                  break;
-                default:
-                  break;
-              }
-            }
-          }
-          if (!report.getErrorMsgs().isEmpty()) {
-            errorMsgs.append("Validator " + reportEntry.getKey()
-                + " reports errors:<ul>");
-            for (final String msg : report.getErrorMsgs()) {
-              errorMsgs.append("<li>" + msg + "</li>");
-            }
-            errorMsgs.append("</ul>");
-          }
-          if (!report.getWarningMsgs().isEmpty()) {
-            warnMsgs.append("Validator " + reportEntry.getKey()
-                + " reports warnings:<ul>");
-            for (final String msg : report.getWarningMsgs()) {
-              warnMsgs.append("<li>" + msg + "</li>");
-            }
-            warnMsgs.append("</ul>");
-          }
-        }
-        if (errorMsgs.length() > 0) {
-          // If putting more than 4000 characters in the cookie, the entire
-          // message
-          // will somehow get discarded.
-          registerError(ret, errorMsgs.length() > 4000 ? errorMsgs.substring(0, 4000)
-              : errorMsgs.toString(), resp, 500);
-        }
-        if (warnMsgs.length() > 0) {
-          ret.put(
-              "warn",
-              warnMsgs.length() > 4000 ? warnMsgs.substring(0, 4000) : warnMsgs
-                  .toString());
-        }
-      } catch (final Exception e) {
-        logger.info("Installation Failed.", e);
-        String error = e.getMessage();
-        if (error.length() > 512) {
-          error =
-              error.substring(0, 512) + "<br>Too many errors to display.<br>";
-        }
-        registerError(ret, "Installation Failed.<br>" + error, resp, 500);
+        installArchive(project, archiveFile, digest.digest(), type, user,
+            getUploadProps((String) multipart.get("fix")), ret, resp);
       } finally {
         if (out != null) {
           out.close();
@@ -1778,6 +1771,194 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     }
   }
 
+  private Props getUploadProps(final String autoFix) {
+    final Props props = new Props();
+    if (autoFix != null && autoFix.equals("off")) {
+      props.put(ValidatorConfigs.CUSTOM_AUTO_FIX_FLAG_PARAM, "false");
+    } else {
+      props.put(ValidatorConfigs.CUSTOM_AUTO_FIX_FLAG_PARAM, "true");
+    }
+    return props;
+  }
+
+  private boolean checkUploadPermission(final String projectName, final Project project,
+      final User user, final Map<String, String> ret, final HttpServletResponse resp) {
+    if (this.lockdownUploadProjects && !UserUtils
+        .hasPermissionforAction(this.userManager, user, Type.UPLOADPROJECTS)) {
+      final String message =
+          "Project uploading is locked out. Only admin users and users with special permissions can upload projects. "
+              + "User " + user.getUserId() + " doesn't have permission to upload project.";
+      logger.info(message);
+      registerError(ret, message, resp, 403);
+    } else if (projectName == null || projectName.isEmpty()) {
+      registerError(ret, "No project name found.", resp, 400);
+    } else if (project == null) {
+      registerError(ret, "Installation Failed. Project '" + projectName
+          + "' doesn't exist.", resp, 400);
+    } else if (!hasPermission(project, user, Type.WRITE)) {
+      registerError(ret, "Installation Failed. User '" + user.getUserId()
+          + "' does not have write access.", resp, 400);
+    } else {
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Validates and stores an uploaded archive, and reports the validation messages in ret.
+   */
+  private void installArchive(final Project project, final File archiveFile,
+      final byte[] archiveMd5, final String type, final User user, final Props props,
+      final Map<String, String> ret, final HttpServletResponse resp) {
+    try {
+      final Map<String, ValidationReport> reports =
+          this.projectManager.uploadProject(project, archiveFile, archiveMd5, type, user,
+              props);
+      final StringBuffer errorMsgs = new StringBuffer();
+      final StringBuffer warnMsgs = new StringBuffer();
+      for (final Entry<String, ValidationReport> reportEntry : reports.entrySet()) {
+        final ValidationReport report = reportEntry.getValue();
+        if (!report.getInfoMsgs().isEmpty()) {
+          for (final String msg : report.getInfoMsgs()) {
+            switch (ValidationReport.getInfoMsgLevel(msg)) {
+              case ERROR:
+                errorMsgs.append(ValidationReport.getInfoMsg(msg) + "<br/>");
+                break;
+              case WARN:
+                warnMsgs.append(ValidationReport.getInfoMsg(msg) + "<br/>");
+                break;
+              default:
+                break;
+            }
+          }
+        }
+        if (!report.getErrorMsgs().isEmpty()) {
+          errorMsgs.append("Validator " + reportEntry.getKey()
+              + " reports errors:<ul>");
+          for (final String msg : report.getErrorMsgs()) {
+            errorMsgs.append("<li>" + msg + "</li>");
+          }
+          errorMsgs.append("</ul>");
+        }
+        if (!report.getWarningMsgs().isEmpty()) {
+          warnMsgs.append("Validator " + reportEntry.getKey()
+              + " reports warnings:<ul>");
+          for (final String msg : report.getWarningMsgs()) {
+            warnMsgs.append("<li>" + msg + "</li>");
+          }
+          warnMsgs.append("</ul>");
+        }
+      }
+      if (errorMsgs.length() > 0) {
+        // If putting more than 4000 characters in the cookie, the entire
+        // message
+        // will somehow get discarded.
+        registerError(ret, errorMsgs.length() > 4000 ? errorMsgs.substring(0, 4000)
+            : errorMsgs.toString(), resp, 500);
+      }
+      if (warnMsgs.length() > 0) {
+        ret.put(
+            "warn",
+            warnMsgs.length() > 4000 ? warnMsgs.substring(0, 4000) : warnMsgs
+                .toString());
+      }
+    } catch (final Exception e) {
+      logger.info("Installation Failed.", e);
+      String error = e.getMessage();
+      if (error.length() > 512) {
+        error =
+            error.substring(0, 512) + "<br>Too many errors to display.<br>";
+      }
+      registerError(ret, "Installation Failed.<br>" + error, resp, 500);
+    }
+  }
+
+  /**
+   * Uploads of a project archive in pieces, which a client can continue after a failure. The
+   * pieces are sent as the raw bodies of posts, with the parameters in the url:
+   *
+   * uploadStart (project, fileName, size): returns the uploadId.
+   * uploadChunk (uploadId, offset): appends the body if offset is where the upload is at, and
+   * returns received, the offset of the next piece.
+   * uploadStatus (uploadId): returns received and size, e.g. to resume after a restart.
+   * uploadFinish (uploadId, fix): installs the archive like the upload action.
+   * uploadCancel (uploadId): deletes the upload.
+   */
+  private void handleAjaxUploadAction(final HttpServletRequest req,
+      final HttpServletResponse resp, final Session session) throws ServletException,
+      IOException {
+    final HashMap<String, String> ret = new HashMap<>();
+    final User user = session.getUser();
+    final String ajaxName = getParam(req, "ajax");
+    try {
+      if (ajaxName.equals("uploadStart")) {
+        final String projectName = getParam(req, "project");
+        final Project project = this.projectManager.getProject(projectName);
+        if (checkUploadPermission(projectName, project, user, ret, resp)) {
+          final String fileName = getParam(req, "fileName");
+          if (!fileName.toLowerCase().endsWith(".zip")) {
+            registerError(ret, "File type of " + fileName + " unrecognized.", resp, 400);
+          } else {
+            try {
+              final ResumableUploadStore.Upload upload = this.uploadStore.start(
+                  project.getName(), user.getUserId(), fileName, getLongParam(req, "size"));
+              ret.put("uploadId", upload.getId());
+              ret.put("received", "0");
+            } catch (final IllegalArgumentException e) {
+              registerError(ret, e.getMessage(), resp, 413);
+            } catch (final IllegalStateException e) {
+              registerError(ret, e.getMessage(), resp, 429);
+            }
+          }
+        }
+      } else {
+        final ResumableUploadStore.Upload upload =
+            this.uploadStore.get(getParam(req, "uploadId"), user.getUserId());
+        if (upload == null) {
+          registerError(ret, "Upload " + getParam(req, "uploadId")
+              + " doesn't exist or has expired.", resp, 404);
+        } else if (ajaxName.equals("uploadChunk")) {
+          final long received = upload.append(getLongParam(req, "offset"), req.getInputStream());
+          ret.put("received", String.valueOf(received));
+        } else if (ajaxName.equals("uploadStatus")) {
+          ret.put("received", String.valueOf(upload.getReceived()));
+          ret.put("size", String.valueOf(upload.getSize()));
+        } else if (ajaxName.equals("uploadFinish")) {
+          ajaxFinishUpload(upload, req, resp, ret, user);
+        } else if (ajaxName.equals("uploadCancel")) {
+          this.uploadStore.remove(upload);
+        } else {
+          registerError(ret, "Unknown action " + ajaxName, resp, 400);
+        }
+      }
+    } catch (final IOException e) {
+      logger.info("Upload failed.", e);
+      registerError(ret, "Upload failed. " + e.getMessage(), resp, 500);
+    }
+    this.writeJSON(resp, ret);
+  }
+
+  private void ajaxFinishUpload(final ResumableUploadStore.Upload upload,
+      final HttpServletRequest req, final HttpServletResponse resp,
+      final Map<String, String> ret, final User user) throws ServletException, IOException {
+    final Project project = this.projectManager.getProject(upload.getProjectName());
+    if (!checkUploadPermission(upload.getProjectName(), project, user, ret, resp)) {
+      this.uploadStore.remove(upload);
+      return;
+    }
+    ret.put("projectId", String.valueOf(project.getId()));
+
+    final byte[] md5 = upload.finish();
+    try {
+      logger.info("Installing uploaded file " + upload.getFile().getName());
+      installArchive(project, upload.getFile(), md5, "zip", user,
+          getUploadProps(getParam(req, "fix", null)), ret, resp);
+    } finally {
+      this.uploadStore.remove(upload);
+    }
+    ret.put("version", String.valueOf(project.getVersion()));
+  }
+
   private void handleUpload(final HttpServletRequest req, final HttpServletResponse resp,
       final Map<String, Object> multipart, final Session session) throws ServletException,
       IOException {
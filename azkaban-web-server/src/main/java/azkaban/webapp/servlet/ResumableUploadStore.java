@@ -0,0 +1,270 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp.servlet;
+
+import azkaban.utils.Md5Hasher;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Project archives uploaded in pieces, so that a client on a bad connection can continue an upload
+ * from the last byte the server got instead of starting over.
+ *
+ * The pieces are appended to a file in the order of their offsets, and the md5 hash of the archive
+ * is computed as they arrive, so it doesn't have to be read again before it is stored. Uploads are
+ * kept in memory, so they don't survive a restart of the web server. Uploads that haven't
+ * received anything for a while are deleted by a timer. An upload can't be larger than the max
+ * size given to the store, whatever size the client says it has, and a user can only have a few
+ * uploads in progress.
+ */
+public class ResumableUploadStore {
+
+  private static final Logger logger = Logger.getLogger(ResumableUploadStore.class);
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long MAX_EXPIRY_CHECK_INTERVAL_MS = 10 * 60 * 1000;
+
+  private final File uploadDir;
+  private final long expiryMs;
+  private final long maxBytes;
+  private final int maxUploadsPerUser;
+  private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService expiryTimer;
+
+  public ResumableUploadStore(final File uploadDir, final long expiryMs, final long maxBytes,
+      final int maxUploadsPerUser) {
+    this.uploadDir = uploadDir;
+    this.expiryMs = expiryMs;
+    this.maxBytes = maxBytes;
+    this.maxUploadsPerUser = maxUploadsPerUser;
+    // Left over from before a restart, can't be resumed.
+    FileUtils.deleteQuietly(uploadDir);
+
+    this.expiryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "ResumableUploadStore-expiry");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long intervalMs = Math.max(1000, Math.min(expiryMs, MAX_EXPIRY_CHECK_INTERVAL_MS));
+    this.expiryTimer.scheduleWithFixedDelay(() -> {
+      try {
+        expire();
+      } catch (final RuntimeException e) {
+        logger.error("Failed to delete expired uploads.", e);
+      }
+    }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Starts an upload of a file of the given size.
+   *
+   * @throws IllegalArgumentException if the size is negative or larger than the max size
+   * @throws IllegalStateException if the user already has the max number of uploads in progress
+   */
+  public synchronized Upload start(final String projectName, final String userId,
+      final String fileName, final long size) throws IOException {
+    if (size < 0 || size > this.maxBytes) {
+      throw new IllegalArgumentException("Upload size " + size + " must be between 0 and "
+          + this.maxBytes + " bytes.");
+    }
+    expire();
+    if (getNumUploads(userId) >= this.maxUploadsPerUser) {
+      throw new IllegalStateException("User " + userId + " already has "
+          + this.maxUploadsPerUser + " uploads in progress.");
+    }
+    final String id = UUID.randomUUID().toString();
+    final File dir = new File(this.uploadDir, id);
+    if (!dir.mkdirs()) {
+      throw new IOException("Can't create upload directory " + dir);
+    }
+    // Only the name. The archive's name is what the project file is called.
+    final File file = new File(dir, new File(fileName).getName());
+    if (!file.createNewFile()) {
+      throw new IOException("Can't create upload file " + file);
+    }
+    final Upload upload = new Upload(id, projectName, userId, file, size);
+    this.uploads.put(id, upload);
+    logger.info("Started upload " + id + " of " + file.getName() + " [" + size + " bytes] to "
+        + projectName + " by " + userId);
+    return upload;
+  }
+
+  /**
+   * @return the upload, or null if it doesn't exist or was started by another user.
+   */
+  public Upload get(final String id, final String userId) {
+    final Upload upload = this.uploads.get(id);
+    if (upload == null || !upload.getUserId().equals(userId)) {
+      return null;
+    }
+    return upload;
+  }
+
+  /**
+   * Deletes the upload and its file.
+   */
+  public void remove(final Upload upload) {
+    this.uploads.remove(upload.getId());
+    FileUtils.deleteQuietly(upload.getFile().getParentFile());
+  }
+
+  int getNumUploads(final String userId) {
+    int count = 0;
+    for (final Upload upload : this.uploads.values()) {
+      if (upload.getUserId().equals(userId)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Stops the expiry timer. Uploads in progress are left as they are.
+   */
+  public void shutdown() {
+    this.expiryTimer.shutdownNow();
+  }
+
+  void expire() {
+    final long cutoff = System.currentTimeMillis() - this.expiryMs;
+    for (final Iterator<Upload> it = this.uploads.values().iterator(); it.hasNext(); ) {
+      final Upload upload = it.next();
+      if (upload.getLastUpdateTime() < cutoff) {
+        logger.info("Upload " + upload.getId() + " of " + upload.getFile().getName()
+            + " expired at " + upload.getReceived() + " of " + upload.getSize() + " bytes.");
+        it.remove();
+        FileUtils.deleteQuietly(upload.getFile().getParentFile());
+      }
+    }
+  }
+
+  public static class Upload {
+
+    private final String id;
+    private final String projectName;
+    private final String userId;
+    private final File file;
+    private final long size;
+    private final MessageDigest digest = Md5Hasher.getMd5Digest();
+    private long received = 0;
+    private byte[] md5 = null;
+    private volatile long lastUpdateTime = System.currentTimeMillis();
+
+    Upload(final String id, final String projectName, final String userId, final File file,
+        final long size) {
+      this.id = id;
+      this.projectName = projectName;
+      this.userId = userId;
+      this.file = file;
+      this.size = size;
+    }
+
+    /**
+     * Appends the bytes of a piece that starts at the given offset. A piece that doesn't start at
+     * the end of what was received so far is ignored, e.g. if the client sends again a piece
+     * whose response it didn't get.
+     *
+     * If reading the piece fails halfway, the bytes that were read are kept, and the client
+     * continues from there.
+     *
+     * @return number of bytes received so far, where the client has to continue.
+     */
+    public synchronized long append(final long offset, final InputStream in) throws IOException {
+      this.lastUpdateTime = System.currentTimeMillis();
+      if (offset != this.received) {
+        return this.received;
+      }
+
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      try (FileOutputStream out = new FileOutputStream(this.file, true)) {
+        int num;
+        while ((num = in.read(buffer)) != -1) {
+          if (this.received + num > this.size) {
+            throw new IOException("Upload " + this.id + " is larger than " + this.size
+                + " bytes.");
+          }
+          out.write(buffer, 0, num);
+          this.digest.update(buffer, 0, num);
+          this.received += num;
+        }
+      } catch (final IOException e) {
+        // Drop a partially written buffer, so the file matches the hash and the received count.
+        try (FileOutputStream out = new FileOutputStream(this.file, true)) {
+          out.getChannel().truncate(this.received);
+        }
+        throw e;
+      } finally {
+        this.lastUpdateTime = System.currentTimeMillis();
+      }
+      return this.received;
+    }
+
+    /**
+     * @return the md5 hash of the file
+     * @throws IOException if not all of the file was received
+     */
+    public synchronized byte[] finish() throws IOException {
+      if (this.received != this.size) {
+        throw new IOException("Upload " + this.id + " is incomplete. Received "
+            + this.received + " of " + this.size + " bytes.");
+      }
+      if (this.md5 == null) {
+        this.md5 = this.digest.digest();
+      }
+      return this.md5;
+    }
+
+    public String getId() {
+      return this.id;
+    }
+
+    public String getProjectName() {
+      return this.projectName;
+    }
+
+    public String getUserId() {
+      return this.userId;
+    }
+
+    public File getFile() {
+      return this.file;
+    }
+
+    public long getSize() {
+      return this.size;
+    }
+
+    public synchronized long getReceived() {
+      return this.received;
+    }
+
+    public long getLastUpdateTime() {
+      return this.lastUpdateTime;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorManager;
+import azkaban.executor.ExecutorManagerAdapter;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.Props;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutionStateCacheTest {
+
+  private ExecutorManagerAdapter executorManager;
+  private ExecutionStateCache cache;
+
+  @Before
+  public void setUp() {
+    this.executorManager = mock(ExecutorManagerAdapter.class);
+    this.cache = new ExecutionStateCache(this.executorManager, 60 * 1000);
+  }
+
+  private static ExecutableFlow flow(final Status status) {
+    final ExecutableFlow flow = new ExecutableFlow();
+    flow.setExecutionId(1);
+    flow.setStatus(status);
+    return flow;
+  }
+
+  @Test
+  public void testRunningFromMemory() throws Exception {
+    final ExecutableFlow running = flow(Status.RUNNING);
+    when(this.executorManager.getRunningExecutableFlow(1)).thenReturn(running);
+
+    assertThat(this.cache.get(1)).isSameAs(running);
+    verify(this.executorManager, never()).getExecutableFlow(1);
+  }
+
+  @Test
+  public void testFinishedReadOnce() throws Exception {
+    final ExecutableFlow finished = flow(Status.SUCCEEDED);
+    when(this.executorManager.getExecutableFlow(1)).thenReturn(finished);
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(this.cache.get(1)).isSameAs(finished);
+    }
+    verify(this.executorManager, times(1)).getExecutableFlow(1);
+  }
+
+  @Test
+  public void testLogChunksAreShared() throws Exception {
+    final ExecutableFlow running = flow(Status.RUNNING);
+    final LogData flowLog = new LogData(0, 4, "flow");
+    final LogData jobLog = new LogData(0, 3, "job");
+    when(this.executorManager.getExecutableFlowLog(running, 0, 100)).thenReturn(flowLog);
+    when(this.executorManager.getExecutionJobLog(running, "job", 0, 100, 0)).thenReturn(jobLog);
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(this.cache.getFlowLog(running, 0, 100)).isSameAs(flowLog);
+      assertThat(this.cache.getJobLog(running, "job", 0, 100, 0)).isSameAs(jobLog);
+      assertThat(this.cache.getJobLog(running, "job", 0, 100, 1)).isNull();
+    }
+    verify(this.executorManager, times(1)).getExecutableFlowLog(running, 0, 100);
+    verify(this.executorManager, times(1)).getExecutionJobLog(running, "job", 0, 100, 0);
+    verify(this.executorManager, times(1)).getExecutionJobLog(running, "job", 0, 100, 1);
+
+    // Other chunks are fetched.
+    this.cache.getFlowLog(running, 4, 100);
+    verify(this.executorManager, times(1)).getExecutableFlowLog(running, 4, 100);
+  }
+
+  @Test
+  public void testNotFound() throws Exception {
+    assertThat(this.cache.get(1)).isNull();
+  }
+
+  @Test
+  public void testError() throws Exception {
+    when(this.executorManager.getExecutableFlow(1))
+        .thenThrow(new ExecutorManagerException("db is down"));
+    assertThatThrownBy(() -> this.cache.get(1))
+        .isInstanceOf(ExecutorManagerException.class)
+        .hasMessage("db is down");
+  }
+
+  @Test
+  public void testRefreshFromProps() throws Exception {
+    final ExecutorManager manager = mock(ExecutorManager.class);
+    final ExecutableFlow preparing = flow(Status.PREPARING);
+    when(manager.getExecutableFlow(1)).thenReturn(preparing);
+    final Props props = new Props();
+    props.put(ConfigurationKeys.EXECUTION_PAGE_STATE_REFRESH_MS, 0);
+    final ExecutionStateCache uncached = new ExecutionStateCache(manager, props);
+
+    assertThat(uncached.get(1)).isSameAs(preparing);
+    assertThat(uncached.get(1)).isSameAs(preparing);
+    verify(manager, times(2)).getExecutableFlow(1);
+  }
+}
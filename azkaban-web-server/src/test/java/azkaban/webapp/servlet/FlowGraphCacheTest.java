@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.utils.Props;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlowGraphCacheTest {
+
+  private static final String KEY = "flowgraph/1/2/flow";
+
+  private final FlowGraphCache cache = new FlowGraphCache(new Props());
+  private final AtomicInteger builds = new AtomicInteger();
+  private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+  private HttpServletRequest req;
+  private HttpServletResponse resp;
+
+  @Before
+  public void setUp() throws Exception {
+    this.req = mock(HttpServletRequest.class);
+    this.resp = mock(HttpServletResponse.class);
+    when(this.resp.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(final int b) {
+        FlowGraphCacheTest.this.body.write(b);
+      }
+    });
+  }
+
+  private Object graph() {
+    this.builds.incrementAndGet();
+    return Collections.singletonMap("flow", "flow");
+  }
+
+  @Test
+  public void testBuildsOnce() throws Exception {
+    this.cache.write(this.req, this.resp, KEY, this::graph);
+    final String first = this.body.toString("UTF-8");
+    this.body.reset();
+    this.cache.write(this.req, this.resp, KEY, this::graph);
+
+    assertThat(this.body.toString("UTF-8")).isEqualTo(first).contains("\"flow\"");
+    assertThat(this.builds.get()).isEqualTo(1);
+    verify(this.resp, never()).setHeader("Content-Encoding", "gzip");
+  }
+
+  @Test
+  public void testNotModified() throws Exception {
+    when(this.req.getHeader("If-None-Match"))
+        .thenReturn("\"other\", " + FlowGraphCache.etag(KEY));
+    this.cache.write(this.req, this.resp, KEY, this::graph);
+
+    verify(this.resp).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    verify(this.resp).setHeader("ETag", FlowGraphCache.etag(KEY));
+    assertThat(this.body.size()).isEqualTo(0);
+    assertThat(this.builds.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void testGzip() throws Exception {
+    when(this.req.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+    this.cache.write(this.req, this.resp, KEY, this::graph);
+
+    verify(this.resp).setHeader("Content-Encoding", "gzip");
+    final String json = IOUtils.toString(
+        new GZIPInputStream(new ByteArrayInputStream(this.body.toByteArray())), "UTF-8");
+    assertThat(json).contains("\"flow\"");
+  }
+
+  @Test
+  public void testEtagDependsOnKey() {
+    assertThat(FlowGraphCache.etag(KEY)).isNotEqualTo(FlowGraphCache.etag("flowgraph/1/3/flow"));
+    assertThat(FlowGraphCache.matches(null, FlowGraphCache.etag(KEY))).isFalse();
+    assertThat(FlowGraphCache.matches("W/" + FlowGraphCache.etag(KEY), FlowGraphCache.etag(KEY)))
+        .isTrue();
+    assertThat(FlowGraphCache.matches("*", FlowGraphCache.etag(KEY))).isTrue();
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import azkaban.utils.Md5Hasher;
+import azkaban.webapp.servlet.ResumableUploadStore.Upload;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResumableUploadStoreTest {
+
+  private static final byte[] DATA = "0123456789abcdefghij".getBytes();
+
+  @Rule
+  public final TemporaryFolder temp = new TemporaryFolder();
+
+  private ResumableUploadStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    this.store = new ResumableUploadStore(new File(this.temp.getRoot(), "uploads"), 60 * 1000,
+        DATA.length, 2);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.store.shutdown();
+  }
+
+  private static InputStream piece(final int from, final int to) {
+    return new ByteArrayInputStream(Arrays.copyOfRange(DATA, from, to));
+  }
+
+  @Test
+  public void testUploadInPieces() throws Exception {
+    final Upload upload = this.store.start("project", "alice", "../archive.zip", DATA.length);
+    assertThat(upload.getFile().getName()).isEqualTo("archive.zip");
+
+    assertThat(upload.append(0, piece(0, 8))).isEqualTo(8);
+    // A repeated piece is ignored.
+    assertThat(upload.append(0, piece(0, 8))).isEqualTo(8);
+    assertThat(upload.append(8, piece(8, 20))).isEqualTo(20);
+
+    assertThat(FileUtils.readFileToByteArray(upload.getFile())).isEqualTo(DATA);
+    final byte[] md5 = upload.finish();
+    assertThat(md5).isEqualTo(Md5Hasher.md5Hash(upload.getFile()));
+  }
+
+  @Test
+  public void testResumeAfterBrokenPiece() throws Exception {
+    final Upload upload = this.store.start("project", "alice", "archive.zip", DATA.length);
+    final InputStream broken = new InputStream() {
+      private int position = 0;
+
+      @Override
+      public int read() throws IOException {
+        if (this.position == 5) {
+          throw new IOException("Connection reset");
+        }
+        return DATA[this.position++];
+      }
+    };
+
+    assertThatThrownBy(() -> upload.append(0, broken)).isInstanceOf(IOException.class);
+    assertThat(upload.getReceived()).isLessThanOrEqualTo(5);
+    final int received = (int) upload.getReceived();
+    assertThat(upload.append(received, piece(received, 20))).isEqualTo(20);
+
+    assertThat(FileUtils.readFileToByteArray(upload.getFile())).isEqualTo(DATA);
+    assertThat(upload.finish()).isEqualTo(Md5Hasher.md5Hash(upload.getFile()));
+  }
+
+  @Test
+  public void testIncompleteOrOversizedUploadFails() throws Exception {
+    final Upload upload = this.store.start("project", "alice", "archive.zip", 10);
+    upload.append(0, piece(0, 5));
+    assertThatThrownBy(upload::finish).isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> upload.append(5, piece(5, 20))).isInstanceOf(IOException.class);
+    assertThat(upload.getFile().length()).isEqualTo(upload.getReceived());
+  }
+
+  @Test
+  public void testSizeOverMaxIsRejected() throws Exception {
+    assertThatThrownBy(() -> this.store.start("project", "alice", "archive.zip", DATA.length + 1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> this.store.start("project", "alice", "archive.zip", -1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testUploadsBelongToTheirUser() throws Exception {
+    final Upload upload = this.store.start("project", "alice", "archive.zip", DATA.length);
+    assertThat(this.store.get(upload.getId(), "alice")).isSameAs(upload);
+    assertThat(this.store.get(upload.getId(), "bob")).isNull();
+
+    this.store.remove(upload);
+    assertThat(this.store.get(upload.getId(), "alice")).isNull();
+    assertThat(upload.getFile().exists()).isFalse();
+  }
+
+  @Test
+  public void testExpire() throws Exception {
+    final ResumableUploadStore expiring =
+        new ResumableUploadStore(new File(this.temp.getRoot(), "expiring"), -1, DATA.length, 2);
+    final Upload upload = expiring.start("project", "alice", "archive.zip", DATA.length);
+    expiring.expire();
+    assertThat(expiring.get(upload.getId(), "alice")).isNull();
+    assertThat(upload.getFile().exists()).isFalse();
+    expiring.shutdown();
+  }
+
+  @Test
+  public void testExpireOnTimer() throws Exception {
+    final ResumableUploadStore expiring =
+        new ResumableUploadStore(new File(this.temp.getRoot(), "expiring"), 0, DATA.length, 2);
+    final Upload upload = expiring.start("project", "alice", "archive.zip", DATA.length);
+
+    // Nothing else is started or touched, the timer deletes it.
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (upload.getFile().exists() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    assertThat(expiring.get(upload.getId(), "alice")).isNull();
+    assertThat(upload.getFile().exists()).isFalse();
+    expiring.shutdown();
+  }
+
+  @Test
+  public void testUploadsPerUserAreCapped() throws Exception {
+    final Upload first = this.store.start("project", "alice", "archive.zip", DATA.length);
+    this.store.start("project", "alice", "archive.zip", DATA.length);
+    assertThatThrownBy(() -> this.store.start("project", "alice", "archive.zip", DATA.length))
+        .isInstanceOf(IllegalStateException.class);
+    // Other users aren't affected.
+    assertThat(this.store.start("project", "bob", "archive.zip", DATA.length)).isNotNull();
+
+    this.store.remove(first);
+    assertThat(this.store.start("project", "alice", "archive.zip", DATA.length)).isNotNull();
+    assertThat(this.store.getNumUploads("alice")).isEqualTo(2);
+  }
+}